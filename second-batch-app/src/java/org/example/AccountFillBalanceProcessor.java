@@ -0,0 +1,119 @@
+package org.example;
+
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemProcessor;
+import org.springframework.batch.item.ItemStream;
+import org.springframework.batch.item.ItemStreamException;
+
+import java.math.BigDecimal;
+
+
+/**
+ * Processor calculating running balance of multiple accounts, which expects transactions ordered by account
+ * (see {@link AccountKeysetReader}), and chronologically within the account. Balance of the current account is
+ * calculated by {@link FillBalanceProcessor}, which is reset to zero balance whenever the next account starts.
+ * Final balance of every account is summarized as number of accounts with non-negative and negative balance.
+ * The current account and the summaries are kept in plain fields, loaded from execution context once step execution
+ * is set, and put into the context only when it's saved, i.e. at chunk commit, along with the balance of the current
+ * account put there by {@link FillBalanceProcessor} (hence this processor is a stream delegating to it), so that
+ * the context never holds the account of the chunk which is rolled back
+ */
+public class AccountFillBalanceProcessor implements ItemProcessor<BankTransaction, BalanceUpdate>, ItemStream {
+
+    public static final String CURRENT_ACCOUNT_ID = "currentAccountId";
+    public static final String POSITIVE_ACCOUNTS = "positiveAccounts";
+    public static final String NEGATIVE_ACCOUNTS = "negativeAccounts";
+
+    private final FillBalanceProcessor accountProcessor;
+
+    // Step execution variable needs to be set in order for processor to be executed
+    private StepExecution stepExecution;
+
+    // Account of the last processed transaction, null if nothing was processed yet or the account is completed
+    private Long currentAccountId;
+    // Number of completed accounts with non-negative and negative balance
+    private long positiveAccounts;
+    private long negativeAccounts;
+
+    public AccountFillBalanceProcessor(FillBalanceProcessor accountProcessor) {
+        this.accountProcessor = accountProcessor;
+    }
+
+    @Override
+    public BalanceUpdate process(BankTransaction item) throws Exception {
+        if (stepExecution == null) {
+            throw new RuntimeException("Can not process item without accessing the step execution");
+        }
+
+        if (currentAccountId == null || currentAccountId != item.getAccountId()) {
+            // Previous account is over: summarize it, and start the next one from zero balance
+            completeAccount();
+            currentAccountId = item.getAccountId();
+            accountProcessor.resumeFrom(0, BigDecimal.ZERO);
+        }
+        return accountProcessor.process(item);
+    }
+
+    /**
+     * Summarize the balance of the current account, if any, and publish the summaries in the execution context.
+     * Needs to be called once all the transactions are processed, since the last account is not followed by the next one
+     */
+    public void completeCurrentAccount() {
+        if (stepExecution == null) {
+            throw new RuntimeException("Can not complete the account without accessing the step execution");
+        }
+        completeAccount();
+        update(stepExecution.getExecutionContext());
+    }
+
+    private void completeAccount() {
+        if (currentAccountId == null) {
+            return;
+        }
+        if (accountProcessor.getLatestExactBalance().signum() >= 0) {
+            positiveAccounts++;
+        } else {
+            negativeAccounts++;
+        }
+        currentAccountId = null;
+    }
+
+    @Override
+    public void update(ExecutionContext executionContext) throws ItemStreamException {
+        if (stepExecution == null) {
+            return; // Nothing is loaded, so nothing to publish
+        }
+        accountProcessor.update(executionContext);
+        if (currentAccountId != null) {
+            executionContext.putLong(CURRENT_ACCOUNT_ID, currentAccountId);
+        } else {
+            executionContext.remove(CURRENT_ACCOUNT_ID);
+        }
+        executionContext.putLong(POSITIVE_ACCOUNTS, positiveAccounts);
+        executionContext.putLong(NEGATIVE_ACCOUNTS, negativeAccounts);
+    }
+
+    public long getPositiveAccounts() {
+        return positiveAccounts;
+    }
+
+    public long getNegativeAccounts() {
+        return negativeAccounts;
+    }
+
+    // Step execution need to be set when step execution is relevant, and cleared when no longer relevant.
+    // Current account and the summaries are loaded from its execution context, to continue on restart
+    public void setStepExecution(StepExecution stepExecution) {
+        this.stepExecution = stepExecution;
+        accountProcessor.setStepExecution(stepExecution);
+        if (stepExecution == null) {
+            return;
+        }
+        ExecutionContext executionContext = stepExecution.getExecutionContext();
+        currentAccountId = executionContext.containsKey(CURRENT_ACCOUNT_ID)
+                ? executionContext.getLong(CURRENT_ACCOUNT_ID) : null;
+        positiveAccounts = executionContext.getLong(POSITIVE_ACCOUNTS, 0L);
+        negativeAccounts = executionContext.getLong(NEGATIVE_ACCOUNTS, 0L);
+    }
+}
@@ -0,0 +1,105 @@
+package org.example;
+
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamException;
+import org.springframework.batch.item.ItemStreamReader;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import javax.sql.DataSource;
+import java.util.Iterator;
+import java.util.List;
+
+
+/**
+ * Reader of 'bank_transaction_yearly' table account by account, i.e. ordered by account and then by id, using keyset
+ * pagination on both: 'where (account_id, id) > (:lastAccountId, :lastId) order by account_id, id limit :n'.
+ * Reader is limited to accounts of a single partition, which are contiguous range of accounts
+ * 'account_id > :minAccountId and account_id <= :maxAccountId', where range bounds are taken from execution context
+ * (see {@link AccountPartitioner}), so that the index on account and id is scanned within the range only.
+ * Account and id of the last read transaction are saved in execution context for restart
+ */
+public class AccountKeysetReader implements ItemStreamReader<BankTransaction> {
+
+    // Execution context keys for the range of accounts to read: minimal account id (exclusive)
+    // and maximal account id (inclusive), all accounts if not set
+    public static final String MIN_ACCOUNT_ID = "minAccountId";
+    public static final String MAX_ACCOUNT_ID = "maxAccountId";
+
+    private static final String LAST_ACCOUNT_ID = "lastAccountId";
+    private static final String LAST_ID = "lastId";
+
+    private final String name;
+    private final DataSource dataSource;
+    private final int pageSize;
+    private RowMapper<BankTransaction> rowMapper = BankTransaction.ROW_MAPPER;
+
+    private JdbcTemplate jdbcTemplate;
+    private Iterator<BankTransaction> currentPage;
+    private boolean lastPage;
+    private long minAccountId;
+    private long maxAccountId;
+    private long lastReadAccountId;
+    private long lastReadId;
+
+    public AccountKeysetReader(String name, DataSource dataSource, int pageSize) {
+        this.name = name;
+        this.dataSource = dataSource;
+        this.pageSize = pageSize;
+    }
+
+    public void setRowMapper(RowMapper<BankTransaction> rowMapper) {
+        this.rowMapper = rowMapper;
+    }
+
+    @Override
+    public void open(ExecutionContext executionContext) throws ItemStreamException {
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        minAccountId = executionContext.getLong(MIN_ACCOUNT_ID, Long.MIN_VALUE);
+        maxAccountId = executionContext.getLong(MAX_ACCOUNT_ID, Long.MAX_VALUE);
+        // On restart, continue right after the last read transaction; otherwise start before the first account
+        lastReadAccountId = executionContext.getLong(getKey(LAST_ACCOUNT_ID), Long.MIN_VALUE);
+        lastReadId = executionContext.getLong(getKey(LAST_ID), Long.MIN_VALUE);
+        currentPage = null;
+        lastPage = false;
+    }
+
+    @Override
+    public BankTransaction read() throws Exception {
+        if (currentPage == null || !currentPage.hasNext()) {
+            if (lastPage) {
+                return null;
+            }
+            List<BankTransaction> page = jdbcTemplate.query(BankTransaction.SELECT_ALL_QUERY
+                            + " where account_id > ? and account_id <= ? and (account_id, id) > (?, ?)"
+                            + " order by account_id, id limit ?",
+                    rowMapper, minAccountId, maxAccountId, lastReadAccountId, lastReadId, pageSize);
+            // Page which is not full is the last one, no need to query again
+            lastPage = page.size() < pageSize;
+            currentPage = page.iterator();
+            if (!currentPage.hasNext()) {
+                return null;
+            }
+        }
+
+        BankTransaction transaction = currentPage.next();
+        lastReadAccountId = transaction.getAccountId();
+        lastReadId = transaction.getId();
+        return transaction;
+    }
+
+    @Override
+    public void update(ExecutionContext executionContext) throws ItemStreamException {
+        executionContext.putLong(getKey(LAST_ACCOUNT_ID), lastReadAccountId);
+        executionContext.putLong(getKey(LAST_ID), lastReadId);
+    }
+
+    @Override
+    public void close() throws ItemStreamException {
+        currentPage = null;
+    }
+
+    private String getKey(String key) {
+        return name + "." + key;
+    }
+}
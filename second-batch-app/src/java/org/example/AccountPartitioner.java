@@ -0,0 +1,51 @@
+package org.example;
+
+import org.springframework.batch.core.partition.support.Partitioner;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.Map;
+
+
+/**
+ * Partitioner splitting accounts into contiguous ranges of account ids of (almost) equal width, to be read by
+ * {@link AccountKeysetReader} in each partition. All the transactions of an account belong to the same partition,
+ * so that account's balance is computed sequentially, while different accounts are processed in parallel.
+ * Only the bounds of account ids are queried upfront, accounts themselves are not listed
+ */
+public class AccountPartitioner implements Partitioner {
+
+    private static final String PARTITION_NAME_PREFIX = "accountPartition-";
+
+    private final DataSource dataSource;
+
+    public AccountPartitioner(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    @Override
+    public Map<String, ExecutionContext> partition(int gridSize) {
+        Map<String, Long> bounds = new JdbcTemplate(dataSource)
+                .queryForObject("select coalesce(min(account_id), 0) as min_id, coalesce(max(account_id), -1) as max_id " +
+                                "from bank_transaction_yearly",
+                        (rs, rowNum) -> Map.of("min", rs.getLong("min_id"), "max", rs.getLong("max_id")));
+        // Ranges are left-exclusive, so start right before the minimal account id
+        long from = bounds.get("min") - 1;
+        long to = bounds.get("max");
+        long width = Math.max((to - from + gridSize - 1) / gridSize, 1);
+
+        Map<String, ExecutionContext> partitionMap = new HashMap<>(gridSize);
+        for (int i = 0; i < gridSize; i++) {
+            ExecutionContext executionContext = new ExecutionContext();
+            long minAccountId = from + i * width;
+            // First and last partitions take the rest, including accounts of transactions inserted after partitioning
+            executionContext.putLong(AccountKeysetReader.MIN_ACCOUNT_ID, i == 0 ? Long.MIN_VALUE : minAccountId);
+            executionContext.putLong(AccountKeysetReader.MAX_ACCOUNT_ID,
+                    i == gridSize - 1 ? Long.MAX_VALUE : minAccountId + width);
+            partitionMap.put(PARTITION_NAME_PREFIX + i, executionContext);
+        }
+        return partitionMap;
+    }
+}
@@ -0,0 +1,125 @@
+package org.example;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+
+/**
+ * Utility class for fixed-point amounts represented as long number of cents, e.g. 12.34 -> 1234, which is exact
+ * for 'numeric(10,2)' columns and doesn't require allocating {@link BigDecimal} on every operation.
+ * All the arithmetic fails with {@link ArithmeticException} on overflow instead of silently wrapping around
+ */
+public class AmountCents {
+
+    private static final int SCALE = 2;
+    private static final long[] POWERS_OF_TEN = {
+            1L, 10L, 100L, 1_000L, 10_000L, 100_000L, 1_000_000L, 10_000_000L, 100_000_000L, 1_000_000_000L,
+            10_000_000_000L, 100_000_000_000L, 1_000_000_000_000L, 10_000_000_000_000L, 100_000_000_000_000L,
+            1_000_000_000_000_000L, 10_000_000_000_000_000L, 100_000_000_000_000_000L, 1_000_000_000_000_000_000L
+    };
+
+    /**
+     * Read the numeric column straight into cents, parsing its textual value without creating {@link BigDecimal}
+     *
+     * @param rs result set positioned at the row
+     * @param columnIndex index of the numeric column (starting from 1)
+     * @return amount in cents
+     */
+    public static long fromResultSet(ResultSet rs, int columnIndex) throws SQLException {
+        String value = rs.getString(columnIndex);
+        if (value == null) {
+            throw new SQLException("Amount in column " + columnIndex + " is null");
+        }
+        return parse(value);
+    }
+
+    /**
+     * Parse decimal number, such as "-12.34", "5" or "0.50", into cents. Digits beyond the cents are allowed only
+     * if they are zeros, such that conversion is always exact
+     *
+     * @param value decimal number, without exponent
+     * @return amount in cents
+     */
+    public static long parse(String value) {
+        int length = value.length();
+        int position = 0;
+        boolean negative = false;
+        if (position < length && (value.charAt(position) == '-' || value.charAt(position) == '+')) {
+            negative = value.charAt(position) == '-';
+            position++;
+        }
+        long cents = 0;
+        int fractionDigits = -1; // Stays negative until decimal point is met
+        boolean hasDigits = false;
+        for (; position < length; position++) {
+            char c = value.charAt(position);
+            if (c == '.' && fractionDigits < 0) {
+                fractionDigits = 0;
+                continue;
+            }
+            if (c < '0' || c > '9') {
+                throw new NumberFormatException("Not a decimal amount: " + value);
+            }
+            hasDigits = true;
+            if (fractionDigits >= SCALE) {
+                if (c != '0') {
+                    throw new ArithmeticException("Amount has more than " + SCALE + " digits of scale: " + value);
+                }
+                continue;
+            }
+            cents = Math.addExact(Math.multiplyExact(cents, 10), c - '0');
+            if (fractionDigits >= 0) {
+                fractionDigits++;
+            }
+        }
+        if (!hasDigits) {
+            throw new NumberFormatException("Not a decimal amount: " + value);
+        }
+        cents = Math.multiplyExact(cents, POWERS_OF_TEN[SCALE - Math.max(fractionDigits, 0)]);
+        return negative ? -cents : cents;
+    }
+
+    // Exact conversion of the amount with at most 2 digits of scale into cents
+    public static long valueOf(BigDecimal amount) {
+        return amount.setScale(SCALE).unscaledValue().longValueExact();
+    }
+
+    // Conversion of cents back to the amount with scale of 2, to be used by writers only
+    public static BigDecimal toBigDecimal(long cents) {
+        return BigDecimal.valueOf(cents, SCALE);
+    }
+
+    /**
+     * Multiply amount in cents by decimal rate, rounding the result to cents with {@link java.math.RoundingMode#HALF_UP},
+     * which gives exactly the same result as amount.multiply(rate).setScale(2, RoundingMode.HALF_UP).
+     * Rate is passed in its unscaled form (e.g. 1.05 -> 105 with scale 2), which should be computed once
+     *
+     * @param cents amount in cents
+     * @param rateUnscaled unscaled value of the rate
+     * @param rateScale scale of the rate
+     * @return multiplied amount in cents
+     */
+    public static long multiplyHalfUp(long cents, long rateUnscaled, int rateScale) {
+        if (rateScale <= 0) {
+            // Rate is a whole number (possibly with trailing zeros), so no rounding is needed
+            return Math.multiplyExact(Math.multiplyExact(cents, rateUnscaled), powerOfTen(-rateScale));
+        }
+        long product = Math.multiplyExact(cents, rateUnscaled);
+        long divisor = powerOfTen(rateScale);
+        long quotient = product / divisor;
+        long remainder = Math.abs(product % divisor);
+        // Half is rounded away from zero; comparing remainder to the rest of divisor avoids overflow of 2 * remainder
+        if (remainder >= divisor - remainder) {
+            quotient += product < 0 ? -1 : 1;
+        }
+        return quotient;
+    }
+
+    private static long powerOfTen(int exponent) {
+        if (exponent >= POWERS_OF_TEN.length) {
+            throw new ArithmeticException("Scale of the rate is too big: " + exponent);
+        }
+        return POWERS_OF_TEN[exponent];
+    }
+}
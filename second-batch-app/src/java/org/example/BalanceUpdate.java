@@ -7,18 +7,28 @@ import java.math.BigDecimal;
 public class BalanceUpdate {
 
     private final long id;
+    // Balance is either decimal, or (in cents mode) long cents, in which case decimal one is null
     private final BigDecimal balance;
+    private final long balanceCents;
 
     public BalanceUpdate(long id, BigDecimal balance) {
         this.id = id;
         this.balance = balance;
+        this.balanceCents = 0;
+    }
+
+    public BalanceUpdate(long id, long balanceCents) {
+        this.id = id;
+        this.balance = null;
+        this.balanceCents = balanceCents;
     }
 
     public long getId() {
         return id;
     }
 
+    // In cents mode, decimal balance is created only here, when it's written
     public BigDecimal getBalance() {
-        return balance;
+        return balance != null ? balance : AmountCents.toBigDecimal(balanceCents);
     }
 }
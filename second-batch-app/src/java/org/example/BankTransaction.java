@@ -3,48 +3,92 @@ package org.example;
 import org.springframework.jdbc.core.RowMapper;
 
 import java.math.BigDecimal;
-import java.sql.ResultSet;
-import java.sql.SQLException;
 
 
 // Domain entity for 'bank_transaction_yearly' table record
 public class BankTransaction {
 
     // Query and row mapper for obtaining bank transactions from the database
-    public static final String SELECT_ALL_QUERY = "select id, month, day, hour, minute, amount, merchant from bank_transaction_yearly";
+    public static final String SELECT_ALL_QUERY = "select id, month, day, hour, minute, amount, merchant_id, account_id from bank_transaction_yearly";
     public static final RowMapper<BankTransaction> ROW_MAPPER = (rs, rowNum) -> new BankTransaction(
                                rs.getLong("id"),
+                               rs.getLong("account_id"),
                                rs.getInt("month"),
                                rs.getInt("day"),
                                rs.getInt("hour"),
                                rs.getInt("minute"),
                                rs.getBigDecimal("amount"),
-                               rs.getString("merchant")
+                               rs.getInt("merchant_id")
+            );
+    // Row mapper for amounts in cents mode: columns are taken by index (as in the query above), and amount is mapped
+    // straight into long cents
+    public static final RowMapper<BankTransaction> CENTS_ROW_MAPPER = (rs, rowNum) -> new BankTransaction(
+                               rs.getLong(1),
+                               rs.getLong(8),
+                               rs.getInt(2),
+                               rs.getInt(3),
+                               rs.getInt(4),
+                               rs.getInt(5),
+                               AmountCents.fromResultSet(rs, 6),
+                               rs.getInt(7)
             );
 
 
     private final long id;
+    // Account the transaction belongs to; single-account data has all transactions in account 0
+    private final long accountId;
     private final int month;
     private final int day;
     private final int hour;
     private final int minute;
+    // Amount is either decimal, or (in cents mode) long cents, in which case decimal one is null
     private final BigDecimal amount;
-    private final String merchant;
+    private final long amountCents;
+    // Merchant is referenced by its id in the merchant dictionary, name is decoded only when needed
+    private final int merchantId;
+
+    public BankTransaction(long id, int month, int day, int hour, int minute, BigDecimal amount, int merchantId) {
+        this(id, 0, month, day, hour, minute, amount, merchantId);
+    }
+
+    public BankTransaction(long id, int month, int day, int hour, int minute, long amountCents, int merchantId) {
+        this(id, 0, month, day, hour, minute, amountCents, merchantId);
+    }
 
-    public BankTransaction(long id, int month, int day, int hour, int minute, BigDecimal amount, String merchant) {
+    public BankTransaction(long id, long accountId, int month, int day, int hour, int minute,
+                           BigDecimal amount, int merchantId) {
         this.id = id;
+        this.accountId = accountId;
         this.month = month;
         this.day = day;
         this.hour = hour;
         this.minute = minute;
         this.amount = amount;
-        this.merchant = merchant;
+        this.amountCents = 0;
+        this.merchantId = merchantId;
+    }
+
+    public BankTransaction(long id, long accountId, int month, int day, int hour, int minute,
+                           long amountCents, int merchantId) {
+        this.id = id;
+        this.accountId = accountId;
+        this.month = month;
+        this.day = day;
+        this.hour = hour;
+        this.minute = minute;
+        this.amount = null;
+        this.amountCents = amountCents;
+        this.merchantId = merchantId;
     }
 
     public long getId() {
         return id;
     }
 
+    public long getAccountId() {
+        return accountId;
+    }
+
     public int getMonth() {
         return month;
     }
@@ -62,10 +106,14 @@ public class BankTransaction {
     }
 
     public BigDecimal getAmount() {
-        return amount;
+        return amount != null ? amount : AmountCents.toBigDecimal(amountCents);
+    }
+
+    public long getAmountCents() {
+        return amount != null ? AmountCents.valueOf(amount) : amountCents;
     }
 
-    public String getMerchant() {
-        return merchant;
+    public int getMerchantId() {
+        return merchantId;
     }
 }
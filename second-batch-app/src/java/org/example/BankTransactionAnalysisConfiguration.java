@@ -1,21 +1,36 @@
 package org.example;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import org.apache.parquet.example.data.Group;
+import org.apache.parquet.schema.MessageType;
+import org.springframework.batch.core.BatchStatus;
 import org.springframework.batch.core.ExitStatus;
 import org.springframework.batch.core.ItemReadListener;
 import org.springframework.batch.core.Job;
+import org.springframework.batch.core.JobExecution;
 import org.springframework.batch.core.Step;
 import org.springframework.batch.core.StepExecution;
 import org.springframework.batch.core.StepExecutionListener;
+import org.springframework.batch.core.configuration.annotation.StepScope;
 import org.springframework.batch.core.configuration.support.DefaultBatchConfiguration;
 import org.springframework.batch.core.job.builder.JobBuilder;
+import org.springframework.batch.core.partition.support.DefaultStepExecutionAggregator;
+import org.springframework.batch.core.partition.support.MultiResourcePartitioner;
 import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.batch.core.step.builder.SimpleStepBuilder;
 import org.springframework.batch.core.step.builder.StepBuilder;
+import org.springframework.batch.item.ExecutionContext;
 import org.springframework.batch.item.ItemReader;
+import org.springframework.batch.item.ItemStreamReader;
+import org.springframework.batch.item.ItemWriter;
 import org.springframework.batch.item.database.builder.JdbcBatchItemWriterBuilder;
 import org.springframework.batch.item.database.builder.JdbcCursorItemReaderBuilder;
 import org.springframework.batch.item.database.builder.JdbcPagingItemReaderBuilder;
 import org.springframework.batch.item.json.JacksonJsonObjectMarshaller;
 import org.springframework.batch.item.json.builder.JsonFileItemWriterBuilder;
+import org.springframework.batch.item.support.CompositeItemWriter;
+import org.springframework.batch.repeat.RepeatStatus;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.batch.BatchDataSourceScriptDatabaseInitializer;
@@ -25,19 +40,40 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Import;
 import org.springframework.context.annotation.PropertySource;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.UrlResource;
 import org.springframework.core.io.WritableResource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.datasource.DriverManagerDataSource;
 import org.springframework.jdbc.support.JdbcTransactionManager;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.transaction.PlatformTransactionManager;
 
 import javax.sql.DataSource;
+import java.io.IOException;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.net.MalformedURLException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+import java.util.function.IntFunction;
 
 
 @Configuration
 @PropertySource("classpath:job_repo.properties")
 @PropertySource("classpath:currency_adjustment.properties")
+@PropertySource("classpath:fill_balance.properties")
+@PropertySource("classpath:aggregation.properties")
+@PropertySource("classpath:amount.properties")
+@PropertySource("classpath:month_range.properties")
+@PropertySource("classpath:ingestion.properties")
 @Import(SourceConfiguration.class) // Include input source configuration
 public class BankTransactionAnalysisConfiguration extends DefaultBatchConfiguration {
 
@@ -45,29 +81,103 @@ public class BankTransactionAnalysisConfiguration extends DefaultBatchConfigurat
     public static final String POSITIVE = "POSITIVE";
     public static final String NEGATIVE = "NEGATIVE";
 
+    // Name of the high-water mark of fill balance step, used in incremental mode
+    public static final String FILL_BALANCE_HIGH_WATER_MARK = "fill-balance";
+
+    // Name of the step filling the balance of all transactions as a single account
+    private static final String FILL_BALANCE_STEP = "fill-balance";
+
+    // Execution context keys of the first day which balance and daily checkpoint are (re)computed by fill balance step
+    private static final String FILL_BALANCE_FROM_MONTH = "fillBalanceFromMonth";
+    private static final String FILL_BALANCE_FROM_DAY = "fillBalanceFromDay";
+
+    // Aggregation output format producing newline-delimited JSON
+    public static final String NDJSON_FORMAT = "ndjson";
+    // Aggregation output format producing columnar Parquet files
+    public static final String PARQUET_FORMAT = "parquet";
+
     @Value("file:merchant_month.json")
     private WritableResource merchantMonthlyBalanceJsonResource;
 
     @Value("file:daily_balance.json")
     private WritableResource dailyBalanceJsonResource;
 
+    // Format of aggregation step outputs: either 'json' (single JSON array) or 'ndjson' (one JSON object per line)
+    @Value("${aggregation.output.format}")
+    private String aggregationOutputFormat;
+
+    // Whether to compress 'ndjson' aggregation outputs with gzip
+    @Value("${aggregation.output.gzip}")
+    private boolean aggregationOutputGzip;
+
+    // Number of aggregated rows written per chunk by aggregation steps; with gzip, every chunk is a gzip member of its own
+    @Value("${aggregation.chunk.size}")
+    private int aggregationChunkSize;
+
+    // Size of 'parquet' aggregation output rows buffered in memory before being written as a row group
+    @Value("${aggregation.output.parquet.row.group.size}")
+    private long aggregationParquetRowGroupSize;
+
+    // Whether amounts are handled as long cents instead of BigDecimal, across all the steps
+    @Value("${amount.cents}")
+    private boolean amountCents;
+
+    // Range of months (inclusive) processed by the steps
+    @Value("${month.range.from}")
+    private int monthRangeFrom;
+
+    @Value("${month.range.to}")
+    private int monthRangeTo;
+
     @Bean
     @Qualifier("bankTransactionAnalysisJob")
     public Job bankTransactionAnalysisJob(JobRepository jobRepository,
                                           @Qualifier("fillBalanceStep") Step fillBalanceStep,
+                                          @Qualifier("accountFillBalanceStep") Step accountFillBalanceStep,
+                                          @Qualifier("fillBalanceCompletionStep") Step fillBalanceCompletionStep,
                                           @Qualifier("aggregateByMerchantMonthlyStep") Step aggregateByMerchantMonthlyStep,
-                                          @Qualifier("aggregateByDayStep") Step aggregateByDayStep) {
+                                          @Qualifier("aggregateByDayStep") Step aggregateByDayStep,
+                                          @Value("${fill.balance.accounts.partitioned}") boolean accountsPartitioned,
+                                          @Value("${fill.balance.incremental}") boolean incremental,
+                                          @Value("${fill.balance.recompute}") boolean recompute) {
+        if (accountsPartitioned && incremental) {
+            throw new IllegalArgumentException("Incremental mode is not supported for balance filled per account");
+        }
+        if (accountsPartitioned && recompute) {
+            throw new IllegalArgumentException("Recompute mode is not supported for balance filled per account");
+        }
+        if (accountsPartitioned && SourceManagementUtils.monthRangeCondition(monthRangeFrom, monthRangeTo) != null) {
+            throw new IllegalArgumentException("Range of months is not supported for balance filled per account");
+        }
+        // Balance is filled either per account in parallel partitions, or for all transactions as a single account;
+        // balance filled per account has no daily checkpoints, hence the job branches on the sign right away
+        if (accountsPartitioned) {
+            return new JobBuilder("bankTransactionAnalysisJob", jobRepository)
+                    .start(accountFillBalanceStep)
+                    .on(POSITIVE).to(aggregateByMerchantMonthlyStep)
+                    .from(accountFillBalanceStep).on(NEGATIVE).to(aggregateByDayStep)
+                    .from(accountFillBalanceStep).on("*").end()
+                    .end()
+                    .build();
+        }
         return new JobBuilder("bankTransactionAnalysisJob", jobRepository)
                 // Always start from filling the balance
                 .start(fillBalanceStep)
-                // 'on' is referring to previously mentioned step, fillBalanceStep, saying: if exit status is positive,
-                // then go to aggregateByMerchantMonthlyStep
-                .on(POSITIVE).to(aggregateByMerchantMonthlyStep)
-                // Since we finished with one branch, here we mention explicitly: if fillBalanceStep exit status is negative,
-                // then go to aggregateByDayStep
-                .from(fillBalanceStep).on(NEGATIVE).to(aggregateByDayStep)
-                // The last possibility is finishing some other way, most likely with error; terminate in this case
+                // Whatever the sign of the balance, high-water mark and daily checkpoints are saved by a step of their
+                // own, which then branches on the sign instead of fillBalanceStep; failure of fillBalanceStep
+                // terminates the job
+                .on(POSITIVE).to(fillBalanceCompletionStep)
+                .from(fillBalanceStep).on(NEGATIVE).to(fillBalanceCompletionStep)
                 .from(fillBalanceStep).on("*").end()
+                .from(fillBalanceCompletionStep)
+                // 'on' is referring to previously mentioned step, fillBalanceCompletionStep, saying: if exit status is
+                // positive, then go to aggregateByMerchantMonthlyStep
+                .on(POSITIVE).to(aggregateByMerchantMonthlyStep)
+                // Since we finished with one branch, here we mention explicitly: if fillBalanceCompletionStep exit status
+                // is negative, then go to aggregateByDayStep
+                .from(fillBalanceCompletionStep).on(NEGATIVE).to(aggregateByDayStep)
+                // The last possibility is failing to save high-water mark or checkpoints; fail the job in this case
+                .from(fillBalanceCompletionStep).on("*").fail()
                 .end()
                 .build();
     }
@@ -75,41 +185,136 @@ public class BankTransactionAnalysisConfiguration extends DefaultBatchConfigurat
     @Bean
     @Qualifier("fillBalanceStep")
     public Step fillBalanceStep(JobRepository jobRepository, PlatformTransactionManager transactionManager,
-                                @Qualifier("sourceDataSource") DataSource sourceDataSource) {
-        FillBalanceProcessor processor = new FillBalanceProcessor();
-        return new StepBuilder("fill-balance", jobRepository)
+                                @Qualifier("sourceDataSource") DataSource sourceDataSource,
+                                @Value("${fill.balance.reader.keyset}") boolean keysetReader,
+                                @Value("${fill.balance.reader.page.size}") int pageSize,
+                                @Value("${fill.balance.incremental}") boolean incremental,
+                                @Value("${fill.balance.recompute}") boolean recompute,
+                                @Value("${fill.balance.reader.sort}") boolean sortReader,
+                                @Value("${fill.balance.reader.sort.run.size}") int sortRunSize,
+                                @Value("${fill.balance.reader.sort.directory}") String sortDirectory) {
+        String monthRangeCondition = SourceManagementUtils.monthRangeCondition(monthRangeFrom, monthRangeTo);
+        if (incremental && monthRangeCondition != null) {
+            throw new IllegalArgumentException("Range of months is not supported in incremental mode");
+        }
+        if (recompute && (incremental || monthRangeCondition != null)) {
+            throw new IllegalArgumentException("Recompute mode is not supported in incremental mode or for range of months");
+        }
+        FillBalanceProcessor processor = new FillBalanceProcessor(amountCents);
+        RowMapper<BankTransaction> rowMapper = amountCents ? BankTransaction.CENTS_ROW_MAPPER : BankTransaction.ROW_MAPPER;
+        // First day to (re)compute, known only once the step starts
+        AtomicReference<int[]> fromDay = new AtomicReference<>();
+        // Reading from source db either page-by-page by id (keyset), or using cursor-based technique;
+        // incremental mode relies on reading by id, hence always uses keyset reader, and recompute mode reads
+        // chronologically ordered transactions starting from the first day to recompute
+        ItemStreamReader<BankTransaction> reader;
+        if (recompute) {
+            reader = new JdbcCursorItemReaderBuilder<BankTransaction>()
+                    .dataSource(sourceDataSource)
+                    .name("bankTransactionReader")
+                    .sql(BankTransaction.SELECT_ALL_QUERY + " where month > ? or (month = ? and day >= ?) " +
+                            "order by month, day, hour, minute, id")
+                    .preparedStatementSetter(ps -> {
+                        ps.setInt(1, fromDay.get()[0]);
+                        ps.setInt(2, fromDay.get()[0]);
+                        ps.setInt(3, fromDay.get()[1]);
+                    })
+                    .rowMapper(rowMapper)
+                    .build();
+        } else if (keysetReader || incremental) {
+            BankTransactionKeysetReader keysetTransactionReader =
+                    new BankTransactionKeysetReader("bankTransactionReader", sourceDataSource, pageSize);
+            keysetTransactionReader.setRowMapper(rowMapper);
+            keysetTransactionReader.setWhereClause(monthRangeCondition);
+            reader = keysetTransactionReader;
+        } else {
+            reader = new JdbcCursorItemReaderBuilder<BankTransaction>()
+                    .dataSource(sourceDataSource)
+                    .name("bankTransactionReader")
+                    .sql(BankTransaction.SELECT_ALL_QUERY
+                            + (monthRangeCondition == null ? "" : " where " + monthRangeCondition))
+                    .rowMapper(rowMapper)
+                    .build();
+        }
+        if (sortReader && !incremental && !recompute) {
+            // Balance is running in time, hence transactions are sorted chronologically, spilling sorted runs to disk
+            reader = new ExternalSortTransactionReader("sortedBankTransactionReader", reader, sortRunSize,
+                    sortDirectory.isEmpty() ? Path.of(System.getProperty("java.io.tmpdir")) : Path.of(sortDirectory));
+        }
+        return new StepBuilder(FILL_BALANCE_STEP, jobRepository)
                 // Writing in chunks of size 10
                 .<BankTransaction, BalanceUpdate>chunk(10, transactionManager)
-                // Reading from source db using cursor-based technique
-                .reader(new JdbcCursorItemReaderBuilder<BankTransaction>()
-                            .dataSource(sourceDataSource)
-                            .name("bankTransactionReader")
-                            .sql(BankTransaction.SELECT_ALL_QUERY)
-                            .rowMapper(BankTransaction.ROW_MAPPER)
-                            .build())
+                .reader(reader)
                 // Using instance of the processor, such that step execution is set properly
                 .processor(processor)
                 // Writer needs to update record's information by writing 'balance' column
-                .writer(new JdbcBatchItemWriterBuilder<BalanceUpdate>()
-                            .dataSource(sourceDataSource)
-                            .itemPreparedStatementSetter((item, ps) -> {
-                                ps.setBigDecimal(1, item.getBalance());
-                                ps.setLong(2, item.getId());
-                            })
-                            .sql("update bank_transaction_yearly set balance = ? where id = ?")
-                            .build())
+                .writer(balanceUpdateWriter(sourceDataSource))
                 // Step execution listener to alter schema before step, and plug and unplug step execution for processor
                 .listener(new StepExecutionListener() {
                     @Override
                     public void beforeStep(StepExecution stepExecution) {
                         SourceManagementUtils.addBalanceColumn(sourceDataSource);
+                        SourceManagementUtils.addAccountIdColumn(sourceDataSource);
                         processor.setStepExecution(stepExecution);
+                        JdbcTemplate jdbcTemplate = new JdbcTemplate(sourceDataSource);
+                        SourceManagementUtils.createDailyBalanceCheckpointTable(jdbcTemplate);
+                        ExecutionContext executionContext = stepExecution.getExecutionContext();
+                        // Unless it's a restart, find the first day which balance is (re)computed: the day of
+                        // the earliest transaction without balance in incremental and recompute modes, otherwise
+                        // the first day of the range of months
+                        if (!executionContext.containsKey(FILL_BALANCE_FROM_MONTH)) {
+                            int[] firstDay = incremental || recompute
+                                    ? SourceManagementUtils.getEarliestDayWithoutBalance(jdbcTemplate)
+                                    : new int[]{monthRangeFrom, 1};
+                            // If all balances are filled, there is nothing to recompute after the last month
+                            firstDay = firstDay == null ? new int[]{13, 1} : firstDay;
+                            // Checkpoints not rebuilt by a failed run are rebuilt now, hence (re)computed from there
+                            int[] staleDay = SourceManagementUtils.getEarliestStaleCheckpointDay(jdbcTemplate);
+                            if (staleDay != null && (staleDay[0] < firstDay[0]
+                                    || (staleDay[0] == firstDay[0] && staleDay[1] < firstDay[1]))) {
+                                firstDay = staleDay;
+                            }
+                            if (firstDay[0] <= 12) {
+                                // Until fillBalanceCompletionStep rebuilds them, checkpoints from the day are stale
+                                SourceManagementUtils.markDailyBalanceCheckpointsStale(jdbcTemplate,
+                                        firstDay[0], firstDay[1]);
+                            }
+                            executionContext.putInt(FILL_BALANCE_FROM_MONTH, firstDay[0]);
+                            executionContext.putInt(FILL_BALANCE_FROM_DAY, firstDay[1]);
+                            if (recompute) {
+                                // Start from the closing balance of the preceding day, rewriting balances from there
+                                processor.resumeFrom(0, SourceManagementUtils
+                                        .getCheckpointBalanceBefore(jdbcTemplate, firstDay[0], firstDay[1]));
+                            }
+                        }
+                        fromDay.set(new int[]{executionContext.getInt(FILL_BALANCE_FROM_MONTH),
+                                              executionContext.getInt(FILL_BALANCE_FROM_DAY)});
+                        // In incremental mode, unless it's a restart, continue after the last transaction of previous run
+                        if (incremental && !stepExecution.getExecutionContext()
+                                .containsKey(FillBalanceProcessor.LAST_TRANSACTION_ID)) {
+                            SourceManagementUtils.createHighWaterMarkTable(jdbcTemplate);
+                            SourceManagementUtils.createAggregatedBalanceTables(jdbcTemplate);
+                            HighWaterMark highWaterMark = SourceManagementUtils
+                                    .getHighWaterMark(jdbcTemplate, FILL_BALANCE_HIGH_WATER_MARK);
+                            processor.resumeFrom(highWaterMark.getLastId(), highWaterMark.getBalance());
+                            stepExecution.getExecutionContext()
+                                    .putLong(BankTransactionKeysetReader.MIN_ID, highWaterMark.getLastId());
+                        } else if (monthRangeFrom > 1 && !stepExecution.getExecutionContext()
+                                .containsKey(FillBalanceProcessor.LAST_TRANSACTION_ID)) {
+                            // Unless it's a restart, carry the closing balance of the months preceding the range
+                            processor.resumeFrom(0, SourceManagementUtils
+                                    .getClosingBalanceBefore(jdbcTemplate, monthRangeFrom, sortReader));
+                        }
                     }
 
                     @Override
                     public ExitStatus afterStep(StepExecution stepExecution) {
                         double totalBalance = processor.getLatestTransactionBalance();
                         processor.setStepExecution(null); // Clear step execution when step is executed
+                        if (stepExecution.getStatus() != BatchStatus.COMPLETED) {
+                            // Keep the exit status of the failure, which would otherwise be overridden by the sign
+                            return null;
+                        }
                         return new ExitStatus(totalBalance >= 0 ? POSITIVE : NEGATIVE);
                     }
                 })
@@ -119,14 +324,192 @@ public class BankTransactionAnalysisConfiguration extends DefaultBatchConfigurat
     }
 
 
+    @Bean
+    @Qualifier("fillBalanceCompletionStep")
+    public Step fillBalanceCompletionStep(JobRepository jobRepository, PlatformTransactionManager transactionManager,
+                                          @Qualifier("sourceDataSource") DataSource sourceDataSource,
+                                          @Value("${fill.balance.incremental}") boolean incremental) {
+        return new StepBuilder("fill-balance-completion", jobRepository)
+                // Save progress of fill balance step of the job, and rebuild closing balances of the days which balance
+                // was (re)computed; failure fails the job, and the next run starts from the previous high-water mark,
+                // while the days stay marked as stale until they are rebuilt
+                .tasklet((contribution, chunkContext) -> {
+                    StepExecution fillBalanceExecution = getFillBalanceStepExecution(
+                            chunkContext.getStepContext().getStepExecution().getJobExecution());
+                    if (incremental) {
+                        // Progress for the next run is saved only once all the transactions are processed, adding
+                        // new transactions to aggregated balance tables at the same time
+                        FillBalanceProcessor processor = new FillBalanceProcessor(amountCents);
+                        processor.setStepExecution(fillBalanceExecution);
+                        SourceManagementUtils.advanceHighWaterMark(sourceDataSource, FILL_BALANCE_HIGH_WATER_MARK,
+                                new HighWaterMark(processor.getLastTransactionId(0), processor.getLatestExactBalance()));
+                    }
+                    ExecutionContext fillBalanceContext = fillBalanceExecution.getExecutionContext();
+                    SourceManagementUtils.refreshDailyBalanceCheckpoints(sourceDataSource,
+                            fillBalanceContext.getInt(FILL_BALANCE_FROM_MONTH),
+                            fillBalanceContext.getInt(FILL_BALANCE_FROM_DAY), monthRangeTo);
+                    return RepeatStatus.FINISHED;
+                }, transactionManager)
+                // Pass the sign of the balance on, unless the step has failed
+                .listener(new StepExecutionListener() {
+                    @Override
+                    public ExitStatus afterStep(StepExecution stepExecution) {
+                        if (stepExecution.getStatus() != BatchStatus.COMPLETED) {
+                            return null;
+                        }
+                        return new ExitStatus(getFillBalanceStepExecution(stepExecution.getJobExecution())
+                                .getExitStatus().getExitCode());
+                    }
+                })
+                // Always run step, regardless of whether same parameters step was completed
+                .allowStartIfComplete(true)
+                .build();
+    }
+
+    // Execution of fill balance step within the job execution
+    private static StepExecution getFillBalanceStepExecution(JobExecution jobExecution) {
+        return jobExecution.getStepExecutions().stream()
+                .filter(stepExecution -> stepExecution.getStepName().equals(FILL_BALANCE_STEP))
+                .findFirst()
+                .orElseThrow(() -> new IllegalStateException("Step " + FILL_BALANCE_STEP + " is not executed"));
+    }
+
+
+    // Writer updating transaction's information by writing 'balance' column
+    private ItemWriter<BalanceUpdate> balanceUpdateWriter(DataSource sourceDataSource) {
+        return new JdbcBatchItemWriterBuilder<BalanceUpdate>()
+                .dataSource(sourceDataSource)
+                .itemPreparedStatementSetter((item, ps) -> {
+                    ps.setBigDecimal(1, item.getBalance());
+                    ps.setLong(2, item.getId());
+                })
+                .sql("update bank_transaction_yearly set balance = ? where id = ?")
+                .build();
+    }
+
+    @Bean
+    @Qualifier("accountFillBalanceStep")
+    public Step accountFillBalanceStep(JobRepository jobRepository,
+                                       @Qualifier("sourceDataSource") DataSource sourceDataSource,
+                                       @Qualifier("accountFillBalanceWorkerStep") Step accountFillBalanceWorkerStep,
+                                       @Qualifier("accountPartitionTaskExecutor") TaskExecutor taskExecutor,
+                                       @Value("${fill.balance.accounts.threads}") int threads) {
+        return new StepBuilder("fill-balance-by-account", jobRepository)
+                // Accounts are split into as many ranges as threads, each range processed by a single thread
+                .partitioner(accountFillBalanceWorkerStep.getName(), new AccountPartitioner(sourceDataSource))
+                .step(accountFillBalanceWorkerStep)
+                .gridSize(threads)
+                .taskExecutor(taskExecutor)
+                // On top of default aggregation (counts, statuses), sum up account summaries of all the partitions
+                .aggregator((result, executions) -> {
+                    new DefaultStepExecutionAggregator().aggregate(result, executions);
+                    long positiveAccounts = 0;
+                    long negativeAccounts = 0;
+                    for (StepExecution execution : executions) {
+                        positiveAccounts += execution.getExecutionContext()
+                                .getLong(AccountFillBalanceProcessor.POSITIVE_ACCOUNTS, 0L);
+                        negativeAccounts += execution.getExecutionContext()
+                                .getLong(AccountFillBalanceProcessor.NEGATIVE_ACCOUNTS, 0L);
+                    }
+                    result.getExecutionContext().putLong(AccountFillBalanceProcessor.POSITIVE_ACCOUNTS, positiveAccounts);
+                    result.getExecutionContext().putLong(AccountFillBalanceProcessor.NEGATIVE_ACCOUNTS, negativeAccounts);
+                })
+                .listener(new StepExecutionListener() {
+                    @Override
+                    public void beforeStep(StepExecution stepExecution) {
+                        // Alter schema once, before partitions are started
+                        SourceManagementUtils.addBalanceColumn(sourceDataSource);
+                        SourceManagementUtils.addAccountIdColumn(sourceDataSource);
+                    }
+
+                    @Override
+                    public ExitStatus afterStep(StepExecution stepExecution) {
+                        // Generalization of the single account: positive only if every account has non-negative balance
+                        long negativeAccounts = stepExecution.getExecutionContext()
+                                .getLong(AccountFillBalanceProcessor.NEGATIVE_ACCOUNTS, 0L);
+                        long positiveAccounts = stepExecution.getExecutionContext()
+                                .getLong(AccountFillBalanceProcessor.POSITIVE_ACCOUNTS, 0L);
+                        return new ExitStatus(negativeAccounts == 0 ? POSITIVE : NEGATIVE,
+                                positiveAccounts + " accounts with non-negative balance, "
+                                        + negativeAccounts + " accounts with negative balance");
+                    }
+                })
+                // Always run step, regardless of whether same parameters step was completed
+                .allowStartIfComplete(true)
+                .build();
+    }
+
+    @Bean
+    @Qualifier("accountFillBalanceWorkerStep")
+    public Step accountFillBalanceWorkerStep(JobRepository jobRepository, PlatformTransactionManager transactionManager,
+                                             @Qualifier("sourceDataSource") DataSource sourceDataSource,
+                                             @Qualifier("accountTransactionReader") ItemStreamReader<BankTransaction> reader,
+                                             @Qualifier("accountFillBalanceProcessor") AccountFillBalanceProcessor processor) {
+        return new StepBuilder("fill-balance-account", jobRepository)
+                // Writing in chunks of size 10
+                .<BankTransaction, BalanceUpdate>chunk(10, transactionManager)
+                // Reader and processor are step scoped, i.e. separate instances for every partition
+                .reader(reader)
+                .processor(processor)
+                .writer(balanceUpdateWriter(sourceDataSource))
+                .listener(new StepExecutionListener() {
+                    @Override
+                    public void beforeStep(StepExecution stepExecution) {
+                        processor.setStepExecution(stepExecution);
+                    }
+
+                    @Override
+                    public ExitStatus afterStep(StepExecution stepExecution) {
+                        if (stepExecution.getStatus() == BatchStatus.COMPLETED) {
+                            // The last account of the partition is over only once all the transactions are processed
+                            processor.completeCurrentAccount();
+                        }
+                        processor.setStepExecution(null); // Clear step execution when step is executed
+                        return null;
+                    }
+                })
+                .build();
+    }
+
+    @Bean
+    @StepScope
+    @Qualifier("accountTransactionReader")
+    public AccountKeysetReader accountTransactionReader(@Qualifier("sourceDataSource") DataSource sourceDataSource,
+                                                        @Value("${fill.balance.reader.page.size}") int pageSize) {
+        AccountKeysetReader reader = new AccountKeysetReader("accountTransactionReader", sourceDataSource, pageSize);
+        reader.setRowMapper(amountCents ? BankTransaction.CENTS_ROW_MAPPER : BankTransaction.ROW_MAPPER);
+        return reader;
+    }
+
+    @Bean
+    @StepScope
+    @Qualifier("accountFillBalanceProcessor")
+    public AccountFillBalanceProcessor accountFillBalanceProcessor() {
+        return new AccountFillBalanceProcessor(new FillBalanceProcessor(amountCents));
+    }
+
+    @Bean
+    @Qualifier("accountPartitionTaskExecutor")
+    public ThreadPoolTaskExecutor accountPartitionTaskExecutor(@Value("${fill.balance.accounts.threads}") int threads) {
+        ThreadPoolTaskExecutor taskExecutor = new ThreadPoolTaskExecutor();
+        taskExecutor.setCorePoolSize(threads);
+        taskExecutor.setMaxPoolSize(threads);
+        taskExecutor.setThreadNamePrefix("fill-balance-account-");
+        return taskExecutor;
+    }
+
     @Bean
     @Qualifier("aggregateByMerchantMonthlyStep")
     public Step aggregateByMerchantMonthlyStep(JobRepository jobRepository,
                                                PlatformTransactionManager transactionManager,
+                                               @Qualifier("sourceDataSource") DataSource sourceDataSource,
                                                @Qualifier("merchantMonthAggregationReader") ItemReader<MerchantMonthBalance> merchantMonthAggregationReader) {
+        // Merchants are grouped by ids, and names are decoded only by the writer, using dictionary loaded per step
+        AtomicReference<MerchantDictionary> merchantDictionary = new AtomicReference<>();
+        IntFunction<String> merchantNames = merchantId -> merchantDictionary.get().getName(merchantId);
         return new StepBuilder("aggregate-by-merchant-monthly", jobRepository)
-                // Writing in chunks of size 10
-                .<MerchantMonthBalance, MerchantMonthBalance>chunk(10, transactionManager)
+                // Writing in chunks of configured size
+                .<MerchantMonthBalance, MerchantMonthBalance>chunk(aggregationChunkSize, transactionManager)
                 // Supplying paging reader defined as a bean, opposing to instance, to work-around Spring Batch flaw;
                 // if not defined as a bean, NPE will be raised since some resources will not be initialized in
                 // .afterPropertiesSet() method, which is called by Spring post-bean-initialization.
@@ -134,11 +517,24 @@ public class BankTransactionAnalysisConfiguration extends DefaultBatchConfigurat
                 // but it is preferred to have a proper bean definition instead
                 .reader(merchantMonthAggregationReader)
                 // Writing to JSON file without any processing
-                .writer(new JsonFileItemWriterBuilder<MerchantMonthBalance>()
-                        .jsonObjectMarshaller(new JacksonJsonObjectMarshaller<>())
-                        .resource(merchantMonthlyBalanceJsonResource)
-                        .name("merchantMonthAggregationWriter")
-                        .build())
+                .writer(aggregationWriter("merchantMonthAggregationWriter", MerchantMonthBalance.class,
+                        merchantMonthlyBalanceJsonResource, "merchant_month",
+                        new ObjectMapper().registerModule(new SimpleModule().addSerializer(MerchantMonthBalance.class,
+                                MerchantMonthBalance.jsonSerializer(merchantNames))),
+                        MerchantMonthBalance.PARQUET_SCHEMA,
+                        (balance, group) -> balance.toParquetGroup(group, merchantNames), "merchant"))
+                .listener(new StepExecutionListener() {
+                    @Override
+                    public void beforeStep(StepExecution stepExecution) {
+                        merchantDictionary.set(new MerchantDictionary(sourceDataSource));
+                    }
+
+                    @Override
+                    public ExitStatus afterStep(StepExecution stepExecution) {
+                        merchantDictionary.set(null); // Release the memory once step is executed
+                        return null;
+                    }
+                })
                 // Always run step, regardless of whether same parameters step was completed
                 .allowStartIfComplete(true)
                 .build();
@@ -150,8 +546,8 @@ public class BankTransactionAnalysisConfiguration extends DefaultBatchConfigurat
                                    PlatformTransactionManager transactionManager,
                                    @Qualifier("dailyBalanceAggregationReader") ItemReader<DailyBalance> dailyBalanceAggregationReader) {
         return new StepBuilder("aggregate-by-day", jobRepository)
-                // Writing in chunks of size 10
-                .<DailyBalance, DailyBalance>chunk(10, transactionManager)
+                // Writing in chunks of configured size
+                .<DailyBalance, DailyBalance>chunk(aggregationChunkSize, transactionManager)
                 // Supplying paging reader defined as a bean, opposing to instance, to work-around Spring Batch flaw;
                 // if not defined as a bean, NPE will be raised since some resources will not be initialized in
                 // .afterPropertiesSet() method, which is called by Spring post-bean-initialization.
@@ -159,25 +555,54 @@ public class BankTransactionAnalysisConfiguration extends DefaultBatchConfigurat
                 // but it is preferred to have a proper bean definition instead
                 .reader(dailyBalanceAggregationReader)
                 // Writing to JSON file without any processing
-                .writer(new JsonFileItemWriterBuilder<DailyBalance>()
-                        .jsonObjectMarshaller(new JacksonJsonObjectMarshaller<>())
-                        .resource(dailyBalanceJsonResource)
-                        .name("dailyBalanceAggregationWriter")
-                        .build())
+                .writer(aggregationWriter("dailyBalanceAggregationWriter", DailyBalance.class,
+                        dailyBalanceJsonResource, "daily_balance", new ObjectMapper(),
+                        DailyBalance.PARQUET_SCHEMA, DailyBalance::toParquetGroup))
                 // Always run step, regardless of whether same parameters step was completed
                 .allowStartIfComplete(true)
                 .build();
     }
 
+    // Create writer for aggregation step output in the configured format; JSON array is written to the given resource,
+    // while newline-delimited JSON is written to '<baseName>.ndjson' (or '<baseName>.ndjson.gz' if compressed),
+    // both using the given object mapper, and Parquet to '<baseName>.parquet' with the given schema, using dictionary
+    // encoding for the listed columns
+    private <T> ItemWriter<T> aggregationWriter(String name, Class<T> itemClass,
+                                                WritableResource jsonResource, String baseName,
+                                                ObjectMapper objectMapper, MessageType parquetSchema, BiConsumer<T, Group> parquetMapper,
+                                                String... parquetDictionaryColumns) {
+        if (PARQUET_FORMAT.equals(aggregationOutputFormat)) {
+            return new ParquetFileItemWriter<>(new FileSystemResource(baseName + ".parquet"), parquetSchema,
+                    parquetMapper, aggregationParquetRowGroupSize, parquetDictionaryColumns);
+        }
+        if (NDJSON_FORMAT.equals(aggregationOutputFormat)) {
+            return new NdjsonFileItemWriter<>(name,
+                    new FileSystemResource(baseName + ".ndjson" + (aggregationOutputGzip ? ".gz" : "")),
+                    objectMapper.writerFor(itemClass), aggregationOutputGzip);
+        }
+        return new JsonFileItemWriterBuilder<T>()
+                .jsonObjectMarshaller(new JacksonJsonObjectMarshaller<>(objectMapper))
+                .resource(jsonResource)
+                .name(name)
+                .build();
+    }
+
     @Bean
     @Qualifier("merchantMonthAggregationReader")
-    public ItemReader<MerchantMonthBalance> merchantMonthAggregationReader(@Qualifier("sourceDataSource") DataSource sourceDataSource) {
-        // Paging-style reader
+    public ItemReader<MerchantMonthBalance> merchantMonthAggregationReader(@Qualifier("sourceDataSource") DataSource sourceDataSource,
+                                                                           @Value("${fill.balance.incremental}") boolean incremental) {
+        // Paging-style reader, either aggregating all transactions, or reading incrementally maintained aggregation
         return new JdbcPagingItemReaderBuilder<MerchantMonthBalance>()
                 .name("merchantMonthAggregationReader")
                 .dataSource(sourceDataSource)
-                .queryProvider(MerchantMonthBalance.getQueryProvider())
-                .rowMapper(MerchantMonthBalance.ROW_MAPPER)
+                .queryProvider(incremental
+                        ? MerchantMonthBalance.getAggregatedTableQueryProvider(
+                                SourceManagementUtils.monthRangeCondition(monthRangeFrom, monthRangeTo))
+                        : MerchantMonthBalance.getQueryProvider(
+                                SourceManagementUtils.monthRangeCondition(monthRangeFrom, monthRangeTo)))
+                .rowMapper(amountCents ? MerchantMonthBalance.CENTS_ROW_MAPPER : MerchantMonthBalance.ROW_MAPPER)
+                // Parquet output is rewritten as a whole, so on restart everything needs to be read again
+                .saveState(!PARQUET_FORMAT.equals(aggregationOutputFormat))
                 // Querying the database in chinks of 5
                 .pageSize(5)
                 .build();
@@ -185,13 +610,20 @@ public class BankTransactionAnalysisConfiguration extends DefaultBatchConfigurat
 
     @Bean
     @Qualifier("dailyBalanceAggregationReader")
-    public ItemReader<DailyBalance> dailyBalanceAggregationReader(@Qualifier("sourceDataSource") DataSource sourceDataSource) {
-        // Paging-style reader
+    public ItemReader<DailyBalance> dailyBalanceAggregationReader(@Qualifier("sourceDataSource") DataSource sourceDataSource,
+                                                                  @Value("${fill.balance.incremental}") boolean incremental) {
+        // Paging-style reader, either aggregating all transactions, or reading incrementally maintained aggregation
         return new JdbcPagingItemReaderBuilder<DailyBalance>()
                 .name("dailyBalanceAggregationReader")
                 .dataSource(sourceDataSource)
-                .queryProvider(DailyBalance.getQueryProvider())
-                .rowMapper(DailyBalance.ROW_MAPPER)
+                .queryProvider(incremental
+                        ? DailyBalance.getAggregatedTableQueryProvider(
+                                SourceManagementUtils.monthRangeCondition(monthRangeFrom, monthRangeTo))
+                        : DailyBalance.getQueryProvider(
+                                SourceManagementUtils.monthRangeCondition(monthRangeFrom, monthRangeTo)))
+                .rowMapper(amountCents ? DailyBalance.CENTS_ROW_MAPPER : DailyBalance.ROW_MAPPER)
+                // Parquet output is rewritten as a whole, so on restart everything needs to be read again
+                .saveState(!PARQUET_FORMAT.equals(aggregationOutputFormat))
                 // Querying the database in chinks of 5
                 .pageSize(5)
                 .build( );
@@ -202,7 +634,47 @@ public class BankTransactionAnalysisConfiguration extends DefaultBatchConfigurat
     // Domain entity representing one transaction adjustment
     private static class CurrencyAdjustment {
         long id;
+        BigDecimal originalAmount;
         BigDecimal adjustedAmount;
+        // Used instead of the amounts above in cents mode
+        long originalCents;
+        long adjustedCents;
+    }
+
+    // Writer updating amount and flag of the transaction. When balances are aggregated incrementally, amount change
+    // is applied to them in the same chunk transaction; these statements update nothing for transactions beyond
+    // the high-water mark, hence only the amount update is checked to update a row
+    private ItemWriter<CurrencyAdjustment> currencyAdjustmentWriter(DataSource sourceDataSource, boolean incremental) {
+        ItemWriter<CurrencyAdjustment> amountWriter = new JdbcBatchItemWriterBuilder<CurrencyAdjustment>()
+                .dataSource(sourceDataSource)
+                .itemPreparedStatementSetter((item, ps) -> {
+                    // In cents mode, amounts are converted to decimals only here
+                    ps.setBigDecimal(1, amountCents
+                            ? AmountCents.toBigDecimal(item.adjustedCents) : item.adjustedAmount);
+                    ps.setBoolean(2, true); // Flag is set to true now
+                    ps.setLong(3, item.id);
+                })
+                .sql("update bank_transaction_yearly set amount = ?, adjusted = ? where id = ?")
+                .build();
+        if (!incremental) {
+            return amountWriter;
+        }
+        List<ItemWriter<? super CurrencyAdjustment>> writers = new ArrayList<>();
+        writers.add(amountWriter);
+        for (String query : SourceManagementUtils.applyAmountChangeToAggregatedBalancesQueries(FILL_BALANCE_HIGH_WATER_MARK)) {
+            writers.add(new JdbcBatchItemWriterBuilder<CurrencyAdjustment>()
+                    .dataSource(sourceDataSource)
+                    .itemPreparedStatementSetter((item, ps) -> {
+                        ps.setBigDecimal(1, amountCents
+                                ? AmountCents.toBigDecimal(item.adjustedCents - item.originalCents)
+                                : item.adjustedAmount.subtract(item.originalAmount));
+                        ps.setLong(2, item.id);
+                    })
+                    .sql(query)
+                    .assertUpdates(false)
+                    .build());
+        }
+        return new CompositeItemWriter<>(writers);
     }
 
     @Bean
@@ -219,51 +691,247 @@ public class BankTransactionAnalysisConfiguration extends DefaultBatchConfigurat
     public Step currencyAdjustmentStep(JobRepository jobRepository, PlatformTransactionManager transactionManager,
                                        @Qualifier("sourceDataSource") DataSource sourceDataSource,
                                        @Value("${currency.adjustment.rate}") double rate,
-                                       @Value("${currency.adjustment.disallowed.merchant}") String disallowedMerchant) {
-        return new StepBuilder("currency-adjustment", jobRepository)
-                // Read & write one-by-one here
-                .<BankTransaction, CurrencyAdjustment>chunk(1, transactionManager)
+                                       @Value("${currency.adjustment.disallowed.merchant}") String disallowedMerchant,
+                                       @Value("${currency.adjustment.blocklist.file:}") String blocklistFile,
+                                       @Value("${currency.adjustment.blocklist.table:}") String blocklistTable,
+                                       @Value("${currency.adjustment.rates.table:}") String ratesTable,
+                                       @Value("${currency.adjustment.rates.cache.size:10000}") int ratesCacheSize,
+                                       @Value("${currency.adjustment.chunk.size:1}") int chunkSize,
+                                       @Value("${fill.balance.incremental}") boolean incremental) {
+        if (!blocklistFile.isBlank() && !blocklistTable.isBlank()) {
+            throw new IllegalArgumentException("Either blocklist file or blocklist table should be set, not both");
+        }
+        // Blocklist is loaded once per step, before the step starts; holder is needed since the step bean is reused
+        AtomicReference<MerchantBlocklist> blocklist = new AtomicReference<>(MerchantBlocklist.of());
+        boolean pushDownBlocklist = !blocklistTable.isBlank();
+        // Per-merchant & per-day rates are cached per step execution; null means single rate for all transactions
+        AtomicReference<ExchangeRateProvider> exchangeRates = new AtomicReference<>();
+        // Blocklist and rates refer to merchant names, decoded from transactions' merchant ids with dictionary
+        AtomicReference<MerchantDictionary> merchantDictionary = new AtomicReference<>();
+        // Rate in unscaled form, for multiplying amounts in cents without BigDecimal
+        BigDecimal decimalRate = BigDecimal.valueOf(rate);
+        long rateUnscaled = decimalRate.unscaledValue().longValueExact();
+        int rateScale = decimalRate.scale();
+        String monthRangeCondition = SourceManagementUtils.monthRangeCondition(monthRangeFrom, monthRangeTo);
+
+        SimpleStepBuilder<BankTransaction, CurrencyAdjustment> stepBuilder = new StepBuilder("currency-adjustment", jobRepository)
+                // Read & write one-by-one by default; bigger chunks let rates be preloaded for many transactions at once
+                .<BankTransaction, CurrencyAdjustment>chunk(chunkSize, transactionManager)
                 .reader(new JdbcCursorItemReaderBuilder<BankTransaction>()
                         .dataSource(sourceDataSource)
                         .name("bankTransactionReader")
-                        // Take flag into account
-                        .sql(BankTransaction.SELECT_ALL_QUERY + " where adjusted = false")
-                        .rowMapper(BankTransaction.ROW_MAPPER)
+                        // Take flag and range of months into account
+                        .sql(BankTransaction.SELECT_ALL_QUERY + " where adjusted = false"
+                                + (monthRangeCondition == null ? "" : " and " + monthRangeCondition))
+                        .rowMapper(amountCents ? BankTransaction.CENTS_ROW_MAPPER : BankTransaction.ROW_MAPPER)
                         .saveState(false)
                         .build())
                 // Calculate the adjustment: multiply the amount to rate
                 .processor(item -> {
                     CurrencyAdjustment adjustment = new CurrencyAdjustment();
                     adjustment.id = item.getId();
+                    ExchangeRateProvider rateProvider = exchangeRates.get();
+                    BigDecimal itemRate = rateProvider == null ? decimalRate
+                            : rateProvider.getRate(merchantDictionary.get().getName(item.getMerchantId()),
+                                                   item.getMonth(), item.getDay());
+                    if (amountCents) {
+                        // Same HALF_UP rounding as below, with primitive longs only
+                        adjustment.originalCents = item.getAmountCents();
+                        adjustment.adjustedCents = rateProvider == null
+                                ? AmountCents.multiplyHalfUp(item.getAmountCents(), rateUnscaled, rateScale)
+                                : AmountCents.multiplyHalfUp(item.getAmountCents(),
+                                        itemRate.unscaledValue().longValueExact(), itemRate.scale());
+                        return adjustment;
+                    }
+                    adjustment.originalAmount = item.getAmount();
                     adjustment.adjustedAmount = item.getAmount()
-                            .multiply(BigDecimal.valueOf(rate))
+                            .multiply(itemRate)
                             .setScale(2, RoundingMode.HALF_UP);
                     return adjustment;
                 })
-                .writer(new JdbcBatchItemWriterBuilder<CurrencyAdjustment>()
-                        .dataSource(sourceDataSource)
-                        .itemPreparedStatementSetter((item, ps) -> {
-                            ps.setBigDecimal(1, item.adjustedAmount);
-                            ps.setBoolean(2, true); // Flag is set to true now
-                            ps.setLong(3, item.id);
-                        })
-                        .sql("update bank_transaction_yearly set amount = ?, adjusted = ? where id = ?")
-                        .build())
+                .writer(currencyAdjustmentWriter(sourceDataSource, incremental))
                 .listener(new StepExecutionListener() {
                     @Override
                     public void beforeStep(StepExecution stepExecution) {
                         // Before executing the step, add boolean column (if needed)
                         SourceManagementUtils.addAdjustedColumn(sourceDataSource);
+                        SourceManagementUtils.addAccountIdColumn(sourceDataSource);
+                        merchantDictionary.set(new MerchantDictionary(sourceDataSource));
+                        if (incremental) {
+                            JdbcTemplate jdbcTemplate = new JdbcTemplate(sourceDataSource);
+                            SourceManagementUtils.createHighWaterMarkTable(jdbcTemplate);
+                            SourceManagementUtils.createAggregatedBalanceTables(jdbcTemplate);
+                        }
+                        if (pushDownBlocklist) {
+                            // Blocklist table is checked by the database in a single query, instead of per-item check,
+                            // for the same range of months the step reads; table is created empty if missing, so that
+                            // it could be filled afterwards
+                            SourceManagementUtils.createMerchantBlocklistTable(new JdbcTemplate(sourceDataSource), blocklistTable);
+                            long blockedCount = SourceManagementUtils.countBlockedTransactions(sourceDataSource,
+                                    blocklistTable, disallowedMerchant, monthRangeCondition);
+                            if (blockedCount > 0) {
+                                throw new RuntimeException("Disallowed merchant! Found " + blockedCount + " transactions");
+                            }
+                        } else if (!blocklistFile.isBlank()) {
+                            blocklist.set(MerchantBlocklist.fromResource(
+                                    new DefaultResourceLoader().getResource(blocklistFile), disallowedMerchant));
+                        } else {
+                            blocklist.set(MerchantBlocklist.of(disallowedMerchant));
+                        }
+                        if (!ratesTable.isBlank()) {
+                            SourceManagementUtils.createExchangeRateTable(new JdbcTemplate(sourceDataSource), ratesTable);
+                            exchangeRates.set(new ExchangeRateProvider(sourceDataSource, ratesTable, ratesCacheSize, decimalRate));
+                        }
                     }
-                })
-                .listener(new ItemReadListener<>() {
-                    @Override // After each read, check whether merchant is the disallowed merchant
-                    public void afterRead(BankTransaction item) {
-                        if (disallowedMerchant.equals(item.getMerchant())) {
-                            throw new RuntimeException("Disallowed merchant!");
+
+                    @Override
+                    public ExitStatus afterStep(StepExecution stepExecution) {
+                        blocklist.set(MerchantBlocklist.of()); // Release the memory once step is executed
+                        merchantDictionary.set(null);
+                        ExchangeRateProvider rateProvider = exchangeRates.getAndSet(null);
+                        if (rateProvider != null) {
+                            // Keep cache efficiency of the execution together with the step
+                            stepExecution.getExecutionContext().putLong("rateCacheHits", rateProvider.getHitCount());
+                            stepExecution.getExecutionContext().putLong("rateCacheMisses", rateProvider.getMissCount());
                         }
+                        return null;
+                    }
+                });
+
+        if (!ratesTable.isBlank()) {
+            stepBuilder.listener(new ItemReadListener<>() {
+                @Override // After each read, register the rates the transaction needs, so the chunk's ones load together
+                public void afterRead(BankTransaction item) {
+                    exchangeRates.get().require(merchantDictionary.get().getName(item.getMerchantId()), item.getMonth());
+                }
+            });
+        }
+
+        if (!pushDownBlocklist) {
+            stepBuilder.listener(new ItemReadListener<>() {
+                @Override // After each read, check whether merchant is in the blocklist
+                public void afterRead(BankTransaction item) {
+                    if (blocklist.get().contains(merchantDictionary.get().getName(item.getMerchantId()))) {
+                        throw new RuntimeException("Disallowed merchant!");
+                    }
+                }
+            });
+        }
+
+        return stepBuilder
+                // Always run step, regardless of whether same parameters step was completed
+                .allowStartIfComplete(true)
+                .build();
+    }
+
+
+    /* ************************************ Ingestion job is defined below **************************************** */
+
+    @Bean
+    @Qualifier("bankTransactionIngestionJob")
+    public Job bankTransactionIngestionJob(JobRepository jobRepository,
+                                           @Qualifier("ingestionStep") Step ingestionStep) {
+        return new JobBuilder("bankTransactionIngestionJob", jobRepository)
+                .start(ingestionStep)
+                .build();
+    }
+
+    @Bean
+    @Qualifier("ingestionStep")
+    public Step ingestionStep(JobRepository jobRepository,
+                              @Qualifier("sourceDataSource") DataSource sourceDataSource,
+                              @Qualifier("ingestionWorkerStep") Step ingestionWorkerStep,
+                              @Qualifier("ingestionTaskExecutor") TaskExecutor taskExecutor,
+                              @Value("${ingestion.input.files}") String inputFiles) {
+        return new StepBuilder("ingest-files", jobRepository)
+                // One partition per file; files are listed when the step starts, so that new files are picked up
+                .partitioner(ingestionWorkerStep.getName(), gridSize -> {
+                    MultiResourcePartitioner partitioner = new MultiResourcePartitioner();
+                    try {
+                        partitioner.setResources(new PathMatchingResourcePatternResolver().getResources(inputFiles));
+                    } catch (IOException e) {
+                        throw new IllegalStateException("Can not list input files " + inputFiles, e);
+                    }
+                    return partitioner.partition(gridSize);
+                })
+                .step(ingestionWorkerStep)
+                .taskExecutor(taskExecutor)
+                .listener(new StepExecutionListener() {
+                    @Override
+                    public void beforeStep(StepExecution stepExecution) {
+                        // Alter schema once, before partitions are started
+                        SourceManagementUtils.addAccountIdColumn(sourceDataSource);
+                        SourceManagementUtils.createIngestedFileTable(new JdbcTemplate(sourceDataSource));
                     }
                 })
+                // Always run step, regardless of whether same parameters step was completed; completed files are skipped
+                .allowStartIfComplete(true)
+                .build();
+    }
+
+    @Bean
+    @Qualifier("ingestionWorkerStep")
+    public Step ingestionWorkerStep(JobRepository jobRepository, PlatformTransactionManager transactionManager,
+                                    @Qualifier("ingestionTasklet") CsvCopyIngestionTasklet ingestionTasklet) {
+        return new StepBuilder("ingest-file", jobRepository)
+                // Tasklet loads one batch of the file per execution
+                .tasklet(ingestionTasklet, transactionManager)
+                // Tasklet closes the file once partition is over
+                .listener(ingestionTasklet)
+                .allowStartIfComplete(true)
+                .build();
+    }
+
+    // Tasklet is created per partition, for the file of this partition
+    @Bean
+    @StepScope
+    @Qualifier("ingestionTasklet")
+    public CsvCopyIngestionTasklet ingestionTasklet(@Qualifier("sourceDataSource") DataSource sourceDataSource,
+                                                    @Value("#{stepExecutionContext['fileName']}") String fileName,
+                                                    @Value("${ingestion.batch.size}") int batchSize,
+                                                    @Value("${ingestion.csv.header}") boolean header,
+                                                    @Value("${ingestion.max.rejected.rows}") long maxRejectedRows)
+            throws MalformedURLException {
+        return new CsvCopyIngestionTasklet(new UrlResource(fileName), sourceDataSource, batchSize, header, maxRejectedRows);
+    }
+
+    @Bean
+    @Qualifier("ingestionTaskExecutor")
+    public ThreadPoolTaskExecutor ingestionTaskExecutor(@Value("${ingestion.threads}") int threads) {
+        ThreadPoolTaskExecutor taskExecutor = new ThreadPoolTaskExecutor();
+        taskExecutor.setCorePoolSize(threads);
+        taskExecutor.setMaxPoolSize(threads);
+        taskExecutor.setThreadNamePrefix("ingest-file-");
+        return taskExecutor;
+    }
+
+
+    /* ********************** Aggregated balance consistency check job is defined below ************************** */
+
+    @Bean
+    @Qualifier("aggregatedBalanceCheckJob")
+    public Job aggregatedBalanceCheckJob(JobRepository jobRepository,
+                                         @Qualifier("aggregatedBalanceCheckStep") Step aggregatedBalanceCheckStep) {
+        return new JobBuilder("aggregatedBalanceCheckJob", jobRepository)
+                .start(aggregatedBalanceCheckStep)
+                .build();
+    }
+
+    @Bean
+    @Qualifier("aggregatedBalanceCheckStep")
+    public Step aggregatedBalanceCheckStep(JobRepository jobRepository, PlatformTransactionManager transactionManager,
+                                           @Qualifier("sourceDataSource") DataSource sourceDataSource) {
+        return new StepBuilder("aggregated-balance-check", jobRepository)
+                // Compare incrementally maintained balances to the full aggregation of transactions, fail if differ
+                .tasklet((contribution, chunkContext) -> {
+                    long mismatches = SourceManagementUtils.countAggregatedBalanceMismatches(
+                            new JdbcTemplate(sourceDataSource), FILL_BALANCE_HIGH_WATER_MARK);
+                    if (mismatches > 0) {
+                        throw new RuntimeException("Aggregated balances are inconsistent with transactions in "
+                                + mismatches + " groups");
+                    }
+                    return RepeatStatus.FINISHED;
+                }, transactionManager)
                 // Always run step, regardless of whether same parameters step was completed
                 .allowStartIfComplete(true)
                 .build();
@@ -281,9 +949,11 @@ public class BankTransactionAnalysisConfiguration extends DefaultBatchConfigurat
     @Qualifier("dataSource") // Job repository data source should be named 'dataSource' as per DefaultBatchConfiguration
     public DataSource dataSource(@Value("${db.job.repo.url}") String url,
                                  @Value("${db.job.repo.username}") String username,
-                                 @Value("${db.job.repo.password}") String password) {
+                                 @Value("${db.job.repo.password}") String password,
+                                 // MySQL by default; overridden to use embedded database in performance tests
+                                 @Value("${db.job.repo.driver:com.mysql.cj.jdbc.Driver}") String driverClassName) {
         DriverManagerDataSource dataSource = new DriverManagerDataSource();
-        dataSource.setDriverClassName("com.mysql.cj.jdbc.Driver");
+        dataSource.setDriverClassName(driverClassName);
         dataSource.setUrl(url);
         dataSource.setUsername(username);
         dataSource.setPassword(password);
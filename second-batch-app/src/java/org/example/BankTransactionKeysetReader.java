@@ -0,0 +1,130 @@
+package org.example;
+
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamException;
+import org.springframework.batch.item.ItemStreamReader;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import javax.sql.DataSource;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+
+/**
+ * Reader of 'bank_transaction_yearly' table using keyset pagination: 'where id > :lastId order by id limit :n'.
+ * Each page is a separate short query, so no cursor or transaction is held open for the whole step, and
+ * the only state saved in execution context is the id of the last read transaction, which makes restart
+ * a single indexed lookup instead of skipping already read rows. The next page is prefetched on a background
+ * thread while the current one is processed.
+ * Reader can be limited to the range of ids, which are taken from execution context (e.g. incremental mode starts
+ * right after the high-water mark)
+ */
+public class BankTransactionKeysetReader implements ItemStreamReader<BankTransaction> {
+
+    // Execution context keys for the range of ids (min is exclusive, max is inclusive) to read
+    public static final String MIN_ID = "minId";
+    public static final String MAX_ID = "maxId";
+
+    private static final String LAST_ID = "lastId";
+
+    private final String name;
+    private final DataSource dataSource;
+    private final int pageSize;
+    // Additional condition for selected transactions, e.g. "adjusted = false"; null means no condition
+    private String whereClause;
+    private RowMapper<BankTransaction> rowMapper = BankTransaction.ROW_MAPPER;
+
+    private JdbcTemplate jdbcTemplate;
+    private ExecutorService prefetchExecutor;
+    private Future<List<BankTransaction>> nextPage;
+    private Iterator<BankTransaction> currentPage;
+    private long maxId;
+    private long lastReadId;
+
+    public BankTransactionKeysetReader(String name, DataSource dataSource, int pageSize) {
+        this.name = name;
+        this.dataSource = dataSource;
+        this.pageSize = pageSize;
+    }
+
+    public void setWhereClause(String whereClause) {
+        this.whereClause = whereClause;
+    }
+
+    public void setRowMapper(RowMapper<BankTransaction> rowMapper) {
+        this.rowMapper = rowMapper;
+    }
+
+    @Override
+    public void open(ExecutionContext executionContext) throws ItemStreamException {
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        maxId = executionContext.getLong(MAX_ID, Long.MAX_VALUE);
+        // On restart, continue right after the last read transaction; otherwise start from the range beginning
+        lastReadId = executionContext.getLong(getLastIdKey(), executionContext.getLong(MIN_ID, 0L));
+        currentPage = null;
+        prefetchExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, name + "-prefetch");
+            thread.setDaemon(true);
+            return thread;
+        });
+        nextPage = prefetch(lastReadId);
+    }
+
+    @Override
+    public BankTransaction read() throws Exception {
+        if (currentPage == null || !currentPage.hasNext()) {
+            if (nextPage == null) {
+                return null; // Last page was already read
+            }
+            List<BankTransaction> page = nextPage.get();
+            // Page which is not full is the last one, no need to query again
+            nextPage = page.size() < pageSize ? null : prefetch(page.get(page.size() - 1).getId());
+            currentPage = page.iterator();
+            if (!currentPage.hasNext()) {
+                return null;
+            }
+        }
+
+        BankTransaction transaction = currentPage.next();
+        lastReadId = transaction.getId();
+        return transaction;
+    }
+
+    @Override
+    public void update(ExecutionContext executionContext) throws ItemStreamException {
+        executionContext.putLong(getLastIdKey(), lastReadId);
+    }
+
+    @Override
+    public void close() throws ItemStreamException {
+        if (nextPage != null) {
+            nextPage.cancel(true);
+            nextPage = null;
+        }
+        if (prefetchExecutor != null) {
+            prefetchExecutor.shutdownNow();
+            prefetchExecutor = null;
+        }
+        currentPage = null;
+    }
+
+    // Schedule query of the page following the specified id on the background thread
+    private Future<List<BankTransaction>> prefetch(long afterId) {
+        return prefetchExecutor.submit(() -> jdbcTemplate.query(getPageQuery(), rowMapper,
+                afterId, maxId, pageSize));
+    }
+
+    private String getPageQuery() {
+        return BankTransaction.SELECT_ALL_QUERY + " where id > ? and id <= ?"
+                + (whereClause == null ? "" : " and (" + whereClause + ")")
+                + " order by id limit ?";
+    }
+
+    private String getLastIdKey() {
+        return name + "." + LAST_ID;
+    }
+}
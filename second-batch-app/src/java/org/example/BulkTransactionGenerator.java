@@ -0,0 +1,275 @@
+package org.example;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+
+/**
+ * High-volume generator for 'bank_transaction_yearly' table, producing tens of millions of records for capacity testing.
+ * Records are generated on multiple threads in fixed-size blocks, each block having its own random seeded from
+ * the main seed and block index, so that the result is reproducible for the given seed regardless of thread count.
+ * Every record is packed into a single long (time, amount and merchant index), which keeps memory footprint small
+ * and allows chronological sort with primitive parallel sort. Once sorted, records are spread across accounts
+ * by hashing the seed and position of the record, so that transactions of each account are chronological as well.
+ * Merchants are added to the merchant dictionary with ids following their indexes (from 1), which requires the empty
+ * dictionary, and records are then loaded using COPY for Postgresql, or large JDBC batches for other databases
+ */
+public class BulkTransactionGenerator {
+
+    // Number of records generated by a single task, and number of records sent to the database at once
+    private static final int BLOCK_SIZE = 1 << 16;
+    private static final int[] DAYS_IN_MONTH = {31, 28, 31, 30, 31, 30, 31, 31, 30, 31, 30, 31};
+
+    // Layout of packed record, from most to least significant bits: time (month, day, hour, minute) -> amount -> merchant
+    // Packed records are compared the same way as records in GenerateSourceDatabase are sorted
+    private static final int MERCHANT_BITS = 25;
+    private static final int AMOUNT_BITS = 18;
+    private static final int MAX_AMOUNT_CENTS = 99999;
+    public static final int MAX_MERCHANT_NUM = 1 << MERCHANT_BITS;
+    // Salt of the seed for spreading records across accounts, so that it's independent of the block randoms
+    private static final long ACCOUNT_SALT = 0x9E3779B97F4A7C15L;
+
+    private final int recordNum;
+    private final String[] merchants;
+    private final long seed;
+    private final int threadNum;
+    private final int accountNum;
+
+    public BulkTransactionGenerator(int recordNum, int merchantNum, long seed, int threadNum) {
+        this(recordNum, merchantNum, seed, threadNum, 1);
+    }
+
+    public BulkTransactionGenerator(int recordNum, int merchantNum, long seed, int threadNum, int accountNum) {
+        if (merchantNum <= 0 || merchantNum > MAX_MERCHANT_NUM) {
+            throw new IllegalArgumentException("Number of merchants should be between 1 and " + MAX_MERCHANT_NUM);
+        }
+        if (accountNum <= 0) {
+            throw new IllegalArgumentException("Number of accounts should be positive");
+        }
+        this.recordNum = recordNum;
+        this.merchants = generateMerchants(merchantNum, seed);
+        this.seed = seed;
+        this.threadNum = threadNum;
+        this.accountNum = accountNum;
+    }
+
+    /**
+     * Generate records and load them into 'bank_transaction_yearly' table in chronological order,
+     * such that ids (serial) are assigned chronologically as well; merchants are loaded into 'merchant' table first
+     *
+     * @param dataSource database connectivity data source
+     */
+    public void generateAndLoad(DataSource dataSource) throws Exception {
+        long[] records = generate();
+        List<Object[]> merchantRows = new ArrayList<>(merchants.length);
+        for (int i = 0; i < merchants.length; i++) {
+            merchantRows.add(new Object[]{merchantId(i), merchants[i]});
+        }
+        new JdbcTemplate(dataSource).batchUpdate("insert into merchant (id, name) values (?, ?)", merchantRows);
+        try (Connection connection = dataSource.getConnection()) {
+            if (connection.isWrapperFor(PGConnection.class)) {
+                copyRecords(connection.unwrap(PGConnection.class), records);
+            } else {
+                batchInsertRecords(connection, records);
+            }
+        }
+    }
+
+    // Generate packed records in parallel, and sort them chronologically
+    public long[] generate() throws Exception {
+        long[] records = new long[recordNum];
+        ExecutorService executor = Executors.newFixedThreadPool(threadNum);
+        try {
+            List<Future<?>> blockFutures = new ArrayList<>();
+            for (int blockStart = 0; blockStart < recordNum; blockStart += BLOCK_SIZE) {
+                int from = blockStart;
+                int to = Math.min(blockStart + BLOCK_SIZE, recordNum);
+                blockFutures.add(executor.submit(() -> generateBlock(records, from, to)));
+            }
+            for (Future<?> blockFuture : blockFutures) {
+                blockFuture.get(); // Propagate the failure, if any
+            }
+        } finally {
+            executor.shutdown();
+        }
+        Arrays.parallelSort(records);
+        return records;
+    }
+
+    // Convert packed record at the specified position (of sorted records) to the transaction entity
+    public BankTransaction toTransaction(long record, int position) {
+        return new BankTransaction(-1, accountId(position), month(record), day(record), hour(record), minute(record),
+                BigDecimal.valueOf(amountCents(record), 2), merchantId(merchantIndex(record)));
+    }
+
+    // Account of the record at the specified position of sorted records, from 0 to number of accounts (exclusive)
+    public long accountId(int position) {
+        if (accountNum == 1) {
+            return 0;
+        }
+        return Math.floorMod(hash(seed ^ ACCOUNT_SALT, position), accountNum);
+    }
+
+    // Seed of the random of the block with the specified index
+    static long blockSeed(long seed, int blockIndex) {
+        return hash(seed, blockIndex);
+    }
+
+    // Hash of the seed and index, such that neither consecutive indexes nor consecutive seeds give related values:
+    // the seed is mixed on its own first, so that streams of different seeds don't overlap when shifted by index
+    private static long hash(long seed, long index) {
+        return mix(mix(seed) + index);
+    }
+
+    // Finalizer of SplitMix64, spreading consecutive values uniformly
+    private static long mix(long value) {
+        value = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+        value = (value ^ (value >>> 27)) * 0x94D049BB133111EBL;
+        return value ^ (value >>> 31);
+    }
+
+    // Generate records of the block with random depending only on seed and block index
+    private void generateBlock(long[] records, int from, int to) {
+        SplittableRandom random = new SplittableRandom(blockSeed(seed, from / BLOCK_SIZE));
+        for (int i = from; i < to; i++) {
+            int month = random.nextInt(12) + 1;
+            int day = random.nextInt(DAYS_IN_MONTH[month - 1]) + 1;
+            int hour = random.nextInt(24);
+            int minute = random.nextInt(60);
+            int amountCents = random.nextInt(MAX_AMOUNT_CENTS + 1);
+            if (random.nextBoolean()) {
+                amountCents *= -1;
+            }
+            records[i] = pack(month, day, hour, minute, amountCents, random.nextInt(merchants.length));
+        }
+    }
+
+    // Stream records through COPY, sending data to the server in blocks
+    private void copyRecords(PGConnection connection, long[] records) throws SQLException {
+        CopyIn copyIn = connection.getCopyAPI()
+                .copyIn("copy bank_transaction_yearly (month, day, hour, minute, amount, merchant_id, account_id) from stdin with (format csv)");
+        try {
+            StringBuilder block = new StringBuilder(BLOCK_SIZE * 64);
+            for (int i = 0; i < records.length; i++) {
+                long record = records[i];
+                block.append(month(record)).append(',')
+                        .append(day(record)).append(',')
+                        .append(hour(record)).append(',')
+                        .append(minute(record)).append(',');
+                appendAmount(block, amountCents(record));
+                block.append(',').append(merchantId(merchantIndex(record)))
+                        .append(',').append(accountId(i)).append('\n');
+
+                if ((i + 1) % BLOCK_SIZE == 0 || i == records.length - 1) {
+                    byte[] bytes = block.toString().getBytes(StandardCharsets.UTF_8);
+                    copyIn.writeToCopy(bytes, 0, bytes.length);
+                    block.setLength(0);
+                }
+            }
+            copyIn.endCopy();
+        } finally {
+            if (copyIn.isActive()) {
+                copyIn.cancelCopy();
+            }
+        }
+    }
+
+    // Insert records using JDBC batches, committing once per batch
+    private void batchInsertRecords(Connection connection, long[] records) throws SQLException {
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try (PreparedStatement statement = connection.prepareStatement(
+                "insert into bank_transaction_yearly (month, day, hour, minute, amount, merchant_id, account_id) values (?, ?, ?, ?, ?, ?, ?)")) {
+            for (int i = 0; i < records.length; i++) {
+                long record = records[i];
+                statement.setInt(1, month(record));
+                statement.setInt(2, day(record));
+                statement.setInt(3, hour(record));
+                statement.setInt(4, minute(record));
+                statement.setBigDecimal(5, BigDecimal.valueOf(amountCents(record), 2));
+                statement.setInt(6, merchantId(merchantIndex(record)));
+                statement.setLong(7, accountId(i));
+                statement.addBatch();
+
+                if ((i + 1) % BLOCK_SIZE == 0 || i == records.length - 1) {
+                    statement.executeBatch();
+                    connection.commit();
+                }
+            }
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+    }
+
+    // Merchant names are derived from the seed as well, for the output to be fully reproducible
+    private static String[] generateMerchants(int merchantNum, long seed) {
+        Random random = new Random(seed);
+        String[] merchantsArray = new String[merchantNum];
+        for (int i = 0; i < merchantNum; i++) {
+            merchantsArray[i] = new UUID(random.nextLong(), random.nextLong()).toString();
+        }
+        return merchantsArray;
+    }
+
+    // Append amount in cents as decimal number with 2 digits of scale, e.g. -1234 -> "-12.34"
+    private static void appendAmount(StringBuilder builder, int amountCents) {
+        if (amountCents < 0) {
+            builder.append('-');
+            amountCents = -amountCents;
+        }
+        int cents = amountCents % 100;
+        builder.append(amountCents / 100).append('.').append(cents < 10 ? "0" : "").append(cents);
+    }
+
+    private static long pack(int month, int day, int hour, int minute, int amountCents, int merchantIndex) {
+        long time = ((month * 32L + day) * 32 + hour) * 64 + minute;
+        long amount = amountCents + MAX_AMOUNT_CENTS; // Shift to be non-negative, preserving the order
+        return (time << (AMOUNT_BITS + MERCHANT_BITS)) | (amount << MERCHANT_BITS) | merchantIndex;
+    }
+
+    private static int minute(long record) {
+        return (int) (record >>> (AMOUNT_BITS + MERCHANT_BITS)) & 63;
+    }
+
+    private static int hour(long record) {
+        return (int) (record >>> (AMOUNT_BITS + MERCHANT_BITS + 6)) & 31;
+    }
+
+    private static int day(long record) {
+        return (int) (record >>> (AMOUNT_BITS + MERCHANT_BITS + 11)) & 31;
+    }
+
+    private static int month(long record) {
+        return (int) (record >>> (AMOUNT_BITS + MERCHANT_BITS + 16));
+    }
+
+    private static int amountCents(long record) {
+        return (int) ((record >>> MERCHANT_BITS) & ((1L << AMOUNT_BITS) - 1)) - MAX_AMOUNT_CENTS;
+    }
+
+    private static int merchantIndex(long record) {
+        return (int) (record & (MAX_MERCHANT_NUM - 1));
+    }
+
+    // Id of the merchant in the dictionary
+    private static int merchantId(int merchantIndex) {
+        return merchantIndex + 1;
+    }
+}
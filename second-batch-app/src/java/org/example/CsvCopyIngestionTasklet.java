@@ -0,0 +1,240 @@
+package org.example;
+
+import org.postgresql.PGConnection;
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.StepContribution;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.StepExecutionListener;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.batch.core.step.tasklet.Tasklet;
+import org.springframework.batch.repeat.RepeatStatus;
+import org.springframework.core.io.Resource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.jdbc.support.JdbcTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.Month;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * Tasklet ingesting a single CSV file of transactions into 'bank_transaction_yearly' table, in batches of lines.
+ * Every line is 'month,day,hour,minute,amount,merchant[,account_id]' (optionally preceded by a header line), and it's
+ * validated in memory, so that only valid rows are sent to the database, and invalid ones are counted as skipped
+ * (step fails once their number exceeds the limit). Merchant names of the batch are encoded into ids with merchant
+ * dictionary, adding new merchants to it. Every batch is loaded with Postgresql COPY (or JDBC batch insert
+ * for other databases) in its own transaction, which also records the number of consumed lines of the file in
+ * 'ingested_file' table by file URI (see {@link SourceManagementUtils#createIngestedFileTable}). Hence, after the
+ * failure the file continues right after the last loaded batch, and once file is completed, it's skipped by further
+ * runs.
+ * Tasklet is executed repeatedly, one batch per execution, and it needs to be registered as step listener, so that
+ * the file is closed once step is over
+ */
+public class CsvCopyIngestionTasklet implements Tasklet, StepExecutionListener {
+
+    private static final String COPY_QUERY = "copy bank_transaction_yearly (month, day, hour, minute, amount, merchant_id, account_id) " +
+            "from stdin with (format csv)";
+    private static final String INSERT_QUERY = "insert into bank_transaction_yearly (month, day, hour, minute, amount, merchant_id, account_id) " +
+            "values (?, ?, ?, ?, ?, ?, ?)";
+    // Position of merchant in parsed row
+    private static final int MERCHANT_INDEX = 5;
+    // Max absolute amount in cents which fits 'numeric(10,2)' column
+    private static final long MAX_AMOUNT_CENTS = 99_999_999_99L;
+
+    private final Resource resource;
+    private final DataSource dataSource;
+    private final int batchSize;
+    private final boolean header;
+    private final long maxRejectedRows;
+
+    private JdbcTemplate jdbcTemplate;
+    private MerchantDictionary merchantDictionary;
+    private TransactionTemplate transactionTemplate;
+    private BufferedReader reader;
+    // Full URI of the file, identifying it in 'ingested_file' table, since files of different directories may have
+    // the same name
+    private String fileUri;
+    private long consumedLines;
+    private long rejectedRows;
+
+    public CsvCopyIngestionTasklet(Resource resource, DataSource dataSource, int batchSize, boolean header,
+                                   long maxRejectedRows) {
+        this.resource = resource;
+        this.dataSource = dataSource;
+        this.batchSize = batchSize;
+        this.header = header;
+        this.maxRejectedRows = maxRejectedRows;
+    }
+
+    @Override
+    public RepeatStatus execute(StepContribution contribution, ChunkContext chunkContext) throws Exception {
+        if (reader == null && !open()) {
+            return RepeatStatus.FINISHED; // File was already ingested
+        }
+
+        // Read and validate the batch in memory, before anything is sent to the database
+        List<Object[]> rows = new ArrayList<>(batchSize);
+        int lineNum = 0;
+        long batchRejectedRows = 0;
+        String line = null;
+        while (lineNum < batchSize && (line = reader.readLine()) != null) {
+            lineNum++;
+            Object[] row = parse(line);
+            if (row == null) {
+                batchRejectedRows++;
+                if (rejectedRows + batchRejectedRows > maxRejectedRows) {
+                    throw new IllegalStateException("Too many invalid rows in " + fileUri + ", the last one at line "
+                            + (consumedLines + lineNum + (header ? 1 : 0)) + ": " + line);
+                }
+            } else {
+                rows.add(row);
+            }
+        }
+        boolean completed = line == null;
+
+        // Merchant names are replaced with ids, and rows are sent in normalized form (trimmed, with account),
+        // rather than the original lines
+        List<String> merchants = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            merchants.add((String) row[MERCHANT_INDEX]);
+        }
+        int[] merchantIds = merchantDictionary.getIds(merchants);
+        StringBuilder csvRows = new StringBuilder(rows.size() * 48);
+        for (int i = 0; i < rows.size(); i++) {
+            Object[] row = rows.get(i);
+            row[MERCHANT_INDEX] = merchantIds[i];
+            for (int j = 0; j < row.length; j++) {
+                csvRows.append(j == 0 ? "" : ",").append(row[j]);
+            }
+            csvRows.append('\n');
+        }
+
+        long newConsumedLines = consumedLines + lineNum;
+        long newRejectedRows = rejectedRows + batchRejectedRows;
+        // Rows and the file progress are committed together, so that no row is loaded twice
+        transactionTemplate.executeWithoutResult(status -> {
+            try {
+                Connection connection = DataSourceUtils.getConnection(dataSource);
+                if (!rows.isEmpty()) {
+                    if (connection.isWrapperFor(PGConnection.class)) {
+                        connection.unwrap(PGConnection.class).getCopyAPI()
+                                .copyIn(COPY_QUERY, new StringReader(csvRows.toString()));
+                    } else {
+                        batchInsert(connection, rows);
+                    }
+                }
+            } catch (SQLException | IOException e) {
+                throw new IllegalStateException("Can not load rows of " + fileUri, e);
+            }
+            jdbcTemplate.update("update ingested_file set lines = ?, rejected = ?, completed = ? where name = ?",
+                    newConsumedLines, newRejectedRows, completed, fileUri);
+        });
+        consumedLines = newConsumedLines;
+        rejectedRows = newRejectedRows;
+        contribution.incrementWriteCount(rows.size());
+        contribution.incrementReadSkipCount(batchRejectedRows);
+
+        return completed ? RepeatStatus.FINISHED : RepeatStatus.CONTINUABLE;
+    }
+
+    @Override
+    public ExitStatus afterStep(StepExecution stepExecution) {
+        close();
+        return null;
+    }
+
+    // Open the file and skip already consumed lines; returns false if the file is already completed
+    private boolean open() throws IOException {
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        transactionTemplate = new TransactionTemplate(new JdbcTransactionManager(dataSource));
+        merchantDictionary = new MerchantDictionary(dataSource);
+        // File location may be relative (e.g. 'file:input/transactions.csv'), hence it's made absolute
+        fileUri = (resource.isFile() ? resource.getFile().toPath().toAbsolutePath().normalize().toUri()
+                                     : resource.getURI()).toString();
+        jdbcTemplate.update("insert into ingested_file (name, lines, rejected, completed) select ?, 0, 0, false " +
+                "where not exists (select 1 from ingested_file where name = ?)", fileUri, fileUri);
+        Map<String, Object> progress = jdbcTemplate.queryForMap(
+                "select lines, rejected, completed from ingested_file where name = ?", fileUri);
+        if (Boolean.TRUE.equals(progress.get("completed"))) {
+            return false;
+        }
+        consumedLines = ((Number) progress.get("lines")).longValue();
+        rejectedRows = ((Number) progress.get("rejected")).longValue();
+
+        reader = new BufferedReader(new InputStreamReader(resource.getInputStream(), StandardCharsets.UTF_8), 1 << 16);
+        for (long i = 0; i < consumedLines + (header ? 1 : 0); i++) {
+            if (reader.readLine() == null) {
+                break;
+            }
+        }
+        return true;
+    }
+
+    private void close() {
+        if (reader != null) {
+            try {
+                reader.close();
+            } catch (IOException e) {
+                // Nothing to do, file was only read
+            }
+            reader = null;
+        }
+    }
+
+    /**
+     * Parse and validate the CSV line with the same constraints as the table has, plus valid ranges of time fields
+     *
+     * @param line CSV line
+     * @return row values in the order of table columns (with merchant name instead of id), or null if the line is not valid
+     */
+    static Object[] parse(String line) {
+        String[] fields = line.split(",", -1);
+        if (fields.length != 6 && fields.length != 7) {
+            return null;
+        }
+        try {
+            int month = Integer.parseInt(fields[0].trim());
+            int day = Integer.parseInt(fields[1].trim());
+            int hour = Integer.parseInt(fields[2].trim());
+            int minute = Integer.parseInt(fields[3].trim());
+            long amountCents = AmountCents.parse(fields[4].trim());
+            String merchant = fields[5].trim();
+            long accountId = fields.length == 7 ? Long.parseLong(fields[6].trim()) : 0;
+            if (month < 1 || month > 12 || day < 1 || day > Month.of(month).maxLength()
+                    || hour < 0 || hour > 23 || minute < 0 || minute > 59
+                    || Math.abs(amountCents) > MAX_AMOUNT_CENTS
+                    || merchant.isEmpty() || merchant.length() > 36 || merchant.contains("\"")
+                    || accountId < 0) {
+                return null;
+            }
+            return new Object[]{month, day, hour, minute, AmountCents.toBigDecimal(amountCents), merchant, accountId};
+        } catch (NumberFormatException | ArithmeticException e) {
+            return null;
+        }
+    }
+
+    // Insert rows using single JDBC batch, for databases not supporting COPY
+    private static void batchInsert(Connection connection, List<Object[]> rows) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(INSERT_QUERY)) {
+            for (Object[] row : rows) {
+                for (int i = 0; i < row.length; i++) {
+                    statement.setObject(i + 1, row[i]);
+                }
+                statement.addBatch();
+            }
+            statement.executeBatch();
+        }
+    }
+}
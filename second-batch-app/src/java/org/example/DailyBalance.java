@@ -1,6 +1,11 @@
 package org.example;
 
 import com.google.common.collect.ImmutableMap;
+import org.apache.parquet.example.data.Group;
+import org.apache.parquet.schema.LogicalTypeAnnotation;
+import org.apache.parquet.schema.MessageType;
+import org.apache.parquet.schema.PrimitiveType;
+import org.apache.parquet.schema.Types;
 import org.springframework.batch.item.database.Order;
 import org.springframework.batch.item.database.PagingQueryProvider;
 import org.springframework.batch.item.database.support.PostgresPagingQueryProvider;
@@ -14,12 +19,22 @@ public class DailyBalance {
 
     private final int day;
     private final int month;
+    // Balance is either decimal, or (in cents mode) long cents, in which case decimal one is null
     private final BigDecimal balance;
+    private final long balanceCents;
 
     public DailyBalance(int day, int month, BigDecimal balance) {
         this.day = day;
         this.month = month;
         this.balance = balance;
+        this.balanceCents = 0;
+    }
+
+    public DailyBalance(int day, int month, long balanceCents) {
+        this.day = day;
+        this.month = month;
+        this.balance = null;
+        this.balanceCents = balanceCents;
     }
 
     // Row mapper to transform query results into Java object
@@ -28,10 +43,30 @@ public class DailyBalance {
             rs.getInt("month"),
             rs.getBigDecimal("balance")
     );
+    // Row mapper for amounts in cents mode: columns are taken by index (balance, day, month, as in both query
+    // providers), and balance is mapped straight into long cents
+    public static final RowMapper<DailyBalance> CENTS_ROW_MAPPER = (rs, rowNum) -> new DailyBalance(
+            rs.getInt(2),
+            rs.getInt(3),
+            AmountCents.fromResultSet(rs, 1)
+    );
+
+    // Parquet schema of the entity: balance is a decimal stored as long cents
+    public static final MessageType PARQUET_SCHEMA = Types.buildMessage()
+            .required(PrimitiveType.PrimitiveTypeName.INT32).named("day")
+            .required(PrimitiveType.PrimitiveTypeName.INT32).named("month")
+            .required(PrimitiveType.PrimitiveTypeName.INT64).as(LogicalTypeAnnotation.decimalType(2, 18)).named("balance")
+            .named("daily_balance");
 
     // Query provider to obtain daily balance aggregation from 'bank_transaction_yearly' table
     public static PagingQueryProvider getQueryProvider() {
+        return getQueryProvider(null);
+    }
+
+    // Same as above, limited with the condition (e.g. range of months, to scan only their partitions); null means no condition
+    public static PagingQueryProvider getQueryProvider(String whereClause) {
         PostgresPagingQueryProvider queryProvider = new PostgresPagingQueryProvider();
+        queryProvider.setWhereClause(whereClause);
         queryProvider.setSelectClause("sum(amount) as balance, day, month");
         queryProvider.setFromClause("bank_transaction_yearly");
         queryProvider.setGroupClause("day, month");
@@ -42,6 +77,24 @@ public class DailyBalance {
         return queryProvider;
     }
 
+    // Query provider to obtain already aggregated daily balance from 'daily_balance' table, maintained incrementally
+    public static PagingQueryProvider getAggregatedTableQueryProvider() {
+        return getAggregatedTableQueryProvider(null);
+    }
+
+    // Same as above, limited with the condition; null means no condition
+    public static PagingQueryProvider getAggregatedTableQueryProvider(String whereClause) {
+        PostgresPagingQueryProvider queryProvider = new PostgresPagingQueryProvider();
+        queryProvider.setWhereClause(whereClause);
+        queryProvider.setSelectClause("balance, day, month");
+        queryProvider.setFromClause("daily_balance");
+        queryProvider.setSortKeys(ImmutableMap.<String, Order>builder()
+                .put("month", Order.ASCENDING)
+                .put("day", Order.ASCENDING)
+                .build());
+        return queryProvider;
+    }
+
     public int getDay() {
         return day;
     }
@@ -50,7 +103,15 @@ public class DailyBalance {
         return month;
     }
 
+    // In cents mode, decimal balance is created only here, when it's written
     public BigDecimal getBalance() {
-        return balance;
+        return balance != null ? balance : AmountCents.toBigDecimal(balanceCents);
+    }
+
+    // Fill Parquet record of PARQUET_SCHEMA; not a getter, so that it's not serialized to JSON
+    void toParquetGroup(Group group) {
+        group.append("day", day)
+                .append("month", month)
+                .append("balance", balance != null ? AmountCents.valueOf(balance) : balanceCents);
     }
 }
@@ -0,0 +1,178 @@
+package org.example;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+
+/**
+ * Provider of per-merchant and per-day exchange rates from the rates table (see
+ * {@link SourceManagementUtils#createExchangeRateTable}), which is too large to be queried per transaction.
+ * Rates are cached by merchant & month, i.e. every cache entry holds the rates of all the days of the month for
+ * one merchant, and the cache is bounded to the given number of entries, evicting the least recently used ones.
+ * Cache is warmed in bulk: every merchant & month required by the current chunk is registered with
+ * {@link #require(String, int)} right after the read, and all the missing ones are loaded with a query per month
+ * when the first rate is requested. Days without a rate in the table get the default rate.
+ * Not thread-safe, since it's used by a single step thread
+ */
+public class ExchangeRateProvider {
+
+    // Max number of merchants loaded with a single query, to limit the size of the array bound to the query
+    private static final int MAX_MERCHANTS_PER_QUERY = 500;
+    // Cached value for merchant & month without any rate in the table
+    private static final BigDecimal[] NO_RATES = new BigDecimal[0];
+
+    private final JdbcTemplate jdbcTemplate;
+    private final String tableName;
+    private final BigDecimal defaultRate;
+    private final Map<String, BigDecimal[]> cache;
+    // Merchant & month keys required by the current chunk, which are not yet loaded
+    private final Set<String> pendingKeys = new LinkedHashSet<>();
+
+    private long hitCount;
+    private long missCount;
+    private long queryCount;
+
+    public ExchangeRateProvider(DataSource dataSource, String tableName, int cacheSize, BigDecimal defaultRate) {
+        if (cacheSize <= 0) {
+            // Loaded rates would be evicted right away, before they are returned
+            throw new IllegalArgumentException("Rates cache size should be positive: " + cacheSize);
+        }
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.tableName = tableName;
+        this.defaultRate = defaultRate;
+        // Access-ordered map evicting the least recently used entry once the size is exceeded
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, BigDecimal[]> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    /**
+     * Register merchant & month which rates will soon be needed, so that all the missing ones are loaded together.
+     * Counted as a hit if rates are already cached (or registered), otherwise as a miss
+     *
+     * @param merchant merchant id
+     * @param month month of the transaction
+     */
+    public void require(String merchant, int month) {
+        String key = getKey(merchant, month);
+        if (cache.get(key) != null || pendingKeys.contains(key)) {
+            hitCount++;
+        } else {
+            missCount++;
+            pendingKeys.add(key);
+        }
+    }
+
+    /**
+     * Get the rate of the merchant for the day, loading all the registered merchants & months first (if any)
+     *
+     * @param merchant merchant id
+     * @param month month of the transaction
+     * @param day day of the month of the transaction
+     * @return rate from the table, or the default one if table has no rate for this merchant & day
+     */
+    public BigDecimal getRate(String merchant, int month, int day) {
+        loadPending();
+        String key = getKey(merchant, month);
+        BigDecimal[] rates = cache.get(key);
+        if (rates == null) {
+            // Either not registered, or already evicted by the rates loaded later; load it on its own
+            missCount++;
+            pendingKeys.add(key);
+            loadPending();
+            rates = cache.get(key);
+        }
+        BigDecimal rate = day < rates.length ? rates[day] : null;
+        return rate == null ? defaultRate : rate;
+    }
+
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    public long getMissCount() {
+        return missCount;
+    }
+
+    // Number of queries made to the rates table
+    public long getQueryCount() {
+        return queryCount;
+    }
+
+    private void loadPending() {
+        if (pendingKeys.isEmpty()) {
+            return;
+        }
+        // Chunk of chronological transactions spans one or two months, so merchants are loaded month by month
+        Map<Integer, List<String>> merchantsByMonth = new TreeMap<>();
+        for (String key : pendingKeys) {
+            int separator = key.lastIndexOf(':');
+            merchantsByMonth.computeIfAbsent(Integer.parseInt(key.substring(separator + 1)), month -> new ArrayList<>())
+                    .add(key.substring(0, separator));
+        }
+        pendingKeys.clear();
+        for (Map.Entry<Integer, List<String>> entry : merchantsByMonth.entrySet()) {
+            List<String> merchants = entry.getValue();
+            for (int from = 0; from < merchants.size(); from += MAX_MERCHANTS_PER_QUERY) {
+                load(entry.getKey(), merchants.subList(from, Math.min(from + MAX_MERCHANTS_PER_QUERY, merchants.size())));
+            }
+        }
+    }
+
+    /**
+     * Load all the rates of listed merchants for the month with a single query, and put them to the cache.
+     * Merchants of the chunk are spread across the whole range of merchants, so rather than scanning the range, the
+     * listed merchants are bound as a single array parameter and joined with the rates, looking up the primary key of
+     * every merchant: the statement is the same for any number of merchants (unlike 'merchant in (...)' list of
+     * hundreds of parameters), and only the rates of the listed merchants are read
+     *
+     * @param month month to load the rates of
+     * @param merchants merchants to load the rates of
+     */
+    private void load(int month, List<String> merchants) {
+        Map<String, BigDecimal[]> loaded = new HashMap<>();
+        for (String merchant : merchants) {
+            loaded.put(merchant, NO_RATES);
+        }
+        jdbcTemplate.query(connection -> {
+                    PreparedStatement ps = connection.prepareStatement("select r.merchant, r.day, r.rate " +
+                            "from unnest(cast(? as varchar array)) as m (merchant) " +
+                            "join " + tableName + " r on r.month = ? and r.merchant = m.merchant");
+                    ps.setArray(1, connection.createArrayOf("varchar", merchants.toArray()));
+                    ps.setInt(2, month);
+                    return ps;
+                },
+                (RowCallbackHandler) rs -> {
+                    String merchant = rs.getString(1);
+                    BigDecimal[] rates = loaded.get(merchant);
+                    if (rates == NO_RATES) {
+                        rates = new BigDecimal[32]; // Indexed by day of month
+                        loaded.put(merchant, rates);
+                    }
+                    rates[rs.getInt(2)] = rs.getBigDecimal(3);
+                });
+        queryCount++;
+        for (Map.Entry<String, BigDecimal[]> entry : loaded.entrySet()) {
+            cache.put(getKey(entry.getKey(), month), entry.getValue());
+        }
+    }
+
+    private static String getKey(String merchant, int month) {
+        return merchant + ":" + month;
+    }
+}
@@ -0,0 +1,238 @@
+package org.example;
+
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemReader;
+import org.springframework.batch.item.ItemStream;
+import org.springframework.batch.item.ItemStreamException;
+import org.springframework.batch.item.ItemStreamReader;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.stream.Collectors;
+
+
+/**
+ * Reader returning transactions of the delegate reader in chronological order (month, day, hour, minute, then id),
+ * regardless of the order in which the database returns them, using external merge sort in bounded memory:
+ * on open, delegate is read fully, and every run of at most 'runSize' transactions is sorted in memory and spilled
+ * to a local file; then runs are merged (k-way) while items are read. Paths of run files and number of read items
+ * are saved in execution context, so on restart runs are not produced again: merge starts over from local files,
+ * skipping already read items, without querying the database
+ */
+public class ExternalSortTransactionReader implements ItemStreamReader<BankTransaction> {
+
+    public static final Comparator<BankTransaction> CHRONOLOGICAL_ORDER = Comparator
+            .comparingInt(BankTransaction::getMonth)
+            .thenComparingInt(BankTransaction::getDay)
+            .thenComparingInt(BankTransaction::getHour)
+            .thenComparingInt(BankTransaction::getMinute)
+            .thenComparingLong(BankTransaction::getId); // Makes the order total, hence reproducible on restart
+
+    private static final String RUN_FILES = "runFiles";
+    private static final String READ_COUNT = "readCount";
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final String name;
+    private final ItemReader<BankTransaction> delegate;
+    private final int runSize;
+    private final Path directory;
+
+    private List<Path> runFiles;
+    private List<RunCursor> runCursors;
+    private PriorityQueue<RunCursor> mergeQueue;
+    private long readCount;
+    // Number of read items as of the last saved state
+    private long savedReadCount;
+
+    /**
+     * @param name name of the reader, used as prefix of execution context keys and run file names
+     * @param delegate reader of transactions in arbitrary order
+     * @param runSize maximum number of transactions held in memory at once while producing sorted runs
+     * @param directory directory for run files
+     */
+    public ExternalSortTransactionReader(String name, ItemReader<BankTransaction> delegate, int runSize, Path directory) {
+        this.name = name;
+        this.delegate = delegate;
+        this.runSize = runSize;
+        this.directory = directory;
+    }
+
+    @Override
+    public void open(ExecutionContext executionContext) throws ItemStreamException {
+        try {
+            if (executionContext.containsKey(getKey(RUN_FILES))) {
+                // Restart: runs were already produced by the previous execution
+                String savedRunFiles = executionContext.getString(getKey(RUN_FILES));
+                runFiles = savedRunFiles.isEmpty() ? new ArrayList<>() : Arrays.stream(savedRunFiles.split("\n"))
+                        .map(Path::of)
+                        .collect(Collectors.toList());
+            } else {
+                runFiles = produceRuns(executionContext);
+                // Persist runs right away, such that failure before the first commit doesn't require producing them again
+                executionContext.putString(getKey(RUN_FILES), runFiles.stream()
+                        .map(Path::toString)
+                        .collect(Collectors.joining("\n")));
+            }
+
+            runCursors = new ArrayList<>();
+            mergeQueue = new PriorityQueue<>(Math.max(runFiles.size(), 1),
+                    (left, right) -> CHRONOLOGICAL_ORDER.compare(left.head, right.head));
+            for (Path runFile : runFiles) {
+                RunCursor runCursor = new RunCursor(runFile);
+                runCursors.add(runCursor);
+                if (runCursor.advance()) {
+                    mergeQueue.add(runCursor);
+                }
+            }
+
+            // On restart, skip transactions which were already read and committed
+            long skipCount = executionContext.getLong(getKey(READ_COUNT), 0L);
+            readCount = 0;
+            savedReadCount = skipCount;
+            while (readCount < skipCount && read() != null) {
+                // Items are only skipped
+            }
+        } catch (Exception e) {
+            throw new ItemStreamException("Can not sort transactions of " + name, e);
+        }
+    }
+
+    @Override
+    public BankTransaction read() throws IOException {
+        RunCursor runCursor = mergeQueue.poll();
+        if (runCursor == null) {
+            return null;
+        }
+        BankTransaction transaction = runCursor.head;
+        // Put the run back to the queue with its next transaction, unless the run is over
+        if (runCursor.advance()) {
+            mergeQueue.add(runCursor);
+        }
+        readCount++;
+        return transaction;
+    }
+
+    @Override
+    public void update(ExecutionContext executionContext) throws ItemStreamException {
+        executionContext.putLong(getKey(READ_COUNT), readCount);
+        savedReadCount = readCount;
+    }
+
+    @Override
+    public void close() throws ItemStreamException {
+        if (runCursors == null) {
+            return;
+        }
+        boolean exhausted = mergeQueue.isEmpty() && savedReadCount == readCount;
+        try {
+            for (RunCursor runCursor : runCursors) {
+                runCursor.input.close();
+            }
+            // Run files are kept for restart, unless all the transactions were read, and that state was saved
+            if (exhausted) {
+                for (Path runFile : runFiles) {
+                    Files.deleteIfExists(runFile);
+                }
+            }
+        } catch (IOException e) {
+            throw new ItemStreamException("Can not close run files of " + name, e);
+        } finally {
+            runCursors = null;
+            mergeQueue = null;
+        }
+    }
+
+    // Read delegate fully, sorting every 'runSize' transactions in memory and writing them to a separate file
+    private List<Path> produceRuns(ExecutionContext executionContext) throws Exception {
+        ItemStream delegateStream = delegate instanceof ItemStream ? (ItemStream) delegate : null;
+        if (delegateStream != null) {
+            // Delegate is fully read during open, so its own state is not saved for restart
+            delegateStream.open(new ExecutionContext(executionContext));
+        }
+        Files.createDirectories(directory);
+        List<Path> producedRunFiles = new ArrayList<>();
+        try {
+            List<BankTransaction> run = new ArrayList<>(runSize);
+            BankTransaction transaction;
+            while ((transaction = delegate.read()) != null) {
+                run.add(transaction);
+                if (run.size() == runSize) {
+                    producedRunFiles.add(spillRun(run));
+                    run.clear();
+                }
+            }
+            if (!run.isEmpty()) {
+                producedRunFiles.add(spillRun(run));
+            }
+        } finally {
+            if (delegateStream != null) {
+                delegateStream.close();
+            }
+        }
+        return producedRunFiles;
+    }
+
+    private Path spillRun(List<BankTransaction> run) throws IOException {
+        run.sort(CHRONOLOGICAL_ORDER);
+        Path runFile = Files.createTempFile(directory, name + "-run-", ".bin");
+        try (DataOutputStream output = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(runFile), BUFFER_SIZE))) {
+            for (BankTransaction transaction : run) {
+                output.writeLong(transaction.getId());
+                output.writeLong(transaction.getAccountId());
+                output.writeByte(transaction.getMonth());
+                output.writeByte(transaction.getDay());
+                output.writeByte(transaction.getHour());
+                output.writeByte(transaction.getMinute());
+                output.writeLong(transaction.getAmountCents());
+                output.writeInt(transaction.getMerchantId());
+            }
+        }
+        return runFile;
+    }
+
+    private String getKey(String key) {
+        return name + "." + key;
+    }
+
+    // Sequential reader of a single sorted run, holding the next transaction of the run
+    private static class RunCursor {
+
+        private final DataInputStream input;
+        private BankTransaction head;
+
+        RunCursor(Path runFile) throws IOException {
+            input = new DataInputStream(new BufferedInputStream(Files.newInputStream(runFile), BUFFER_SIZE));
+        }
+
+        // Move to the next transaction of the run; returns false if the run is over
+        boolean advance() throws IOException {
+            long id;
+            try {
+                id = input.readLong();
+            } catch (EOFException e) {
+                head = null;
+                return false;
+            }
+            long accountId = input.readLong();
+            int month = input.readByte();
+            int day = input.readByte();
+            int hour = input.readByte();
+            int minute = input.readByte();
+            long amountCents = input.readLong();
+            head = new BankTransaction(id, accountId, month, day, hour, minute, amountCents, input.readInt());
+            return true;
+        }
+    }
+}
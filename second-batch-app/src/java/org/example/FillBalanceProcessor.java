@@ -1,7 +1,10 @@
 package org.example;
 
 import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.item.ExecutionContext;
 import org.springframework.batch.item.ItemProcessor;
+import org.springframework.batch.item.ItemStream;
+import org.springframework.batch.item.ItemStreamException;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
@@ -9,39 +12,138 @@ import java.math.RoundingMode;
 
 /**
  * Processor taking the item and calculating the update which consists
- * of the balance after the transaction is complete, and identifier of the transaction
+ * of the balance after the transaction is complete, and identifier of the transaction.
+ * Running balance and the last transaction are kept in plain fields, loaded from execution context once step execution
+ * is set, and put into the context only when it's saved, i.e. at chunk commit (as a stream, which is registered
+ * automatically once processor is set to the step), rather than on every item
  */
-public class FillBalanceProcessor implements ItemProcessor<BankTransaction, BalanceUpdate> {
+public class FillBalanceProcessor implements ItemProcessor<BankTransaction, BalanceUpdate>, ItemStream {
 
     public static final String BALANCE_SO_FAR = "balanceSoFar";
+    // Exact balance (as decimal string) and identifier of the last processed transaction
+    public static final String EXACT_BALANCE_SO_FAR = "exactBalanceSoFar";
+    public static final String LAST_TRANSACTION_ID = "lastTransactionId";
+    // Exact balance in cents, used instead of the balances above in cents mode
+    public static final String BALANCE_SO_FAR_CENTS = "balanceSoFarCents";
+
+    // Whether amounts are summed as long cents, instead of BigDecimal
+    private final boolean centsMode;
 
     // Step execution variable needs to be set in order for processor to be executed
     private StepExecution stepExecution;
 
+    // Balance after the last processed transaction: in cents in cents mode, exact decimal otherwise
+    private long balanceCents;
+    private BigDecimal balance;
+    // Identifier of the last processed transaction, null if nothing was processed yet
+    private Long lastTransactionId;
+
+    public FillBalanceProcessor() {
+        this(false);
+    }
+
+    public FillBalanceProcessor(boolean centsMode) {
+        this.centsMode = centsMode;
+    }
+
     @Override
     public BalanceUpdate process(BankTransaction item) throws Exception {
         if (stepExecution == null) {
             throw new RuntimeException("Can not process item without accessing the step execution");
         }
 
-        BigDecimal newBalance = BigDecimal.valueOf(getLatestTransactionBalance())
-                .setScale(2, RoundingMode.HALF_UP)
-                .add(item.getAmount());
-        BalanceUpdate balanceUpdate = new BalanceUpdate(item.getId(), newBalance);
-        stepExecution.getExecutionContext().putDouble(BALANCE_SO_FAR, newBalance.doubleValue());
-        return balanceUpdate;
+        lastTransactionId = item.getId();
+        if (centsMode) {
+            // No conversions to BigDecimal or double per item; overflow fails the item instead of wrapping around
+            balanceCents = Math.addExact(balanceCents, item.getAmountCents());
+            return new BalanceUpdate(item.getId(), balanceCents);
+        }
+
+        balance = balance.add(item.getAmount());
+        return new BalanceUpdate(item.getId(), balance);
+    }
+
+    @Override
+    public void update(ExecutionContext executionContext) throws ItemStreamException {
+        if (stepExecution == null) {
+            return; // Nothing is loaded, so nothing to publish
+        }
+        if (centsMode) {
+            executionContext.putLong(BALANCE_SO_FAR_CENTS, balanceCents);
+        } else {
+            executionContext.putDouble(BALANCE_SO_FAR, balance.doubleValue());
+            executionContext.putString(EXACT_BALANCE_SO_FAR, balance.toPlainString());
+        }
+        if (lastTransactionId != null) {
+            executionContext.putLong(LAST_TRANSACTION_ID, lastTransactionId);
+        }
     }
 
     public double getLatestTransactionBalance() {
         if (stepExecution == null) {
             throw new RuntimeException("Can not get the latest balance without accessing the step execution");
         }
-        // If no balance is present, start from 0
-        return stepExecution.getExecutionContext().getDouble(BALANCE_SO_FAR, 0d);
+        return centsMode ? balanceCents / 100d : balance.doubleValue();
+    }
+
+    // Exact balance after the last processed transaction
+    public BigDecimal getLatestExactBalance() {
+        if (stepExecution == null) {
+            throw new RuntimeException("Can not get the latest balance without accessing the step execution");
+        }
+        return centsMode ? AmountCents.toBigDecimal(balanceCents) : balance;
     }
 
-    // Step execution need to be set when step execution is relevant, and cleared when no longer relevant
+    // Exact balance in cents after the last processed transaction
+    public long getLatestBalanceCents() {
+        if (stepExecution == null) {
+            throw new RuntimeException("Can not get the latest balance without accessing the step execution");
+        }
+        return centsMode ? balanceCents : AmountCents.valueOf(balance.setScale(2, RoundingMode.HALF_UP));
+    }
+
+    // Identifier of the last processed transaction, or the specified default value if nothing was processed yet
+    public long getLastTransactionId(long defaultValue) {
+        if (stepExecution == null) {
+            throw new RuntimeException("Can not get the last transaction without accessing the step execution");
+        }
+        return lastTransactionId == null ? defaultValue : lastTransactionId;
+    }
+
+    // Start from the specified balance and transaction (used to resume processing), instead of 0 balance
+    public void resumeFrom(long lastTransactionId, BigDecimal balance) {
+        if (stepExecution == null) {
+            throw new RuntimeException("Can not resume processing without accessing the step execution");
+        }
+        setBalance(balance);
+        this.lastTransactionId = lastTransactionId;
+    }
+
+    // Step execution need to be set when step execution is relevant, and cleared when no longer relevant.
+    // Balance and the last transaction are loaded from its execution context, to continue on restart
     public void setStepExecution(StepExecution stepExecution) {
         this.stepExecution = stepExecution;
+        if (stepExecution == null) {
+            return;
+        }
+        ExecutionContext executionContext = stepExecution.getExecutionContext();
+        if (executionContext.containsKey(BALANCE_SO_FAR_CENTS)) {
+            setBalance(AmountCents.toBigDecimal(executionContext.getLong(BALANCE_SO_FAR_CENTS)));
+        } else if (executionContext.containsKey(EXACT_BALANCE_SO_FAR)) {
+            setBalance(new BigDecimal(executionContext.getString(EXACT_BALANCE_SO_FAR)));
+        } else {
+            // If no balance is present, start from 0
+            setBalance(BigDecimal.valueOf(executionContext.getDouble(BALANCE_SO_FAR, 0d)).setScale(2, RoundingMode.HALF_UP));
+        }
+        lastTransactionId = executionContext.containsKey(LAST_TRANSACTION_ID)
+                ? executionContext.getLong(LAST_TRANSACTION_ID) : null;
+    }
+
+    private void setBalance(BigDecimal balance) {
+        if (centsMode) {
+            balanceCents = AmountCents.valueOf(balance);
+        } else {
+            this.balance = balance;
+        }
     }
 }
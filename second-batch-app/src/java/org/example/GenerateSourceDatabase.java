@@ -39,20 +39,42 @@ public class GenerateSourceDatabase {
             .build();
 
 
-    // Main method re-creating table and generating records in the database
-    public static void main(String[] args) {
+    /**
+     * Main method re-creating table and generating records in the database. Without arguments, generates
+     * small random data set. With arguments, generates reproducible high-volume data set for capacity testing:
+     * [record count] [merchant count (default 40)] [seed (default 0)] [thread count (default number of processors)]
+     * [account count (default 1)]
+     */
+    public static void main(String[] args) throws Exception {
         // We are re-using Spring Context to get connection properties same way as in Spring Batch
         ApplicationContext context = new AnnotationConfigApplicationContext(SourceConfiguration.class);
-        JdbcTemplate jdbcTemplate = new JdbcTemplate(context.getBean(DataSource.class));
+        DataSource dataSource = context.getBean(DataSource.class);
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
 
-        // Initialize the schema
-        SourceManagementUtils.initializeEmptyDatabase(jdbcTemplate);
+        // Initialize the schema, partitioned by month if configured
+        SourceManagementUtils.initializeEmptyDatabase(jdbcTemplate, context.getEnvironment()
+                .getProperty("db.src.partition.by.month", Boolean.class, false));
+
+        if (args.length > 0) {
+            int recordNum = Integer.parseInt(args[0]);
+            int merchantNum = args.length > 1 ? Integer.parseInt(args[1]) : TARGET_UNIQUE_MERCHANT_NUM;
+            long seed = args.length > 2 ? Long.parseLong(args[2]) : 0L;
+            int threadNum = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+            int accountNum = args.length > 4 ? Integer.parseInt(args[4]) : 1;
+
+            long startTime = System.currentTimeMillis();
+            new BulkTransactionGenerator(recordNum, merchantNum, seed, threadNum, accountNum).generateAndLoad(dataSource);
+            System.out.println("Input source table with " + recordNum + " records is successfully initialized in "
+                    + (System.currentTimeMillis() - startTime) + " ms (seed = " + seed + ")");
+            return;
+        }
 
         List<BankTransaction> recordsToInsert = new ArrayList<>(TARGET_RECORD_NUM);
         Random random = new Random();
-        String[] merchants = generateMerchants();
+        // Merchants are added to the dictionary, and transactions refer to them by ids
+        int[] merchantIds = new MerchantDictionary(dataSource).getIds(List.of(generateMerchants()));
         for (int i = 0; i < TARGET_RECORD_NUM; i++) {
-            recordsToInsert.add(generateRecord(random, merchants));
+            recordsToInsert.add(generateRecord(random, merchantIds));
         }
 
         // Sort random records chronologically
@@ -87,8 +109,8 @@ public class GenerateSourceDatabase {
         System.out.println("Input source table with " + TARGET_RECORD_NUM + " records is successfully initialized");
     }
 
-    // Generate random transaction record using pre-calculated list of merchants to use
-    public static BankTransaction generateRecord(Random random, String[] merchants) {
+    // Generate random transaction record using pre-calculated list of merchant ids to use
+    public static BankTransaction generateRecord(Random random, int[] merchantIds) {
         int month = random.nextInt(12) + 1;
         int day = random.nextInt(DAYS_IN_MONTH_MAP.get(month)) + 1;
         int hour = random.nextInt(24);
@@ -98,9 +120,9 @@ public class GenerateSourceDatabase {
             doubleAmount *= -1;
         }
         BigDecimal amount = new BigDecimal(doubleAmount).setScale(2, RoundingMode.HALF_UP);
-        String merchant = merchants[random.nextInt(merchants.length)];
+        int merchantId = merchantIds[random.nextInt(merchantIds.length)];
 
-        return new BankTransaction(-1, month, day, hour, minute, amount, merchant);
+        return new BankTransaction(-1, month, day, hour, minute, amount, merchantId);
     }
 
     // Return array of merchant names to be used
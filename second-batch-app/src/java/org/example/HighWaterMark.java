@@ -0,0 +1,27 @@
+package org.example;
+
+import java.math.BigDecimal;
+
+
+// Entity representing progress of incremental processing: the last processed transaction and the balance after it
+public class HighWaterMark {
+
+    // Progress before anything is processed
+    public static final HighWaterMark INITIAL = new HighWaterMark(0, BigDecimal.ZERO.setScale(2));
+
+    private final long lastId;
+    private final BigDecimal balance;
+
+    public HighWaterMark(long lastId, BigDecimal balance) {
+        this.lastId = lastId;
+        this.balance = balance;
+    }
+
+    public long getLastId() {
+        return lastId;
+    }
+
+    public BigDecimal getBalance() {
+        return balance;
+    }
+}
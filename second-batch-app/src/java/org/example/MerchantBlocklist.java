@@ -0,0 +1,91 @@
+package org.example;
+
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnels;
+import org.springframework.core.io.Resource;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+
+/**
+ * Set of merchants which are not allowed to be processed by currency adjustment. Designed to hold hundreds of
+ * thousands of merchant ids: bloom filter quickly answers the common "not blocked" case, and sorted array of ids
+ * (no per-entry objects, as opposed to hash set) is used as an exact check behind the filter
+ */
+public class MerchantBlocklist {
+
+    // Probability of the filter to give false positive; it only affects how often the exact check is reached
+    private static final double FALSE_POSITIVE_PROBABILITY = 0.01;
+
+    private final BloomFilter<CharSequence> filter;
+    private final String[] sortedMerchants;
+
+    public MerchantBlocklist(Collection<String> merchants) {
+        Set<String> uniqueMerchants = new HashSet<>(merchants);
+        filter = BloomFilter.create(Funnels.stringFunnel(StandardCharsets.UTF_8),
+                                    Math.max(uniqueMerchants.size(), 1), FALSE_POSITIVE_PROBABILITY);
+        sortedMerchants = uniqueMerchants.toArray(new String[0]);
+        Arrays.sort(sortedMerchants);
+        for (String merchant : sortedMerchants) {
+            filter.put(merchant);
+        }
+    }
+
+    // Whether merchant is blocked; never gives false positives, since filter hit is confirmed with exact lookup
+    public boolean contains(String merchant) {
+        return merchant != null
+                && filter.mightContain(merchant)
+                && Arrays.binarySearch(sortedMerchants, merchant) >= 0;
+    }
+
+    public int size() {
+        return sortedMerchants.length;
+    }
+
+    /**
+     * Load blocklist from the file with one merchant id per line (blank lines are ignored)
+     *
+     * @param resource file with merchant ids
+     * @param additionalMerchants merchants to block on top of the ones from file (empty values are ignored)
+     * @return blocklist with all the merchants
+     */
+    public static MerchantBlocklist fromResource(Resource resource, String... additionalMerchants) {
+        Set<String> merchants = new HashSet<>();
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(resource.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                addIfNotEmpty(merchants, line);
+            }
+        } catch (IOException e) {
+            // Re-throw as unchecked
+            throw new RuntimeException("Can not load merchant blocklist from " + resource.getDescription(), e);
+        }
+        for (String merchant : additionalMerchants) {
+            addIfNotEmpty(merchants, merchant);
+        }
+        return new MerchantBlocklist(merchants);
+    }
+
+    // Create blocklist of explicitly listed merchants only (empty values are ignored)
+    public static MerchantBlocklist of(String... merchants) {
+        Set<String> merchantSet = new HashSet<>();
+        for (String merchant : merchants) {
+            addIfNotEmpty(merchantSet, merchant);
+        }
+        return new MerchantBlocklist(merchantSet);
+    }
+
+    private static void addIfNotEmpty(Set<String> merchants, String merchant) {
+        if (merchant != null && !merchant.isBlank()) {
+            merchants.add(merchant.trim());
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package org.example;
+
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+
+/**
+ * In-memory cache of the merchant dictionary table (see {@link SourceManagementUtils#createMerchantTable}), mapping
+ * merchant names to int surrogate keys stored in transactions, and back. Names are decoded with array lookup by id.
+ * Dictionary is loaded as a whole on the first lookup, and reloaded once an unknown id or name is met, since merchants
+ * are only ever added. Missing names are added with ids following the largest loaded one; if another process added
+ * the same ids or names in the meantime, dictionary is reloaded and the rest is retried.
+ * Thread-safe, since ingestion partitions register merchants concurrently
+ */
+public class MerchantDictionary {
+
+    // Max number of attempts to add missing names, each one following the concurrent addition of merchants
+    private static final int MAX_ADD_ATTEMPTS = 10;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Map<String, Integer> ids = new HashMap<>();
+    // Indexed by id
+    private String[] names;
+
+    public MerchantDictionary(DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    /**
+     * Decode the merchant id into its name
+     *
+     * @param id merchant id
+     * @return merchant name
+     */
+    public synchronized String getName(int id) {
+        if (names == null || id >= names.length || id < 0 || names[id] == null) {
+            load();
+        }
+        if (id >= names.length || id < 0 || names[id] == null) {
+            throw new IllegalArgumentException("Unknown merchant id " + id);
+        }
+        return names[id];
+    }
+
+    /**
+     * Encode merchant name into its id, adding merchant to the dictionary table if it's not there yet
+     *
+     * @param name merchant name
+     * @return merchant id
+     */
+    public int getId(String name) {
+        return getIds(List.of(name))[0];
+    }
+
+    /**
+     * Encode merchant names into their ids, adding all the missing merchants to the dictionary table at once
+     *
+     * @param merchantNames merchant names, possibly repeated
+     * @return merchant ids in the order of names
+     */
+    public synchronized int[] getIds(List<String> merchantNames) {
+        if (names == null) {
+            load();
+        }
+        for (int attempt = 0; attempt < MAX_ADD_ATTEMPTS; attempt++) {
+            Set<String> missingNames = new LinkedHashSet<>();
+            for (String name : merchantNames) {
+                if (!ids.containsKey(name)) {
+                    missingNames.add(name);
+                }
+            }
+            if (!missingNames.isEmpty() && attempt == 0) {
+                load(); // Might be added by another process
+                missingNames.removeIf(ids::containsKey);
+            }
+            if (missingNames.isEmpty()) {
+                int[] merchantIds = new int[merchantNames.size()];
+                for (int i = 0; i < merchantIds.length; i++) {
+                    merchantIds[i] = ids.get(merchantNames.get(i));
+                }
+                return merchantIds;
+            }
+            List<Object[]> rows = new ArrayList<>(missingNames.size());
+            int nextId = names.length;
+            for (String name : missingNames) {
+                rows.add(new Object[]{nextId++, name});
+            }
+            try {
+                jdbcTemplate.batchUpdate("insert into merchant (id, name) values (?, ?)", rows);
+            } catch (DuplicateKeyException e) {
+                // Ids or names were taken concurrently; rows added before the conflict are picked up by the reload
+            }
+            load();
+        }
+        throw new IllegalStateException("Can not add " + merchantNames.size() + " merchants to the dictionary");
+    }
+
+    // Number of merchants in the dictionary, as of the last load
+    public synchronized int size() {
+        return ids.size();
+    }
+
+    private void load() {
+        ids.clear();
+        jdbcTemplate.query("select id, name from merchant", rs -> {
+            ids.put(rs.getString(2), rs.getInt(1));
+        });
+        int maxId = ids.values().stream().mapToInt(Integer::intValue).max().orElse(0);
+        names = new String[maxId + 1];
+        for (Map.Entry<String, Integer> entry : ids.entrySet()) {
+            names[entry.getValue()] = entry.getKey();
+        }
+    }
+}
@@ -1,56 +1,145 @@
 package org.example;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
 import com.google.common.collect.ImmutableMap;
+import org.apache.parquet.example.data.Group;
+import org.apache.parquet.schema.LogicalTypeAnnotation;
+import org.apache.parquet.schema.MessageType;
+import org.apache.parquet.schema.PrimitiveType;
+import org.apache.parquet.schema.Types;
 import org.springframework.batch.item.database.Order;
 import org.springframework.batch.item.database.PagingQueryProvider;
 import org.springframework.batch.item.database.support.PostgresPagingQueryProvider;
 import org.springframework.jdbc.core.RowMapper;
 
+import java.io.IOException;
 import java.math.BigDecimal;
+import java.util.function.IntFunction;
 
 
-// Entity representing balance aggregated by merchant and month
+// Entity representing balance aggregated by merchant and month; merchant is grouped and carried by its id, and its
+// name is decoded only when the entity is written (see jsonSerializer and toParquetGroup)
 public class MerchantMonthBalance {
 
     private final int month;
-    private final String merchant;
+    private final int merchantId;
+    // Balance is either decimal, or (in cents mode) long cents, in which case decimal one is null
     private final BigDecimal balance;
+    private final long balanceCents;
 
     // Row mapper to transform query results into Java object
     public static final RowMapper<MerchantMonthBalance> ROW_MAPPER = (rs, rowNum) -> new MerchantMonthBalance(
             rs.getInt("month"),
-            rs.getString("merchant"),
+            rs.getInt("merchant_id"),
             rs.getBigDecimal("balance")
     );
+    // Row mapper for amounts in cents mode: columns are taken by index (balance, merchant id, month, as in both query
+    // providers), and balance is mapped straight into long cents
+    public static final RowMapper<MerchantMonthBalance> CENTS_ROW_MAPPER = (rs, rowNum) -> new MerchantMonthBalance(
+            rs.getInt(3),
+            rs.getInt(2),
+            AmountCents.fromResultSet(rs, 1)
+    );
+
+    // Parquet schema of the entity: merchant is a string, and balance is a decimal stored as long cents
+    public static final MessageType PARQUET_SCHEMA = Types.buildMessage()
+            .required(PrimitiveType.PrimitiveTypeName.INT32).named("month")
+            .required(PrimitiveType.PrimitiveTypeName.BINARY).as(LogicalTypeAnnotation.stringType()).named("merchant")
+            .required(PrimitiveType.PrimitiveTypeName.INT64).as(LogicalTypeAnnotation.decimalType(2, 18)).named("balance")
+            .named("merchant_month_balance");
 
     // Query provider to obtain month-merchant aggregation from 'bank_transaction_yearly' table
     public static PagingQueryProvider getQueryProvider() {
+        return getQueryProvider(null);
+    }
+
+    // Aggregation of transactions matching the condition only, e.g. 'month between 10 and 12'; null means all of them
+    public static PagingQueryProvider getQueryProvider(String whereClause) {
         PostgresPagingQueryProvider queryProvider = new PostgresPagingQueryProvider();
-        queryProvider.setSelectClause("sum(amount) as balance, merchant, month");
+        queryProvider.setWhereClause(whereClause);
+        queryProvider.setSelectClause("sum(amount) as balance, merchant_id, month");
         queryProvider.setFromClause("bank_transaction_yearly");
-        queryProvider.setGroupClause("month, merchant");
+        queryProvider.setGroupClause("month, merchant_id");
+        queryProvider.setSortKeys(ImmutableMap.<String, Order>builder()
+                .put("month", Order.ASCENDING)
+                .put("merchant_id", Order.ASCENDING)
+                .build());
+        return queryProvider;
+    }
+
+    // Query provider to obtain already aggregated month-merchant balance from 'merchant_month_balance' table, maintained incrementally
+    public static PagingQueryProvider getAggregatedTableQueryProvider() {
+        return getAggregatedTableQueryProvider(null);
+    }
+
+    // Aggregated table limited with the condition, if not null
+    public static PagingQueryProvider getAggregatedTableQueryProvider(String whereClause) {
+        PostgresPagingQueryProvider queryProvider = new PostgresPagingQueryProvider();
+        queryProvider.setWhereClause(whereClause);
+        queryProvider.setSelectClause("balance, merchant_id, month");
+        queryProvider.setFromClause("merchant_month_balance");
         queryProvider.setSortKeys(ImmutableMap.<String, Order>builder()
                 .put("month", Order.ASCENDING)
-                .put("merchant", Order.ASCENDING)
+                .put("merchant_id", Order.ASCENDING)
                 .build());
         return queryProvider;
     }
 
-    public MerchantMonthBalance(int month, String merchant, BigDecimal balance) {
+    public MerchantMonthBalance(int month, int merchantId, BigDecimal balance) {
         this.month = month;
-        this.merchant = merchant;
+        this.merchantId = merchantId;
         this.balance = balance;
+        this.balanceCents = 0;
+    }
+
+    public MerchantMonthBalance(int month, int merchantId, long balanceCents) {
+        this.month = month;
+        this.merchantId = merchantId;
+        this.balance = null;
+        this.balanceCents = balanceCents;
     }
 
     public int getMonth() {
         return month;
     }
 
-    public String getMerchant() {
-        return merchant;
+    public int getMerchantId() {
+        return merchantId;
     }
 
+    // In cents mode, decimal balance is created only here, when it's written
     public BigDecimal getBalance() {
-        return balance;
+        return balance != null ? balance : AmountCents.toBigDecimal(balanceCents);
+    }
+
+    // Fill Parquet record of PARQUET_SCHEMA, decoding merchant id into the name
+    void toParquetGroup(Group group, IntFunction<String> merchantNames) {
+        group.append("month", month)
+                .append("merchant", merchantNames.apply(merchantId))
+                .append("balance", balance != null ? AmountCents.valueOf(balance) : balanceCents);
+    }
+
+    /**
+     * JSON serializer writing the entity with merchant name decoded from merchant id, in the same form as before
+     * merchants were dictionary-encoded: {"month": ..., "merchant": ..., "balance": ...}
+     *
+     * @param merchantNames function decoding merchant id into the name, e.g. MerchantDictionary::getName
+     * @return serializer to be registered in object mapper of the writer
+     */
+    static JsonSerializer<MerchantMonthBalance> jsonSerializer(IntFunction<String> merchantNames) {
+        return new StdSerializer<>(MerchantMonthBalance.class) {
+            @Override
+            public void serialize(MerchantMonthBalance value, JsonGenerator generator, SerializerProvider provider)
+                    throws IOException {
+                generator.writeStartObject();
+                generator.writeNumberField("month", value.month);
+                generator.writeStringField("merchant", merchantNames.apply(value.merchantId));
+                generator.writeNumberField("balance", value.getBalance());
+                generator.writeEndObject();
+            }
+        };
     }
 }
@@ -0,0 +1,117 @@
+package org.example;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.batch.item.Chunk;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamException;
+import org.springframework.batch.item.ItemStreamWriter;
+import org.springframework.core.io.WritableResource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.GZIPOutputStream;
+
+
+/**
+ * Writer producing newline-delimited JSON (one object per line), which can be consumed incrementally, as opposed to
+ * a single JSON array. Reuses the same {@link ObjectWriter} (with serializer resolved once) for all items.
+ * Optionally compresses output with gzip: each chunk is written as a separate gzip member, and concatenation of
+ * members is a valid gzip file. Since compression starts anew in every member, which also carries its own header and
+ * trailer, compression ratio depends on the chunk size: small chunks compress noticeably worse. Byte position after the last written chunk is saved in execution context, so on
+ * restart file is truncated to the last committed chunk and writing continues from there
+ */
+public class NdjsonFileItemWriter<T> implements ItemStreamWriter<T> {
+
+    private static final String POSITION = "position";
+
+    private final String name;
+    private final WritableResource resource;
+    private final ObjectWriter objectWriter;
+    private final boolean gzip;
+    // Chunk is serialized into this buffer first, and then written to file with a single call
+    private final ByteArrayOutputStream chunkBuffer = new ByteArrayOutputStream(64 * 1024);
+
+    private FileChannel channel;
+
+    public NdjsonFileItemWriter(String name, WritableResource resource, ObjectWriter objectWriter, boolean gzip) {
+        this.name = name;
+        this.resource = resource;
+        this.objectWriter = objectWriter
+                .withRootValueSeparator("\n")
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        this.gzip = gzip;
+    }
+
+    @Override
+    public void open(ExecutionContext executionContext) throws ItemStreamException {
+        try {
+            channel = FileChannel.open(resource.getFile().toPath(),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            // Drop everything written after the last committed chunk (or everything, if it's not a restart)
+            long position = executionContext.getLong(getPositionKey(), 0L);
+            channel.truncate(position);
+            channel.position(position);
+        } catch (IOException e) {
+            throw new ItemStreamException("Can not open " + resource.getDescription() + " for writing", e);
+        }
+    }
+
+    @Override
+    public void write(Chunk<? extends T> chunk) throws Exception {
+        if (chunk.isEmpty()) {
+            return;
+        }
+
+        chunkBuffer.reset();
+        OutputStream target = gzip ? new GZIPOutputStream(chunkBuffer, 8192) : chunkBuffer;
+        // Closing generator also closes the target, which completes gzip member
+        try (JsonGenerator generator = objectWriter.getFactory().createGenerator(target)) {
+            for (T item : chunk) {
+                // Root value separator puts new line between items of the chunk
+                objectWriter.writeValue(generator, item);
+            }
+            generator.writeRaw('\n');
+        }
+
+        ByteBuffer bytes = ByteBuffer.wrap(chunkBuffer.toByteArray());
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+    }
+
+    @Override
+    public void update(ExecutionContext executionContext) throws ItemStreamException {
+        if (channel == null) {
+            return;
+        }
+        try {
+            executionContext.putLong(getPositionKey(), channel.position());
+        } catch (IOException e) {
+            throw new ItemStreamException("Can not get position in " + resource.getDescription(), e);
+        }
+    }
+
+    @Override
+    public void close() throws ItemStreamException {
+        if (channel == null) {
+            return;
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new ItemStreamException("Can not close " + resource.getDescription(), e);
+        } finally {
+            channel = null;
+        }
+    }
+
+    private String getPositionKey() {
+        return name + "." + POSITION;
+    }
+}
@@ -0,0 +1,128 @@
+package org.example;
+
+import org.apache.parquet.example.data.Group;
+import org.apache.parquet.example.data.simple.SimpleGroupFactory;
+import org.apache.parquet.hadoop.ParquetFileWriter;
+import org.apache.parquet.hadoop.ParquetWriter;
+import org.apache.parquet.hadoop.example.ExampleParquetWriter;
+import org.apache.parquet.hadoop.metadata.CompressionCodecName;
+import org.apache.parquet.io.LocalOutputFile;
+import org.apache.parquet.schema.MessageType;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.StepExecutionListener;
+import org.springframework.batch.item.Chunk;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamException;
+import org.springframework.batch.item.ItemStreamWriter;
+import org.springframework.core.io.WritableResource;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.function.BiConsumer;
+
+
+/**
+ * Writer producing columnar Parquet file (Snappy-compressed), which is much cheaper for analytics tools to consume
+ * than JSON. Every item is mapped to the Parquet record of the given schema; dictionary encoding is used for the
+ * listed columns only (e.g. merchant ids, repeated in many rows), and rows are buffered in memory up to the row group
+ * size before being written.
+ * Parquet file can not be appended, since its metadata is written in the footer, so the file is always written
+ * from scratch; to keep output complete on restart, reader of the step should not save its state.
+ * File is written next to the resource with '.tmp' suffix, and replaces the resource on close only if the step is
+ * completed (see {@link #afterStep}), so failed step leaves the previous output intact rather than a partial file
+ */
+public class ParquetFileItemWriter<T> implements ItemStreamWriter<T>, StepExecutionListener {
+
+    private static final int DICTIONARY_PAGE_SIZE = 16 * 1024 * 1024;
+
+    private final WritableResource resource;
+    private final MessageType schema;
+    private final BiConsumer<T, Group> groupMapper;
+    private final long rowGroupSize;
+    private final String[] dictionaryColumns;
+
+    private SimpleGroupFactory groupFactory;
+    private ParquetWriter<Group> writer;
+    private Path file;
+    private Path tempFile;
+    // Whether the step is completed, so that the file is complete and should replace the resource on close
+    private boolean completed;
+
+    public ParquetFileItemWriter(WritableResource resource, MessageType schema, BiConsumer<T, Group> groupMapper,
+                                 long rowGroupSize, String... dictionaryColumns) {
+        this.resource = resource;
+        this.schema = schema;
+        this.groupMapper = groupMapper;
+        this.rowGroupSize = rowGroupSize;
+        this.dictionaryColumns = dictionaryColumns;
+    }
+
+    @Override
+    public void open(ExecutionContext executionContext) throws ItemStreamException {
+        try {
+            file = resource.getFile().toPath();
+            tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+            completed = false;
+            ExampleParquetWriter.Builder builder = ExampleParquetWriter
+                    .builder(new LocalOutputFile(tempFile))
+                    .withType(schema)
+                    .withWriteMode(ParquetFileWriter.Mode.OVERWRITE)
+                    .withCompressionCodec(CompressionCodecName.SNAPPY)
+                    .withRowGroupSize(rowGroupSize)
+                    // Parquet falls back to plain encoding once dictionary exceeds its page size, 1 MB by default,
+                    // i.e. ~25K merchant ids; bigger page keeps dictionary for hundreds of thousands of merchants
+                    .withDictionaryPageSize(DICTIONARY_PAGE_SIZE)
+                    .withDictionaryEncoding(false);
+            for (String column : dictionaryColumns) {
+                builder.withDictionaryEncoding(column, true);
+            }
+            writer = builder.build();
+            groupFactory = new SimpleGroupFactory(schema);
+        } catch (IOException e) {
+            throw new ItemStreamException("Can not open " + resource.getDescription() + " for writing", e);
+        }
+    }
+
+    @Override
+    public void write(Chunk<? extends T> chunk) throws Exception {
+        for (T item : chunk) {
+            Group group = groupFactory.newGroup();
+            groupMapper.accept(item, group);
+            writer.write(group);
+        }
+    }
+
+    @Override
+    public ExitStatus afterStep(StepExecution stepExecution) {
+        // Called before the streams of the step are closed
+        completed = stepExecution.getStatus() == BatchStatus.COMPLETED;
+        return null;
+    }
+
+    @Override
+    public void close() throws ItemStreamException {
+        if (writer == null) {
+            return;
+        }
+        try {
+            try {
+                // Remaining rows and the footer are written only here
+                writer.close();
+            } finally {
+                writer = null;
+            }
+            if (completed) {
+                Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } else {
+                // Incomplete file is discarded, keeping the previous output
+                Files.delete(tempFile);
+            }
+        } catch (IOException e) {
+            throw new ItemStreamException("Can not close " + resource.getDescription(), e);
+        }
+    }
+}
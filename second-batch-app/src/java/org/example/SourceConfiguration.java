@@ -18,10 +18,12 @@ public class SourceConfiguration {
     @Qualifier("sourceDataSource")
     public DataSource sourceDataSource(@Value("${db.src.url}") String url,
                                        @Value("${db.src.username}") String username,
-                                       @Value("${db.src.password}") String password) {
+                                       @Value("${db.src.password}") String password,
+                                       // Postgresql by default; overridden to use embedded database in performance tests
+                                       @Value("${db.src.driver:org.postgresql.Driver}") String driverClassName) {
         DriverManagerDataSource dataSource = new DriverManagerDataSource();
 
-        dataSource.setDriverClassName("org.postgresql.Driver");
+        dataSource.setDriverClassName(driverClassName);
         dataSource.setUrl(url);
         dataSource.setUsername(username);
         dataSource.setPassword(password);
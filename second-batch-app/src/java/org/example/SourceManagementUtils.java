@@ -1,8 +1,13 @@
 package org.example;
 
+import org.springframework.jdbc.core.ConnectionCallback;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.JdbcTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.util.List;
 
 
 // Utility class with handy functions to manage the schema of database source
@@ -56,29 +61,453 @@ public class SourceManagementUtils {
         jdbcTemplate.update("alter table bank_transaction_yearly add column if not exists adjusted boolean default false");
     }
 
+    /**
+     * Alter the schema of the table 'bank_transaction_yearly' (if not yet altered) by adding new 'account_id' column,
+     * with all existing transactions belonging to account 0, and index for reading transactions account by account
+     *
+     * @param dataSource database connectivity data source
+     */
+    public static void addAccountIdColumn(DataSource dataSource) {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.update("alter table bank_transaction_yearly add column if not exists account_id bigint not null default 0");
+        jdbcTemplate.update("create index if not exists bank_transaction_account_idx on bank_transaction_yearly (account_id, id)");
+    }
+
+    // Creates the table (if not exists) with dictionary of merchants: int surrogate key, stored in transactions
+    // instead of the name, and the name itself (see MerchantDictionary)
+    public static void createMerchantTable(JdbcTemplate jdbcTemplate) {
+        jdbcTemplate.update("create table if not exists merchant (" +
+                "id int primary key," +
+                "name varchar(36) not null unique" +
+                ")");
+    }
+
+    // Creates the table (if not exists) listing merchants disallowed for currency adjustment, one merchant per row
+    public static void createMerchantBlocklistTable(JdbcTemplate jdbcTemplate, String tableName) {
+        jdbcTemplate.update("create table if not exists " + tableName + " (merchant varchar(36) primary key)");
+    }
+
+    // Creates the table (if not exists) with exchange rates of merchants per day; days without a row use default rate
+    public static void createExchangeRateTable(JdbcTemplate jdbcTemplate, String tableName) {
+        jdbcTemplate.update("create table if not exists " + tableName + " (" +
+                "merchant varchar(36) not null," +
+                "month int not null," +
+                "day int not null," +
+                "rate numeric(12,6) not null," +
+                // Month first, so that rates of the listed merchants for the month are read with a single index scan
+                "primary key (month, merchant, day)" +
+                ")");
+    }
+
+    // Creates the table (if not exists) tracking ingestion of CSV files: number of consumed lines, rejected rows and
+    // whether file is completed, one row per file URI
+    public static void createIngestedFileTable(JdbcTemplate jdbcTemplate) {
+        jdbcTemplate.update("create table if not exists ingested_file (" +
+                "name varchar(1024) primary key," +
+                "lines bigint not null," +
+                "rejected bigint not null," +
+                "completed boolean not null" +
+                ")");
+        // Table created when files were tracked by name only has shorter column
+        jdbcTemplate.update("alter table ingested_file alter column name set data type varchar(1024)");
+    }
+
+    /**
+     * Count not yet adjusted transactions with merchant which is either the disallowed one, or listed in blocklist table.
+     * Check is done by the database using semi-join with blocklist table, so that no per-transaction check is needed.
+     * Only transactions of the range of months are checked, the same ones the per-transaction check would see
+     *
+     * @param dataSource database connectivity data source
+     * @param blocklistTableName name of the table with 'merchant' column listing blocked merchants
+     * @param disallowedMerchant single disallowed merchant to check on top of the blocklist table
+     * @param monthRangeCondition condition limiting transactions to the range of months (see {@link #monthRangeCondition}),
+     *                            or null to check transactions of the whole year
+     * @return number of not adjusted transactions with blocked merchants
+     */
+    public static long countBlockedTransactions(DataSource dataSource, String blocklistTableName, String disallowedMerchant,
+                                                String monthRangeCondition) {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        Long count = jdbcTemplate.queryForObject("select count(*) from bank_transaction_yearly t " +
+                        "where t.adjusted = false " +
+                        (monthRangeCondition == null ? "" : "and " + monthRangeCondition + " ") +
+                        "and t.merchant_id in (select m.id from merchant m where m.name = ? or exists " +
+                        "(select 1 from " + blocklistTableName + " b where b.merchant = m.name))",
+                Long.class, disallowedMerchant);
+        return count == null ? 0 : count;
+    }
+
+    // Creates the table (if not exists) storing high-water marks of incremental processing, one row per processing name
+    public static void createHighWaterMarkTable(JdbcTemplate jdbcTemplate) {
+        jdbcTemplate.update("create table if not exists high_water_mark (" +
+                "name varchar(64) primary key," +
+                "last_id bigint not null," +
+                "balance numeric(10,2) not null" +
+                ")");
+    }
+
+    // Returns high-water mark of the processing with the specified name, or initial one if processing never happened
+    public static HighWaterMark getHighWaterMark(JdbcTemplate jdbcTemplate, String name) {
+        return jdbcTemplate.query("select last_id, balance from high_water_mark where name = ?",
+                        (rs, rowNum) -> new HighWaterMark(rs.getLong("last_id"), rs.getBigDecimal("balance")), name)
+                .stream()
+                .findFirst()
+                .orElse(HighWaterMark.INITIAL);
+    }
+
+    // Inserts or updates high-water mark of the processing with the specified name
+    public static void saveHighWaterMark(JdbcTemplate jdbcTemplate, String name, HighWaterMark highWaterMark) {
+        jdbcTemplate.update("merge into high_water_mark h using (select cast(? as varchar(64)) as name, " +
+                        "cast(? as bigint) as last_id, cast(? as numeric(10,2)) as balance) s on h.name = s.name " +
+                        "when matched then update set last_id = s.last_id, balance = s.balance " +
+                        "when not matched then insert (name, last_id, balance) values (s.name, s.last_id, s.balance)",
+                name, highWaterMark.getLastId(), highWaterMark.getBalance());
+    }
+
+    // Creates tables (if not exist) with balances aggregated by merchant & month, and by day & month
+    public static void createAggregatedBalanceTables(JdbcTemplate jdbcTemplate) {
+        jdbcTemplate.update("create table if not exists merchant_month_balance (" +
+                "month int not null," +
+                "merchant_id int not null," +
+                "balance numeric(10,2) not null," +
+                "primary key (month, merchant_id)" +
+                ")");
+        jdbcTemplate.update("create table if not exists daily_balance (" +
+                "month int not null," +
+                "day int not null," +
+                "balance numeric(10,2) not null," +
+                "primary key (month, day)" +
+                ")");
+    }
+
+    /**
+     * Advance high-water mark of the processing, adding transactions between previous and new high-water marks to
+     * the balances aggregated by merchant & month and by day & month. Everything is done in a single transaction,
+     * so that each transaction is added to aggregated balances exactly once
+     *
+     * @param dataSource database connectivity data source
+     * @param name name of the processing
+     * @param highWaterMark new high-water mark
+     */
+    public static void advanceHighWaterMark(DataSource dataSource, String name, HighWaterMark highWaterMark) {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        new TransactionTemplate(new JdbcTransactionManager(dataSource)).executeWithoutResult(status -> {
+            long fromId = getHighWaterMark(jdbcTemplate, name).getLastId();
+            long toId = highWaterMark.getLastId();
+            jdbcTemplate.update(mergeMerchantMonthBalanceQuery("select month, merchant_id, sum(amount) as amount " +
+                            "from bank_transaction_yearly where id > ? and id <= ? group by month, merchant_id"),
+                    fromId, toId);
+            jdbcTemplate.update(mergeDailyBalanceQuery("select month, day, sum(amount) as amount " +
+                            "from bank_transaction_yearly where id > ? and id <= ? group by month, day"),
+                    fromId, toId);
+            saveHighWaterMark(jdbcTemplate, name, highWaterMark);
+        });
+    }
+
+    /**
+     * Queries applying the change of the transaction amount (new amount - original amount) to balances aggregated by
+     * merchant & month and by day & month, to be executed in the same transaction as the amount update itself.
+     * The change is applied only if transaction is already included in aggregated balances (not beyond the high-water
+     * mark), otherwise it will be added with the new amount later, hence the queries update no rows for such transactions.
+     * Parameters: amount change, transaction id
+     *
+     * @param highWaterMarkName name of the processing maintaining aggregated balances
+     * @return queries to be used as prepared statements
+     */
+    public static List<String> applyAmountChangeToAggregatedBalancesQueries(String highWaterMarkName) {
+        String changedTransaction = " from bank_transaction_yearly where id = ? and id <= " +
+                "(select coalesce(max(last_id), 0) from high_water_mark where name = '" + highWaterMarkName + "')";
+        return List.of(
+                mergeMerchantMonthBalanceQuery("select month, merchant_id, cast(? as numeric(10,2)) as amount" + changedTransaction),
+                mergeDailyBalanceQuery("select month, day, cast(? as numeric(10,2)) as amount" + changedTransaction));
+    }
+
+    // Query adding amounts of the delta query (month, merchant_id and amount columns) to balances by merchant & month
+    private static String mergeMerchantMonthBalanceQuery(String deltaQuery) {
+        return "merge into merchant_month_balance b using (" + deltaQuery + ") d " +
+                "on b.month = d.month and b.merchant_id = d.merchant_id " +
+                "when matched then update set balance = b.balance + d.amount " +
+                "when not matched then insert (month, merchant_id, balance) values (d.month, d.merchant_id, d.amount)";
+    }
+
+    // Query adding amounts of the delta query (month, day and amount columns) to balances by day & month
+    private static String mergeDailyBalanceQuery(String deltaQuery) {
+        return "merge into daily_balance b using (" + deltaQuery + ") d " +
+                "on b.month = d.month and b.day = d.day " +
+                "when matched then update set balance = b.balance + d.amount " +
+                "when not matched then insert (month, day, balance) values (d.month, d.day, d.amount)";
+    }
+
+    /**
+     * Consistency check of aggregated balances: compare them to full aggregation (GROUP BY) of transactions
+     * up to the high-water mark, counting groups which are missing or have different balance on either side
+     *
+     * @param jdbcTemplate database connectivity template
+     * @param highWaterMarkName name of the processing maintaining aggregated balances
+     * @return number of mismatched groups, across both aggregated balance tables
+     */
+    public static long countAggregatedBalanceMismatches(JdbcTemplate jdbcTemplate, String highWaterMarkName) {
+        long lastId = getHighWaterMark(jdbcTemplate, highWaterMarkName).getLastId();
+        Long merchantMonthMismatches = jdbcTemplate.queryForObject("select count(*) from (" +
+                        "(select month, merchant_id, balance from merchant_month_balance " +
+                        "except select month, merchant_id, sum(amount) from bank_transaction_yearly where id <= ? group by month, merchant_id) " +
+                        "union all " +
+                        "(select month, merchant_id, sum(amount) from bank_transaction_yearly where id <= ? group by month, merchant_id " +
+                        "except select month, merchant_id, balance from merchant_month_balance)) mismatches",
+                Long.class, lastId, lastId);
+        Long dailyMismatches = jdbcTemplate.queryForObject("select count(*) from (" +
+                        "(select month, day, balance from daily_balance " +
+                        "except select month, day, sum(amount) from bank_transaction_yearly where id <= ? group by month, day) " +
+                        "union all " +
+                        "(select month, day, sum(amount) from bank_transaction_yearly where id <= ? group by month, day " +
+                        "except select month, day, balance from daily_balance)) mismatches",
+                Long.class, lastId, lastId);
+        return (merchantMonthMismatches == null ? 0 : merchantMonthMismatches)
+                + (dailyMismatches == null ? 0 : dailyMismatches);
+    }
+
     // Initializes the database schema: first drops the table (if exists), then creates it
     // No data is inserted as a result of this method
     public static void initializeEmptyDatabase(JdbcTemplate jdbcTemplate) {
-        // Drop table if exist
+        initializeEmptyDatabase(jdbcTemplate, false);
+    }
+
+    /**
+     * Initializes the database schema: first drops the table (if exists), then creates it, optionally using
+     * Postgresql declarative partitioning by month (one partition per month), such that queries limited to
+     * the range of months scan only partitions of these months. No data is inserted as a result of this method
+     *
+     * @param jdbcTemplate database connectivity template
+     * @param partitionByMonth whether to create the table partitioned by month
+     */
+    public static void initializeEmptyDatabase(JdbcTemplate jdbcTemplate, boolean partitionByMonth) {
+        // Drop tables if exist, including the ones derived from transactions, since they are no longer valid
+        jdbcTemplate.update("drop table if exists high_water_mark");
+        jdbcTemplate.update("drop table if exists merchant_month_balance");
+        jdbcTemplate.update("drop table if exists daily_balance");
+        jdbcTemplate.update("drop table if exists daily_balance_checkpoint");
+        jdbcTemplate.update("drop table if exists daily_balance_checkpoint_stale");
         jdbcTemplate.update("drop table if exists bank_transaction_yearly");
-        // Create the table
+        jdbcTemplate.update("drop table if exists merchant");
+        createMerchantTable(jdbcTemplate);
+        // Create the table; primary key of partitioned table has to include partitioning column
         jdbcTemplate.update("create table bank_transaction_yearly (" +
-                "id serial primary key," +
+                (partitionByMonth ? "id serial," : "id serial primary key,") +
                 "month int not null," +
                 "day int not null," +
                 "hour int not null," +
                 "minute int not null," +
                 "amount numeric(10,2) not null," +
-                "merchant varchar(36) not null" +
+                // Merchant is referenced by the id from the dictionary, rather than repeating its name in every row
+                "merchant_id int not null," +
+                "account_id bigint not null default 0" +
+                (partitionByMonth ? ", primary key (month, id)) partition by list (month)" : ")"));
+        if (partitionByMonth) {
+            for (int month = 1; month <= 12; month++) {
+                jdbcTemplate.update("create table bank_transaction_yearly_m" + month +
+                        " partition of bank_transaction_yearly for values in (" + month + ")");
+            }
+            // Writers update transactions by id only
+            jdbcTemplate.update("create index bank_transaction_id_idx on bank_transaction_yearly (id)");
+        }
+        jdbcTemplate.update("create index bank_transaction_account_idx on bank_transaction_yearly (account_id, id)");
+    }
+
+    // Condition limiting transactions to the range of months (inclusive), or null if the range is the whole year.
+    // Months are inlined, so that partitions are pruned when the query is planned
+    public static String monthRangeCondition(int fromMonth, int toMonth) {
+        if (fromMonth < 1 || toMonth > 12 || fromMonth > toMonth) {
+            throw new IllegalArgumentException("Invalid range of months: " + fromMonth + " - " + toMonth);
+        }
+        return fromMonth == 1 && toMonth == 12 ? null : "month between " + fromMonth + " and " + toMonth;
+    }
+
+    /**
+     * Closing balance of the months preceding the specified one, i.e. balance after the last transaction of
+     * these months in the order balance was filled in, which is the opening balance of the specified month.
+     * Only partitions of preceding months are scanned, and only the last transaction is taken from them
+     *
+     * @param jdbcTemplate database connectivity template
+     * @param month month to get the opening balance of
+     * @param chronological whether balance was filled chronologically (see ExternalSortTransactionReader),
+     *                      rather than in the order of ids
+     * @return balance, or zero if there are no transactions before the month
+     */
+    public static BigDecimal getClosingBalanceBefore(JdbcTemplate jdbcTemplate, int month, boolean chronological) {
+        if (month <= 1) {
+            return BigDecimal.ZERO;
+        }
+        List<BigDecimal> balances = jdbcTemplate.query("select balance from bank_transaction_yearly " +
+                        "where month between 1 and " + (month - 1) +
+                        (chronological ? " order by month desc, day desc, hour desc, minute desc, id desc limit 1"
+                                       : " order by id desc limit 1"),
+                (rs, rowNum) -> rs.getBigDecimal("balance"));
+        if (balances.isEmpty()) {
+            return BigDecimal.ZERO;
+        }
+        if (balances.get(0) == null) {
+            throw new IllegalStateException("Balance is not filled for months before " + month);
+        }
+        return balances.get(0);
+    }
+
+    /**
+     * Create the table (if not exists) with closing balance of every day, the table of the first days of pending
+     * checkpoint rebuilds, and indexes for reading transactions day by day. On Postgresql, transactions without
+     * balance are also indexed by day with a partial index, so that the earliest of them is found without scanning
+     * the table (see {@link #getEarliestDayWithoutBalance})
+     *
+     * @param jdbcTemplate database connectivity template
+     */
+    public static void createDailyBalanceCheckpointTable(JdbcTemplate jdbcTemplate) {
+        jdbcTemplate.update("create table if not exists daily_balance_checkpoint (" +
+                "month int not null," +
+                "day int not null," +
+                "balance numeric(10,2) not null," +
+                "primary key (month, day)" +
+                ")");
+        jdbcTemplate.update("create table if not exists daily_balance_checkpoint_stale (" +
+                "month int not null," +
+                "day int not null," +
+                "primary key (month, day)" +
                 ")");
+        jdbcTemplate.update("create index if not exists bank_transaction_day_idx on bank_transaction_yearly (month, day)");
+        String databaseName = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                connection.getMetaData().getDatabaseProductName());
+        if ("PostgreSQL".equals(databaseName)) {
+            jdbcTemplate.update("create index if not exists bank_transaction_balance_null_idx " +
+                    "on bank_transaction_yearly (month, day) where balance is null");
+        }
+    }
+
+    // Marks checkpoints of the days from the specified one as stale until they are rebuilt, so that the rebuild is
+    // not lost if the job fails before it's done (see refreshDailyBalanceCheckpoints)
+    public static void markDailyBalanceCheckpointsStale(JdbcTemplate jdbcTemplate, int month, int day) {
+        jdbcTemplate.update("merge into daily_balance_checkpoint_stale s using (select cast(? as int) as month, " +
+                        "cast(? as int) as day) n on s.month = n.month and s.day = n.day " +
+                        "when not matched then insert (month, day) values (n.month, n.day)",
+                month, day);
+    }
+
+    // Earliest day which checkpoints are marked as stale, as month & day pair, or null if none is
+    public static int[] getEarliestStaleCheckpointDay(JdbcTemplate jdbcTemplate) {
+        return jdbcTemplate.query("select month, day from daily_balance_checkpoint_stale order by month, day limit 1",
+                        (rs, rowNum) -> new int[]{rs.getInt("month"), rs.getInt("day")})
+                .stream()
+                .findFirst()
+                .orElse(null);
+    }
+
+    /**
+     * Rebuild daily balance checkpoints of the days from the specified one up to the end of the specified month:
+     * closing balance of the day is the closing balance of the preceding day plus the amounts of the day, i.e. the sum
+     * of the amounts of all the transactions up to the end of the day. Hence, checkpoints don't depend on the order
+     * transactions are filled with balance in, and they agree with {@link #getBalanceAt}.
+     * Amounts are summed up per day with the day index, and running total is computed by the database, starting from
+     * the checkpoint of the preceding day (or from the sum of all the preceding transactions, if it's not built yet).
+     * Checkpoints are replaced in a single transaction, so that readers never see the days partially rebuilt, and
+     * the days marked as stale within the rebuilt ones are unmarked in the same transaction
+     *
+     * @param dataSource database connectivity data source
+     * @param fromMonth month of the first day to rebuild
+     * @param fromDay first day to rebuild
+     * @param toMonth last month to rebuild (inclusive)
+     */
+    public static void refreshDailyBalanceCheckpoints(DataSource dataSource, int fromMonth, int fromDay, int toMonth) {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        new TransactionTemplate(new JdbcTransactionManager(dataSource)).executeWithoutResult(status -> {
+            BigDecimal openingBalance = findCheckpointBalanceBefore(jdbcTemplate, fromMonth, fromDay);
+            if (openingBalance == null) {
+                openingBalance = jdbcTemplate.queryForObject("select coalesce(sum(amount), 0) " +
+                                "from bank_transaction_yearly where month < ? or (month = ? and day < ?)",
+                        BigDecimal.class, fromMonth, fromMonth, fromDay);
+            }
+            jdbcTemplate.update("delete from daily_balance_checkpoint " +
+                            "where month between ? and ? and (month > ? or day >= ?)",
+                    fromMonth, toMonth, fromMonth, fromDay);
+            jdbcTemplate.update("insert into daily_balance_checkpoint (month, day, balance) " +
+                            "select month, day, cast(? as numeric(10,2)) + sum(sum(amount)) over (order by month, day) " +
+                            "from bank_transaction_yearly " +
+                            "where month between ? and ? and (month > ? or day >= ?) " +
+                            "group by month, day",
+                    openingBalance, fromMonth, toMonth, fromMonth, fromDay);
+            jdbcTemplate.update("delete from daily_balance_checkpoint_stale " +
+                            "where month between ? and ? and (month > ? or day >= ?)",
+                    fromMonth, toMonth, fromMonth, fromDay);
+        });
+    }
+
+    /**
+     * Closing balance of the day preceding the specified one, i.e. the opening balance of the day, taken from the
+     * checkpoint of the latest day having transactions before it
+     *
+     * @param jdbcTemplate database connectivity template
+     * @param month month of the day
+     * @param day day of the month
+     * @return balance, or zero if there are no transactions before the day
+     * @throws IllegalStateException if there are transactions before the day, but the latest of their days has no
+     *                               checkpoint (see {@link #refreshDailyBalanceCheckpoints})
+     */
+    public static BigDecimal getCheckpointBalanceBefore(JdbcTemplate jdbcTemplate, int month, int day) {
+        BigDecimal balance = findCheckpointBalanceBefore(jdbcTemplate, month, day);
+        if (balance == null) {
+            throw new IllegalStateException("Daily balance checkpoints are not built for the days before "
+                    + month + "/" + day);
+        }
+        return balance;
+    }
+
+    // Checkpoint of the latest day having transactions before the specified one, zero if there are no transactions
+    // before it, or null if that day has no checkpoint
+    private static BigDecimal findCheckpointBalanceBefore(JdbcTemplate jdbcTemplate, int month, int day) {
+        List<int[]> days = jdbcTemplate.query("select month, day from bank_transaction_yearly " +
+                        "where month < ? or (month = ? and day < ?) order by month desc, day desc limit 1",
+                (rs, rowNum) -> new int[]{rs.getInt("month"), rs.getInt("day")}, month, month, day);
+        if (days.isEmpty()) {
+            return BigDecimal.ZERO;
+        }
+        List<BigDecimal> balances = jdbcTemplate.query("select balance from daily_balance_checkpoint " +
+                        "where month = ? and day = ?",
+                (rs, rowNum) -> rs.getBigDecimal("balance"), days.get(0)[0], days.get(0)[1]);
+        return balances.isEmpty() ? null : balances.get(0);
+    }
+
+    // Day of the chronologically earliest transaction without balance (appended, or backdated correction), as
+    // month & day pair, or null if balance is filled for all the transactions; read from the partial index of
+    // transactions without balance on Postgresql (see createDailyBalanceCheckpointTable)
+    public static int[] getEarliestDayWithoutBalance(JdbcTemplate jdbcTemplate) {
+        return jdbcTemplate.query("select month, day from bank_transaction_yearly where balance is null " +
+                        "order by month, day limit 1",
+                        (rs, rowNum) -> new int[]{rs.getInt("month"), rs.getInt("day")})
+                .stream()
+                .findFirst()
+                .orElse(null);
+    }
+
+    /**
+     * Point-in-time balance, i.e. balance after all the transactions up to the specified minute (inclusive).
+     * It's the closing balance of the preceding day taken from checkpoints, plus the amounts of the transactions
+     * of the day up to the minute, so at most one day of transactions is read
+     *
+     * @param jdbcTemplate database connectivity template
+     * @param month month of the point in time
+     * @param day day of the point in time
+     * @param hour hour of the point in time
+     * @param minute minute of the point in time
+     * @return balance at the end of the specified minute
+     */
+    public static BigDecimal getBalanceAt(JdbcTemplate jdbcTemplate, int month, int day, int hour, int minute) {
+        BigDecimal dayAmount = jdbcTemplate.queryForObject("select coalesce(sum(amount), 0) from bank_transaction_yearly " +
+                        "where month = ? and day = ? and (hour < ? or (hour = ? and minute <= ?))",
+                BigDecimal.class, month, day, hour, hour, minute);
+        return getCheckpointBalanceBefore(jdbcTemplate, month, day).add(dayAmount);
     }
 
     // Inserts new transaction in the database. Please note that the 'id' property is ignored,
     // method relies on the database to autofill it (serial / auto-increment)
     public static void insertBankTransaction(BankTransaction transaction, JdbcTemplate jdbcTemplate) {
-        jdbcTemplate.update("insert into bank_transaction_yearly (month, day, hour, minute, amount, merchant) " +
-                        "values (?, ?, ?, ?, ?, ?)",
+        jdbcTemplate.update("insert into bank_transaction_yearly (month, day, hour, minute, amount, merchant_id, account_id) " +
+                        "values (?, ?, ?, ?, ?, ?, ?)",
                 transaction.getMonth(), transaction.getDay(), transaction.getHour(),
-                transaction.getMinute(), transaction.getAmount(), transaction.getMerchant());
+                transaction.getMinute(), transaction.getAmount(), transaction.getMerchantId(), transaction.getAccountId());
     }
 }
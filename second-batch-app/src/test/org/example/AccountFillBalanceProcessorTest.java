@@ -0,0 +1,96 @@
+package org.example;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.test.MetaDataInstanceFactory;
+
+import java.math.BigDecimal;
+
+
+// Unit test for AccountFillBalanceProcessor, verifying per-account balances and summaries, also on restart
+public class AccountFillBalanceProcessorTest {
+
+    @Test
+    public void testBalanceIsRunningPerAccount() throws Exception {
+        StepExecution stepExecution = MetaDataInstanceFactory.createStepExecution();
+        AccountFillBalanceProcessor processor = new AccountFillBalanceProcessor(new FillBalanceProcessor());
+        processor.setStepExecution(stepExecution);
+
+        // Account 3 ends up positive, account 7 negative, and account 9 with zero balance
+        assertBalance("1.50", processor.process(transaction(1, 3, "1.50")));
+        assertBalance("3.75", processor.process(transaction(4, 3, "2.25")));
+        assertBalance("-5.00", processor.process(transaction(2, 7, "-5.00")));
+        assertBalance("-4.99", processor.process(transaction(6, 7, "0.01")));
+        assertBalance("0.00", processor.process(transaction(5, 9, "0.00")));
+
+        // Last account is summarized only once completed
+        Assertions.assertEquals(1, processor.getPositiveAccounts());
+        Assertions.assertEquals(1, processor.getNegativeAccounts());
+        processor.completeCurrentAccount();
+        Assertions.assertEquals(2, processor.getPositiveAccounts());
+        Assertions.assertEquals(1, processor.getNegativeAccounts());
+    }
+
+    @Test
+    public void testProcessingContinuesAfterRestart() throws Exception {
+        StepExecution stepExecution = MetaDataInstanceFactory.createStepExecution();
+        AccountFillBalanceProcessor processor = new AccountFillBalanceProcessor(new FillBalanceProcessor(true));
+        processor.setStepExecution(stepExecution);
+        processor.process(transaction(1, 3, "-1.50"));
+        processor.process(transaction(2, 4, "10.00"));
+        // Chunk is committed, so the context is saved
+        processor.update(stepExecution.getExecutionContext());
+
+        // Restarted step execution gets the saved execution context
+        StepExecution restartedExecution = MetaDataInstanceFactory.createStepExecution();
+        restartedExecution.setExecutionContext(new ExecutionContext(stepExecution.getExecutionContext()));
+        processor = new AccountFillBalanceProcessor(new FillBalanceProcessor(true));
+        processor.setStepExecution(restartedExecution);
+
+        assertBalance("9.00", processor.process(transaction(3, 4, "-1.00")));
+        processor.completeCurrentAccount();
+        Assertions.assertEquals(1, processor.getPositiveAccounts());
+        Assertions.assertEquals(1, processor.getNegativeAccounts());
+    }
+
+    @Test
+    public void testChunkFailedAcrossAccountsIsProcessedAgainOnRestart() throws Exception {
+        StepExecution stepExecution = MetaDataInstanceFactory.createStepExecution();
+        AccountFillBalanceProcessor processor = new AccountFillBalanceProcessor(new FillBalanceProcessor());
+        processor.setStepExecution(stepExecution);
+        processor.process(transaction(1, 3, "5.00"));
+        processor.update(stepExecution.getExecutionContext());
+
+        // Next chunk completes account 3 and starts account 4, but is rolled back, so the context isn't updated,
+        // while it's still saved once the step is failed
+        processor.process(transaction(2, 3, "-7.00"));
+        processor.process(transaction(3, 4, "1.00"));
+        Assertions.assertEquals(1, processor.getNegativeAccounts());
+        Assertions.assertEquals(3, stepExecution.getExecutionContext().getLong(AccountFillBalanceProcessor.CURRENT_ACCOUNT_ID));
+        Assertions.assertEquals(0, stepExecution.getExecutionContext().getLong(AccountFillBalanceProcessor.NEGATIVE_ACCOUNTS));
+
+        // Restarted step continues account 3 from the committed balance, and counts it once
+        StepExecution restartedExecution = MetaDataInstanceFactory.createStepExecution();
+        restartedExecution.setExecutionContext(new ExecutionContext(stepExecution.getExecutionContext()));
+        processor = new AccountFillBalanceProcessor(new FillBalanceProcessor());
+        processor.setStepExecution(restartedExecution);
+        assertBalance("-2.00", processor.process(transaction(2, 3, "-7.00")));
+        assertBalance("1.00", processor.process(transaction(3, 4, "1.00")));
+        processor.completeCurrentAccount();
+        Assertions.assertEquals(1, processor.getPositiveAccounts());
+        Assertions.assertEquals(1, processor.getNegativeAccounts());
+        Assertions.assertEquals(1, restartedExecution.getExecutionContext().getLong(AccountFillBalanceProcessor.POSITIVE_ACCOUNTS));
+        Assertions.assertEquals(1, restartedExecution.getExecutionContext().getLong(AccountFillBalanceProcessor.NEGATIVE_ACCOUNTS));
+    }
+
+    private static BankTransaction transaction(long id, long accountId, String amount) {
+        return new BankTransaction(id, accountId, 1, 1, 1, 1, new BigDecimal(amount), 1);
+    }
+
+    private static void assertBalance(String expected, BalanceUpdate balanceUpdate) {
+        Assertions.assertEquals(0, new BigDecimal(expected).compareTo(balanceUpdate.getBalance()),
+                "Expected " + expected + ", but was " + balanceUpdate.getBalance());
+    }
+}
@@ -0,0 +1,100 @@
+package org.example;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+
+// Unit test for AccountKeysetReader and AccountPartitioner against embedded database, verifying account ranges,
+// order of transactions within the range and restart
+public class AccountKeysetReaderTest {
+
+    private DataSource dataSource;
+
+    @BeforeEach
+    public void createTransactions() {
+        dataSource = new DriverManagerDataSource("jdbc:h2:mem:accounts;DB_CLOSE_DELAY=-1;MODE=PostgreSQL;"
+                + "DATABASE_TO_LOWER=TRUE;NON_KEYWORDS=MONTH,DAY,HOUR,MINUTE", "sa", "");
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        SourceManagementUtils.initializeEmptyDatabase(jdbcTemplate);
+        SourceManagementUtils.addAccountIdColumn(dataSource);
+        // Transactions 1-10 of accounts 1-5 interleaved: account of transaction i is (i - 1) % 5 + 1
+        for (int i = 1; i <= 10; i++) {
+            SourceManagementUtils.insertBankTransaction(
+                    new BankTransaction(0, (i - 1) % 5 + 1, 1, i, 0, 0, BigDecimal.valueOf(i), 1), jdbcTemplate);
+        }
+    }
+
+    @Test
+    public void testPartitionsReadContiguousAccountRanges() throws Exception {
+        Map<String, ExecutionContext> partitions = new AccountPartitioner(dataSource).partition(2);
+        Assertions.assertEquals(2, partitions.size());
+        ExecutionContext first = partitions.get("accountPartition-0");
+        ExecutionContext second = partitions.get("accountPartition-1");
+        Assertions.assertEquals(3, first.getLong(AccountKeysetReader.MAX_ACCOUNT_ID));
+        Assertions.assertEquals(3, second.getLong(AccountKeysetReader.MIN_ACCOUNT_ID));
+
+        // Accounts 1-3 and 4-5, each account's transactions in id order
+        Assertions.assertEquals(List.of("1:1", "1:6", "2:2", "2:7", "3:3", "3:8"), readAll(first, 2));
+        Assertions.assertEquals(List.of("4:4", "4:9", "5:5", "5:10"), readAll(second, 2));
+    }
+
+    @Test
+    public void testEveryAccountIsReadOnceWhateverGridSize() throws Exception {
+        // More partitions than accounts leave the extra ones empty
+        List<String> transactions = new ArrayList<>();
+        for (ExecutionContext executionContext : new AccountPartitioner(dataSource).partition(7).values()) {
+            transactions.addAll(readAll(executionContext, 3));
+        }
+        Assertions.assertEquals(10, transactions.size());
+        Assertions.assertEquals(10, transactions.stream().distinct().count());
+    }
+
+    @Test
+    public void testRestartContinuesAfterLastReadTransaction() throws Exception {
+        ExecutionContext executionContext = new ExecutionContext();
+        executionContext.putLong(AccountKeysetReader.MIN_ACCOUNT_ID, 1);
+        executionContext.putLong(AccountKeysetReader.MAX_ACCOUNT_ID, 4);
+        AccountKeysetReader reader = new AccountKeysetReader("reader", dataSource, 2);
+        reader.open(executionContext);
+        reader.read();
+        reader.read();
+        reader.read();
+        reader.update(executionContext);
+        reader.close();
+        Assertions.assertEquals(3, executionContext.getLong("reader.lastAccountId"));
+        Assertions.assertEquals(3, executionContext.getLong("reader.lastId"));
+
+        AccountKeysetReader restarted = new AccountKeysetReader("reader", dataSource, 2);
+        restarted.open(executionContext);
+        Assertions.assertEquals(List.of("3:8", "4:4", "4:9"), read(restarted));
+        restarted.close();
+    }
+
+    // Account and id of all the transactions read in the partition
+    private List<String> readAll(ExecutionContext executionContext, int pageSize) throws Exception {
+        AccountKeysetReader reader = new AccountKeysetReader("reader", dataSource, pageSize);
+        reader.open(executionContext);
+        List<String> transactions = read(reader);
+        reader.close();
+        return transactions;
+    }
+
+    private static List<String> read(AccountKeysetReader reader) throws Exception {
+        List<String> transactions = new ArrayList<>();
+        BankTransaction transaction;
+        while ((transaction = reader.read()) != null) {
+            transactions.add(transaction.getAccountId() + ":" + transaction.getId());
+        }
+        return transactions;
+    }
+}
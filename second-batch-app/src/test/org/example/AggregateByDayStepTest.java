@@ -20,7 +20,6 @@ import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
 
 import javax.sql.DataSource;
 import java.math.BigDecimal;
-import java.util.UUID;
 
 
 // End-to-end test for the step aggregating transactions by day & month
@@ -58,11 +57,11 @@ public class AggregateByDayStepTest {
     @Test
     public void testAggregateByDayStep() throws Exception {
         BankTransaction[] generatedTransactions = new BankTransaction[] {
-                new BankTransaction(-1, 1, 13, 0, 0, new BigDecimal("2.5"), UUID.randomUUID().toString()),
-                new BankTransaction(-1, 1, 13, 0, 0, new BigDecimal("2"), UUID.randomUUID().toString()),
-                new BankTransaction(-1, 2, 17, 0, 0, new BigDecimal("8"), UUID.randomUUID().toString()),
-                new BankTransaction(-1, 2, 17, 0, 0, new BigDecimal("6.11"), UUID.randomUUID().toString()),
-                new BankTransaction(-1, 2, 29, 0, 0, new BigDecimal("-29.29"), UUID.randomUUID().toString())
+                new BankTransaction(-1, 1, 13, 0, 0, new BigDecimal("2.5"), 1),
+                new BankTransaction(-1, 1, 13, 0, 0, new BigDecimal("2"), 1),
+                new BankTransaction(-1, 2, 17, 0, 0, new BigDecimal("8"), 1),
+                new BankTransaction(-1, 2, 17, 0, 0, new BigDecimal("6.11"), 1),
+                new BankTransaction(-1, 2, 29, 0, 0, new BigDecimal("-29.29"), 1)
         };
 
         // Insert test bank transactions
@@ -0,0 +1,117 @@
+package org.example;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.util.List;
+
+
+// Unit test for balances aggregated incrementally against embedded database, verifying advancing the high-water mark,
+// applying amount changes and the consistency check
+public class AggregatedBalanceTest {
+
+    private static final String NAME = "fill-balance";
+
+    private DataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    public void createTransactions() {
+        dataSource = new DriverManagerDataSource("jdbc:h2:mem:aggregated;DB_CLOSE_DELAY=-1;MODE=PostgreSQL;"
+                + "DATABASE_TO_LOWER=TRUE;NON_KEYWORDS=MONTH,DAY,HOUR,MINUTE", "sa", "");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        SourceManagementUtils.initializeEmptyDatabase(jdbcTemplate);
+        SourceManagementUtils.createHighWaterMarkTable(jdbcTemplate);
+        SourceManagementUtils.createAggregatedBalanceTables(jdbcTemplate);
+        insert(1, 1, "10.00", 1);
+        insert(1, 1, "-2.50", 2);
+        insert(1, 2, "4.00", 1);
+        insert(2, 1, "1.00", 1);
+    }
+
+    @Test
+    public void testHighWaterMarkIsAdvancedWithAggregatedBalances() {
+        Assertions.assertEquals(HighWaterMark.INITIAL.getLastId(),
+                SourceManagementUtils.getHighWaterMark(jdbcTemplate, NAME).getLastId());
+
+        SourceManagementUtils.advanceHighWaterMark(dataSource, NAME, new HighWaterMark(2, new BigDecimal("7.50")));
+        assertBalance("10.00", "select balance from merchant_month_balance where month = 1 and merchant_id = 1");
+        assertBalance("-2.50", "select balance from merchant_month_balance where month = 1 and merchant_id = 2");
+        assertBalance("7.50", "select balance from daily_balance where month = 1 and day = 1");
+        Assertions.assertEquals(0, SourceManagementUtils.countAggregatedBalanceMismatches(jdbcTemplate, NAME));
+
+        // Next transactions are added to existing groups, or make new ones
+        SourceManagementUtils.advanceHighWaterMark(dataSource, NAME, new HighWaterMark(4, new BigDecimal("12.50")));
+        HighWaterMark highWaterMark = SourceManagementUtils.getHighWaterMark(jdbcTemplate, NAME);
+        Assertions.assertEquals(4, highWaterMark.getLastId());
+        assertBalance("12.50", highWaterMark.getBalance());
+        assertBalance("14.00", "select balance from merchant_month_balance where month = 1 and merchant_id = 1");
+        assertBalance("1.00", "select balance from daily_balance where month = 2 and day = 1");
+        Assertions.assertEquals(0, SourceManagementUtils.countAggregatedBalanceMismatches(jdbcTemplate, NAME));
+    }
+
+    @Test
+    public void testAmountChangeIsAppliedUpToHighWaterMarkOnly() {
+        SourceManagementUtils.advanceHighWaterMark(dataSource, NAME, new HighWaterMark(3, new BigDecimal("11.50")));
+        List<String> queries = SourceManagementUtils.applyAmountChangeToAggregatedBalancesQueries(NAME);
+
+        // Transaction 1 is aggregated already, so its change is applied to both tables
+        adjust(1, "10.00", "10.50");
+        for (String query : queries) {
+            Assertions.assertEquals(1, jdbcTemplate.update(query, new BigDecimal("0.50"), 1L));
+        }
+        // Transaction 4 is beyond the high-water mark, so nothing is updated now, and the new amount is added later
+        adjust(4, "1.00", "1.05");
+        for (String query : queries) {
+            Assertions.assertEquals(0, jdbcTemplate.update(query, new BigDecimal("0.05"), 4L));
+        }
+
+        assertBalance("14.50", "select balance from merchant_month_balance where month = 1 and merchant_id = 1");
+        assertBalance("8.00", "select balance from daily_balance where month = 1 and day = 1");
+        Assertions.assertEquals(0, SourceManagementUtils.countAggregatedBalanceMismatches(jdbcTemplate, NAME));
+        SourceManagementUtils.advanceHighWaterMark(dataSource, NAME, new HighWaterMark(4, new BigDecimal("13.05")));
+        assertBalance("1.05", "select balance from daily_balance where month = 2 and day = 1");
+        Assertions.assertEquals(0, SourceManagementUtils.countAggregatedBalanceMismatches(jdbcTemplate, NAME));
+    }
+
+    @Test
+    public void testMismatchesAreCountedOnEitherSide() {
+        SourceManagementUtils.advanceHighWaterMark(dataSource, NAME, new HighWaterMark(4, new BigDecimal("12.50")));
+
+        // Different balance is counted on both sides of each table, missing group on one side only
+        jdbcTemplate.update("update bank_transaction_yearly set amount = 5.00 where id = 3");
+        Assertions.assertEquals(4, SourceManagementUtils.countAggregatedBalanceMismatches(jdbcTemplate, NAME));
+        jdbcTemplate.update("update bank_transaction_yearly set amount = 4.00 where id = 3");
+        jdbcTemplate.update("delete from daily_balance where month = 2");
+        Assertions.assertEquals(1, SourceManagementUtils.countAggregatedBalanceMismatches(jdbcTemplate, NAME));
+        // Transactions beyond the high-water mark are not checked
+        insert(3, 1, "7.00", 1);
+        jdbcTemplate.update("insert into daily_balance (month, day, balance) values (2, 1, 1.00)");
+        Assertions.assertEquals(0, SourceManagementUtils.countAggregatedBalanceMismatches(jdbcTemplate, NAME));
+    }
+
+    private void insert(int month, int day, String amount, int merchantId) {
+        SourceManagementUtils.insertBankTransaction(
+                new BankTransaction(0, month, day, 0, 0, new BigDecimal(amount), merchantId), jdbcTemplate);
+    }
+
+    // Same update as the one of currency adjustment writer, which precedes the aggregated balance queries
+    private void adjust(long id, String originalAmount, String adjustedAmount) {
+        Assertions.assertEquals(new BigDecimal(originalAmount),
+                jdbcTemplate.queryForObject("select amount from bank_transaction_yearly where id = ?", BigDecimal.class, id));
+        jdbcTemplate.update("update bank_transaction_yearly set amount = ? where id = ?", new BigDecimal(adjustedAmount), id);
+    }
+
+    private void assertBalance(String expected, String query) {
+        assertBalance(expected, jdbcTemplate.queryForObject(query, BigDecimal.class));
+    }
+
+    private static void assertBalance(String expected, BigDecimal actual) {
+        Assertions.assertEquals(0, new BigDecimal(expected).compareTo(actual), "Expected " + expected + ", but was " + actual);
+    }
+}
@@ -0,0 +1,168 @@
+package org.example;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.StepExecutionListener;
+import org.springframework.batch.item.Chunk;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamWriter;
+import org.springframework.batch.item.json.JacksonJsonObjectMarshaller;
+import org.springframework.batch.item.json.builder.JsonFileItemWriterBuilder;
+import org.springframework.batch.test.MetaDataInstanceFactory;
+import org.springframework.core.io.FileSystemResource;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+
+// Performance comparison of JSON array writer (current default), newline-delimited JSON and Parquet writers for aggregation output
+@Tag("performance")
+public class AggregationWriterBenchmarkTest {
+
+    private static final int ITEM_NUM = 1_000_000;
+    private static final int CHUNK_SIZE = 1000;
+    // Default chunk size of aggregation steps, compressed worse, since every chunk is a gzip member of its own
+    private static final int SMALL_CHUNK_SIZE = 10;
+    private static final int MERCHANT_NUM = ITEM_NUM / 12;
+    private static final long ROW_GROUP_SIZE = 128 * 1024 * 1024;
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void benchmarkAggregationWriters() throws Exception {
+        List<Chunk<DailyBalance>> chunks = generateChunks(CHUNK_SIZE);
+        List<Chunk<DailyBalance>> smallChunks = generateChunks(SMALL_CHUNK_SIZE);
+
+        Path jsonFile = tempDir.resolve("daily_balance.json");
+        Path ndjsonFile = tempDir.resolve("daily_balance.ndjson");
+        Path gzipFile = tempDir.resolve("daily_balance.ndjson.gz");
+        Path smallChunkGzipFile = tempDir.resolve("daily_balance_small_chunks.ndjson.gz");
+        Path parquetFile = tempDir.resolve("daily_balance.parquet");
+
+        // Warm-up run for each writer, so that JIT compilation does not affect the measured run
+        for (int i = 0; i < 2; i++) {
+            boolean measure = i == 1;
+            runWriter("json", new JsonFileItemWriterBuilder<DailyBalance>()
+                    .jsonObjectMarshaller(new JacksonJsonObjectMarshaller<>())
+                    .resource(new FileSystemResource(jsonFile))
+                    .name("jsonWriter")
+                    .build(), chunks, jsonFile, measure);
+            runWriter("ndjson", new NdjsonFileItemWriter<>("ndjsonWriter", new FileSystemResource(ndjsonFile),
+                    new ObjectMapper().writerFor(DailyBalance.class), false), chunks, ndjsonFile, measure);
+            runWriter("ndjson.gz", new NdjsonFileItemWriter<>("gzipWriter", new FileSystemResource(gzipFile),
+                    new ObjectMapper().writerFor(DailyBalance.class), true), chunks, gzipFile, measure);
+            runWriter("ndjson.gz, chunks of " + SMALL_CHUNK_SIZE, new NdjsonFileItemWriter<>("gzipWriter",
+                    new FileSystemResource(smallChunkGzipFile), new ObjectMapper().writerFor(DailyBalance.class), true),
+                    smallChunks, smallChunkGzipFile, measure);
+            runWriter("parquet", new ParquetFileItemWriter<>(new FileSystemResource(parquetFile),
+                    DailyBalance.PARQUET_SCHEMA, DailyBalance::toParquetGroup, ROW_GROUP_SIZE), chunks, parquetFile, measure);
+        }
+
+        System.out.printf("ndjson.gz compression ratio: %.1f with chunks of %d, %.1f with chunks of %d%n",
+                (double) Files.size(ndjsonFile) / Files.size(gzipFile), CHUNK_SIZE,
+                (double) Files.size(ndjsonFile) / Files.size(smallChunkGzipFile), SMALL_CHUNK_SIZE);
+        Assertions.assertTrue(Files.size(gzipFile) < Files.size(smallChunkGzipFile));
+        Assertions.assertTrue(Files.size(smallChunkGzipFile) < Files.size(ndjsonFile));
+        Assertions.assertTrue(Files.size(parquetFile) < Files.size(jsonFile));
+    }
+
+    @Test
+    public void benchmarkMerchantMonthWriters() throws Exception {
+        List<String> merchants = generateMerchants();
+        List<Chunk<MerchantMonthBalance>> chunks = generateMerchantMonthChunks();
+
+        Path jsonFile = tempDir.resolve("merchant_month.json");
+        Path parquetFile = tempDir.resolve("merchant_month.parquet");
+
+        // Merchant ids are repeated in every month, which is where dictionary encoding of Parquet pays off
+        for (int i = 0; i < 2; i++) {
+            boolean measure = i == 1;
+            // Names are decoded from merchant ids by the writers, as aggregation step does
+            runWriter("merchant-month json", new JsonFileItemWriterBuilder<MerchantMonthBalance>()
+                    .jsonObjectMarshaller(new JacksonJsonObjectMarshaller<>(new ObjectMapper().registerModule(
+                            new SimpleModule().addSerializer(MerchantMonthBalance.class,
+                                    MerchantMonthBalance.jsonSerializer(merchants::get)))))
+                    .resource(new FileSystemResource(jsonFile))
+                    .name("jsonWriter")
+                    .build(), chunks, jsonFile, measure);
+            runWriter("merchant-month parquet", new ParquetFileItemWriter<>(new FileSystemResource(parquetFile),
+                    MerchantMonthBalance.PARQUET_SCHEMA, (balance, group) -> balance.toParquetGroup(group, merchants::get),
+                    ROW_GROUP_SIZE, "merchant"), chunks, parquetFile, measure);
+        }
+
+        Assertions.assertTrue(Files.size(parquetFile) < Files.size(jsonFile));
+    }
+
+    private static <T> void runWriter(String label, ItemStreamWriter<T> writer, List<Chunk<T>> chunks,
+                                      Path file, boolean measure) throws Exception {
+        long startTime = System.nanoTime();
+        ExecutionContext executionContext = new ExecutionContext();
+        writer.open(executionContext);
+        for (Chunk<T> chunk : chunks) {
+            writer.write(chunk);
+            writer.update(executionContext);
+        }
+        if (writer instanceof StepExecutionListener listener) {
+            // Parquet writer publishes the file on close only if the step is completed
+            StepExecution stepExecution = MetaDataInstanceFactory.createStepExecution();
+            stepExecution.setStatus(BatchStatus.COMPLETED);
+            listener.afterStep(stepExecution);
+        }
+        writer.close();
+        long elapsedMillis = (System.nanoTime() - startTime) / 1_000_000;
+
+        if (measure) {
+            System.out.println(label + ": " + ITEM_NUM * 1000L / Math.max(elapsedMillis, 1) + " items/s, "
+                    + Files.size(file) / 1024 + " KB on disk");
+        }
+    }
+
+    private static List<Chunk<DailyBalance>> generateChunks(int chunkSize) {
+        List<Chunk<DailyBalance>> chunks = new ArrayList<>(ITEM_NUM / chunkSize);
+        for (int i = 0; i < ITEM_NUM / chunkSize; i++) {
+            Chunk<DailyBalance> chunk = new Chunk<>();
+            for (int j = 0; j < chunkSize; j++) {
+                int index = i * chunkSize + j;
+                chunk.add(new DailyBalance(index % 28 + 1, index % 12 + 1, BigDecimal.valueOf(index - ITEM_NUM / 2, 2)));
+            }
+            chunks.add(chunk);
+        }
+        return chunks;
+    }
+
+    // UUID merchant names indexed by merchant id, starting from 1
+    private static List<String> generateMerchants() {
+        List<String> merchants = new ArrayList<>(MERCHANT_NUM + 1);
+        merchants.add("");
+        for (int i = 0; i < MERCHANT_NUM; i++) {
+            merchants.add(new UUID(i * 31L, i).toString());
+        }
+        return merchants;
+    }
+
+    // Merchant & month balances ordered by month, as produced by aggregation
+    private static List<Chunk<MerchantMonthBalance>> generateMerchantMonthChunks() {
+        List<Chunk<MerchantMonthBalance>> chunks = new ArrayList<>(ITEM_NUM / CHUNK_SIZE);
+        for (int i = 0; i < ITEM_NUM / CHUNK_SIZE; i++) {
+            Chunk<MerchantMonthBalance> chunk = new Chunk<>();
+            for (int j = 0; j < CHUNK_SIZE; j++) {
+                int index = i * CHUNK_SIZE + j;
+                chunk.add(new MerchantMonthBalance(index / MERCHANT_NUM + 1, index % MERCHANT_NUM + 1,
+                        BigDecimal.valueOf(index - ITEM_NUM / 2, 2)));
+            }
+            chunks.add(chunk);
+        }
+        return chunks;
+    }
+}
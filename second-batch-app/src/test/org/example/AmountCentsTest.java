@@ -0,0 +1,63 @@
+package org.example;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Random;
+
+
+// Unit test for AmountCents, proving that long cents arithmetic is exactly the same as BigDecimal one
+public class AmountCentsTest {
+
+    private static final Random RANDOM = new Random(42);
+
+    @Test
+    public void testRateMultiplyIsSameAsBigDecimal() {
+        double[] rates = {1.05, 0.5, 0.005, 1.0, 2, 0.3333, 1.23456789, 100, 1e7, -1.05};
+        for (double rate : rates) {
+            BigDecimal decimalRate = BigDecimal.valueOf(rate);
+            long rateUnscaled = decimalRate.unscaledValue().longValueExact();
+            for (int i = 0; i < 100_000; i++) {
+                // All the amounts of 'numeric(10,2)'
+                long cents = RANDOM.nextLong() % 100_000_000_00L;
+                BigDecimal expected = AmountCents.toBigDecimal(cents)
+                        .multiply(decimalRate)
+                        .setScale(2, RoundingMode.HALF_UP);
+                Assertions.assertEquals(expected,
+                        AmountCents.toBigDecimal(AmountCents.multiplyHalfUp(cents, rateUnscaled, decimalRate.scale())),
+                        "Amount " + cents + " cents, rate " + rate);
+            }
+        }
+    }
+
+    @Test
+    public void testHalfIsRoundedAwayFromZero() {
+        // 0.01 * 0.5 = 0.005 -> 0.01, and -0.01 * 0.5 = -0.005 -> -0.01
+        Assertions.assertEquals(1, AmountCents.multiplyHalfUp(1, 5, 1));
+        Assertions.assertEquals(-1, AmountCents.multiplyHalfUp(-1, 5, 1));
+        // 0.03 * 0.1 = 0.003 -> 0.00
+        Assertions.assertEquals(0, AmountCents.multiplyHalfUp(3, 1, 1));
+    }
+
+    @Test
+    public void testParseIsSameAsBigDecimal() {
+        String[] values = {"0", "0.00", "-0.01", "12.34", "-12.3", "+5", "99999999.99", "7.500", ".5"};
+        for (String value : values) {
+            Assertions.assertEquals(AmountCents.valueOf(new BigDecimal(value)), AmountCents.parse(value), value);
+        }
+        Assertions.assertThrows(ArithmeticException.class, () -> AmountCents.parse("1.005"));
+        Assertions.assertThrows(NumberFormatException.class, () -> AmountCents.parse("-"));
+        Assertions.assertThrows(NumberFormatException.class, () -> AmountCents.parse("1e5"));
+    }
+
+    @Test
+    public void testOverflowFailsInsteadOfWrapping() {
+        Assertions.assertThrows(ArithmeticException.class, () -> AmountCents.parse("92233720368547758.08"));
+        Assertions.assertThrows(ArithmeticException.class,
+                () -> AmountCents.multiplyHalfUp(Long.MAX_VALUE / 10, 105, 2));
+        Assertions.assertThrows(ArithmeticException.class,
+                () -> AmountCents.multiplyHalfUp(Long.MAX_VALUE / 10, 1, -2));
+    }
+}
@@ -0,0 +1,142 @@
+package org.example;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.Job;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.test.JobLauncherTestUtils;
+import org.springframework.batch.test.context.SpringBatchTest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import javax.sql.DataSource;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+
+/**
+ * Performance regression suite for bank transaction analysis steps, running against embedded databases.
+ * Loads generated transactions (1M by default, could be changed with 'performance.transactions' and
+ * 'performance.merchants' system properties),
+ * runs each step measuring throughput and peak heap, and compares them to the stored baselines. Throughput is measured
+ * in source transactions per second, since aggregation steps read groups rather than transactions.
+ * Test fails if throughput drops, or peak heap grows, by more than the tolerance stored along with baselines.
+ * Baselines could be re-recorded by running with 'performance.baseline.update=true' system property
+ */
+@Tag("performance")
+@SpringBatchTest
+@SpringJUnitConfig(BankTransactionAnalysisConfiguration.class)
+@TestPropertySource("classpath:embedded_db.properties") // Use embedded databases instead of Postgresql and MySQL
+public class BankTransactionAnalysisPerformanceTest {
+
+    private static final String BASELINE_RESOURCE = "test/performance_baseline.properties";
+    private static final String BASELINE_FILE = "src/res/" + BASELINE_RESOURCE;
+    private static final String TOLERANCE = "tolerance";
+
+    @Autowired
+    private JobLauncherTestUtils jobLauncherTestUtils;
+
+    @Autowired
+    @Qualifier("bankTransactionAnalysisJob")
+    private Job bankTransactionAnalysisJob;
+
+    @Autowired
+    @Qualifier("currencyAdjustmentJob")
+    private Job currencyAdjustmentJob;
+
+    @Autowired
+    @Qualifier("sourceDataSource")
+    private DataSource sourceDataSource;
+
+    @Test
+    public void testStepPerformanceAgainstBaselines() throws Exception {
+        int transactionNum = Integer.getInteger("performance.transactions", 1_000_000);
+        int merchantNum = Integer.getInteger("performance.merchants", 40);
+        SourceManagementUtils.initializeEmptyDatabase(new JdbcTemplate(sourceDataSource));
+        new BulkTransactionGenerator(transactionNum, merchantNum, 42, Runtime.getRuntime().availableProcessors())
+                .generateAndLoad(sourceDataSource);
+
+        Properties measured = new Properties();
+        // Currency adjustment changes amounts, hence it's executed the last
+        measureStep(bankTransactionAnalysisJob, "fill-balance", transactionNum, measured);
+        measureStep(bankTransactionAnalysisJob, "aggregate-by-merchant-monthly", transactionNum, measured);
+        measureStep(bankTransactionAnalysisJob, "aggregate-by-day", transactionNum, measured);
+        measureStep(currencyAdjustmentJob, "currency-adjustment", transactionNum, measured);
+
+        Properties baseline = loadBaseline();
+        if (Boolean.getBoolean("performance.baseline.update")) {
+            measured.setProperty(TOLERANCE, baseline.getProperty(TOLERANCE, "0.5"));
+            try (OutputStream output = Files.newOutputStream(Path.of(BASELINE_FILE))) {
+                measured.store(output, "Performance baselines of bank transaction analysis steps on embedded databases");
+            }
+            return;
+        }
+
+        double tolerance = Double.parseDouble(baseline.getProperty(TOLERANCE, "0.5"));
+        List<String> regressions = new ArrayList<>();
+        for (String key : measured.stringPropertyNames()) {
+            if (!baseline.containsKey(key)) {
+                continue; // No baseline recorded yet
+            }
+            double measuredValue = Double.parseDouble(measured.getProperty(key));
+            double baselineValue = Double.parseDouble(baseline.getProperty(key));
+            boolean regressed = key.endsWith(".transactionsPerSecond")
+                    ? measuredValue < baselineValue * (1 - tolerance)
+                    : measuredValue > baselineValue * (1 + tolerance);
+            if (regressed) {
+                regressions.add(key + ": measured " + measuredValue + ", baseline " + baselineValue);
+            }
+        }
+        Assertions.assertTrue(regressions.isEmpty(), "Performance regressions: " + regressions);
+    }
+
+    // Run single step, recording throughput and peak heap usage under '<step name>.' prefixed keys
+    private void measureStep(Job job, String stepName, int transactionNum, Properties measured) {
+        List<MemoryPoolMXBean> heapPools = ManagementFactory.getMemoryPoolMXBeans().stream()
+                .filter(pool -> pool.getType() == MemoryType.HEAP)
+                .toList();
+        System.gc();
+        heapPools.forEach(MemoryPoolMXBean::resetPeakUsage);
+
+        jobLauncherTestUtils.setJob(job);
+        long startTime = System.nanoTime();
+        JobExecution jobExecution = jobLauncherTestUtils.launchStep(stepName);
+        long elapsedMillis = Math.max((System.nanoTime() - startTime) / 1_000_000, 1);
+
+        Assertions.assertEquals(BatchStatus.COMPLETED, jobExecution.getStatus());
+        StepExecution stepExecution = jobExecution.getStepExecutions().iterator().next();
+        long transactionsPerSecond = transactionNum * 1000L / elapsedMillis;
+        long peakHeapMb = heapPools.stream().mapToLong(pool -> pool.getPeakUsage().getUsed()).sum() / (1024 * 1024);
+
+        System.out.println(stepName + ": " + stepExecution.getReadCount() + " items in " + elapsedMillis + " ms, "
+                + transactionsPerSecond + " transactions/s, peak heap " + peakHeapMb + " MB");
+        measured.setProperty(stepName + ".transactionsPerSecond", String.valueOf(transactionsPerSecond));
+        measured.setProperty(stepName + ".peakHeapMb", String.valueOf(peakHeapMb));
+    }
+
+    private static Properties loadBaseline() throws Exception {
+        Properties baseline = new Properties();
+        ClassPathResource resource = new ClassPathResource(BASELINE_RESOURCE);
+        if (resource.exists()) {
+            try (InputStream input = resource.getInputStream()) {
+                baseline.load(input);
+            }
+        }
+        return baseline;
+    }
+}
@@ -0,0 +1,117 @@
+package org.example;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+// Unit test for BankTransactionKeysetReader against embedded database, verifying paging, prefetch, restart and range
+public class BankTransactionKeysetReaderTest {
+
+    private DataSource dataSource;
+    // Number of queries made through the data source, and names of the threads making them
+    private final AtomicInteger queryCount = new AtomicInteger();
+    private final Set<String> queryThreads = ConcurrentHashMap.newKeySet();
+
+    @BeforeEach
+    public void createTransactions() {
+        DataSource embeddedDataSource = new DriverManagerDataSource("jdbc:h2:mem:keyset;DB_CLOSE_DELAY=-1;MODE=PostgreSQL;"
+                + "DATABASE_TO_LOWER=TRUE;NON_KEYWORDS=MONTH,DAY,HOUR,MINUTE", "sa", "");
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(embeddedDataSource);
+        SourceManagementUtils.initializeEmptyDatabase(jdbcTemplate);
+        for (int i = 1; i <= 7; i++) {
+            SourceManagementUtils.insertBankTransaction(
+                    new BankTransaction(0, 1, i, 0, 0, BigDecimal.valueOf(i), 1), jdbcTemplate);
+        }
+        dataSource = new DelegatingDataSource(embeddedDataSource) {
+            @Override
+            public Connection getConnection() throws SQLException {
+                queryCount.incrementAndGet();
+                queryThreads.add(Thread.currentThread().getName());
+                return super.getConnection();
+            }
+        };
+    }
+
+    @Test
+    public void testNextPageIsPrefetchedInBackground() throws Exception {
+        BankTransactionKeysetReader reader = new BankTransactionKeysetReader("reader", dataSource, 3);
+        reader.open(new ExecutionContext());
+
+        Assertions.assertEquals(1, reader.read().getId());
+        // Second page is queried while the first one is still being read
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (queryCount.get() < 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Assertions.assertEquals(2, queryCount.get());
+
+        Assertions.assertEquals(List.of(2L, 3L, 4L, 5L, 6L, 7L), readIds(reader));
+        reader.close();
+        // Pages of 3, 3 and 1 transactions, the last one is not full, so no more queries are made
+        Assertions.assertEquals(3, queryCount.get());
+        Assertions.assertEquals(Set.of("reader-prefetch"), queryThreads);
+    }
+
+    @Test
+    public void testRestartContinuesAfterLastReadTransaction() throws Exception {
+        BankTransactionKeysetReader reader = new BankTransactionKeysetReader("reader", dataSource, 2);
+        ExecutionContext executionContext = new ExecutionContext();
+        reader.open(executionContext);
+        reader.read();
+        reader.read();
+        reader.read();
+        reader.update(executionContext);
+        reader.close();
+        Assertions.assertEquals(3, executionContext.getLong("reader.lastId"));
+
+        BankTransactionKeysetReader restarted = new BankTransactionKeysetReader("reader", dataSource, 2);
+        restarted.open(executionContext);
+        Assertions.assertEquals(List.of(4L, 5L, 6L, 7L), readIds(restarted));
+        restarted.update(executionContext);
+        restarted.close();
+        Assertions.assertEquals(7, executionContext.getLong("reader.lastId"));
+    }
+
+    @Test
+    public void testReadIsLimitedToRangeAndCondition() throws Exception {
+        ExecutionContext executionContext = new ExecutionContext();
+        // Min id is exclusive, max id is inclusive
+        executionContext.putLong(BankTransactionKeysetReader.MIN_ID, 2);
+        executionContext.putLong(BankTransactionKeysetReader.MAX_ID, 6);
+        BankTransactionKeysetReader reader = new BankTransactionKeysetReader("reader", dataSource, 2);
+        reader.open(executionContext);
+        Assertions.assertEquals(List.of(3L, 4L, 5L, 6L), readIds(reader));
+        reader.close();
+
+        BankTransactionKeysetReader conditionalReader = new BankTransactionKeysetReader("reader", dataSource, 2);
+        conditionalReader.setWhereClause("day <> 4");
+        conditionalReader.open(executionContext);
+        Assertions.assertEquals(List.of(3L, 5L, 6L), readIds(conditionalReader));
+        conditionalReader.close();
+    }
+
+    // Ids of all the remaining transactions of the reader
+    private static List<Long> readIds(BankTransactionKeysetReader reader) throws Exception {
+        List<Long> ids = new ArrayList<>();
+        BankTransaction transaction;
+        while ((transaction = reader.read()) != null) {
+            ids.add(transaction.getId());
+        }
+        return ids;
+    }
+}
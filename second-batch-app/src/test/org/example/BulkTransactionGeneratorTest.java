@@ -0,0 +1,82 @@
+package org.example;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+
+// Unit test for BulkTransactionGenerator, checking reproducibility and chronological order of generated records
+public class BulkTransactionGeneratorTest {
+
+    private static final int RECORD_NUM = 200000;
+
+    @Test
+    public void testGenerationIsReproducibleRegardlessOfThreadCount() throws Exception {
+        long[] singleThreadRecords = new BulkTransactionGenerator(RECORD_NUM, 100, 42, 1).generate();
+        long[] multiThreadRecords = new BulkTransactionGenerator(RECORD_NUM, 100, 42, 4).generate();
+        long[] otherSeedRecords = new BulkTransactionGenerator(RECORD_NUM, 100, 43, 4).generate();
+
+        Assertions.assertArrayEquals(singleThreadRecords, multiThreadRecords);
+        Assertions.assertFalse(Arrays.equals(singleThreadRecords, otherSeedRecords));
+    }
+
+    @Test
+    public void testBlockSeedsOfNearbySeedsAreUnrelated() {
+        // Every block of every seed gets its own random, also when seeds and block indexes are shifted together
+        Set<Long> blockSeeds = new HashSet<>();
+        for (long seed = 0; seed < 100; seed++) {
+            for (int blockIndex = 0; blockIndex < 1000; blockIndex++) {
+                Assertions.assertTrue(blockSeeds.add(BulkTransactionGenerator.blockSeed(seed, blockIndex)));
+            }
+        }
+    }
+
+    @Test
+    public void testRecordsAreValidAndChronological() throws Exception {
+        BulkTransactionGenerator generator = new BulkTransactionGenerator(RECORD_NUM, 40, 7, 2);
+        long[] records = generator.generate();
+
+        BankTransaction previous = null;
+        for (int i = 0; i < records.length; i++) {
+            BankTransaction transaction = generator.toTransaction(records[i], i);
+            Assertions.assertTrue(transaction.getMonth() >= 1 && transaction.getMonth() <= 12);
+            Assertions.assertTrue(transaction.getDay() >= 1 && transaction.getDay() <= 31);
+            Assertions.assertTrue(transaction.getHour() >= 0 && transaction.getHour() < 24);
+            Assertions.assertTrue(transaction.getMinute() >= 0 && transaction.getMinute() < 60);
+            Assertions.assertTrue(transaction.getAmount().abs().compareTo(new BigDecimal("999.99")) <= 0);
+            Assertions.assertEquals(2, transaction.getAmount().scale());
+            Assertions.assertTrue(transaction.getMerchantId() >= 1 && transaction.getMerchantId() <= 40);
+
+            if (previous != null) {
+                Assertions.assertTrue(toMinuteKey(previous) <= toMinuteKey(transaction));
+            }
+            previous = transaction;
+        }
+    }
+
+    @Test
+    public void testRecordsAreSpreadAcrossAccounts() throws Exception {
+        int accountNum = 100;
+        BulkTransactionGenerator generator = new BulkTransactionGenerator(RECORD_NUM, 40, 7, 2, accountNum);
+        long[] records = generator.generate();
+
+        int[] accountRecordCounts = new int[accountNum];
+        for (int i = 0; i < records.length; i++) {
+            long accountId = generator.toTransaction(records[i], i).getAccountId();
+            Assertions.assertTrue(accountId >= 0 && accountId < accountNum);
+            accountRecordCounts[(int) accountId]++;
+        }
+        // Every account gets roughly the same share of records
+        for (int accountRecordCount : accountRecordCounts) {
+            Assertions.assertTrue(Math.abs(accountRecordCount - RECORD_NUM / accountNum) < RECORD_NUM / accountNum / 5);
+        }
+    }
+
+    private static int toMinuteKey(BankTransaction transaction) {
+        return ((transaction.getMonth() * 32 + transaction.getDay()) * 24 + transaction.getHour()) * 60 + transaction.getMinute();
+    }
+}
@@ -0,0 +1,136 @@
+package org.example;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.batch.core.StepContribution;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.repeat.RepeatStatus;
+import org.springframework.batch.test.MetaDataInstanceFactory;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import javax.sql.DataSource;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+
+// Unit test for CsvCopyIngestionTasklet against embedded database, verifying validation, batches and file tracking
+public class CsvCopyIngestionTaskletTest {
+
+    @TempDir
+    Path tempDir;
+
+    private DataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    public void createTables() {
+        dataSource = new DriverManagerDataSource("jdbc:h2:mem:ingestion;DB_CLOSE_DELAY=-1;MODE=PostgreSQL;"
+                + "DATABASE_TO_LOWER=TRUE;NON_KEYWORDS=MONTH,DAY,HOUR,MINUTE", "sa", "");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        SourceManagementUtils.initializeEmptyDatabase(jdbcTemplate);
+        jdbcTemplate.update("drop table if exists ingested_file");
+        SourceManagementUtils.createIngestedFileTable(jdbcTemplate);
+    }
+
+    @Test
+    public void testInvalidRowsAreRejected() {
+        Assertions.assertNotNull(CsvCopyIngestionTasklet.parse("2,28,23,59,-12.30,merchant"));
+        Assertions.assertNotNull(CsvCopyIngestionTasklet.parse(" 12 , 31 , 0 , 0 , 99999999.99 , merchant , 7 "));
+        Assertions.assertNull(CsvCopyIngestionTasklet.parse("13,1,0,0,1.00,merchant"));
+        Assertions.assertNull(CsvCopyIngestionTasklet.parse("4,31,0,0,1.00,merchant"));
+        Assertions.assertNull(CsvCopyIngestionTasklet.parse("1,1,24,0,1.00,merchant"));
+        Assertions.assertNull(CsvCopyIngestionTasklet.parse("1,1,0,0,1.005,merchant"));
+        Assertions.assertNull(CsvCopyIngestionTasklet.parse("1,1,0,0,100000000.00,merchant"));
+        Assertions.assertNull(CsvCopyIngestionTasklet.parse("1,1,0,0,1.00,"));
+        Assertions.assertNull(CsvCopyIngestionTasklet.parse("1,1,0,0,1.00,merchant,-1"));
+        Assertions.assertNull(CsvCopyIngestionTasklet.parse("1,1,0,0,1.00"));
+    }
+
+    @Test
+    public void testFileIsIngestedInBatchesAndSkippedOnRerun() throws Exception {
+        Path file = writeFile("transactions-01.csv", "month,day,hour,minute,amount,merchant,account_id",
+                "1,1,0,0,1.00,a,1", "1,1,0,1,-2.00,b", "1,2,3,4,x,c", "1,3,0,0,3.50,a,2", "1,4,0,0,4.00,b,1");
+
+        Assertions.assertEquals(3, runUntilFinished(newTasklet(file, 1)));
+        Assertions.assertEquals(4, countTransactions());
+        Assertions.assertEquals(List.of(5L, 1L, true), getProgress(file));
+        Assertions.assertEquals(1, jdbcTemplate.queryForObject(
+                "select count(*) from bank_transaction_yearly where amount = 3.50 and merchant_id = (select id from merchant where name = 'a') and account_id = 2",
+                Long.class));
+
+        // Completed file is not read again
+        Assertions.assertEquals(1, runUntilFinished(newTasklet(file, 1)));
+        Assertions.assertEquals(4, countTransactions());
+    }
+
+    @Test
+    public void testFailedFileContinuesAfterLastCommittedBatch() throws Exception {
+        Path file = writeFile("transactions-02.csv", "month,day,hour,minute,amount,merchant",
+                "1,1,0,0,1.00,a", "1,1,0,1,2.00,b", "1,2,3,4,x,c", "1,3,0,0,3.00,a");
+
+        // Invalid row is not allowed, so the second batch fails without loading anything
+        CsvCopyIngestionTasklet tasklet = newTasklet(file, 0);
+        Assertions.assertThrows(IllegalStateException.class, () -> runUntilFinished(tasklet));
+        Assertions.assertEquals(2, countTransactions());
+        Assertions.assertEquals(List.of(2L, 0L, false), getProgress(file));
+
+        // Rerun with the invalid row allowed continues from the third line
+        Assertions.assertEquals(2, runUntilFinished(newTasklet(file, 1)));
+        Assertions.assertEquals(3, countTransactions());
+        Assertions.assertEquals(List.of(4L, 1L, true), getProgress(file));
+    }
+
+    @Test
+    public void testSameNamedFilesOfDifferentDirectoriesAreTrackedSeparately() throws Exception {
+        Path file = writeFile("transactions-03.csv", "month,day,hour,minute,amount,merchant",
+                "1,1,0,0,1.00,a", "1,1,0,1,2.00,b");
+        Files.createDirectory(tempDir.resolve("other"));
+        Path otherFile = writeFile("other/transactions-03.csv", "month,day,hour,minute,amount,merchant",
+                "2,1,0,0,3.00,a", "2,1,0,1,4.00,b", "2,2,0,0,5.00,c");
+
+        runUntilFinished(newTasklet(file, 0));
+        // Completed file of another directory doesn't make this one skipped
+        Assertions.assertEquals(2, runUntilFinished(newTasklet(otherFile, 0)));
+        Assertions.assertEquals(5, countTransactions());
+        Assertions.assertEquals(List.of(2L, 0L, true), getProgress(file));
+        Assertions.assertEquals(List.of(3L, 0L, true), getProgress(otherFile));
+    }
+
+    private CsvCopyIngestionTasklet newTasklet(Path file, long maxRejectedRows) {
+        return new CsvCopyIngestionTasklet(new FileSystemResource(file), dataSource, 2, true, maxRejectedRows);
+    }
+
+    // Execute tasklet the same way as the step does, returning number of executions
+    private static int runUntilFinished(CsvCopyIngestionTasklet tasklet) throws Exception {
+        StepExecution stepExecution = MetaDataInstanceFactory.createStepExecution();
+        int executions = 0;
+        try {
+            RepeatStatus status;
+            do {
+                status = tasklet.execute(new StepContribution(stepExecution), null);
+                executions++;
+            } while (status.isContinuable());
+        } finally {
+            tasklet.afterStep(stepExecution);
+        }
+        return executions;
+    }
+
+    private Path writeFile(String name, String... lines) throws Exception {
+        return Files.write(tempDir.resolve(name), List.of(lines));
+    }
+
+    private long countTransactions() {
+        return jdbcTemplate.queryForObject("select count(*) from bank_transaction_yearly", Long.class);
+    }
+
+    private List<Object> getProgress(Path file) {
+        return jdbcTemplate.queryForObject("select lines, rejected, completed from ingested_file where name = ?",
+                (rs, rowNum) -> List.of(rs.getLong(1), rs.getLong(2), rs.getBoolean(3)), file.toUri().toString());
+    }
+}
@@ -53,7 +53,7 @@ public class CurrencyAdjustmentJobTest {
     @Test
     public void testCurrencyAdjustmentJob() throws Exception {
         Random random = new Random();
-        String[] merchants = new String[] {UUID.randomUUID().toString()};
+        int[] merchants = new int[] {new MerchantDictionary(jdbcTemplate.getDataSource()).getId(UUID.randomUUID().toString())};
 
         BankTransaction[] generatedTransactions = new BankTransaction[] {
                 GenerateSourceDatabase.generateRecord(random, merchants),
@@ -0,0 +1,114 @@
+package org.example;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+
+
+// Unit test for daily balance checkpoints against embedded database, verifying rebuild, missing checkpoints and
+// point-in-time balance
+public class DailyBalanceCheckpointTest {
+
+    private DataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    public void createTransactions() {
+        dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:checkpoints;DB_CLOSE_DELAY=-1;MODE=PostgreSQL;NON_KEYWORDS=MONTH,DAY,HOUR,MINUTE", "sa", "");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        SourceManagementUtils.initializeEmptyDatabase(jdbcTemplate);
+        SourceManagementUtils.addBalanceColumn(dataSource);
+        SourceManagementUtils.createDailyBalanceCheckpointTable(jdbcTemplate);
+        // Last transaction of 1st of January is inserted before the earlier one of the same day
+        insert(1, 1, 18, 0, "5.00", "5.00");
+        insert(1, 1, 9, 30, "10.00", "15.00");
+        insert(1, 2, 12, 0, "-3.00", "12.00");
+        insert(2, 1, 8, 0, "1.00", "13.00");
+        insert(2, 1, 20, 15, "2.00", "15.00");
+    }
+
+    @Test
+    public void testCheckpointIsSumOfAmountsUpToTheDay() {
+        SourceManagementUtils.refreshDailyBalanceCheckpoints(dataSource, 1, 1, 12);
+
+        // Balances are filled in the order of ids, yet checkpoints don't depend on it
+        Assertions.assertEquals(3, count());
+        assertBalance("15.00", SourceManagementUtils.getCheckpointBalanceBefore(jdbcTemplate, 1, 2));
+        assertBalance("12.00", SourceManagementUtils.getCheckpointBalanceBefore(jdbcTemplate, 2, 1));
+        assertBalance("15.00", SourceManagementUtils.getCheckpointBalanceBefore(jdbcTemplate, 13, 1));
+        // No transactions before the first day
+        assertBalance("0", SourceManagementUtils.getCheckpointBalanceBefore(jdbcTemplate, 1, 1));
+    }
+
+    @Test
+    public void testOnlyDaysFromSpecifiedOneAreRebuilt() {
+        SourceManagementUtils.refreshDailyBalanceCheckpoints(dataSource, 1, 1, 12);
+        jdbcTemplate.update("update bank_transaction_yearly set amount = amount + 1");
+
+        // Rebuilt days continue from the checkpoint of the 1st of January, which is kept
+        SourceManagementUtils.refreshDailyBalanceCheckpoints(dataSource, 1, 2, 12);
+
+        assertBalance("15.00", SourceManagementUtils.getCheckpointBalanceBefore(jdbcTemplate, 1, 2));
+        assertBalance("13.00", SourceManagementUtils.getCheckpointBalanceBefore(jdbcTemplate, 2, 1));
+        assertBalance("18.00", SourceManagementUtils.getCheckpointBalanceBefore(jdbcTemplate, 13, 1));
+        Assertions.assertEquals(3, count());
+    }
+
+    @Test
+    public void testMissingCheckpointIsNotTakenForZero() {
+        // Range of months starting after the days without checkpoints sums their amounts up
+        SourceManagementUtils.refreshDailyBalanceCheckpoints(dataSource, 2, 1, 12);
+        Assertions.assertEquals(1, count());
+        assertBalance("15.00", SourceManagementUtils.getCheckpointBalanceBefore(jdbcTemplate, 13, 1));
+
+        // Transactions of the 2nd of January have no checkpoint
+        Assertions.assertThrows(IllegalStateException.class,
+                () -> SourceManagementUtils.getCheckpointBalanceBefore(jdbcTemplate, 1, 3));
+        Assertions.assertThrows(IllegalStateException.class,
+                () -> SourceManagementUtils.getBalanceAt(jdbcTemplate, 2, 1, 8, 0));
+    }
+
+    @Test
+    public void testBalanceAtPointInTime() {
+        SourceManagementUtils.refreshDailyBalanceCheckpoints(dataSource, 1, 1, 12);
+
+        assertBalance("0", SourceManagementUtils.getBalanceAt(jdbcTemplate, 1, 1, 9, 29));
+        assertBalance("10.00", SourceManagementUtils.getBalanceAt(jdbcTemplate, 1, 1, 9, 30));
+        assertBalance("15.00", SourceManagementUtils.getBalanceAt(jdbcTemplate, 1, 1, 23, 59));
+        assertBalance("12.00", SourceManagementUtils.getBalanceAt(jdbcTemplate, 1, 2, 12, 0));
+        assertBalance("13.00", SourceManagementUtils.getBalanceAt(jdbcTemplate, 2, 1, 20, 14));
+        // Day without transactions keeps the closing balance of the preceding day
+        assertBalance("12.00", SourceManagementUtils.getBalanceAt(jdbcTemplate, 1, 20, 12, 0));
+    }
+
+    @Test
+    public void testEarliestDayWithoutBalance() {
+        Assertions.assertNull(SourceManagementUtils.getEarliestDayWithoutBalance(jdbcTemplate));
+
+        // Backdated correction is appended after later transactions
+        insert(1, 2, 6, 0, "4.00", null);
+        Assertions.assertArrayEquals(new int[]{1, 2}, SourceManagementUtils.getEarliestDayWithoutBalance(jdbcTemplate));
+    }
+
+    private void insert(int month, int day, int hour, int minute, String amount, String balance) {
+        jdbcTemplate.update("insert into bank_transaction_yearly (month, day, hour, minute, amount, merchant_id, balance) " +
+                "values (?, ?, ?, ?, ?, 1, ?)", month, day, hour, minute, new BigDecimal(amount),
+                balance == null ? null : new BigDecimal(balance));
+    }
+
+    private long count() {
+        Long count = jdbcTemplate.queryForObject("select count(*) from daily_balance_checkpoint", Long.class);
+        return count == null ? 0 : count;
+    }
+
+    private static void assertBalance(String expected, BigDecimal balance) {
+        Assertions.assertEquals(0, new BigDecimal(expected).compareTo(balance),
+                "Expected " + expected + ", but was " + balance);
+    }
+}
@@ -0,0 +1,89 @@
+package org.example;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Random;
+
+
+// Performance comparison of per-row rate lookups with JDBC and cached rates preloaded per chunk by ExchangeRateProvider
+@Tag("performance")
+public class ExchangeRateProviderBenchmarkTest {
+
+    private static final int TRANSACTION_NUM = Integer.getInteger("performance.rates.transactions", 200_000);
+    private static final int MERCHANT_NUM = 1000;
+    private static final int CHUNK_SIZE = 1000;
+    private static final BigDecimal DEFAULT_RATE = new BigDecimal("1.05");
+
+    @Test
+    public void benchmarkRateLookups() {
+        SingleConnectionDataSource dataSource = new SingleConnectionDataSource(
+                "jdbc:h2:mem:ratesbenchmark;DB_CLOSE_DELAY=-1;NON_KEYWORDS=MONTH,DAY", "sa", "", true);
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        SourceManagementUtils.createExchangeRateTable(jdbcTemplate, "exchange_rate");
+        // Every merchant has the rate for every day, except for the 29th-31st, which get the default rate
+        jdbcTemplate.update("insert into exchange_rate select 'merchant-' || m.x, mo.x, d.x, "
+                + "1 + mod(m.x * 31 + mo.x * 7 + d.x, 100) / 1000.0 "
+                + "from system_range(1, " + MERCHANT_NUM + ") m, system_range(1, 12) mo, system_range(1, 28) d");
+
+        // Transactions are chronological, with random merchants, as in the source table
+        Random random = new Random(42);
+        String[] merchants = new String[TRANSACTION_NUM];
+        int[] months = new int[TRANSACTION_NUM];
+        int[] days = new int[TRANSACTION_NUM];
+        for (int i = 0; i < TRANSACTION_NUM; i++) {
+            merchants[i] = "merchant-" + (random.nextInt(MERCHANT_NUM) + 1);
+            months[i] = i * 12 / TRANSACTION_NUM + 1;
+            days[i] = (int) ((long) i * 12 * 31 / TRANSACTION_NUM % 31) + 1;
+        }
+
+        // Warm-up run for each lookup, so that JIT compilation does not affect the measured run
+        for (int run = 0; run < 2; run++) {
+            boolean measure = run == 1;
+
+            long startTime = System.nanoTime();
+            BigDecimal perRowSum = BigDecimal.ZERO;
+            for (int i = 0; i < TRANSACTION_NUM; i++) {
+                List<BigDecimal> rates = jdbcTemplate.queryForList(
+                        "select rate from exchange_rate where merchant = ? and month = ? and day = ?",
+                        BigDecimal.class, merchants[i], months[i], days[i]);
+                perRowSum = perRowSum.add(rates.isEmpty() ? DEFAULT_RATE : rates.get(0));
+            }
+            report("per-row", startTime, measure, TRANSACTION_NUM);
+
+            startTime = System.nanoTime();
+            ExchangeRateProvider provider = new ExchangeRateProvider(dataSource, "exchange_rate", 10_000, DEFAULT_RATE);
+            BigDecimal cachedSum = BigDecimal.ZERO;
+            for (int from = 0; from < TRANSACTION_NUM; from += CHUNK_SIZE) {
+                int to = Math.min(from + CHUNK_SIZE, TRANSACTION_NUM);
+                // Same order of calls as in the step: every item is read, then every item is processed
+                for (int i = from; i < to; i++) {
+                    provider.require(merchants[i], months[i]);
+                }
+                for (int i = from; i < to; i++) {
+                    cachedSum = cachedSum.add(provider.getRate(merchants[i], months[i], days[i]));
+                }
+            }
+            report("cached", startTime, measure, provider.getQueryCount());
+            if (measure) {
+                System.out.println("cache hits: " + provider.getHitCount() + ", misses: " + provider.getMissCount());
+            }
+
+            Assertions.assertEquals(0, perRowSum.compareTo(cachedSum));
+        }
+        dataSource.destroy();
+    }
+
+    private static void report(String label, long startTime, boolean measure, long queryCount) {
+        long elapsedMillis = (System.nanoTime() - startTime) / 1_000_000;
+        if (measure) {
+            System.out.println(label + ": " + TRANSACTION_NUM * 1000L / Math.max(elapsedMillis, 1)
+                    + " transactions/s, " + queryCount + " queries");
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package org.example;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+
+
+// Unit test for ExchangeRateProvider against embedded database, verifying bulk loading, fallback rate and eviction
+public class ExchangeRateProviderTest {
+
+    private static final BigDecimal DEFAULT_RATE = new BigDecimal("1.05");
+
+    private DataSource dataSource;
+
+    @BeforeEach
+    public void createRates() {
+        dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:rates;DB_CLOSE_DELAY=-1;NON_KEYWORDS=MONTH,DAY", "sa", "");
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.update("drop table if exists exchange_rate");
+        SourceManagementUtils.createExchangeRateTable(jdbcTemplate, "exchange_rate");
+        jdbcTemplate.update("insert into exchange_rate values ('a', 1, 1, 1.1), ('a', 1, 31, 1.2), ('b', 1, 1, 0.9), "
+                + "('b', 2, 1, 0.8), ('c', 3, 15, 2.5)");
+    }
+
+    @Test
+    public void testRatesOfChunkAreLoadedWithSingleQuery() {
+        ExchangeRateProvider provider = new ExchangeRateProvider(dataSource, "exchange_rate", 100, DEFAULT_RATE);
+        provider.require("a", 1);
+        provider.require("b", 1);
+        provider.require("a", 1);
+        provider.require("d", 1);
+
+        assertRate("1.1", provider.getRate("a", 1, 1));
+        assertRate("1.2", provider.getRate("a", 1, 31));
+        assertRate("0.9", provider.getRate("b", 1, 1));
+        // Merchant or day without a rate in the table gets the default rate
+        assertRate("1.05", provider.getRate("a", 1, 2));
+        assertRate("1.05", provider.getRate("d", 1, 1));
+        Assertions.assertEquals(1, provider.getQueryCount());
+        Assertions.assertEquals(1, provider.getHitCount());
+        Assertions.assertEquals(3, provider.getMissCount());
+
+        // Next chunk requires already cached rates only, so no query is made
+        provider.require("b", 1);
+        assertRate("0.9", provider.getRate("b", 1, 1));
+        Assertions.assertEquals(1, provider.getQueryCount());
+        Assertions.assertEquals(2, provider.getHitCount());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedRatesAreEvicted() {
+        ExchangeRateProvider provider = new ExchangeRateProvider(dataSource, "exchange_rate", 2, DEFAULT_RATE);
+        // Merchants & months of different months are loaded with separate queries
+        provider.require("a", 1);
+        provider.require("b", 2);
+        assertRate("1.1", provider.getRate("a", 1, 1));
+        assertRate("0.8", provider.getRate("b", 2, 1));
+
+        // Loading the third merchant & month evicts the least recently used one
+        provider.require("c", 3);
+        assertRate("2.5", provider.getRate("c", 3, 15));
+        provider.require("b", 2);
+        provider.require("a", 1);
+        Assertions.assertEquals(1, provider.getHitCount());
+        Assertions.assertEquals(4, provider.getMissCount());
+        assertRate("1.1", provider.getRate("a", 1, 1));
+        Assertions.assertEquals(4, provider.getQueryCount());
+
+        // Other days of the cached month need no query, and rate which was not required is still loaded, on its own
+        assertRate("1.2", provider.getRate("a", 1, 31));
+        assertRate("1.05", provider.getRate("e", 5, 5));
+        Assertions.assertEquals(5, provider.getQueryCount());
+        Assertions.assertEquals(5, provider.getMissCount());
+    }
+
+    @Test
+    public void testCacheSizeShouldBePositive() {
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> new ExchangeRateProvider(dataSource, "exchange_rate", 0, DEFAULT_RATE));
+        // Single entry is enough, since rate which is not cached is loaded on its own
+        ExchangeRateProvider provider = new ExchangeRateProvider(dataSource, "exchange_rate", 1, DEFAULT_RATE);
+        provider.require("a", 1);
+        provider.require("b", 1);
+        assertRate("1.1", provider.getRate("a", 1, 1));
+        assertRate("0.9", provider.getRate("b", 1, 1));
+    }
+
+    private static void assertRate(String expected, BigDecimal rate) {
+        Assertions.assertEquals(0, new BigDecimal(expected).compareTo(rate), "Expected " + expected + ", but was " + rate);
+    }
+}
@@ -0,0 +1,109 @@
+package org.example;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.support.ListItemReader;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+
+// Unit test for ExternalSortTransactionReader, verifying chronological order across spilled runs and restart
+public class ExternalSortTransactionReaderTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testTransactionsAreReadChronologically() throws Exception {
+        List<BankTransaction> transactions = generateShuffledTransactions(100);
+        ExternalSortTransactionReader reader = new ExternalSortTransactionReader("sortedReader",
+                new ListItemReader<>(transactions), 7, tempDir);
+        reader.open(new ExecutionContext());
+
+        List<BankTransaction> sorted = readAll(reader);
+        reader.update(new ExecutionContext());
+        reader.close();
+
+        List<BankTransaction> expected = new ArrayList<>(transactions);
+        expected.sort(ExternalSortTransactionReader.CHRONOLOGICAL_ORDER);
+        assertSameTransactions(expected, sorted);
+        // 100 transactions with 7 per run were spilled, and all the runs are removed once everything is read
+        try (Stream<Path> runFiles = Files.list(tempDir)) {
+            Assertions.assertEquals(0, runFiles.count());
+        }
+    }
+
+    @Test
+    public void testRestartContinuesFromSavedRunsWithoutReadingDelegate() throws Exception {
+        List<BankTransaction> transactions = generateShuffledTransactions(50);
+        ExecutionContext executionContext = new ExecutionContext();
+
+        // First run: 20 transactions are read and committed, then 5 more are read before failure
+        ExternalSortTransactionReader reader = new ExternalSortTransactionReader("sortedReader",
+                new ListItemReader<>(transactions), 8, tempDir);
+        reader.open(executionContext);
+        List<BankTransaction> read = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            read.add(reader.read());
+        }
+        reader.update(executionContext);
+        for (int i = 0; i < 5; i++) {
+            reader.read();
+        }
+        reader.close();
+
+        // Restart: runs are reused, delegate must not be read again
+        reader = new ExternalSortTransactionReader("sortedReader", () -> {
+            throw new IllegalStateException("Delegate should not be read on restart");
+        }, 8, tempDir);
+        reader.open(executionContext);
+        read.addAll(readAll(reader));
+        reader.close();
+
+        List<BankTransaction> expected = new ArrayList<>(transactions);
+        expected.sort(ExternalSortTransactionReader.CHRONOLOGICAL_ORDER);
+        assertSameTransactions(expected, read);
+    }
+
+    private static List<BankTransaction> readAll(ExternalSortTransactionReader reader) throws Exception {
+        List<BankTransaction> read = new ArrayList<>();
+        BankTransaction transaction;
+        while ((transaction = reader.read()) != null) {
+            read.add(transaction);
+        }
+        return read;
+    }
+
+    // Transactions with few distinct times (to have ties broken by id), and ids not following the time order
+    private static List<BankTransaction> generateShuffledTransactions(int count) {
+        Random random = new Random(7);
+        List<BankTransaction> transactions = new ArrayList<>();
+        for (int i = 1; i <= count; i++) {
+            transactions.add(new BankTransaction(i, random.nextInt(3) + 1, random.nextInt(3) + 1,
+                    random.nextInt(2), random.nextInt(2), BigDecimal.valueOf(random.nextInt(200001) - 100000, 2),
+                    random.nextInt(5) + 1));
+        }
+        Collections.shuffle(transactions, random);
+        return transactions;
+    }
+
+    private static void assertSameTransactions(List<BankTransaction> expected, List<BankTransaction> actual) {
+        Assertions.assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            Assertions.assertEquals(expected.get(i).getId(), actual.get(i).getId());
+            Assertions.assertEquals(expected.get(i).getMonth(), actual.get(i).getMonth());
+            Assertions.assertEquals(expected.get(i).getMinute(), actual.get(i).getMinute());
+            Assertions.assertEquals(expected.get(i).getAmount(), actual.get(i).getAmount());
+            Assertions.assertEquals(expected.get(i).getMerchantId(), actual.get(i).getMerchantId());
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package org.example;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.Job;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.test.JobLauncherTestUtils;
+import org.springframework.batch.test.context.SpringBatchTest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.UUID;
+
+
+// Job test for the step rebuilding daily balance checkpoints after balance is recomputed, verifying that its failure
+// fails the job, and that checkpoints left stale are rebuilt by the next run, even though no balance is missing then
+@SpringBatchTest
+@SpringJUnitConfig(BankTransactionAnalysisConfiguration.class)
+@TestPropertySource(locations = "classpath:embedded_db.properties", properties = {
+        "db.src.url=jdbc:h2:mem:completion;DB_CLOSE_DELAY=-1;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;" +
+                "DEFAULT_NULL_ORDERING=HIGH;NON_KEYWORDS=MONTH,DAY,HOUR,MINUTE",
+        "fill.balance.recompute=true"})
+public class FillBalanceCompletionStepTest {
+
+    @Autowired
+    private JobLauncherTestUtils jobLauncherTestUtils;
+
+    @Autowired
+    @Qualifier("bankTransactionAnalysisJob")
+    private Job bankTransactionAnalysisJob;
+
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public void setDataSource(@Qualifier("sourceDataSource") DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    @BeforeEach
+    public void initDatabase() {
+        SourceManagementUtils.initializeEmptyDatabase(jdbcTemplate);
+        int merchantId = new MerchantDictionary(jdbcTemplate.getDataSource()).getId(UUID.randomUUID().toString());
+        SourceManagementUtils.insertBankTransaction(
+                new BankTransaction(0, 1, 1, 9, 30, new BigDecimal("10.00"), merchantId), jdbcTemplate);
+        SourceManagementUtils.insertBankTransaction(
+                new BankTransaction(0, 1, 2, 12, 0, new BigDecimal("-3.00"), merchantId), jdbcTemplate);
+        SourceManagementUtils.insertBankTransaction(
+                new BankTransaction(0, 2, 1, 8, 0, new BigDecimal("1.00"), merchantId), jdbcTemplate);
+        jobLauncherTestUtils.setJob(bankTransactionAnalysisJob);
+    }
+
+    @AfterEach
+    public void removeOutput() throws Exception {
+        Files.deleteIfExists(Path.of("merchant_month.json"));
+        Files.deleteIfExists(Path.of("daily_balance.json"));
+    }
+
+    @Test
+    public void testFailedCheckpointRebuildIsDoneByNextRun() throws Exception {
+        // Checkpoints of February could not be saved, while balances are filled
+        jdbcTemplate.update("create table daily_balance_checkpoint (month int not null check (month < 2), " +
+                "day int not null, balance numeric(10,2) not null, primary key (month, day))");
+        JobExecution failedExecution = jobLauncherTestUtils.launchJob();
+        Assertions.assertEquals(BatchStatus.FAILED, failedExecution.getStatus());
+        Assertions.assertEquals(List.of("fill-balance", "fill-balance-completion"), getStepNames(failedExecution));
+        Assertions.assertEquals(0, jdbcTemplate.queryForObject(
+                "select count(*) from bank_transaction_yearly where balance is null", Long.class));
+        Assertions.assertArrayEquals(new int[]{1, 1}, SourceManagementUtils.getEarliestStaleCheckpointDay(jdbcTemplate));
+
+        // Next run finds no transaction without balance, yet rebuilds checkpoints from the stale day on
+        jdbcTemplate.update("drop table daily_balance_checkpoint");
+        JobExecution jobExecution = jobLauncherTestUtils.launchJob();
+        Assertions.assertEquals(BatchStatus.COMPLETED, jobExecution.getStatus());
+        Assertions.assertEquals(List.of("fill-balance", "fill-balance-completion", "aggregate-by-merchant-monthly"),
+                getStepNames(jobExecution));
+        Assertions.assertNull(SourceManagementUtils.getEarliestStaleCheckpointDay(jdbcTemplate));
+        Assertions.assertEquals(0, new BigDecimal("7.00").compareTo(
+                SourceManagementUtils.getCheckpointBalanceBefore(jdbcTemplate, 2, 1)));
+        Assertions.assertEquals(0, new BigDecimal("8.00").compareTo(
+                SourceManagementUtils.getCheckpointBalanceBefore(jdbcTemplate, 13, 1)));
+    }
+
+    private static List<String> getStepNames(JobExecution jobExecution) {
+        return jobExecution.getStepExecutions().stream().map(StepExecution::getStepName).toList();
+    }
+}
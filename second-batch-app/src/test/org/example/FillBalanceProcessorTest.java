@@ -10,7 +10,6 @@ import org.springframework.batch.test.MetaDataInstanceFactory;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.util.Random;
-import java.util.UUID;
 
 
 // Unit test for FillBalanceProcessor with mocking implemented using both Spring Batch and Mockito
@@ -33,7 +32,9 @@ public class FillBalanceProcessorTest {
 
         BigDecimal transactionAmount = BigDecimal.valueOf(RANDOM.nextDouble());
         processor.process(new BankTransaction(1, 1, 1, 1, 1,
-                          transactionAmount, UUID.randomUUID().toString()));
+                          transactionAmount, 1));
+        // Balance is put into the context when it's saved
+        processor.update(executionContext);
 
         Assertions.assertEquals(stepExecution.getExecutionContext()
                                         .getDouble(FillBalanceProcessor.BALANCE_SO_FAR),
@@ -59,7 +60,9 @@ public class FillBalanceProcessorTest {
 
         BigDecimal transactionAmount = BigDecimal.valueOf(RANDOM.nextDouble());
         processor.process(new BankTransaction(1, 1, 1, 1, 1,
-                transactionAmount, UUID.randomUUID().toString()));
+                transactionAmount, 1));
+        // Balance is put into the context when it's saved
+        processor.update(executionContext);
 
         Assertions.assertEquals(stepExecution.getExecutionContext()
                         .getDouble(FillBalanceProcessor.BALANCE_SO_FAR),
@@ -70,6 +73,66 @@ public class FillBalanceProcessorTest {
                 0.01);
     }
 
+    @Test
+    public void testProcessorResumesFromExactBalance() throws Exception {
+        StepExecution stepExecution = MetaDataInstanceFactory.createStepExecution();
+        FillBalanceProcessor processor = new FillBalanceProcessor();
+        processor.setStepExecution(stepExecution);
+
+        // Balance which can not be represented exactly as double
+        processor.resumeFrom(41, new BigDecimal("12345678.91"));
+        BalanceUpdate balanceUpdate = processor.process(new BankTransaction(42, 1, 1, 1, 1,
+                new BigDecimal("0.10"), 1));
+
+        Assertions.assertEquals(42, balanceUpdate.getId());
+        Assertions.assertEquals(new BigDecimal("12345679.01"), balanceUpdate.getBalance());
+        Assertions.assertEquals(new BigDecimal("12345679.01"), processor.getLatestExactBalance());
+        Assertions.assertEquals(42, processor.getLastTransactionId(0));
+    }
+
+    @Test
+    public void testBalanceIsPublishedOnUpdateOnly() throws Exception {
+        StepExecution stepExecution = MetaDataInstanceFactory.createStepExecution();
+        FillBalanceProcessor processor = new FillBalanceProcessor(true);
+        processor.setStepExecution(stepExecution);
+
+        processor.process(new BankTransaction(1, 1, 1, 1, 1, 150L, 1));
+        processor.process(new BankTransaction(2, 1, 1, 1, 1, -25L, 1));
+        Assertions.assertTrue(stepExecution.getExecutionContext().isEmpty());
+
+        processor.update(stepExecution.getExecutionContext());
+        Assertions.assertEquals(125, stepExecution.getExecutionContext().getLong(FillBalanceProcessor.BALANCE_SO_FAR_CENTS));
+        Assertions.assertEquals(2, stepExecution.getExecutionContext().getLong(FillBalanceProcessor.LAST_TRANSACTION_ID));
+
+        // Restarted processor continues from the saved context
+        FillBalanceProcessor restarted = new FillBalanceProcessor(true);
+        restarted.setStepExecution(stepExecution);
+        Assertions.assertEquals(2, restarted.getLastTransactionId(0));
+        Assertions.assertEquals(new BigDecimal("2.00"), restarted.process(new BankTransaction(3, 1, 1, 1, 1, 75L, 1)).getBalance());
+    }
+
+    @Test
+    public void testCentsModeIsSameAsDecimalMode() throws Exception {
+        FillBalanceProcessor decimalProcessor = new FillBalanceProcessor();
+        decimalProcessor.setStepExecution(MetaDataInstanceFactory.createStepExecution());
+        FillBalanceProcessor centsProcessor = new FillBalanceProcessor(true);
+        centsProcessor.setStepExecution(MetaDataInstanceFactory.createStepExecution());
+
+        decimalProcessor.resumeFrom(0, new BigDecimal("12345678.91"));
+        centsProcessor.resumeFrom(0, new BigDecimal("12345678.91"));
+        for (int id = 1; id <= 10_000; id++) {
+            long amountCents = RANDOM.nextInt(200_001) - 100_000;
+            BalanceUpdate decimalUpdate = decimalProcessor.process(new BankTransaction(id, 1, 1, 1, 1,
+                    BigDecimal.valueOf(amountCents, 2), 1));
+            BalanceUpdate centsUpdate = centsProcessor.process(new BankTransaction(id, 1, 1, 1, 1,
+                    amountCents, 1));
+            Assertions.assertEquals(decimalUpdate.getBalance(), centsUpdate.getBalance());
+        }
+        Assertions.assertEquals(decimalProcessor.getLatestExactBalance(), centsProcessor.getLatestExactBalance());
+        Assertions.assertEquals(decimalProcessor.getLatestTransactionBalance(),
+                centsProcessor.getLatestTransactionBalance(), 0.001);
+    }
+
     // Initializes the context with balance-so-far value
     private ExecutionContext initExecutionContext(double value) {
         ExecutionContext context = new ExecutionContext();
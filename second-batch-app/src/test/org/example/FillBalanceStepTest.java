@@ -56,8 +56,9 @@ public class FillBalanceStepTest {
         List<BankTransaction> generatedTransactions = new ArrayList<>(transactionCount);
 
         // Generate test bank transactions
+        int[] merchantIds = new int[] {new MerchantDictionary(jdbcTemplate.getDataSource()).getId(UUID.randomUUID().toString())};
         for (int i = 0; i < transactionCount; i++) {
-            generatedTransactions.add(GenerateSourceDatabase.generateRecord(random, new String[] {UUID.randomUUID().toString()}));
+            generatedTransactions.add(GenerateSourceDatabase.generateRecord(random, merchantIds));
         }
 
         // Insert test bank transactions
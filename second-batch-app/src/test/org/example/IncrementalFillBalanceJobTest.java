@@ -0,0 +1,110 @@
+package org.example;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.Job;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.test.JobLauncherTestUtils;
+import org.springframework.batch.test.context.SpringBatchTest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.UUID;
+
+
+// Job test for incremental mode, verifying that high-water mark is advanced by the step following fill balance step,
+// that failure to advance it fails the job, and that the next run processes the transactions again from the previous one
+@SpringBatchTest
+@SpringJUnitConfig(BankTransactionAnalysisConfiguration.class)
+@TestPropertySource(locations = "classpath:embedded_db.properties", properties = {
+        "db.src.url=jdbc:h2:mem:incremental;DB_CLOSE_DELAY=-1;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;" +
+                "DEFAULT_NULL_ORDERING=HIGH;NON_KEYWORDS=MONTH,DAY,HOUR,MINUTE",
+        "fill.balance.incremental=true"})
+public class IncrementalFillBalanceJobTest {
+
+    @Autowired
+    private JobLauncherTestUtils jobLauncherTestUtils;
+
+    @Autowired
+    @Qualifier("bankTransactionAnalysisJob")
+    private Job bankTransactionAnalysisJob;
+
+    private JdbcTemplate jdbcTemplate;
+
+    private int merchantId;
+
+    @Autowired
+    public void setDataSource(@Qualifier("sourceDataSource") DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    @BeforeEach
+    public void initDatabase() {
+        SourceManagementUtils.initializeEmptyDatabase(jdbcTemplate);
+        merchantId = new MerchantDictionary(jdbcTemplate.getDataSource()).getId(UUID.randomUUID().toString());
+        jobLauncherTestUtils.setJob(bankTransactionAnalysisJob);
+    }
+
+    @AfterEach
+    public void removeOutput() throws Exception {
+        Files.deleteIfExists(Path.of("merchant_month.json"));
+        Files.deleteIfExists(Path.of("daily_balance.json"));
+    }
+
+    @Test
+    public void testFailedHighWaterMarkIsAdvancedByNextRun() throws Exception {
+        insert(1, 1, "10.00");
+        insert(1, 2, "-3.00");
+        Assertions.assertEquals(BatchStatus.COMPLETED, jobLauncherTestUtils.launchJob().getStatus());
+        assertHighWaterMark(2, "7.00");
+
+        // Run without new transactions keeps the high-water mark
+        Assertions.assertEquals(BatchStatus.COMPLETED, jobLauncherTestUtils.launchJob().getStatus());
+        assertHighWaterMark(2, "7.00");
+
+        // High-water mark could not be advanced beyond the second transaction, while balance is filled
+        jdbcTemplate.update("alter table high_water_mark add constraint high_water_mark_limit check (last_id <= 2)");
+        insert(2, 1, "1.00");
+        JobExecution failedExecution = jobLauncherTestUtils.launchJob();
+        Assertions.assertEquals(BatchStatus.FAILED, failedExecution.getStatus());
+        Assertions.assertEquals(List.of("fill-balance", "fill-balance-completion"), getStepNames(failedExecution));
+        assertHighWaterMark(2, "7.00");
+
+        // Next run processes the third transaction again, adding it to aggregated balances once
+        jdbcTemplate.update("alter table high_water_mark drop constraint high_water_mark_limit");
+        JobExecution jobExecution = jobLauncherTestUtils.launchJob();
+        Assertions.assertEquals(BatchStatus.COMPLETED, jobExecution.getStatus());
+        Assertions.assertEquals(1, jobExecution.getStepExecutions().iterator().next().getReadCount());
+        assertHighWaterMark(3, "8.00");
+        Assertions.assertEquals(0, SourceManagementUtils.countAggregatedBalanceMismatches(jdbcTemplate,
+                BankTransactionAnalysisConfiguration.FILL_BALANCE_HIGH_WATER_MARK));
+    }
+
+    private void insert(int month, int day, String amount) {
+        SourceManagementUtils.insertBankTransaction(
+                new BankTransaction(0, month, day, 12, 0, new BigDecimal(amount), merchantId), jdbcTemplate);
+    }
+
+    private void assertHighWaterMark(long lastId, String balance) {
+        HighWaterMark highWaterMark = SourceManagementUtils.getHighWaterMark(jdbcTemplate,
+                BankTransactionAnalysisConfiguration.FILL_BALANCE_HIGH_WATER_MARK);
+        Assertions.assertEquals(lastId, highWaterMark.getLastId());
+        Assertions.assertEquals(0, new BigDecimal(balance).compareTo(highWaterMark.getBalance()));
+    }
+
+    private static List<String> getStepNames(JobExecution jobExecution) {
+        return jobExecution.getStepExecutions().stream().map(StepExecution::getStepName).toList();
+    }
+}
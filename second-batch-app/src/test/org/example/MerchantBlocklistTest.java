@@ -0,0 +1,86 @@
+package org.example;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+
+// Unit test for MerchantBlocklist, verifying that bloom filter never leads to wrong answers
+public class MerchantBlocklistTest {
+
+    @Test
+    public void testBlocklistHasNoFalsePositivesOrNegatives() {
+        List<String> blockedMerchants = new ArrayList<>();
+        for (int i = 0; i < 10000; i++) {
+            blockedMerchants.add(UUID.randomUUID().toString());
+        }
+        MerchantBlocklist blocklist = new MerchantBlocklist(blockedMerchants);
+
+        Assertions.assertEquals(blockedMerchants.size(), blocklist.size());
+        for (String blockedMerchant : blockedMerchants) {
+            Assertions.assertTrue(blocklist.contains(blockedMerchant));
+        }
+        // Filter is expected to give ~1% false positives, which should be eliminated by the exact check
+        for (int i = 0; i < 10000; i++) {
+            Assertions.assertFalse(blocklist.contains(UUID.randomUUID().toString()));
+        }
+        Assertions.assertFalse(blocklist.contains(null));
+    }
+
+    @Test
+    public void testBlocklistFromResource() {
+        String disallowedMerchant = UUID.randomUUID().toString();
+        String fileMerchant = UUID.randomUUID().toString();
+        ByteArrayResource resource = new ByteArrayResource(
+                (fileMerchant + "\n\n  " + fileMerchant + "  \n").getBytes(StandardCharsets.UTF_8));
+
+        MerchantBlocklist blocklist = MerchantBlocklist.fromResource(resource, disallowedMerchant, "");
+
+        Assertions.assertEquals(2, blocklist.size());
+        Assertions.assertTrue(blocklist.contains(fileMerchant));
+        Assertions.assertTrue(blocklist.contains(disallowedMerchant));
+        Assertions.assertFalse(blocklist.contains(""));
+    }
+
+    @Test
+    public void testBlocklistTableIsCheckedByDatabase() {
+        DataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:blocklist;DB_CLOSE_DELAY=-1;MODE=PostgreSQL;"
+                + "DATABASE_TO_LOWER=TRUE;NON_KEYWORDS=MONTH,DAY,HOUR,MINUTE", "sa", "");
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        SourceManagementUtils.initializeEmptyDatabase(jdbcTemplate);
+        SourceManagementUtils.addAdjustedColumn(dataSource);
+        MerchantDictionary dictionary = new MerchantDictionary(dataSource);
+        for (String merchant : List.of("allowed", "blocked", "disallowed", "blocked")) {
+            SourceManagementUtils.insertBankTransaction(
+                    new BankTransaction(0, 1, 1, 0, 0, BigDecimal.ONE, dictionary.getId(merchant)), jdbcTemplate);
+        }
+
+        // Missing table is created empty, so only the single disallowed merchant is blocked
+        SourceManagementUtils.createMerchantBlocklistTable(jdbcTemplate, "merchant_blocklist");
+        Assertions.assertEquals(1, SourceManagementUtils.countBlockedTransactions(dataSource, "merchant_blocklist", "disallowed", null));
+
+        jdbcTemplate.update("insert into merchant_blocklist (merchant) values ('blocked'), ('unknown')");
+        Assertions.assertEquals(3, SourceManagementUtils.countBlockedTransactions(dataSource, "merchant_blocklist", "disallowed", null));
+        // Adjusted transactions are not checked anymore
+        jdbcTemplate.update("update bank_transaction_yearly set adjusted = true where merchant_id = ?", dictionary.getId("blocked"));
+        Assertions.assertEquals(1, SourceManagementUtils.countBlockedTransactions(dataSource, "merchant_blocklist", "disallowed", null));
+
+        // Transactions outside the range of months are not checked, the same way as they are not read by the step
+        SourceManagementUtils.insertBankTransaction(
+                new BankTransaction(0, 3, 1, 0, 0, BigDecimal.ONE, dictionary.getId("disallowed")), jdbcTemplate);
+        Assertions.assertEquals(2, SourceManagementUtils.countBlockedTransactions(dataSource, "merchant_blocklist", "disallowed", null));
+        Assertions.assertEquals(1, SourceManagementUtils.countBlockedTransactions(dataSource, "merchant_blocklist", "disallowed",
+                SourceManagementUtils.monthRangeCondition(1, 2)));
+        Assertions.assertEquals(1, SourceManagementUtils.countBlockedTransactions(dataSource, "merchant_blocklist", "disallowed",
+                SourceManagementUtils.monthRangeCondition(2, 12)));
+    }
+}
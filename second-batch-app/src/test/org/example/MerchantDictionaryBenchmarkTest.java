@@ -0,0 +1,113 @@
+package org.example;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Map;
+
+
+/**
+ * Benchmark of dictionary-encoded merchants against merchant names stored in every transaction, on embedded database.
+ * Same generated transactions are stored in both layouts, then full scan of transactions and aggregation by
+ * merchant & month are measured for each of them; with dictionary, names are decoded only for aggregated rows.
+ * Size could be changed with 'performance.transactions' and 'performance.merchants' system properties
+ */
+@Tag("performance")
+public class MerchantDictionaryBenchmarkTest {
+
+    private static final String NAME_LAYOUT_TABLE = "bank_transaction_merchant_name";
+
+    @Test
+    public void benchmarkScanAndAggregation() throws Exception {
+        int transactionNum = Integer.getInteger("performance.transactions", 1_000_000);
+        int merchantNum = Integer.getInteger("performance.merchants", 10_000);
+        // File-based, so that tables are not held on heap
+        DataSource dataSource = new DriverManagerDataSource("jdbc:h2:./build/embedded-db/merchant-dictionary;"
+                + "MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;NON_KEYWORDS=MONTH,DAY,HOUR,MINUTE", "sa", "");
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        SourceManagementUtils.initializeEmptyDatabase(jdbcTemplate);
+        new BulkTransactionGenerator(transactionNum, merchantNum, 42, Runtime.getRuntime().availableProcessors())
+                .generateAndLoad(dataSource);
+        // Layout before dictionary encoding, with the name in every transaction
+        jdbcTemplate.update("drop table if exists " + NAME_LAYOUT_TABLE);
+        jdbcTemplate.update("create table " + NAME_LAYOUT_TABLE + " as select t.id, t.month, t.day, t.hour, t.minute, " +
+                "t.amount, m.name as merchant, t.account_id from bank_transaction_yearly t join merchant m on m.id = t.merchant_id");
+
+        Map<String, BigDecimal> nameBalances = null;
+        Map<String, BigDecimal> dictionaryBalances = null;
+        // First round warms up
+        for (int i = 0; i < 2; i++) {
+            boolean measure = i == 1;
+            long startTime = System.nanoTime();
+            long nameScanned = scan(jdbcTemplate, NAME_LAYOUT_TABLE, "merchant");
+            long nameScanMillis = (System.nanoTime() - startTime) / 1_000_000;
+
+            startTime = System.nanoTime();
+            long dictionaryScanned = scan(jdbcTemplate, "bank_transaction_yearly", "merchant_id");
+            long dictionaryScanMillis = (System.nanoTime() - startTime) / 1_000_000;
+
+            startTime = System.nanoTime();
+            nameBalances = new HashMap<>();
+            aggregate(jdbcTemplate, NAME_LAYOUT_TABLE, "merchant", null, nameBalances);
+            long nameAggregationMillis = (System.nanoTime() - startTime) / 1_000_000;
+
+            startTime = System.nanoTime();
+            dictionaryBalances = new HashMap<>();
+            aggregate(jdbcTemplate, "bank_transaction_yearly", "merchant_id", new MerchantDictionary(dataSource),
+                    dictionaryBalances);
+            long dictionaryAggregationMillis = (System.nanoTime() - startTime) / 1_000_000;
+
+            Assertions.assertEquals(transactionNum, nameScanned);
+            Assertions.assertEquals(transactionNum, dictionaryScanned);
+            if (measure) {
+                System.out.println("scan: names " + nameScanMillis + " ms, dictionary " + dictionaryScanMillis + " ms");
+                System.out.println("aggregation by merchant & month (" + dictionaryBalances.size() + " groups): names "
+                        + nameAggregationMillis + " ms, dictionary " + dictionaryAggregationMillis + " ms");
+            }
+        }
+        System.out.println("table size: names " + diskSpace(jdbcTemplate, NAME_LAYOUT_TABLE) / 1024 + " KB, dictionary "
+                + diskSpace(jdbcTemplate, "bank_transaction_yearly") / 1024 + " KB");
+
+        Assertions.assertEquals(nameBalances, dictionaryBalances);
+        jdbcTemplate.update("drop table " + NAME_LAYOUT_TABLE);
+    }
+
+    // Read all the transactions, as fill balance step does
+    private static long scan(JdbcTemplate jdbcTemplate, String table, String merchantColumn) {
+        long[] count = new long[1];
+        jdbcTemplate.query("select id, month, day, hour, minute, amount, " + merchantColumn + ", account_id from " + table,
+                rs -> {
+                    rs.getLong(1);
+                    rs.getInt(2);
+                    rs.getInt(3);
+                    rs.getInt(4);
+                    rs.getInt(5);
+                    rs.getBigDecimal(6);
+                    rs.getObject(7);
+                    rs.getLong(8);
+                    count[0]++;
+                });
+        return count[0];
+    }
+
+    // Aggregate by merchant & month, decoding merchant ids of the aggregated rows if dictionary is given
+    private static void aggregate(JdbcTemplate jdbcTemplate, String table, String merchantColumn,
+                                  MerchantDictionary dictionary, Map<String, BigDecimal> balances) {
+        jdbcTemplate.query("select month, " + merchantColumn + ", sum(amount) from " + table +
+                " group by month, " + merchantColumn + " order by month, " + merchantColumn, rs -> {
+            String merchant = dictionary == null ? rs.getString(2) : dictionary.getName(rs.getInt(2));
+            balances.put(rs.getInt(1) + ":" + merchant, rs.getBigDecimal(3));
+        });
+    }
+
+    private static long diskSpace(JdbcTemplate jdbcTemplate, String table) {
+        Long size = jdbcTemplate.queryForObject("select disk_space_used('" + table + "')", Long.class);
+        return size == null ? 0 : size;
+    }
+}
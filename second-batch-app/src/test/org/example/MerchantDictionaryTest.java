@@ -0,0 +1,68 @@
+package org.example;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.util.List;
+
+
+// Unit test for MerchantDictionary against embedded database, verifying encoding, decoding and concurrent additions
+public class MerchantDictionaryTest {
+
+    private DataSource dataSource;
+
+    @BeforeEach
+    public void createDictionary() {
+        dataSource = new DriverManagerDataSource("jdbc:h2:mem:dictionary;DB_CLOSE_DELAY=-1;MODE=PostgreSQL;"
+                + "DATABASE_TO_LOWER=TRUE;NON_KEYWORDS=MONTH,DAY,HOUR,MINUTE", "sa", "");
+        SourceManagementUtils.initializeEmptyDatabase(new JdbcTemplate(dataSource));
+    }
+
+    @Test
+    public void testMissingMerchantsAreAddedAndDecoded() {
+        MerchantDictionary dictionary = new MerchantDictionary(dataSource);
+
+        Assertions.assertArrayEquals(new int[]{1, 2, 1}, dictionary.getIds(List.of("a", "b", "a")));
+        Assertions.assertEquals(2, dictionary.getId("b"));
+        Assertions.assertEquals(3, dictionary.getId("c"));
+        Assertions.assertEquals("a", dictionary.getName(1));
+        Assertions.assertEquals("c", dictionary.getName(3));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> dictionary.getName(4));
+
+        // Another dictionary sees the same ids
+        Assertions.assertEquals("b", new MerchantDictionary(dataSource).getName(2));
+    }
+
+    @Test
+    public void testMerchantsAddedConcurrentlyAreReloaded() {
+        MerchantDictionary dictionary = new MerchantDictionary(dataSource);
+        MerchantDictionary otherDictionary = new MerchantDictionary(dataSource);
+        Assertions.assertEquals(1, dictionary.getId("a"));
+        Assertions.assertEquals(1, otherDictionary.getId("a"));
+
+        // Both dictionaries would add new merchant with id 2; the second one retries after the conflict
+        Assertions.assertEquals(2, dictionary.getId("b"));
+        Assertions.assertArrayEquals(new int[]{3, 2}, otherDictionary.getIds(List.of("c", "b")));
+        Assertions.assertEquals("c", dictionary.getName(3));
+    }
+
+    @Test
+    public void testMerchantNameIsDecodedWhenBalanceIsSerialized() throws Exception {
+        MerchantDictionary dictionary = new MerchantDictionary(dataSource);
+        int merchantId = dictionary.getId("merchant-a");
+        ObjectMapper objectMapper = new ObjectMapper().registerModule(new SimpleModule()
+                .addSerializer(MerchantMonthBalance.class, MerchantMonthBalance.jsonSerializer(dictionary::getName)));
+
+        Assertions.assertEquals("{\"month\":3,\"merchant\":\"merchant-a\",\"balance\":-1.50}",
+                objectMapper.writeValueAsString(new MerchantMonthBalance(3, merchantId, new BigDecimal("-1.50"))));
+        Assertions.assertEquals("{\"month\":3,\"merchant\":\"merchant-a\",\"balance\":0.05}",
+                objectMapper.writeValueAsString(new MerchantMonthBalance(3, merchantId, 5L)));
+    }
+}
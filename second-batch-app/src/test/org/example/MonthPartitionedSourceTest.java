@@ -0,0 +1,89 @@
+package org.example;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.util.List;
+
+
+// Test for the source table partitioned by month, which relies on Postgresql declarative partitioning
+@SpringJUnitConfig(SourceConfiguration.class)
+@TestPropertySource("classpath:test_source.properties") // Supply test config to override the database name used for tests
+public class MonthPartitionedSourceTest {
+
+    private DataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public void setDataSource(@Qualifier("sourceDataSource") DataSource dataSource) {
+        this.dataSource = dataSource;
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    @BeforeEach // Before each @Test, initialize the partitioned database
+    public void initDatabase() {
+        SourceManagementUtils.initializeEmptyDatabase(jdbcTemplate, true);
+        SourceManagementUtils.addBalanceColumn(dataSource);
+    }
+
+    @Test
+    public void testTransactionsAreStoredInPartitionOfTheirMonth() {
+        Long partitions = jdbcTemplate.queryForObject("select count(*) from pg_inherits " +
+                "where inhparent = 'bank_transaction_yearly'::regclass", Long.class);
+        Assertions.assertEquals(12, partitions);
+
+        insert(1, "1.00", "1.00");
+        insert(3, "2.00", "3.00");
+        insert(3, "3.00", "6.00");
+        Assertions.assertEquals(1, count("bank_transaction_yearly_m1"));
+        Assertions.assertEquals(0, count("bank_transaction_yearly_m2"));
+        Assertions.assertEquals(2, count("bank_transaction_yearly_m3"));
+        Assertions.assertEquals(3, count("bank_transaction_yearly"));
+        // Updates by id are routed to the partition of the row
+        Assertions.assertEquals(1, jdbcTemplate.update("update bank_transaction_yearly set balance = 0 where id = 2"));
+    }
+
+    @Test
+    public void testOnlyPartitionsOfRangeAreScanned() {
+        List<String> plan = jdbcTemplate.queryForList("explain select * from bank_transaction_yearly where "
+                + SourceManagementUtils.monthRangeCondition(2, 3), String.class);
+        String planText = String.join("\n", plan);
+        Assertions.assertTrue(planText.contains("bank_transaction_yearly_m2"), planText);
+        Assertions.assertTrue(planText.contains("bank_transaction_yearly_m3"), planText);
+        Assertions.assertFalse(planText.contains("bank_transaction_yearly_m1 "), planText);
+        Assertions.assertFalse(planText.contains("bank_transaction_yearly_m4"), planText);
+    }
+
+    @Test
+    public void testClosingBalanceIsTakenFromPrecedingPartitions() {
+        insert(2, "5.00", "5.00");
+        insert(1, "-1.00", "4.00");
+        insert(4, "2.00", "6.00");
+
+        assertBalance("4.00", SourceManagementUtils.getClosingBalanceBefore(jdbcTemplate, 3, false));
+        assertBalance("5.00", SourceManagementUtils.getClosingBalanceBefore(jdbcTemplate, 3, true));
+    }
+
+    private void insert(int month, String amount, String balance) {
+        jdbcTemplate.update("insert into bank_transaction_yearly (month, day, hour, minute, amount, merchant_id, balance) " +
+                "values (?, 1, 0, 0, ?, 1, ?)", month, new BigDecimal(amount), new BigDecimal(balance));
+    }
+
+    private long count(String table) {
+        Long count = jdbcTemplate.queryForObject("select count(*) from " + table, Long.class);
+        return count == null ? 0 : count;
+    }
+
+    private static void assertBalance(String expected, BigDecimal balance) {
+        Assertions.assertEquals(0, new BigDecimal(expected).compareTo(balance),
+                "Expected " + expected + ", but was " + balance);
+    }
+}
@@ -0,0 +1,86 @@
+package org.example;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+
+
+// Unit test for processing a range of months against embedded database, verifying the range condition and
+// the opening balance of the range in both orders balance is filled in
+public class MonthRangeTest {
+
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    public void createTransactions() {
+        DataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:months;DB_CLOSE_DELAY=-1;MODE=PostgreSQL;"
+                + "DATABASE_TO_LOWER=TRUE;NON_KEYWORDS=MONTH,DAY,HOUR,MINUTE", "sa", "");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        SourceManagementUtils.initializeEmptyDatabase(jdbcTemplate);
+        SourceManagementUtils.addBalanceColumn(dataSource);
+    }
+
+    @Test
+    public void testRangeConditionIsOmittedForWholeYear() {
+        Assertions.assertNull(SourceManagementUtils.monthRangeCondition(1, 12));
+        Assertions.assertEquals("month between 3 and 3", SourceManagementUtils.monthRangeCondition(3, 3));
+        Assertions.assertEquals("month between 1 and 11", SourceManagementUtils.monthRangeCondition(1, 11));
+
+        Assertions.assertThrows(IllegalArgumentException.class, () -> SourceManagementUtils.monthRangeCondition(0, 12));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> SourceManagementUtils.monthRangeCondition(1, 13));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> SourceManagementUtils.monthRangeCondition(5, 4));
+    }
+
+    @Test
+    public void testClosingBalanceInOrderOfIds() {
+        // Balance filled by id: 2nd of February is inserted before 1st, and the last transaction is of January
+        insert(2, 2, 10, "5.00", "5.00");
+        insert(2, 1, 10, "1.00", "6.00");
+        insert(1, 31, 10, "-2.00", "4.00");
+        insert(3, 1, 10, "7.00", "11.00");
+
+        assertBalance("4.00", SourceManagementUtils.getClosingBalanceBefore(jdbcTemplate, 3, false));
+        assertBalance("11.00", SourceManagementUtils.getClosingBalanceBefore(jdbcTemplate, 4, false));
+        assertBalance("0", SourceManagementUtils.getClosingBalanceBefore(jdbcTemplate, 1, false));
+    }
+
+    @Test
+    public void testClosingBalanceInChronologicalOrder() {
+        // Same transactions with balance filled chronologically: 31st of January, 1st and 2nd of February
+        insert(2, 2, 10, "5.00", "4.00");
+        insert(2, 1, 10, "1.00", "-1.00");
+        insert(1, 31, 10, "-2.00", "-2.00");
+        insert(3, 1, 10, "7.00", "11.00");
+        // Earlier transaction of the last day inserted after the later one
+        insert(2, 2, 9, "0.00", "-1.00");
+
+        assertBalance("4.00", SourceManagementUtils.getClosingBalanceBefore(jdbcTemplate, 3, true));
+        assertBalance("-2.00", SourceManagementUtils.getClosingBalanceBefore(jdbcTemplate, 2, true));
+        assertBalance("0", SourceManagementUtils.getClosingBalanceBefore(jdbcTemplate, 1, true));
+    }
+
+    @Test
+    public void testClosingBalanceRequiresFilledBalance() {
+        insert(1, 1, 10, "5.00", null);
+        Assertions.assertThrows(IllegalStateException.class,
+                () -> SourceManagementUtils.getClosingBalanceBefore(jdbcTemplate, 2, true));
+        // No transactions before the range
+        assertBalance("0", SourceManagementUtils.getClosingBalanceBefore(jdbcTemplate, 1, false));
+    }
+
+    private void insert(int month, int day, int hour, String amount, String balance) {
+        jdbcTemplate.update("insert into bank_transaction_yearly (month, day, hour, minute, amount, merchant_id, balance) " +
+                "values (?, ?, ?, 0, ?, 1, ?)", month, day, hour, new BigDecimal(amount),
+                balance == null ? null : new BigDecimal(balance));
+    }
+
+    private static void assertBalance(String expected, BigDecimal balance) {
+        Assertions.assertEquals(0, new BigDecimal(expected).compareTo(balance),
+                "Expected " + expected + ", but was " + balance);
+    }
+}
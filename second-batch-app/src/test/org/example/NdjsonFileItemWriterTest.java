@@ -0,0 +1,85 @@
+package org.example;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.batch.item.Chunk;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.core.io.FileSystemResource;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+
+// Unit test for NdjsonFileItemWriter, verifying output format and restart from the last committed chunk
+public class NdjsonFileItemWriterTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testPlainOutputRestartsFromLastCommittedChunk() throws Exception {
+        verifyRestart(tempDir.resolve("daily_balance.ndjson"), false);
+    }
+
+    @Test
+    public void testGzipOutputRestartsFromLastCommittedChunk() throws Exception {
+        verifyRestart(tempDir.resolve("daily_balance.ndjson.gz"), true);
+    }
+
+    private void verifyRestart(Path file, boolean gzip) throws Exception {
+        ExecutionContext executionContext = new ExecutionContext();
+
+        // First run: first chunk is committed (context updated), second one is written but not committed
+        NdjsonFileItemWriter<DailyBalance> writer = createWriter(file, gzip);
+        writer.open(executionContext);
+        writer.write(Chunk.of(new DailyBalance(1, 1, new BigDecimal("1.50")), new DailyBalance(2, 1, new BigDecimal("-2.00"))));
+        writer.update(executionContext);
+        writer.write(Chunk.of(new DailyBalance(3, 1, new BigDecimal("100.00"))));
+        writer.close();
+
+        // Restart: uncommitted chunk is discarded, and writing continues after the committed one
+        writer = createWriter(file, gzip);
+        writer.open(executionContext);
+        writer.write(Chunk.of(new DailyBalance(3, 1, new BigDecimal("3.25"))));
+        writer.update(executionContext);
+        writer.close();
+
+        List<JsonNode> lines = readLines(file, gzip);
+        Assertions.assertEquals(3, lines.size());
+        Assertions.assertEquals(1, lines.get(0).get("day").asInt());
+        Assertions.assertEquals(0, new BigDecimal("-2.00").compareTo(lines.get(1).get("balance").decimalValue()));
+        Assertions.assertEquals(0, new BigDecimal("3.25").compareTo(lines.get(2).get("balance").decimalValue()));
+    }
+
+    private static NdjsonFileItemWriter<DailyBalance> createWriter(Path file, boolean gzip) {
+        return new NdjsonFileItemWriter<>("testWriter", new FileSystemResource(file),
+                new ObjectMapper().writerFor(DailyBalance.class), gzip);
+    }
+
+    // Read file line-by-line, parsing each line as a separate JSON document
+    private static List<JsonNode> readLines(Path file, boolean gzip) throws Exception {
+        ObjectMapper mapper = new ObjectMapper().enable(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS);
+        List<JsonNode> lines = new ArrayList<>();
+        try (InputStream input = gzip ? new GZIPInputStream(new FileInputStream(file.toFile()))
+                                      : new FileInputStream(file.toFile());
+             BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lines.add(mapper.readTree(line));
+            }
+        }
+        return lines;
+    }
+}
@@ -0,0 +1,151 @@
+package org.example;
+
+import org.apache.parquet.example.data.Group;
+import org.apache.parquet.column.page.PageReadStore;
+import org.apache.parquet.example.data.simple.convert.GroupRecordConverter;
+import org.apache.parquet.hadoop.ParquetFileReader;
+import org.apache.parquet.hadoop.metadata.BlockMetaData;
+import org.apache.parquet.hadoop.metadata.ColumnChunkMetaData;
+import org.apache.parquet.io.ColumnIOFactory;
+import org.apache.parquet.io.LocalInputFile;
+import org.apache.parquet.io.RecordReader;
+import org.apache.parquet.schema.LogicalTypeAnnotation;
+import org.apache.parquet.schema.MessageType;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.item.Chunk;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.test.MetaDataInstanceFactory;
+import org.springframework.core.io.FileSystemResource;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+
+// Unit test for ParquetFileItemWriter, verifying written values, decimal type, dictionary encoding, row groups
+// and replacing the file on completion only
+public class ParquetFileItemWriterTest {
+
+    // Merchant names indexed by merchant id
+    private static final List<String> MERCHANTS = List.of("", "merchant-a", "merchant-b");
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testMerchantMonthBalanceIsWrittenWithDictionaryAndDecimal() throws Exception {
+        Path file = tempDir.resolve("merchant_month.parquet");
+        ParquetFileItemWriter<MerchantMonthBalance> writer = new ParquetFileItemWriter<>(new FileSystemResource(file),
+                MerchantMonthBalance.PARQUET_SCHEMA, (balance, group) -> balance.toParquetGroup(group, MERCHANTS::get),
+                128 * 1024 * 1024, "merchant");
+        writer.open(new ExecutionContext());
+        // Decimal and cents balances give the same output
+        writer.write(Chunk.of(new MerchantMonthBalance(1, 1, new BigDecimal("-12.34")),
+                new MerchantMonthBalance(1, 2, new BigDecimal("99999999999.9"))));
+        writer.write(Chunk.of(new MerchantMonthBalance(2, 1, 5L)));
+        complete(writer);
+
+        List<Group> records = readRecords(file);
+        Assertions.assertEquals(3, records.size());
+        assertRecord(records.get(0), 1, "merchant-a", "-12.34");
+        assertRecord(records.get(1), 1, "merchant-b", "99999999999.90");
+        assertRecord(records.get(2), 2, "merchant-a", "0.05");
+
+        try (ParquetFileReader fileReader = ParquetFileReader.open(new LocalInputFile(file))) {
+            Assertions.assertEquals(LogicalTypeAnnotation.decimalType(2, 18), fileReader.getFileMetaData().getSchema()
+                    .getType("balance").getLogicalTypeAnnotation());
+            List<ColumnChunkMetaData> columns = fileReader.getFooter().getBlocks().get(0).getColumns();
+            Assertions.assertTrue(getColumn(columns, "merchant").getEncodingStats().hasDictionaryEncodedPages());
+            Assertions.assertFalse(getColumn(columns, "balance").getEncodingStats().hasDictionaryEncodedPages());
+        }
+    }
+
+    @Test
+    public void testRowGroupSizeIsConfigurable() throws Exception {
+        Path file = tempDir.resolve("daily_balance.parquet");
+        // Smallest possible row group size, so that row group is flushed whenever its size is checked (every 100 rows)
+        ParquetFileItemWriter<DailyBalance> writer = new ParquetFileItemWriter<>(new FileSystemResource(file),
+                DailyBalance.PARQUET_SCHEMA, DailyBalance::toParquetGroup, 1);
+        writer.open(new ExecutionContext());
+        for (int i = 0; i < 1000; i++) {
+            writer.write(Chunk.of(new DailyBalance(i % 28 + 1, i % 12 + 1, BigDecimal.valueOf(i, 2))));
+        }
+        complete(writer);
+
+        try (ParquetFileReader fileReader = ParquetFileReader.open(new LocalInputFile(file))) {
+            List<BlockMetaData> rowGroups = fileReader.getFooter().getBlocks();
+            Assertions.assertTrue(rowGroups.size() > 1);
+            Assertions.assertEquals(1000, rowGroups.stream().mapToLong(BlockMetaData::getRowCount).sum());
+        }
+    }
+
+    @Test
+    public void testFileIsReplacedOnlyIfStepIsCompleted() throws Exception {
+        Path file = tempDir.resolve("daily_balance.parquet");
+        ParquetFileItemWriter<DailyBalance> writer = new ParquetFileItemWriter<>(new FileSystemResource(file),
+                DailyBalance.PARQUET_SCHEMA, DailyBalance::toParquetGroup, 1024);
+        writer.open(new ExecutionContext());
+        writer.write(Chunk.of(new DailyBalance(1, 1, new BigDecimal("1.00"))));
+        // Nothing is visible until the step is completed
+        Assertions.assertFalse(Files.exists(file));
+        complete(writer);
+
+        // Failed step leaves the previous file as it is
+        writer.open(new ExecutionContext());
+        writer.write(Chunk.of(new DailyBalance(2, 1, new BigDecimal("2.00")), new DailyBalance(3, 1, new BigDecimal("3.00"))));
+        StepExecution stepExecution = MetaDataInstanceFactory.createStepExecution();
+        stepExecution.setStatus(BatchStatus.FAILED);
+        writer.afterStep(stepExecution);
+        writer.close();
+
+        Assertions.assertEquals(1, readRecords(file).size());
+        try (Stream<Path> files = Files.list(tempDir)) {
+            Assertions.assertEquals(List.of(file), files.toList());
+        }
+    }
+
+    // Close the writer of the completed step
+    private static void complete(ParquetFileItemWriter<?> writer) {
+        StepExecution stepExecution = MetaDataInstanceFactory.createStepExecution();
+        stepExecution.setStatus(BatchStatus.COMPLETED);
+        writer.afterStep(stepExecution);
+        writer.close();
+    }
+
+    // Read all the records of the file, row group by row group
+    private static List<Group> readRecords(Path file) throws Exception {
+        List<Group> records = new ArrayList<>();
+        try (ParquetFileReader fileReader = ParquetFileReader.open(new LocalInputFile(file))) {
+            MessageType schema = fileReader.getFileMetaData().getSchema();
+            PageReadStore rowGroup;
+            while ((rowGroup = fileReader.readNextRowGroup()) != null) {
+                RecordReader<Group> recordReader = new ColumnIOFactory().getColumnIO(schema)
+                        .getRecordReader(rowGroup, new GroupRecordConverter(schema));
+                for (long i = 0; i < rowGroup.getRowCount(); i++) {
+                    records.add(recordReader.read());
+                }
+            }
+        }
+        return records;
+    }
+
+    private static void assertRecord(Group record, int month, String merchant, String balance) {
+        Assertions.assertEquals(month, record.getInteger("month", 0));
+        Assertions.assertEquals(merchant, record.getString("merchant", 0));
+        Assertions.assertEquals(new BigDecimal(balance), BigDecimal.valueOf(record.getLong("balance", 0), 2));
+    }
+
+    private static ColumnChunkMetaData getColumn(List<ColumnChunkMetaData> columns, String name) {
+        return columns.stream()
+                .filter(column -> column.getPath().toDotString().equals(name))
+                .findFirst()
+                .orElseThrow();
+    }
+}
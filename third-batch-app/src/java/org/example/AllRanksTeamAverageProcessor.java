@@ -0,0 +1,160 @@
+package org.example;
+
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.StepExecutionListener;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemProcessor;
+import org.springframework.batch.item.ItemStream;
+
+
+/**
+ * Processor for calculating average scores for a team by all the score ranks below the specified count at once,
+ * parsing every player's scores a single time. As a side effect, keeps best and worst player's score and name of
+ * every rank in primitive arrays indexed by rank, and publishes them in a step-specific execution context at chunk
+ * commit and after the step, as {@link TeamAverageProcessor} does for a single rank.
+ * Since scores are ordered, player having fewer scores than the rank count lacks all the remaining ranks; hence
+ * only ranks below the smallest number of scores across all players are complete, and it's published as well.
+ * Averages of the incomplete ranks are NaN. Accumulation is thread-safe.
+ * If quarantine is given, teams having a player with malformed score are quarantined and filtered out, rather than
+ * failing the step
+ */
+public class AllRanksTeamAverageProcessor implements ItemProcessor<Team, RankedAverageScoredTeam>, ItemStream,
+        StepExecutionListener {
+
+    // Execution context key names
+    public static final String MAX_SCORES = "ranks.max.scores";
+    public static final String MAX_PLAYERS = "ranks.max.players";
+    public static final String MIN_SCORES = "ranks.min.scores";
+    public static final String MIN_PLAYERS = "ranks.min.players";
+    public static final String COMPLETE_RANKS = "ranks.complete";
+
+    private final int rankCount;
+    // Quarantine of bad teams, or null to fail on them
+    private final DeadLetterQuarantine quarantine;
+
+    // Best and worst scores so far with their players by rank, and number of complete ranks, guarded by this processor
+    private double[] maxScores;
+    private String[] maxPlayers;
+    private double[] minScores;
+    private String[] minPlayers;
+    private int completeRanks;
+
+    public AllRanksTeamAverageProcessor(int rankCount) {
+        this(rankCount, null);
+    }
+
+    public AllRanksTeamAverageProcessor(int rankCount, DeadLetterQuarantine quarantine) {
+        this.rankCount = rankCount;
+        this.quarantine = quarantine;
+        reset();
+    }
+
+    @Override
+    public RankedAverageScoredTeam process(Team team) throws Exception {
+        // Best and worst players of the team are found without locking, and only then merged
+        double[] teamMaxScores = new double[rankCount];
+        String[] teamMaxPlayers = new String[rankCount];
+        double[] teamMinScores = new double[rankCount];
+        String[] teamMinPlayers = new String[rankCount];
+        int teamCompleteRanks = rankCount;
+
+        double[] scores = new double[rankCount];
+        double[] sums = new double[rankCount];
+        double count = 0;
+        for (Team.ScoredPlayer scoredPlayer : team.getScoredPlayers()) {
+            int scoreCount;
+            try {
+                scoreCount = scoredPlayer.parseScores(scores);
+            } catch (NumberFormatException e) {
+                if (quarantine == null) {
+                    throw e;
+                }
+                // Nothing is accumulated for the team yet, so it's enough to filter it out
+                quarantine.quarantineProcess(team.getFileName(), team.getLineNumber(),
+                        "Malformed score of player " + scoredPlayer.getName() + ", " + e.getMessage(), team.getName());
+                return null;
+            }
+            teamCompleteRanks = Math.min(teamCompleteRanks, scoreCount);
+            for (int rank = 0; rank < scoreCount; rank++) {
+                double score = scores[rank];
+                if (teamMaxPlayers[rank] == null || score > teamMaxScores[rank]) {
+                    teamMaxScores[rank] = score;
+                    teamMaxPlayers[rank] = scoredPlayer.getName();
+                }
+                if (teamMinPlayers[rank] == null || score < teamMinScores[rank]) {
+                    teamMinScores[rank] = score;
+                    teamMinPlayers[rank] = scoredPlayer.getName();
+                }
+                sums[rank] += score;
+            }
+            count++;
+        }
+
+        double[] averageScores = new double[rankCount];
+        for (int rank = 0; rank < rankCount; rank++) {
+            averageScores[rank] = rank < teamCompleteRanks ? sums[rank] / count : Double.NaN;
+        }
+        accumulate(teamMaxScores, teamMaxPlayers, teamMinScores, teamMinPlayers, teamCompleteRanks);
+        return new RankedAverageScoredTeam(team.getName(), averageScores);
+    }
+
+    // Merge best and worst players of the team by rank; the earlier player keeps the place on equal scores
+    private synchronized void accumulate(double[] teamMaxScores, String[] teamMaxPlayers,
+                                         double[] teamMinScores, String[] teamMinPlayers, int teamCompleteRanks) {
+        for (int rank = 0; rank < rankCount; rank++) {
+            if (teamMaxPlayers[rank] != null && (maxPlayers[rank] == null || teamMaxScores[rank] > maxScores[rank])) {
+                maxScores[rank] = teamMaxScores[rank];
+                maxPlayers[rank] = teamMaxPlayers[rank];
+            }
+            if (teamMinPlayers[rank] != null && (minPlayers[rank] == null || teamMinScores[rank] < minScores[rank])) {
+                minScores[rank] = teamMinScores[rank];
+                minPlayers[rank] = teamMinPlayers[rank];
+            }
+        }
+        completeRanks = Math.min(completeRanks, teamCompleteRanks);
+    }
+
+    @Override
+    public synchronized void open(ExecutionContext executionContext) {
+        // On restart, continue with the best and worst players of the committed chunks
+        if (executionContext.containsKey(COMPLETE_RANKS)) {
+            maxScores = ((double[]) executionContext.get(MAX_SCORES)).clone();
+            maxPlayers = ((String[]) executionContext.get(MAX_PLAYERS)).clone();
+            minScores = ((double[]) executionContext.get(MIN_SCORES)).clone();
+            minPlayers = ((String[]) executionContext.get(MIN_PLAYERS)).clone();
+            completeRanks = executionContext.getInt(COMPLETE_RANKS);
+        } else {
+            reset();
+        }
+    }
+
+    @Override
+    public void update(ExecutionContext executionContext) {
+        // Called right before the context is saved within chunk transaction
+        publish(executionContext);
+    }
+
+    @Override
+    public ExitStatus afterStep(StepExecution stepExecution) {
+        publish(stepExecution.getExecutionContext());
+        return null;
+    }
+
+    // Copies are published, so that the saved context doesn't change with further teams
+    private synchronized void publish(ExecutionContext executionContext) {
+        executionContext.put(MAX_SCORES, maxScores.clone());
+        executionContext.put(MAX_PLAYERS, maxPlayers.clone());
+        executionContext.put(MIN_SCORES, minScores.clone());
+        executionContext.put(MIN_PLAYERS, minPlayers.clone());
+        executionContext.putInt(COMPLETE_RANKS, completeRanks);
+    }
+
+    private void reset() {
+        maxScores = new double[rankCount];
+        maxPlayers = new String[rankCount];
+        minScores = new double[rankCount];
+        minPlayers = new String[rankCount];
+        completeRanks = rankCount;
+    }
+}
@@ -1,15 +1,26 @@
 package org.example;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.batch.core.Job;
+import org.springframework.batch.core.JobParameters;
 import org.springframework.batch.core.JobParametersBuilder;
 import org.springframework.batch.core.launch.JobLauncher;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.HttpStatus;
 import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.UUID;
 
 
@@ -17,32 +28,96 @@ import java.util.UUID;
 @EnableScheduling
 public class ApplicationController {
 
+    private static final Logger LOGGER = LoggerFactory.getLogger(ApplicationController.class);
+
+    // Out-of-the-box synchronous job launcher, which is run within the bounded launch pool
     @Autowired
-    @Qualifier("asyncJobLauncher")
+    @Qualifier("jobLauncher")
     private JobLauncher jobLauncher;
 
+    @Autowired
+    @Qualifier("jobLaunchTaskExecutor")
+    private TaskExecutor jobLaunchTaskExecutor;
+
     @Autowired
     @Qualifier("teamPerformanceJob")
     private Job teamPerformanceJob;
 
+    @Autowired
+    @Qualifier("teamPerformanceAllRanksJob")
+    private Job teamPerformanceAllRanksJob;
+
+    @Autowired
+    @Qualifier("teamPerformanceResultCache")
+    private TeamPerformanceResultCache resultCache;
+
+    // Max number of ranks calculated by a single all-ranks job, since every rank is kept in memory at once
+    @Value("${all.ranks.max.rank.count}")
+    private int maxRankCount;
+
     @PostMapping("/start") // Endpoint to asynchronously start the job
-    public String start(@RequestParam("scoreRank") int scoreRank) throws Exception {
+    public String start(@RequestParam("scoreRank") int scoreRank) {
+        if (scoreRank < 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Score rank should not be negative");
+        }
         String uuid = UUID.randomUUID().toString();
         launchJobAsynchronously(scoreRank, uuid);
         return "Job with id " + uuid + " was submitted";
     }
 
+    @PostMapping("/start-all-ranks") // Endpoint to asynchronously start the job for ranks from 0 to rankCount - 1 at once
+    public String startAllRanks(@RequestParam("rankCount") int rankCount) {
+        if (rankCount < 1) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Rank count should be positive");
+        }
+        if (rankCount > maxRankCount) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Rank count should not exceed " + maxRankCount);
+        }
+        String uuid = UUID.randomUUID().toString();
+        launchJobAsynchronously(teamPerformanceAllRanksJob, new JobParametersBuilder()
+                .addLong(TeamPerformanceJobConfiguration.RANK_COUNT_PARAM, (long) rankCount)
+                .addString(TeamPerformanceJobConfiguration.UUID_PARAM, uuid)
+                .toJobParameters());
+        return "Job with id " + uuid + " was submitted";
+    }
+
+    @GetMapping("/result-cache") // Endpoint to monitor the cache of team performance job results
+    public Map<String, Long> resultCacheMetrics() {
+        Map<String, Long> metrics = new LinkedHashMap<>();
+        metrics.put("hits", resultCache.getHits());
+        metrics.put("misses", resultCache.getMisses());
+        metrics.put("evictions", resultCache.getEvictions());
+        metrics.put("entries", (long) resultCache.getEntryCount());
+        metrics.put("bytes", resultCache.getTotalBytes());
+        return metrics;
+    }
+
 //    @Scheduled(cron = "0 0/30 * * * ?") // Please uncomment for scheduled behavior
-    public void scheduledJobStarter() throws Exception {
+    public void scheduledJobStarter() {
         // For scheduled job, we are interested in best scores, hence rank = 0
         launchJobAsynchronously(0, UUID.randomUUID().toString());
     }
 
-    // Launches jobs using async job launcher and exits
-    private void launchJobAsynchronously(int scoreRank, String uuid) throws Exception {
-        jobLauncher.run(teamPerformanceJob, new JobParametersBuilder()
+    private void launchJobAsynchronously(int scoreRank, String uuid) {
+        launchJobAsynchronously(teamPerformanceJob, new JobParametersBuilder()
                 .addLong(TeamPerformanceJobConfiguration.SCORE_RANK_PARAM, (long) scoreRank)
                 .addString(TeamPerformanceJobConfiguration.UUID_PARAM, uuid)
                 .toJobParameters());
     }
+
+    // Submits the job to the bounded launch pool and exits; responds with 429 if the pool and its queue are full
+    private void launchJobAsynchronously(Job job, JobParameters jobParameters) {
+        try {
+            jobLaunchTaskExecutor.execute(() -> {
+                try {
+                    jobLauncher.run(job, jobParameters);
+                } catch (Exception e) {
+                    LOGGER.error("Job with uuid = " + jobParameters.getString(TeamPerformanceJobConfiguration.UUID_PARAM)
+                            + " could not be launched", e);
+                }
+            });
+        } catch (TaskRejectedException e) {
+            throw new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS, "Too many jobs are submitted, retry later", e);
+        }
+    }
 }
@@ -0,0 +1,107 @@
+package org.example;
+
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.StepExecutionListener;
+import org.springframework.batch.item.Chunk;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStream;
+import org.springframework.batch.item.ItemStreamException;
+import org.springframework.batch.item.file.FlatFileItemWriter;
+import org.springframework.batch.item.file.builder.FlatFileItemWriterBuilder;
+import org.springframework.core.io.WritableResource;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+
+/**
+ * Quarantine of bad division records. Rather than failing the step, or letting fault-tolerant step roll the chunk
+ * back and process it again item by item, bad records are classified up front by the reader (read skips) and the
+ * processor (process skips), and written to the dead-letter file along with their file and line position, as
+ * 'file:line: reason: record'. Dead letters are written within the chunk transaction, the same way as the output,
+ * so they are not duplicated on restart; the file is removed if there are none.
+ * Quarantined records are counted once the chunk transaction is committed, along with their dead letters, and added
+ * to the skip counts of the step execution after the step; records quarantined by the processor are filtered out by it,
+ * so they are reported as skipped rather than filtered
+ */
+public class DeadLetterQuarantine implements ItemStream, StepExecutionListener {
+
+    private final FlatFileItemWriter<String> writer;
+
+    // Number of records quarantined by the reader and the processor in committed chunks, guarded by this quarantine
+    private int readSkipCount;
+    private int processSkipCount;
+
+    public DeadLetterQuarantine(WritableResource resource) {
+        writer = new FlatFileItemWriterBuilder<String>()
+                .name("deadLetterWriter")
+                .resource(resource)
+                .lineAggregator(line -> line)
+                .shouldDeleteIfEmpty(true)
+                .build();
+    }
+
+    // Quarantine the record found bad by the reader
+    public synchronized void quarantineRead(String fileName, int lineNumber, String reason, String record) throws Exception {
+        write(fileName, lineNumber, reason, record);
+        count(true);
+    }
+
+    // Quarantine the record found bad by the processor
+    public synchronized void quarantineProcess(String fileName, int lineNumber, String reason, String record) throws Exception {
+        write(fileName, lineNumber, reason, record);
+        count(false);
+    }
+
+    private void write(String fileName, int lineNumber, String reason, String record) throws Exception {
+        writer.write(Chunk.of(fileName + ":" + lineNumber + ": " + reason + ": " + record));
+    }
+
+    // Count the quarantined record once the transaction is committed, as its dead letter is only written then,
+    // or at once if there is no transaction
+    private void count(boolean read) {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            addSkip(read);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED) {
+                    addSkip(read);
+                }
+            }
+        });
+    }
+
+    private synchronized void addSkip(boolean read) {
+        if (read) {
+            readSkipCount++;
+        } else {
+            processSkipCount++;
+        }
+    }
+
+    @Override
+    public void open(ExecutionContext executionContext) throws ItemStreamException {
+        writer.open(executionContext);
+    }
+
+    @Override
+    public void update(ExecutionContext executionContext) throws ItemStreamException {
+        writer.update(executionContext);
+    }
+
+    @Override
+    public void close() throws ItemStreamException {
+        writer.close();
+    }
+
+    @Override
+    public synchronized ExitStatus afterStep(StepExecution stepExecution) {
+        stepExecution.setReadSkipCount(stepExecution.getReadSkipCount() + readSkipCount);
+        stepExecution.setProcessSkipCount(stepExecution.getProcessSkipCount() + processSkipCount);
+        stepExecution.setFilterCount(stepExecution.getFilterCount() - processSkipCount);
+        return null;
+    }
+}
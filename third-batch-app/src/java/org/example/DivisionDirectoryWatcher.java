@@ -0,0 +1,171 @@
+package org.example;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+
+/**
+ * Watcher of the directory division files arrive into, handing them over in micro-batches. The first arriving file
+ * opens the batch, and all the files arrived by the end of the batch interval are moved into the input directory of
+ * the batch, 'batchId/input/' of the batches directory, which is then processed by the handler. Batches are processed
+ * one at a time, in the watcher thread, and files present in the directory on start make the first batch. Failed batch
+ * is handed over again, with the same id, after the batch interval, until the max number of attempts is reached.
+ * Files are expected to be moved into the directory once complete, rather than written there
+ */
+public class DivisionDirectoryWatcher implements SmartLifecycle {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DivisionDirectoryWatcher.class);
+
+    // Handler of the batch of division files
+    public interface BatchHandler {
+        void handle(String batchId, File inputDirectory) throws Exception;
+    }
+
+    private final boolean enabled;
+    private final Path directory;
+    private final File batchesDirectory;
+    private final long batchIntervalMillis;
+    private final int batchMaxAttempts;
+    private final BatchHandler handler;
+
+    private WatchService watchService;
+    private Thread thread;
+
+    public DivisionDirectoryWatcher(boolean enabled, Path directory, File batchesDirectory, long batchIntervalMillis,
+                                    int batchMaxAttempts, BatchHandler handler) {
+        if (batchMaxAttempts <= 0) {
+            throw new IllegalArgumentException("Max number of batch attempts should be positive: " + batchMaxAttempts);
+        }
+        this.enabled = enabled;
+        this.directory = directory;
+        this.batchesDirectory = batchesDirectory;
+        this.batchIntervalMillis = batchIntervalMillis;
+        this.batchMaxAttempts = batchMaxAttempts;
+        this.handler = handler;
+    }
+
+    @Override
+    public boolean isAutoStartup() {
+        return enabled;
+    }
+
+    @Override
+    public synchronized void start() {
+        try {
+            Files.createDirectories(directory);
+            watchService = directory.getFileSystem().newWatchService();
+            directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE);
+        } catch (IOException e) {
+            // Re-throw as unchecked
+            throw new RuntimeException(e);
+        }
+        thread = new Thread(this::watch, "division-watcher");
+        thread.start();
+        LOGGER.info("Watching " + directory.toAbsolutePath() + " for division files");
+    }
+
+    @Override
+    public synchronized void stop() {
+        if (thread == null) {
+            return;
+        }
+        try {
+            // Waiting for files is stopped at once, while the batch being processed is completed
+            watchService.close();
+            thread.join();
+        } catch (IOException e) {
+            // Re-throw as unchecked
+            throw new RuntimeException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        thread = null;
+    }
+
+    @Override
+    public synchronized boolean isRunning() {
+        return thread != null;
+    }
+
+    private void watch() {
+        try {
+            // Files arrived while the application was down
+            processBatch();
+            while (true) {
+                WatchKey key = watchService.take();
+                // Let the rest of the batch arrive; the directory is listed anyway, so events themselves are dropped
+                long deadline = System.currentTimeMillis() + batchIntervalMillis;
+                long remaining;
+                while ((remaining = deadline - System.currentTimeMillis()) > 0) {
+                    key.pollEvents();
+                    key.reset();
+                    WatchKey nextKey = watchService.poll(remaining, TimeUnit.MILLISECONDS);
+                    if (nextKey != null) {
+                        key = nextKey;
+                    }
+                }
+                key.pollEvents();
+                key.reset();
+                processBatch();
+            }
+        } catch (ClosedWatchServiceException | InterruptedException e) {
+            // Watcher is stopped
+        }
+    }
+
+    // Move division files of the directory into the input directory of the new batch, and hand it over
+    private void processBatch() throws InterruptedException {
+        String batchId = UUID.randomUUID().toString();
+        File inputDirectory = new File(new File(batchesDirectory, batchId), "input");
+        List<Path> files;
+        try {
+            try (Stream<Path> paths = Files.list(directory)) {
+                files = paths.filter(path -> Files.isRegularFile(path) && path.getFileName().toString().endsWith(".txt"))
+                        .sorted()
+                        .toList();
+            }
+            if (files.isEmpty()) {
+                return;
+            }
+            Files.createDirectories(inputDirectory.toPath());
+            for (Path file : files) {
+                Files.move(file, inputDirectory.toPath().resolve(file.getFileName()));
+            }
+        } catch (IOException e) {
+            // Keep watching, leaving division files moved so far for investigation
+            LOGGER.error("Batch " + batchId + " could not be submitted, its division files are kept in " + inputDirectory, e);
+            return;
+        }
+        LOGGER.info("Batch " + batchId + " of " + files.size() + " division files is submitted");
+        for (int attempt = 1; ; attempt++) {
+            try {
+                handler.handle(batchId, inputDirectory);
+                return;
+            } catch (Exception e) {
+                if (attempt >= batchMaxAttempts) {
+                    // Keep watching, leaving division files of the batch for investigation
+                    LOGGER.error("Batch " + batchId + " is failed after " + attempt + " attempts, its division files are kept in "
+                            + inputDirectory, e);
+                    return;
+                }
+                LOGGER.warn("Attempt " + attempt + " of batch " + batchId + " is failed, retrying in "
+                        + batchIntervalMillis + " ms", e);
+            }
+            Thread.sleep(batchIntervalMillis);
+        }
+    }
+}
@@ -6,17 +6,37 @@ import org.springframework.batch.item.file.FlatFileItemReader;
 import org.springframework.batch.item.file.ResourceAwareItemReaderItemStream;
 import org.springframework.core.io.Resource;
 
-import java.util.Optional;
 
-
-// Multi-line flat file reader, which relies on plain string line reader, for reading multi-line team entities
+/**
+ * Multi-line flat file reader, which relies on plain string line reader, for reading multi-line team entities.
+ * If quarantine is given, bad records are quarantined rather than read: players without team, teams with malformed
+ * player lines (no name or no scores), and teams without players
+ */
 public class DivisionFileReader implements ResourceAwareItemReaderItemStream<Team> {
 
     // Plain string line reader
     private final FlatFileItemReader<String> delegateReader;
+    // Quarantine of bad records, or null to read them as they are (players without team are ignored)
+    private final DeadLetterQuarantine quarantine;
+
+    // Name of the file being read and number of the last read line, to report position of bad records
+    private String fileName;
+    private int lineNumber;
 
     public DivisionFileReader(FlatFileItemReader<String> delegateReader) {
+        this(delegateReader, null);
+    }
+
+    public DivisionFileReader(FlatFileItemReader<String> delegateReader, DeadLetterQuarantine quarantine) {
         this.delegateReader = delegateReader;
+        this.quarantine = quarantine;
+        if (quarantine != null) {
+            // Line mapper is replaced to keep track of the line number, which counts skipped comment lines as well
+            delegateReader.setLineMapper((line, lineNumber) -> {
+                this.lineNumber = lineNumber;
+                return line;
+            });
+        }
     }
 
     @Override
@@ -35,43 +55,71 @@ public class DivisionFileReader implements ResourceAwareItemReaderItemStream<Tea
     public void setResource(Resource resource) {
         // Make sure that resource specific calls are propagated to the delegate
         delegateReader.setResource(resource);
+        fileName = resource.getFilename();
     }
 
     @Override
     public Team read() throws Exception {
-        // Create reference to the team (as optional), such that it's shared across line reads
-        Optional<Team> maybeTeam = Optional.empty();
+        // Reference to the team, shared across line reads (null until team name is read)
+        Team team = null;
+        // Reason why the team is bad, if it is
+        String badTeamReason = null;
         String line;
 
         // Iterate over lines until team record is completed or EOF reached
         while ((line = delegateReader.read()) != null) {
             line = line.trim(); // Removing spaces left and right
+            int colonIndex = line.indexOf(':');
             if (line.isEmpty()) { // Empty line designate end-of-record
-                return maybeTeam.orElse(null);
-            } else if (!line.contains(":")) { // No colon means that team name is listed
-                maybeTeam = Optional.of(new Team(line));
-            } else { // Otherwise, we have a colon, and it's a sign that it's player's description
-                final String[] nameAndScores = line.split(":");
-                maybeTeam.ifPresent(team -> team.getScoredPlayers().add(parseScoredPlayer(nameAndScores)));
+                if (team == null) { // No record yet (e.g. several empty lines), which is not the end of the file
+                    continue;
+                }
+                if (accept(team, badTeamReason)) {
+                    return team;
+                }
+                // Bad team is quarantined, so proceed with the next record
+                team = null;
+                badTeamReason = null;
+            } else if (colonIndex < 0) { // No colon means that team name is listed
+                team = new Team(line, fileName, lineNumber);
+            } else if (team != null) { // Otherwise, we have a colon, and it's a sign that it's player's description
+                Team.ScoredPlayer scoredPlayer = parseScoredPlayer(line, colonIndex);
+                if (quarantine != null && (scoredPlayer.getName().isEmpty() || !scoredPlayer.hasScores())) {
+                    badTeamReason = "Malformed player line " + lineNumber + " '" + line + "'";
+                } else {
+                    team.getScoredPlayers().add(scoredPlayer);
+                }
+            } else if (quarantine != null) {
+                quarantine.quarantineRead(fileName, lineNumber, "Player without team", line);
             }
         }
 
         // It's possible that we've already accumulated an item, so EOF should not lose the progress
         // and team entity should be returned. This will cause DivisionFileReader.read() to be called again
         // and return null (in this case, team reference will be null), which is perfectly valid
-        return maybeTeam.orElse(null);
+        return team == null || accept(team, badTeamReason) ? team : null;
     }
 
-    // Parse 2-size array of strings (first is name, second is comma-separated scores) into scored player entity
-    private Team.ScoredPlayer parseScoredPlayer(String[] nameAndScores) {
-        String name = nameAndScores[0];
-        String[] scores = nameAndScores[1].split(",");
-        Team.ScoredPlayer scoredPlayer = new Team.ScoredPlayer(name);
-
-        for (String score : scores) {
-            scoredPlayer.getScores().add(Double.parseDouble(score));
+    // Whether the team is good to be read; bad team is quarantined (if there is a quarantine)
+    private boolean accept(Team team, String badTeamReason) throws Exception {
+        if (quarantine == null) {
+            return true;
+        }
+        if (badTeamReason == null && team.getScoredPlayers().isEmpty()) {
+            badTeamReason = "Team without players";
         }
+        if (badTeamReason == null) {
+            return true;
+        }
+        quarantine.quarantineRead(team.getFileName(), team.getLineNumber(), badTeamReason, team.getName());
+        return false;
+    }
 
-        return scoredPlayer;
+    // Parse player's line (name, colon, then comma-separated scores) into scored player entity,
+    // keeping scores unparsed until the score of specific rank is requested
+    private static Team.ScoredPlayer parseScoredPlayer(String line, int colonIndex) {
+        int scoresEnd = line.indexOf(':', colonIndex + 1); // Anything after the second colon is ignored
+        return new Team.ScoredPlayer(line.substring(0, colonIndex), line, colonIndex + 1,
+                scoresEnd < 0 ? line.length() : scoresEnd);
     }
 }
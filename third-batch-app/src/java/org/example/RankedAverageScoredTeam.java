@@ -0,0 +1,22 @@
+package org.example;
+
+
+// Entity for team name and corresponding average scores of all the calculated ranks, indexed by rank
+public class RankedAverageScoredTeam {
+
+    private final String name;
+    private final double[] averageScores;
+
+    public RankedAverageScoredTeam(String name, double[] averageScores) {
+        this.name = name;
+        this.averageScores = averageScores;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public double[] getAverageScores() {
+        return averageScores;
+    }
+}
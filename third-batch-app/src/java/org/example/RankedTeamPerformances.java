@@ -0,0 +1,28 @@
+package org.example;
+
+
+// Entity holding team's average score and performances of every calculated rank, indexed by rank
+public class RankedTeamPerformances {
+
+    private final String name;
+    private final double[] averageScores;
+    private final TeamRatioPerformances[] ratioPerformances;
+
+    public RankedTeamPerformances(String name, double[] averageScores, TeamRatioPerformances[] ratioPerformances) {
+        this.name = name;
+        this.averageScores = averageScores;
+        this.ratioPerformances = ratioPerformances;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public double[] getAverageScores() {
+        return averageScores;
+    }
+
+    public TeamRatioPerformances[] getRatioPerformances() {
+        return ratioPerformances;
+    }
+}
@@ -0,0 +1,80 @@
+package org.example;
+
+import org.springframework.util.FileSystemUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+
+/**
+ * Commit replacing several files of the directory together. New contents of the files are staged in the staging
+ * directory first, then the commit is marked with its id, and only then staged files are moved over the files of the
+ * directory one by one. Interrupted commit is recovered before the files are read or staged again: the one which is not
+ * marked yet is rolled back (staged files are dropped), while the marked one is rolled forward (the rest of staged files
+ * are moved), so that files of the directory are never left partly replaced
+ */
+public class StagedFileCommit {
+
+    // Staging directory within the directory, and the file of the staging directory marking the commit with its id
+    private static final String STAGING_DIRECTORY = ".staging";
+    private static final String COMMIT_MARKER = ".committed";
+
+    private final File directory;
+    private final File stagingDirectory;
+
+    public StagedFileCommit(File directory) {
+        this.directory = directory;
+        this.stagingDirectory = new File(directory, STAGING_DIRECTORY);
+    }
+
+    /**
+     * Recover from the interrupted commit, if there is one
+     *
+     * @return id of the commit rolled forward, or null if there is none
+     */
+    public String recover() throws IOException {
+        if (!stagingDirectory.exists()) {
+            return null;
+        }
+        Path marker = new File(stagingDirectory, COMMIT_MARKER).toPath();
+        if (!Files.exists(marker)) {
+            FileSystemUtils.deleteRecursively(stagingDirectory.toPath());
+            return null;
+        }
+        String id = Files.readString(marker);
+        moveStagedFiles();
+        return id;
+    }
+
+    // Staged file replacing the file of the directory with the same name on commit
+    public File stage(String fileName) throws IOException {
+        Files.createDirectories(stagingDirectory.toPath());
+        return new File(stagingDirectory, fileName);
+    }
+
+    // Mark the commit with the id, so that it's rolled forward if interrupted from now on, and move the staged files
+    public void commit(String id) throws IOException {
+        Files.createDirectories(stagingDirectory.toPath());
+        Path tempMarker = Files.createTempFile(stagingDirectory.toPath(), COMMIT_MARKER, ".tmp");
+        Files.writeString(tempMarker, id);
+        Files.move(tempMarker, new File(stagingDirectory, COMMIT_MARKER).toPath(), StandardCopyOption.ATOMIC_MOVE);
+        moveStagedFiles();
+    }
+
+    // Move staged files over the files of the directory, then remove the marker and the staging directory
+    private void moveStagedFiles() throws IOException {
+        File[] stagedFiles = stagingDirectory.listFiles(file -> !file.getName().equals(COMMIT_MARKER));
+        if (stagedFiles == null) {
+            throw new IOException("Staging directory " + stagingDirectory + " could not be listed");
+        }
+        for (File stagedFile : stagedFiles) {
+            Files.move(stagedFile.toPath(), new File(directory, stagedFile.getName()).toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        Files.delete(new File(stagingDirectory, COMMIT_MARKER).toPath());
+        Files.delete(stagingDirectory.toPath());
+    }
+}
@@ -1,6 +1,6 @@
 package org.example;
 
-import java.util.LinkedList;
+import java.util.ArrayList;
 import java.util.List;
 
 
@@ -8,37 +8,129 @@ import java.util.List;
 public class Team {
 
     private final String name;
-    private final List<ScoredPlayer> scoredPlayers = new LinkedList<>();
+    // Array-backed, since players are accessed by index and appended only
+    private final List<ScoredPlayer> scoredPlayers = new ArrayList<>();
+    // Position of the team name in the division file, if known, to report bad records
+    private final String fileName;
+    private final int lineNumber;
 
     public Team(String name) {
+        this(name, null, 0);
+    }
+
+    public Team(String name, String fileName, int lineNumber) {
         this.name = name;
+        this.fileName = fileName;
+        this.lineNumber = lineNumber;
     }
 
     public String getName() {
         return name;
     }
 
+    public String getFileName() {
+        return fileName;
+    }
+
+    public int getLineNumber() {
+        return lineNumber;
+    }
+
     public List<ScoredPlayer> getScoredPlayers() {
         return scoredPlayers;
     }
 
-    // Auxiliary entity representing player with the list of scores
+    /**
+     * Auxiliary entity representing player with the list of scores. Scores are kept as the raw comma-separated slice
+     * of the division file line, and only the score of the requested rank is parsed, since job needs a single rank
+     * out of all of them
+     */
     public static class ScoredPlayer {
 
         private final String name;
-        // Technically scores could be in any order, but according to file format, will be in descending order
-        private final List<Double> scores = new LinkedList<>();
+        // Line containing comma-separated scores, and bounds of the scores slice in it
+        private final String line;
+        private final int scoresStart;
+        private final int scoresEnd;
 
-        public ScoredPlayer(String name) {
+        public ScoredPlayer(String name, String line, int scoresStart, int scoresEnd) {
             this.name = name;
+            this.line = line;
+            this.scoresStart = scoresStart;
+            this.scoresEnd = scoresEnd;
         }
 
         public String getName() {
             return name;
         }
 
-        public List<Double> getScores() {
-            return scores;
+        /**
+         * Parse the score of the specified rank. Technically scores could be in any order, but according to file
+         * format, will be in descending order
+         *
+         * @param rank zero-based score rank
+         * @return score of the rank
+         * @throws IndexOutOfBoundsException if player has fewer scores than rank requires
+         * @throws NumberFormatException if the score is not a number
+         */
+        public double getScore(int rank) {
+            if (rank < 0) {
+                throw new IndexOutOfBoundsException("Score rank " + rank + " is negative");
+            }
+            int start = scoresStart;
+            for (int i = 0; i < rank; i++) {
+                int comma = line.indexOf(',', start);
+                if (comma < 0 || comma >= scoresEnd) {
+                    throw new IndexOutOfBoundsException("Score rank " + rank + " is out of bounds for player " + name
+                            + " with " + (i + 1) + " scores");
+                }
+                start = comma + 1;
+            }
+            int end = line.indexOf(',', start);
+            return Double.parseDouble(line.substring(start, end < 0 || end > scoresEnd ? scoresEnd : end));
+        }
+
+        /**
+         * Parse scores of all ranks at once, up to the length of the specified array
+         *
+         * @param scores array to put scores into, by rank
+         * @return number of parsed scores, i.e. the smaller of the array length and the number of scores
+         * @throws NumberFormatException if any of the parsed scores is not a number
+         */
+        public int parseScores(double[] scores) {
+            int count = 0;
+            int start = scoresStart;
+            while (count < scores.length) {
+                int end = line.indexOf(',', start);
+                if (end < 0 || end > scoresEnd) {
+                    end = scoresEnd;
+                }
+                scores[count++] = Double.parseDouble(line.substring(start, end));
+                if (end == scoresEnd) {
+                    break;
+                }
+                start = end + 1;
+            }
+            return count;
+        }
+
+        // Whether there are any scores, i.e. the scores slice is not empty
+        public boolean hasScores() {
+            return scoresEnd > scoresStart;
+        }
+
+        // Number of scores, counted without parsing them
+        public int getScoreCount() {
+            if (!hasScores()) {
+                return 0;
+            }
+            int count = 1;
+            for (int i = scoresStart; i < scoresEnd; i++) {
+                if (line.charAt(i) == ',') {
+                    count++;
+                }
+            }
+            return count;
         }
     }
 }
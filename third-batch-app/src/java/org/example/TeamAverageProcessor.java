@@ -1,16 +1,24 @@
 package org.example;
 
+import org.springframework.batch.core.ExitStatus;
 import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.StepExecutionListener;
 import org.springframework.batch.item.ExecutionContext;
 import org.springframework.batch.item.ItemProcessor;
+import org.springframework.batch.item.ItemStream;
 
 
 /**
  * Processor for calculating average score for a team by the specified score rank.
- * As a side effect, puts best and worst player's score and name (in the specified score rank)
- * in a step-specific execution context
+ * As a side effect, keeps best and worst player's score and name (in the specified score rank), and publishes them
+ * in a step-specific execution context. They are accumulated in plain fields, rather than in the context, and put
+ * into the context only when it's saved, i.e. at chunk commit (as a stream) and after the step (as a listener);
+ * both are registered automatically once processor is set to the step. Accumulation is thread-safe, so the same
+ * instance could be used by multi-threaded step.
+ * If quarantine is given, teams having a player without score of the rank, or with malformed one, are quarantined
+ * and filtered out, rather than failing the step
  */
-public class TeamAverageProcessor implements ItemProcessor<Team, AverageScoredTeam> {
+public class TeamAverageProcessor implements ItemProcessor<Team, AverageScoredTeam>, ItemStream, StepExecutionListener {
 
     // Execution context key names
     public static final String MAX_SCORE = "max.score";
@@ -19,47 +27,115 @@ public class TeamAverageProcessor implements ItemProcessor<Team, AverageScoredTe
     public static final String MIN_PLAYER = "min.player";
 
     private final int scoreRank;
-    private StepExecution stepExecution;
+    // Quarantine of bad teams, or null to fail on them
+    private final DeadLetterQuarantine quarantine;
+
+    // Best and worst scores so far with their players, guarded by this processor
+    private Double maxScore;
+    private String maxPlayer;
+    private Double minScore;
+    private String minPlayer;
 
     public TeamAverageProcessor(int scoreRank) {
-        this.scoreRank = scoreRank;
+        this(scoreRank, null);
     }
 
-    public void setStepExecution(StepExecution stepExecution) {
-        this.stepExecution = stepExecution;
+    public TeamAverageProcessor(int scoreRank, DeadLetterQuarantine quarantine) {
+        if (scoreRank < 0) {
+            throw new IllegalArgumentException("Score rank should not be negative: " + scoreRank);
+        }
+        this.scoreRank = scoreRank;
+        this.quarantine = quarantine;
     }
 
     @Override
     public AverageScoredTeam process(Team team) throws Exception {
-        if (stepExecution == null) {
-            throw new RuntimeException("Team average processor can not execute without step execution set");
-        }
-
-        ExecutionContext stepContext = stepExecution.getExecutionContext();
-
-        Double maxScore = stepContext.containsKey(MAX_SCORE) ? stepContext.getDouble(MAX_SCORE) : null;
-        Double minScore = stepContext.containsKey(MIN_SCORE) ? stepContext.getDouble(MIN_SCORE) : null;
+        // Best and worst players of the team are found without locking, and only then merged
+        double teamMaxScore = 0;
+        String teamMaxPlayer = null;
+        double teamMinScore = 0;
+        String teamMinPlayer = null;
 
         double sum = 0;
         double count = 0;
         for (Team.ScoredPlayer scoredPlayer : team.getScoredPlayers()) {
-            double score = scoredPlayer.getScores().get(scoreRank); // Get score of the specified rank
+            double score;
+            try {
+                score = scoredPlayer.getScore(scoreRank); // Parse score of the specified rank only
+            } catch (IndexOutOfBoundsException | NumberFormatException e) {
+                // Score rank isn't negative, so both are problems of the player's data: too few scores, or malformed one
+                if (quarantine == null) {
+                    throw e;
+                }
+                // Nothing is accumulated for the team yet, so it's enough to filter it out
+                quarantine.quarantineProcess(team.getFileName(), team.getLineNumber(), e instanceof NumberFormatException
+                        ? "Malformed score of player " + scoredPlayer.getName() + ", " + e.getMessage()
+                        : e.getMessage(), team.getName());
+                return null;
+            }
 
-            if (maxScore == null || score > maxScore) {
-                stepContext.putDouble(MAX_SCORE, score);
-                stepContext.putString(MAX_PLAYER, scoredPlayer.getName());
-                maxScore = score;
+            if (teamMaxPlayer == null || score > teamMaxScore) {
+                teamMaxScore = score;
+                teamMaxPlayer = scoredPlayer.getName();
             }
 
-            if (minScore == null || score < minScore) {
-                stepContext.putDouble(MIN_SCORE, score);
-                stepContext.putString(MIN_PLAYER, scoredPlayer.getName());
-                minScore = score;
+            if (teamMinPlayer == null || score < teamMinScore) {
+                teamMinScore = score;
+                teamMinPlayer = scoredPlayer.getName();
             }
 
             sum += score;
             count++;
         }
+
+        if (count > 0) {
+            accumulate(teamMaxScore, teamMaxPlayer, teamMinScore, teamMinPlayer);
+        }
         return new AverageScoredTeam(team.getName(), sum / count);
     }
+
+    // Merge best and worst players of the team; the earlier player keeps the place on equal scores
+    private synchronized void accumulate(double teamMaxScore, String teamMaxPlayer,
+                                         double teamMinScore, String teamMinPlayer) {
+        if (maxScore == null || teamMaxScore > maxScore) {
+            maxScore = teamMaxScore;
+            maxPlayer = teamMaxPlayer;
+        }
+        if (minScore == null || teamMinScore < minScore) {
+            minScore = teamMinScore;
+            minPlayer = teamMinPlayer;
+        }
+    }
+
+    @Override
+    public synchronized void open(ExecutionContext executionContext) {
+        // On restart, continue with the best and worst players of the committed chunks
+        maxScore = executionContext.containsKey(MAX_SCORE) ? executionContext.getDouble(MAX_SCORE) : null;
+        maxPlayer = executionContext.containsKey(MAX_PLAYER) ? executionContext.getString(MAX_PLAYER) : null;
+        minScore = executionContext.containsKey(MIN_SCORE) ? executionContext.getDouble(MIN_SCORE) : null;
+        minPlayer = executionContext.containsKey(MIN_PLAYER) ? executionContext.getString(MIN_PLAYER) : null;
+    }
+
+    @Override
+    public void update(ExecutionContext executionContext) {
+        // Called right before the context is saved within chunk transaction
+        publish(executionContext);
+    }
+
+    @Override
+    public ExitStatus afterStep(StepExecution stepExecution) {
+        publish(stepExecution.getExecutionContext());
+        return null;
+    }
+
+    private synchronized void publish(ExecutionContext executionContext) {
+        if (maxScore != null) {
+            executionContext.putDouble(MAX_SCORE, maxScore);
+            executionContext.putString(MAX_PLAYER, maxPlayer);
+        }
+        if (minScore != null) {
+            executionContext.putDouble(MIN_SCORE, minScore);
+            executionContext.putString(MIN_PLAYER, minPlayer);
+        }
+    }
 }
@@ -0,0 +1,63 @@
+package org.example;
+
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.partition.support.DefaultStepExecutionAggregator;
+import org.springframework.batch.core.partition.support.StepExecutionAggregator;
+import org.springframework.batch.item.ExecutionContext;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+
+/**
+ * Aggregator of partitioned average team score step, with one partition per division file. Besides the default
+ * aggregation of counts and statuses, merges best and worst player's score and name of every partition into the
+ * manager step execution context, so that they could be promoted to the job execution context as for the
+ * non-partitioned step. Partitions are merged in the order of division file names, and only a strictly better
+ * (or worse) score replaces the current one, so ties are resolved as if the files were read one after another
+ */
+public class TeamAverageStepExecutionAggregator implements StepExecutionAggregator {
+
+    // Key of the division file in partition execution context (see MultiResourcePartitioner)
+    public static final String FILE_NAME = "fileName";
+
+    private final StepExecutionAggregator delegate = new DefaultStepExecutionAggregator();
+
+    @Override
+    public void aggregate(StepExecution result, Collection<StepExecution> executions) {
+        delegate.aggregate(result, executions);
+
+        List<StepExecution> orderedExecutions = new ArrayList<>(executions);
+        orderedExecutions.sort(Comparator.comparing(execution -> getFileName(execution.getExecutionContext())));
+
+        ExecutionContext resultContext = result.getExecutionContext();
+        for (StepExecution execution : orderedExecutions) {
+            ExecutionContext context = execution.getExecutionContext();
+            mergeScore(context, resultContext, TeamAverageProcessor.MAX_SCORE, TeamAverageProcessor.MAX_PLAYER, true);
+            mergeScore(context, resultContext, TeamAverageProcessor.MIN_SCORE, TeamAverageProcessor.MIN_PLAYER, false);
+        }
+    }
+
+    // Put score and player of the partition into the result context, if it's the first one or strictly better
+    // (strictly worse for min) than the current one
+    private static void mergeScore(ExecutionContext partitionContext, ExecutionContext resultContext,
+                                   String scoreKey, String playerKey, boolean max) {
+        if (!partitionContext.containsKey(scoreKey)) {
+            return; // Partition has no teams
+        }
+        double score = partitionContext.getDouble(scoreKey);
+        if (!resultContext.containsKey(scoreKey)
+                || (max ? score > resultContext.getDouble(scoreKey) : score < resultContext.getDouble(scoreKey))) {
+            resultContext.putDouble(scoreKey, score);
+            resultContext.putString(playerKey, partitionContext.getString(playerKey));
+        }
+    }
+
+    // Name of the division file of the partition without path, e.g. 'div1.txt'
+    private static String getFileName(ExecutionContext partitionContext) {
+        String url = partitionContext.getString(FILE_NAME);
+        return url.substring(url.lastIndexOf('/') + 1);
+    }
+}
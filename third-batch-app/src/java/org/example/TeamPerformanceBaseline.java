@@ -0,0 +1,132 @@
+package org.example;
+
+import org.springframework.batch.item.ExecutionContext;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Objects;
+import java.util.Properties;
+
+
+/**
+ * Baseline of team performances: best and worst player's score and name. Could be kept in the execution context, under
+ * the same keys {@link TeamAverageProcessor} publishes them, or persisted in a properties file
+ */
+public class TeamPerformanceBaseline {
+
+    private final double maxScore;
+    private final String maxPlayer;
+    private final double minScore;
+    private final String minPlayer;
+
+    public TeamPerformanceBaseline(double maxScore, String maxPlayer, double minScore, String minPlayer) {
+        this.maxScore = maxScore;
+        this.maxPlayer = maxPlayer;
+        this.minScore = minScore;
+        this.minPlayer = minPlayer;
+    }
+
+    public double getMaxScore() {
+        return maxScore;
+    }
+
+    public String getMaxPlayer() {
+        return maxPlayer;
+    }
+
+    public double getMinScore() {
+        return minScore;
+    }
+
+    public String getMinPlayer() {
+        return minPlayer;
+    }
+
+    /**
+     * Merge with the baseline of the players coming later; players of this baseline keep the place on equal scores
+     *
+     * @param later baseline of the later players, or null if there are none
+     * @return merged baseline
+     */
+    public TeamPerformanceBaseline merge(TeamPerformanceBaseline later) {
+        if (later == null) {
+            return this;
+        }
+        boolean laterMax = later.maxScore > maxScore;
+        boolean laterMin = later.minScore < minScore;
+        return new TeamPerformanceBaseline(laterMax ? later.maxScore : maxScore, laterMax ? later.maxPlayer : maxPlayer,
+                laterMin ? later.minScore : minScore, laterMin ? later.minPlayer : minPlayer);
+    }
+
+    // Baseline published in the execution context, or null if none is published (i.e. no players are processed)
+    public static TeamPerformanceBaseline fromContext(ExecutionContext executionContext) {
+        if (!executionContext.containsKey(TeamAverageProcessor.MAX_SCORE)) {
+            return null;
+        }
+        return new TeamPerformanceBaseline(
+                executionContext.getDouble(TeamAverageProcessor.MAX_SCORE),
+                executionContext.getString(TeamAverageProcessor.MAX_PLAYER),
+                executionContext.getDouble(TeamAverageProcessor.MIN_SCORE),
+                executionContext.getString(TeamAverageProcessor.MIN_PLAYER));
+    }
+
+    public void toContext(ExecutionContext executionContext) {
+        executionContext.putDouble(TeamAverageProcessor.MAX_SCORE, maxScore);
+        executionContext.putString(TeamAverageProcessor.MAX_PLAYER, maxPlayer);
+        executionContext.putDouble(TeamAverageProcessor.MIN_SCORE, minScore);
+        executionContext.putString(TeamAverageProcessor.MIN_PLAYER, minPlayer);
+    }
+
+    // Baseline persisted in the file, or null if the file doesn't exist
+    public static TeamPerformanceBaseline load(File file) throws IOException {
+        if (!file.exists()) {
+            return null;
+        }
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(file.toPath())) {
+            properties.load(in);
+        }
+        return new TeamPerformanceBaseline(
+                Double.parseDouble(properties.getProperty(TeamAverageProcessor.MAX_SCORE)),
+                properties.getProperty(TeamAverageProcessor.MAX_PLAYER),
+                Double.parseDouble(properties.getProperty(TeamAverageProcessor.MIN_SCORE)),
+                properties.getProperty(TeamAverageProcessor.MIN_PLAYER));
+    }
+
+    // Persist the baseline, replacing the file at once, so that it's never read half-written
+    public void save(File file) throws IOException {
+        Properties properties = new Properties();
+        properties.setProperty(TeamAverageProcessor.MAX_SCORE, Double.toString(maxScore));
+        properties.setProperty(TeamAverageProcessor.MAX_PLAYER, maxPlayer);
+        properties.setProperty(TeamAverageProcessor.MIN_SCORE, Double.toString(minScore));
+        properties.setProperty(TeamAverageProcessor.MIN_PLAYER, minPlayer);
+        Path tempFile = Files.createTempFile(file.getParentFile().toPath(), file.getName(), ".tmp");
+        try (OutputStream out = Files.newOutputStream(tempFile)) {
+            properties.store(out, "Team performance baseline");
+        }
+        Files.move(tempFile, file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof TeamPerformanceBaseline)) {
+            return false;
+        }
+        TeamPerformanceBaseline that = (TeamPerformanceBaseline) o;
+        return Double.compare(maxScore, that.maxScore) == 0 && Objects.equals(maxPlayer, that.maxPlayer)
+                && Double.compare(minScore, that.minScore) == 0 && Objects.equals(minPlayer, that.minPlayer);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(maxScore, maxPlayer, minScore, minPlayer);
+    }
+}
@@ -2,8 +2,11 @@ package org.example;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.BatchStatus;
 import org.springframework.batch.core.ExitStatus;
 import org.springframework.batch.core.Job;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobParametersBuilder;
 import org.springframework.batch.core.Step;
 import org.springframework.batch.core.StepExecution;
 import org.springframework.batch.core.StepExecutionListener;
@@ -14,21 +17,26 @@ import org.springframework.batch.core.job.builder.JobBuilder;
 import org.springframework.batch.core.job.flow.Flow;
 import org.springframework.batch.core.job.flow.support.SimpleFlow;
 import org.springframework.batch.core.launch.JobLauncher;
-import org.springframework.batch.core.launch.support.TaskExecutorJobLauncher;
 import org.springframework.batch.core.listener.ExecutionContextPromotionListener;
+import org.springframework.batch.core.partition.support.MultiResourcePartitioner;
 import org.springframework.batch.core.repository.JobRepository;
 import org.springframework.batch.core.step.builder.StepBuilder;
 import org.springframework.batch.core.step.tasklet.CommandRunner;
 import org.springframework.batch.core.step.tasklet.JvmCommandRunner;
 import org.springframework.batch.core.step.tasklet.Tasklet;
+import org.springframework.batch.item.ExecutionContext;
 import org.springframework.batch.item.ItemProcessor;
-import org.springframework.batch.item.ItemReader;
+import org.springframework.batch.item.ItemWriter;
 import org.springframework.batch.item.file.FlatFileHeaderCallback;
 import org.springframework.batch.item.file.FlatFileItemReader;
+import org.springframework.batch.item.file.FlatFileItemWriter;
+import org.springframework.batch.item.file.MultiResourceItemReader;
 import org.springframework.batch.item.file.builder.FlatFileItemReaderBuilder;
 import org.springframework.batch.item.file.builder.FlatFileItemWriterBuilder;
 import org.springframework.batch.item.file.builder.MultiResourceItemReaderBuilder;
 import org.springframework.batch.item.file.transform.DelimitedLineTokenizer;
+import org.springframework.batch.item.support.CompositeItemWriter;
+import org.springframework.batch.item.support.builder.CompositeItemWriterBuilder;
 import org.springframework.batch.repeat.RepeatStatus;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
@@ -38,52 +46,74 @@ import org.springframework.boot.sql.init.DatabaseInitializationMode;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.PropertySource;
+import org.springframework.core.io.FileSystemResource;
 import org.springframework.core.io.Resource;
 import org.springframework.core.io.WritableResource;
-import org.springframework.core.task.SimpleAsyncTaskExecutor;
 import org.springframework.core.task.TaskExecutor;
 import org.springframework.jdbc.datasource.DriverManagerDataSource;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.transaction.PlatformTransactionManager;
 
 import javax.sql.DataSource;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.Writer;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 
 @Configuration
 @EnableBatchProcessing
-@PropertySource("classpath:db.properties")
+@PropertySource({"classpath:db.properties", "classpath:team_performance.properties"})
 public class TeamPerformanceJobConfiguration {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(TeamPerformanceJobConfiguration.class);
     // Job parameter names
     public static final String SCORE_RANK_PARAM = "scoreRank";
     public static final String UUID_PARAM = "uuid";
+    public static final String RANK_COUNT_PARAM = "rankCount";
+    public static final String INPUT_DIRECTORY_PARAM = "inputDirectory";
+    // Execution context key of the result cache key, and exit status of the step finding results in the cache
+    public static final String RESULT_CACHE_KEY = "result.cache.key";
+    public static final String RESULT_CACHE_HIT = "RESULT_CACHE_HIT";
+    // Execution context key of the flag whether global baseline is changed by the batch of the watch job
+    public static final String WATCH_BASELINE_CHANGED = "watch.baseline.changed";
 
     @Value("classpath:input/*.txt")
     private Resource[] inDivisionResources;
 
-    @Value("file:calculated/avg.txt")
-    private WritableResource outAvgResource;
+    @Value("file:calculated/")
+    private WritableResource calculatedDirectoryResource;
 
-    @Value("file:calculated/max.txt")
-    private WritableResource maxPerformanceRatioOutResource;
+    @Value("${average.partitioned}")
+    private boolean averagePartitioned;
 
-    @Value("file:calculated/min.txt")
-    private WritableResource minPerformanceRatioOutResource;
+    @Value("${ratio.performance.single.scan}")
+    private boolean ratioPerformanceSingleScan;
 
-    @Value("file:calculated/")
-    private WritableResource calculatedDirectoryResource;
+    @Value("${result.cache.enabled}")
+    private boolean resultCacheEnabled;
 
     @Bean
     @Qualifier("teamPerformanceJob")
     public Job teamPerformanceJob(JobRepository jobRepository,
                                   @Qualifier("threadPoolTaskExecutor") TaskExecutor threadPoolTaskExecutor,
                                   @Qualifier("averageTeamScoreStep") Step averageTeamScoreStep,
+                                  @Qualifier("averageTeamScorePartitionedStep") Step averageTeamScorePartitionedStep,
+                                  @Qualifier("averageConcatenationStep") Step averageConcatenationStep,
                                   @Qualifier("teamMaxRatioPerformanceStep") Step teamMaxRatioPerformanceStep,
                                   @Qualifier("teamMinRatioPerformanceStep") Step teamMinRatioPerformanceStep,
+                                  @Qualifier("teamRatioPerformanceStep") Step teamRatioPerformanceStep,
+                                  @Qualifier("resultCacheLookupStep") Step resultCacheLookupStep,
+                                  @Qualifier("resultCacheStoreStep") Step resultCacheStoreStep,
                                   @Qualifier("shellScriptStep") Step shellScriptStep,
                                   @Qualifier("successLoggerStep") Step successLoggerStep) {
         // Wrap both performance steps into corresponding flows
@@ -98,20 +128,58 @@ public class TeamPerformanceJobConfiguration {
                 .add(maxRatioPerformanceFlow, minRatioPerformanceFlow)
                 .build();
 
-        // Now, hook everything together
-        return new JobBuilder("teamPerformanceJob", jobRepository)
-                // 1. (Start) Flow with single step -> average team score
-                // (flow is needed since the next is split flow, not a step)
-                .start(new FlowBuilder<SimpleFlow>("averageTeamScoreFlow")
+        // Unless configured otherwise, both performances are calculated by a single step reading averages once
+        Flow performanceFlow = ratioPerformanceSingleScan
+                ? new FlowBuilder<SimpleFlow>("ratioPerformanceFlow").start(teamRatioPerformanceStep).build()
+                : performanceSplitFlow;
+
+        // Flow with single step -> average team score, or partitioned by division if configured, followed by the step
+        // concatenating averages of the partitions (flow is needed since the next is split flow, not a step)
+        Flow averageTeamScoreFlow = averagePartitioned
+                ? new FlowBuilder<SimpleFlow>("averageTeamScoreFlow")
+                        .start(averageTeamScorePartitionedStep)
+                        .next(averageConcatenationStep)
+                        .build()
+                : new FlowBuilder<SimpleFlow>("averageTeamScoreFlow")
                         .start(averageTeamScoreStep)
-                        .build())
-                // 2. Next is parallel flow with 2 performance steps running in parallel
-                .next(performanceSplitFlow)
-                // 3. Execute shell script after done with parallel performance steps
+                        .build();
+
+        if (!resultCacheEnabled) {
+            // Now, hook everything together
+            return new JobBuilder("teamPerformanceJob", jobRepository)
+                    // 1. (Start) Average team score flow
+                    .start(averageTeamScoreFlow)
+                    // 2. Next is single performance step, or parallel flow with 2 performance steps running in parallel
+                    .next(performanceFlow)
+                    // 3. Execute shell script after done with parallel performance steps
+                    .next(shellScriptStep)
+                    // 4. Last step is to execute logging the success step
+                    .next(successLoggerStep)
+                    .build()
+                    .build();
+        }
+
+        // Now, hook everything together, calculating only if results of the same input are not cached
+        return new JobBuilder("teamPerformanceJob", jobRepository)
+                // 0. (Start) Look up results of the same division files and score rank in the cache
+                .start(resultCacheLookupStep)
+                // On cache hit, results are already copied, so proceed straight to the shell script
+                .on(RESULT_CACHE_HIT).to(shellScriptStep)
+                // On cache miss, calculate the results as usual
+                .from(resultCacheLookupStep).on(ExitStatus.COMPLETED.getExitCode())
+                // 1. Average team score flow
+                .to(averageTeamScoreFlow)
+                // 2. Next is single performance step, or parallel flow with 2 performance steps running in parallel
+                .next(performanceFlow)
+                // 3. Put results into the cache for the next jobs with the same input
+                .next(resultCacheStoreStep)
+                // 4. Execute shell script after done with performance steps
                 .next(shellScriptStep)
-                // 4. Last step is to execute logging the success step
+                // 5. Last step is to execute logging the success step
                 .next(successLoggerStep)
-                .build()
+                // Fail the job if the cache could not be looked up
+                .from(resultCacheLookupStep).on("*").fail()
+                .end()
                 .build();
     }
 
@@ -127,58 +195,41 @@ public class TeamPerformanceJobConfiguration {
     @Bean
     @Qualifier("averageTeamScoreStep")
     public Step averageTeamScoreStep(JobRepository jobRepository, PlatformTransactionManager transactionManager,
-                                     @Qualifier("divisionTeamReader") ItemReader<Team> divisionTeamReader,
+                                     @Qualifier("divisionTeamReader") MultiResourceItemReader<Team> divisionTeamReader,
                                      @Qualifier("teamAverageProcessor") TeamAverageProcessor teamAverageProcessor,
+                                     @Qualifier("averageTeamScoreWriter") FlatFileItemWriter<AverageScoredTeam> averageTeamScoreWriter,
+                                     @Qualifier("deadLetterQuarantine") DeadLetterQuarantine deadLetterQuarantine,
                                      @Qualifier("teamAverageContextPromotionListener") ExecutionContextPromotionListener teamAverageContextPromotionListener,
                                      @Qualifier("jobStartLoggerListener") StepExecutionListener jobStartLoggerListener) {
         return new StepBuilder("averageTeamScoreStep", jobRepository)
                 // Read-and-write one-by-one
                 .<Team, AverageScoredTeam>chunk(1, transactionManager)
-                // Supplying autowired multi-file multi-line reader
+                // Supplying autowired multi-file multi-line reader, separate instance per step (step scoped)
                 .reader(divisionTeamReader)
                 // Processor to calculate averages for specific rank
                 .processor(teamAverageProcessor)
                 // Writing team and average score in comma-separated format
-                .writer(new FlatFileItemWriterBuilder<AverageScoredTeam>()
-                        .name("averageTeamScoreWriter")
-                        .resource(outAvgResource)
-                        .delimited()
-                        .delimiter(",")
-                        .fieldExtractor(team -> new Object[] {team.getName(), team.getAverageScore()})
-                        .build())
+                .writer(averageTeamScoreWriter)
                 // This step should log the informational message
                 .listener(jobStartLoggerListener)
-                // Listener to promote step execution context to job execution context
+                // Listener to promote step execution context to job execution context (processor is registered
+                // as stream and listener by the step itself, and publishes best and worst players before it)
                 .listener(teamAverageContextPromotionListener)
-                // Listener to inject step execution object before step started and to flush it after it finished
-                .listener(new StepExecutionListener() {
-                    @Override
-                    public void beforeStep(StepExecution stepExecution) {
-                        teamAverageProcessor.setStepExecution(stepExecution);
-                    }
-
-                    @Override
-                    public ExitStatus afterStep(StepExecution stepExecution) {
-                        teamAverageProcessor.setStepExecution(null);
-                        return StepExecutionListener.super.afterStep(stepExecution);
-                    }
-                })
-//                .faultTolerant()  //Skipping behavior could be enabled through fault-tolerant chaining
-//                .skip(IndexOutOfBoundsException.class)
-//                .skipLimit(40)
-//                .listener(new SkipListener<Team, AverageScoredTeam>() {
-//                    @Override
-//                    public void onSkipInProcess(Team team, Throwable t) {
-//                        LOGGER.error("Error while processing team " + team.getName() + " , item is skipped");
-//                        LOGGER.error("Reason: " + t.getClass().getName() + " -> " + t.getLocalizedMessage());
-//                    }
-//                })
+                // Bad records are quarantined by the reader and the processor, rather than skipped by fault-tolerant
+                // step, so that chunks are neither rolled back nor processed again; dead-letter file is written
+                // along with the averages, and quarantined records are added to skip counts after the step
+                .stream(deadLetterQuarantine)
+                .listener(deadLetterQuarantine)
                 .build();
     }
 
+    // Step scoped, since the reader keeps the position in division files, and jobs running at once should not share it.
+    // Reads division files of the input directory if the job has one (watch job), otherwise the bundled ones
     @Bean
+    @StepScope
     @Qualifier("divisionTeamReader")
-    public ItemReader<Team> divisionTeamReader() {
+    public MultiResourceItemReader<Team> divisionTeamReader(@Value("#{jobParameters['inputDirectory']}") String inputDirectory,
+                                                            @Qualifier("deadLetterQuarantine") DeadLetterQuarantine deadLetterQuarantine) {
         FlatFileItemReader<String> lineReader = new FlatFileItemReaderBuilder<String>()
                 .name("divisionLineReader")
                 // Mapping line into line (no-op)
@@ -186,21 +237,220 @@ public class TeamPerformanceJobConfiguration {
                 .build();
 
         // Reader that relies on line-by-line reader, but able to comprehend multi-line team records
-        DivisionFileReader singleFileMultiLineReader = new DivisionFileReader(lineReader);
+        DivisionFileReader singleFileMultiLineReader = new DivisionFileReader(lineReader, deadLetterQuarantine);
 
         // Reader that relies on single file reader, but able to read from the directory
         return new MultiResourceItemReaderBuilder<Team>()
                 .name("divisionTeamReader")
                 .delegate(singleFileMultiLineReader)
-                .resources(inDivisionResources)
+                .resources(inputDirectory == null ? inDivisionResources : getDivisionResources(new File(inputDirectory)))
                 .build();
     }
 
+    // Division files of the directory
+    private static Resource[] getDivisionResources(File directory) {
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(".txt"));
+        Resource[] resources = new Resource[files.length];
+        for (int i = 0; i < files.length; i++) {
+            resources[i] = new FileSystemResource(files[i]);
+        }
+        return resources;
+    }
+
+    @Bean
+    @StepScope
+    @Qualifier("averageTeamScoreWriter")
+    public FlatFileItemWriter<AverageScoredTeam> averageTeamScoreWriter(@Value("#{jobParameters['uuid']}") String uuid) throws IOException {
+        return createAverageTeamScoreWriter(getOutputResource(uuid, "avg.txt"));
+    }
+
+    // Create new instance of the writer of team and average score in comma-separated format
+    private static FlatFileItemWriter<AverageScoredTeam> createAverageTeamScoreWriter(WritableResource resource) {
+        return new FlatFileItemWriterBuilder<AverageScoredTeam>()
+                .name("averageTeamScoreWriter")
+                .resource(resource)
+                .delimited()
+                .delimiter(",")
+                .fieldExtractor(team -> new Object[] {team.getName(), team.getAverageScore()})
+                .build();
+    }
+
+    @Bean
+    @Qualifier("averageTeamScorePartitionedStep")
+    public Step averageTeamScorePartitionedStep(JobRepository jobRepository,
+                                                @Qualifier("averageTeamScoreWorkerStep") Step averageTeamScoreWorkerStep,
+                                                @Qualifier("divisionPartitionTaskExecutor") TaskExecutor divisionPartitionTaskExecutor,
+                                                @Qualifier("teamAverageContextPromotionListener") ExecutionContextPromotionListener teamAverageContextPromotionListener,
+                                                @Qualifier("jobStartLoggerListener") StepExecutionListener jobStartLoggerListener) {
+        // One partition per division file, each has the file URL in its execution context
+        MultiResourcePartitioner partitioner = new MultiResourcePartitioner();
+        partitioner.setResources(inDivisionResources);
+        partitioner.setKeyName(TeamAverageStepExecutionAggregator.FILE_NAME);
+
+        return new StepBuilder("averageTeamScorePartitionedStep", jobRepository)
+                .partitioner(averageTeamScoreWorkerStep.getName(), partitioner)
+                .step(averageTeamScoreWorkerStep)
+                .gridSize(inDivisionResources.length)
+                .taskExecutor(divisionPartitionTaskExecutor)
+                // Merges best and worst players of all the partitions into this step execution context
+                .aggregator(new TeamAverageStepExecutionAggregator())
+                // This step should log the informational message
+                .listener(jobStartLoggerListener)
+                // Listener to promote merged step execution context to job execution context
+                .listener(teamAverageContextPromotionListener)
+                .build();
+    }
+
+    // Averages of all the partitions are concatenated into the single file by a step of its own, once all are
+    // completed, rather than by a listener of the partitioned step, so that failure to concatenate fails the job
+    @Bean
+    @Qualifier("averageConcatenationStep")
+    public Step averageConcatenationStep(PlatformTransactionManager transactionManager,
+                                         JobRepository jobRepository,
+                                         @Qualifier("averageConcatenationTasklet") Tasklet averageConcatenationTasklet) {
+        return new StepBuilder("averageConcatenationStep", jobRepository)
+                .tasklet(averageConcatenationTasklet, transactionManager)
+                .build();
+    }
+
+    @Bean
+    @StepScope
+    @Qualifier("averageConcatenationTasklet")
+    public Tasklet averageConcatenationTasklet(@Value("#{jobParameters['uuid']}") String uuid) {
+        return (contribution, chunkContext) -> {
+            concatenateAverageFragments(uuid);
+            return RepeatStatus.FINISHED;
+        };
+    }
+
+    @Bean
+    @Qualifier("averageTeamScoreWorkerStep")
+    public Step averageTeamScoreWorkerStep(JobRepository jobRepository, PlatformTransactionManager transactionManager,
+                                           @Qualifier("divisionPartitionTeamReader") DivisionFileReader divisionPartitionTeamReader,
+                                           @Qualifier("teamAverageProcessor") TeamAverageProcessor teamAverageProcessor,
+                                           @Qualifier("averageFragmentWriter") FlatFileItemWriter<AverageScoredTeam> averageFragmentWriter,
+                                           @Qualifier("deadLetterQuarantine") DeadLetterQuarantine deadLetterQuarantine) {
+        return new StepBuilder("averageTeamScoreWorkerStep", jobRepository)
+                // Read-and-write one-by-one
+                .<Team, AverageScoredTeam>chunk(1, transactionManager)
+                // Reading teams of the single division file of the partition
+                .reader(divisionPartitionTeamReader)
+                // Processor to calculate averages for specific rank, separate instance per partition (step scoped)
+                .processor(teamAverageProcessor)
+                // Writing averages of the partition into its own fragment of the averages file
+                .writer(averageFragmentWriter)
+                // Quarantining bad records of the partition into its own fragment of the dead-letter file
+                .stream(deadLetterQuarantine)
+                .listener(deadLetterQuarantine)
+                .build();
+    }
+
+    @Bean
+    @StepScope
+    @Qualifier("divisionPartitionTeamReader")
+    public DivisionFileReader divisionPartitionTeamReader(@Value("#{stepExecutionContext['fileName']}") Resource divisionResource,
+                                                          @Qualifier("deadLetterQuarantine") DeadLetterQuarantine deadLetterQuarantine) {
+        FlatFileItemReader<String> lineReader = new FlatFileItemReaderBuilder<String>()
+                .name("divisionLineReader")
+                // Mapping line into line (no-op)
+                .lineMapper((line, lineNumber) -> line)
+                .build();
+
+        // Reader that relies on line-by-line reader, but able to comprehend multi-line team records
+        DivisionFileReader reader = new DivisionFileReader(lineReader, deadLetterQuarantine);
+        reader.setResource(divisionResource);
+        return reader;
+    }
+
+    @Bean
+    @StepScope
+    @Qualifier("averageFragmentWriter")
+    public FlatFileItemWriter<AverageScoredTeam> averageFragmentWriter(@Value("#{jobParameters['uuid']}") String uuid,
+                                                                       @Value("#{stepExecutionContext['fileName']}") Resource divisionResource) throws IOException {
+        return createAverageTeamScoreWriter(getAverageFragmentResource(uuid, divisionResource.getFilename()));
+    }
+
+    @Bean
+    @Qualifier("divisionPartitionTaskExecutor")
+    public TaskExecutor divisionPartitionTaskExecutor(@Value("${average.partition.threads}") int threads) {
+        ThreadPoolTaskExecutor threadPool = new ThreadPoolTaskExecutor();
+        // Bounded pool, so that at most the configured number of divisions are processed in parallel
+        threadPool.setCorePoolSize(threads);
+        threadPool.setMaxPoolSize(threads);
+        threadPool.setThreadNamePrefix("division-");
+        return threadPool;
+    }
+
+    // Fragment of the averages file written by the partition of the specified division file
+    private WritableResource getAverageFragmentResource(String uuid, String divisionFileName) throws IOException {
+        return getOutputResource(uuid, "avg-" + divisionFileName);
+    }
+
+    // Fragment of the dead-letter file written by the partition of the specified division file
+    private WritableResource getDeadLetterFragmentResource(String uuid, String divisionFileName) throws IOException {
+        return getOutputResource(uuid, "dead-letter-" + divisionFileName);
+    }
+
+    // Step scoped, shared by the reader and the processor of the step. Partition of the division file
+    // quarantines into its own fragment of the dead-letter file, otherwise into the dead-letter file at once
+    @Bean
+    @StepScope
+    @Qualifier("deadLetterQuarantine")
+    public DeadLetterQuarantine deadLetterQuarantine(@Value("#{jobParameters['uuid']}") String uuid,
+                                                     @Value("#{stepExecutionContext['fileName']}") Resource divisionResource) throws IOException {
+        return new DeadLetterQuarantine(divisionResource == null ? getOutputResource(uuid, "dead-letter.txt")
+                : getDeadLetterFragmentResource(uuid, divisionResource.getFilename()));
+    }
+
+    // Concatenate fragments of the averages file, and of the dead-letter file, in the order of division file names
+    // (the order of the non-partitioned step), and remove them afterwards. Dead-letter fragments are there only for
+    // divisions with bad records, and so is the dead-letter file
+    private void concatenateAverageFragments(String uuid) {
+        List<String> divisionFileNames = new ArrayList<>();
+        for (Resource resource : inDivisionResources) {
+            divisionFileNames.add(resource.getFilename());
+        }
+        Collections.sort(divisionFileNames);
+        try {
+            List<File> averageFragments = new ArrayList<>();
+            List<File> deadLetterFragments = new ArrayList<>();
+            for (String divisionFileName : divisionFileNames) {
+                averageFragments.add(getAverageFragmentResource(uuid, divisionFileName).getFile());
+                File deadLetterFragment = getDeadLetterFragmentResource(uuid, divisionFileName).getFile();
+                if (deadLetterFragment.exists()) {
+                    deadLetterFragments.add(deadLetterFragment);
+                }
+            }
+            concatenateFiles(averageFragments, getOutputResource(uuid, "avg.txt"));
+            if (!deadLetterFragments.isEmpty()) {
+                concatenateFiles(deadLetterFragments, getOutputResource(uuid, "dead-letter.txt"));
+            }
+        } catch (IOException e) {
+            // Re-throw as unchecked
+            throw new RuntimeException(e);
+        }
+    }
+
+    // Concatenate the files into the resource in the given order, and remove them afterwards
+    private static void concatenateFiles(List<File> files, WritableResource resource) throws IOException {
+        try (OutputStream out = resource.getOutputStream()) {
+            for (File file : files) {
+                try (InputStream in = new FileInputStream(file)) {
+                    in.transferTo(out);
+                }
+            }
+        }
+        for (File file : files) {
+            Files.deleteIfExists(file.toPath());
+        }
+    }
+
     @Bean
     @StepScope
     @Qualifier("teamAverageProcessor")
-    public TeamAverageProcessor teamAverageProcessor(@Value("#{jobParameters['scoreRank']}") int scoreRank) {
-        return new TeamAverageProcessor(scoreRank);
+    public TeamAverageProcessor teamAverageProcessor(@Value("#{jobParameters['scoreRank']}") int scoreRank,
+                                                     @Qualifier("deadLetterQuarantine") DeadLetterQuarantine deadLetterQuarantine) {
+        return new TeamAverageProcessor(scoreRank, deadLetterQuarantine);
     }
 
     @Bean
@@ -229,53 +479,126 @@ public class TeamPerformanceJobConfiguration {
     @Bean
     @Qualifier("teamMaxRatioPerformanceStep")
     public Step teamMaxRatioPerformanceStep(JobRepository jobRepository, PlatformTransactionManager transactionManager,
+                                            @Qualifier("averageScoredTeamReader") FlatFileItemReader<AverageScoredTeam> averageScoredTeamReader,
                                             @Qualifier("maxRatioPerformanceProcessor") ItemProcessor<AverageScoredTeam, TeamPerformance> maxRatioPerformanceProcessor,
-                                            @Qualifier("maxHeaderWriter") FlatFileHeaderCallback maxHeaderWriter) {
+                                            @Qualifier("teamMaxRatioPerformanceWriter") FlatFileItemWriter<TeamPerformance> teamMaxRatioPerformanceWriter) {
         return new StepBuilder("teamMaxRatioPerformanceStep", jobRepository)
                 // Read-and-write one-by-one
                 .<AverageScoredTeam, TeamPerformance>chunk(1, transactionManager)
                 // Reading from average scored team file
-                .reader(averageScoredTeamReader())
+                .reader(averageScoredTeamReader)
                 .processor(maxRatioPerformanceProcessor)
-                .writer(new FlatFileItemWriterBuilder<TeamPerformance>()
-                        .name("teamMaxRatioPerformanceWriter")
-                        .resource(maxPerformanceRatioOutResource)
-                        .delimited()
-                        .delimiter(",")
-                        .fieldExtractor(team -> new Object[] {team.getName(), team.getPerformance()})
-                        .headerCallback(maxHeaderWriter)
-                        .build())
+                .writer(teamMaxRatioPerformanceWriter)
+                .build();
+    }
+
+    @Bean
+    @StepScope
+    @Qualifier("teamMaxRatioPerformanceWriter")
+    public FlatFileItemWriter<TeamPerformance> teamMaxRatioPerformanceWriter(@Value("#{jobParameters['uuid']}") String uuid,
+                                                                              @Qualifier("maxHeaderWriter") FlatFileHeaderCallback maxHeaderWriter) throws IOException {
+        return new FlatFileItemWriterBuilder<TeamPerformance>()
+                .name("teamMaxRatioPerformanceWriter")
+                .resource(getOutputResource(uuid, "max.txt"))
+                .delimited()
+                .delimiter(",")
+                .fieldExtractor(team -> new Object[] {team.getName(), team.getPerformance()})
+                .headerCallback(maxHeaderWriter)
                 .build();
     }
 
     @Bean
     @Qualifier("teamMinRatioPerformanceStep")
     public Step teamMinRatioPerformanceStep(JobRepository jobRepository, PlatformTransactionManager transactionManager,
+                                            @Qualifier("averageScoredTeamReader") FlatFileItemReader<AverageScoredTeam> averageScoredTeamReader,
                                             @Qualifier("minRatioPerformanceProcessor") ItemProcessor<AverageScoredTeam, TeamPerformance> minRatioPerformanceProcessor,
-                                            @Qualifier("minHeaderWriter") FlatFileHeaderCallback minHeaderWriter) {
+                                            @Qualifier("teamMinRatioPerformanceWriter") FlatFileItemWriter<TeamPerformance> teamMinRatioPerformanceWriter) {
         return new StepBuilder("teamMinRatioPerformanceStep", jobRepository)
                 // Read-and-write one-by-one
                 .<AverageScoredTeam, TeamPerformance>chunk(1, transactionManager)
                 // Reading from average scored team file
-                .reader(averageScoredTeamReader())
+                .reader(averageScoredTeamReader)
                 .processor(minRatioPerformanceProcessor)
-                .writer(new FlatFileItemWriterBuilder<TeamPerformance>()
-                        .name("teamMinRatioPerformanceWriter")
-                        .resource(minPerformanceRatioOutResource)
-                        .delimited()
-                        .delimiter(",")
-                        .fieldExtractor(team -> new Object[] {team.getName(), team.getPerformance()})
-                        .headerCallback(minHeaderWriter)
-                        .build())
+                .writer(teamMinRatioPerformanceWriter)
                 .build();
     }
 
-    // Create new instance of file item reader: defined as a separate method to be reused,
-    // however not defined as a bean to have a separate instance per each step (executed in parallel)
-    public ItemReader<AverageScoredTeam> averageScoredTeamReader() {
+    @Bean
+    @StepScope
+    @Qualifier("teamMinRatioPerformanceWriter")
+    public FlatFileItemWriter<TeamPerformance> teamMinRatioPerformanceWriter(@Value("#{jobParameters['uuid']}") String uuid,
+                                                                              @Qualifier("minHeaderWriter") FlatFileHeaderCallback minHeaderWriter) throws IOException {
+        return new FlatFileItemWriterBuilder<TeamPerformance>()
+                .name("teamMinRatioPerformanceWriter")
+                .resource(getOutputResource(uuid, "min.txt"))
+                .delimited()
+                .delimiter(",")
+                .fieldExtractor(team -> new Object[] {team.getName(), team.getPerformance()})
+                .headerCallback(minHeaderWriter)
+                .build();
+    }
+
+    @Bean
+    @Qualifier("teamRatioPerformanceStep")
+    public Step teamRatioPerformanceStep(JobRepository jobRepository, PlatformTransactionManager transactionManager,
+                                         @Qualifier("averageScoredTeamReader") FlatFileItemReader<AverageScoredTeam> averageScoredTeamReader,
+                                         @Qualifier("ratioPerformancesProcessor") ItemProcessor<AverageScoredTeam, TeamRatioPerformances> ratioPerformancesProcessor,
+                                         @Qualifier("teamRatioPerformanceWriter") CompositeItemWriter<TeamRatioPerformances> teamRatioPerformanceWriter) {
+        return new StepBuilder("teamRatioPerformanceStep", jobRepository)
+                // Read-and-write one-by-one
+                .<AverageScoredTeam, TeamRatioPerformances>chunk(1, transactionManager)
+                // Reading from average scored team file, only once for both performances
+                .reader(averageScoredTeamReader)
+                .processor(ratioPerformancesProcessor)
+                // Fan-out of both performances into their own files, each with its header
+                .writer(teamRatioPerformanceWriter)
+                .build();
+    }
+
+    @Bean
+    @StepScope
+    @Qualifier("teamRatioPerformanceWriter")
+    public CompositeItemWriter<TeamRatioPerformances> teamRatioPerformanceWriter(@Value("#{jobParameters['uuid']}") String uuid,
+                                                                                 @Qualifier("maxHeaderWriter") FlatFileHeaderCallback maxHeaderWriter,
+                                                                                 @Qualifier("minHeaderWriter") FlatFileHeaderCallback minHeaderWriter) throws IOException {
+        return createRatioPerformanceWriter(uuid, maxHeaderWriter, minHeaderWriter);
+    }
+
+    // Create new instance of the writer of both performances into their own files of the job, each with its header
+    // if one is given
+    private CompositeItemWriter<TeamRatioPerformances> createRatioPerformanceWriter(String uuid,
+                                                                                   FlatFileHeaderCallback maxHeaderWriter,
+                                                                                   FlatFileHeaderCallback minHeaderWriter) throws IOException {
+        return new CompositeItemWriterBuilder<TeamRatioPerformances>()
+                .delegates(new FlatFileItemWriterBuilder<TeamRatioPerformances>()
+                                .name("teamMaxRatioPerformanceWriter")
+                                .resource(getOutputResource(uuid, "max.txt"))
+                                .delimited()
+                                .delimiter(",")
+                                .fieldExtractor(team -> new Object[] {team.getMaxRatioPerformance().getName(),
+                                        team.getMaxRatioPerformance().getPerformance()})
+                                .headerCallback(maxHeaderWriter)
+                                .build(),
+                        new FlatFileItemWriterBuilder<TeamRatioPerformances>()
+                                .name("teamMinRatioPerformanceWriter")
+                                .resource(getOutputResource(uuid, "min.txt"))
+                                .delimited()
+                                .delimiter(",")
+                                .fieldExtractor(team -> new Object[] {team.getMinRatioPerformance().getName(),
+                                        team.getMinRatioPerformance().getPerformance()})
+                                .headerCallback(minHeaderWriter)
+                                .build())
+                .build();
+    }
+
+    // Step scoped to have a separate instance per each step (max and min steps are executed in parallel)
+    @Bean
+    @StepScope
+    @Qualifier("averageScoredTeamReader")
+    public FlatFileItemReader<AverageScoredTeam> averageScoredTeamReader(@Value("#{jobParameters['uuid']}") String uuid) throws IOException {
         return new FlatFileItemReaderBuilder<AverageScoredTeam>()
                 .name("averageScoredTeamReader")
-                .resource(outAvgResource)
+                .resource(getOutputResource(uuid, "avg.txt"))
                 .lineTokenizer(new DelimitedLineTokenizer(","))
                 .fieldSetMapper(fieldSet ->
                         new AverageScoredTeam(fieldSet.readString(0), fieldSet.readDouble(1)))
@@ -296,6 +619,14 @@ public class TeamPerformanceJobConfiguration {
         return item -> process(item, minScore);
     }
 
+    @Bean
+    @StepScope
+    @Qualifier("ratioPerformancesProcessor")
+    public ItemProcessor<AverageScoredTeam, TeamRatioPerformances> ratioPerformancesProcessor(@Value("#{jobExecutionContext['max.score']}") double maxScore,
+                                                                                              @Value("#{jobExecutionContext['min.score']}") double minScore) {
+        return item -> new TeamRatioPerformances(process(item, maxScore), process(item, minScore));
+    }
+
     // Method which is processing average scored item into the team performance given the baseline score
     // Performance is represented as "X%" string, where X = score * 100 / baseline, with up to 2 precision
     private static TeamPerformance process(AverageScoredTeam team, double baselineScore) {
@@ -334,6 +665,78 @@ public class TeamPerformanceJobConfiguration {
         }
     }
 
+    @Bean
+    @Qualifier("teamPerformanceResultCache")
+    public TeamPerformanceResultCache teamPerformanceResultCache(@Value("${result.cache.max.bytes}") long maxBytes) throws IOException {
+        return new TeamPerformanceResultCache(new File(calculatedDirectoryResource.getFile(), "cache"), maxBytes);
+    }
+
+    @Bean
+    @Qualifier("resultCacheLookupStep")
+    public Step resultCacheLookupStep(PlatformTransactionManager transactionManager,
+                                      JobRepository jobRepository,
+                                      @Qualifier("resultCacheLookupTasklet") Tasklet resultCacheLookupTasklet,
+                                      @Qualifier("resultCacheContextPromotionListener") ExecutionContextPromotionListener resultCacheContextPromotionListener) {
+        return new StepBuilder("resultCacheLookupStep", jobRepository)
+                .tasklet(resultCacheLookupTasklet, transactionManager)
+                // Listener to promote cache key to job execution context, for the step storing results on cache miss
+                .listener(resultCacheContextPromotionListener)
+                .build();
+    }
+
+    /**
+     * Tasklet looking up results of the division files and the score rank of the job in the cache. On cache hit,
+     * result files are copied into the job's directory and the step exits with {@link #RESULT_CACHE_HIT} status
+     */
+    @Bean
+    @StepScope
+    @Qualifier("resultCacheLookupTasklet")
+    public Tasklet resultCacheLookupTasklet(@Value("#{jobParameters['uuid']}") String uuid,
+                                            @Value("#{jobParameters['scoreRank']}") int scoreRank,
+                                            @Qualifier("teamPerformanceResultCache") TeamPerformanceResultCache resultCache) {
+        return (contribution, chunkContext) -> {
+            String key = TeamPerformanceResultCache.key(inDivisionResources, scoreRank);
+            contribution.getStepExecution().getExecutionContext().putString(RESULT_CACHE_KEY, key);
+            boolean hit = resultCache.materialize(key, getOutputDirectory(uuid));
+            if (hit) {
+                contribution.setExitStatus(new ExitStatus(RESULT_CACHE_HIT));
+            }
+            LOGGER.info("Job with uuid = " + uuid + (hit ? " reuses cached results" : " calculates results")
+                    + " (result cache hits = " + resultCache.getHits() + ", misses = " + resultCache.getMisses() + ")");
+            return RepeatStatus.FINISHED;
+        };
+    }
+
+    @Bean
+    @Qualifier("resultCacheContextPromotionListener")
+    public ExecutionContextPromotionListener resultCacheContextPromotionListener() {
+        ExecutionContextPromotionListener listener = new ExecutionContextPromotionListener();
+        listener.setKeys(new String[] {RESULT_CACHE_KEY});
+        return listener;
+    }
+
+    @Bean
+    @Qualifier("resultCacheStoreStep")
+    public Step resultCacheStoreStep(PlatformTransactionManager transactionManager,
+                                     JobRepository jobRepository,
+                                     @Qualifier("resultCacheStoreTasklet") Tasklet resultCacheStoreTasklet) {
+        return new StepBuilder("resultCacheStoreStep", jobRepository)
+                .tasklet(resultCacheStoreTasklet, transactionManager)
+                .build();
+    }
+
+    @Bean
+    @StepScope
+    @Qualifier("resultCacheStoreTasklet")
+    public Tasklet resultCacheStoreTasklet(@Value("#{jobParameters['uuid']}") String uuid,
+                                           @Value("#{jobExecutionContext['result.cache.key']}") String key,
+                                           @Qualifier("teamPerformanceResultCache") TeamPerformanceResultCache resultCache) {
+        return (contribution, chunkContext) -> {
+            resultCache.store(key, getOutputDirectory(uuid));
+            return RepeatStatus.FINISHED;
+        };
+    }
+
     @Bean
     @Qualifier("shellScriptStep")
     public Step shellScriptStep(PlatformTransactionManager transactionManager,
@@ -376,19 +779,457 @@ public class TeamPerformanceJobConfiguration {
         };
     }
 
+    /* ************************* All-ranks team performance job (all ranks in a single run) ************************* */
+
+    @Bean
+    @Qualifier("teamPerformanceAllRanksJob")
+    public Job teamPerformanceAllRanksJob(JobRepository jobRepository,
+                                          @Qualifier("allRanksAverageTeamScoreStep") Step allRanksAverageTeamScoreStep,
+                                          @Qualifier("allRanksRatioPerformanceStep") Step allRanksRatioPerformanceStep,
+                                          @Qualifier("shellScriptStep") Step shellScriptStep,
+                                          @Qualifier("successLoggerStep") Step successLoggerStep) {
+        return new JobBuilder("teamPerformanceAllRanksJob", jobRepository)
+                // 1. Parse division files once, calculating averages of all the ranks
+                .start(allRanksAverageTeamScoreStep)
+                // 2. Read averages once, calculating performances of all the ranks
+                .next(allRanksRatioPerformanceStep)
+                // 3. Execute shell script, as the single rank job does
+                .next(shellScriptStep)
+                // 4. Last step is to execute logging the success step
+                .next(successLoggerStep)
+                .build();
+    }
+
+    @Bean
+    @Qualifier("allRanksAverageTeamScoreStep")
+    public Step allRanksAverageTeamScoreStep(JobRepository jobRepository, PlatformTransactionManager transactionManager,
+                                             @Qualifier("divisionTeamReader") MultiResourceItemReader<Team> divisionTeamReader,
+                                             @Qualifier("allRanksTeamAverageProcessor") AllRanksTeamAverageProcessor allRanksTeamAverageProcessor,
+                                             @Qualifier("rankedAverageTeamScoreWriter") FlatFileItemWriter<RankedAverageScoredTeam> rankedAverageTeamScoreWriter,
+                                             @Qualifier("deadLetterQuarantine") DeadLetterQuarantine deadLetterQuarantine,
+                                             @Qualifier("allRanksContextPromotionListener") ExecutionContextPromotionListener allRanksContextPromotionListener,
+                                             @Qualifier("jobStartLoggerListener") StepExecutionListener jobStartLoggerListener) {
+        return new StepBuilder("allRanksAverageTeamScoreStep", jobRepository)
+                // Read-and-write one-by-one
+                .<Team, RankedAverageScoredTeam>chunk(1, transactionManager)
+                // Multi-file multi-line reader, separate instance per step (step scoped)
+                .reader(divisionTeamReader)
+                // Processor to calculate averages of all the ranks
+                .processor(allRanksTeamAverageProcessor)
+                // Writing team and averages of all the ranks in comma-separated format
+                .writer(rankedAverageTeamScoreWriter)
+                // This step should log the informational message
+                .listener(jobStartLoggerListener)
+                // Listener to promote step execution context to job execution context
+                .listener(allRanksContextPromotionListener)
+                // Bad records are quarantined by the reader and the processor, the same way as by the single rank step
+                .stream(deadLetterQuarantine)
+                .listener(deadLetterQuarantine)
+                .build();
+    }
+
+    @Bean
+    @StepScope
+    @Qualifier("rankedAverageTeamScoreWriter")
+    public FlatFileItemWriter<RankedAverageScoredTeam> rankedAverageTeamScoreWriter(@Value("#{jobParameters['uuid']}") String uuid) throws IOException {
+        return new FlatFileItemWriterBuilder<RankedAverageScoredTeam>()
+                .name("rankedAverageTeamScoreWriter")
+                .resource(getOutputResource(uuid, "avg-ranks.txt"))
+                .delimited()
+                .delimiter(",")
+                .fieldExtractor(team -> {
+                    Object[] fields = new Object[team.getAverageScores().length + 1];
+                    fields[0] = team.getName();
+                    for (int rank = 0; rank < team.getAverageScores().length; rank++) {
+                        fields[rank + 1] = team.getAverageScores()[rank];
+                    }
+                    return fields;
+                })
+                .build();
+    }
+
+    @Bean
+    @StepScope
+    @Qualifier("allRanksTeamAverageProcessor")
+    public AllRanksTeamAverageProcessor allRanksTeamAverageProcessor(@Value("#{jobParameters['rankCount']}") int rankCount,
+                                                                     @Qualifier("deadLetterQuarantine") DeadLetterQuarantine deadLetterQuarantine) {
+        return new AllRanksTeamAverageProcessor(rankCount, deadLetterQuarantine);
+    }
+
+    @Bean
+    @Qualifier("allRanksContextPromotionListener")
+    public ExecutionContextPromotionListener allRanksContextPromotionListener() {
+        ExecutionContextPromotionListener listener = new ExecutionContextPromotionListener();
+        listener.setKeys(new String[]
+                {AllRanksTeamAverageProcessor.MAX_SCORES, AllRanksTeamAverageProcessor.MAX_PLAYERS,
+                 AllRanksTeamAverageProcessor.MIN_SCORES, AllRanksTeamAverageProcessor.MIN_PLAYERS,
+                 AllRanksTeamAverageProcessor.COMPLETE_RANKS});
+        return listener;
+    }
+
+    @Bean
+    @Qualifier("allRanksRatioPerformanceStep")
+    public Step allRanksRatioPerformanceStep(JobRepository jobRepository, PlatformTransactionManager transactionManager,
+                                             @Qualifier("rankedAverageScoredTeamReader") FlatFileItemReader<RankedAverageScoredTeam> rankedAverageScoredTeamReader,
+                                             @Qualifier("allRanksRatioPerformancesProcessor") ItemProcessor<RankedAverageScoredTeam, RankedTeamPerformances> allRanksRatioPerformancesProcessor,
+                                             @Qualifier("allRanksRatioPerformanceWriter") CompositeItemWriter<RankedTeamPerformances> allRanksRatioPerformanceWriter) {
+        return new StepBuilder("allRanksRatioPerformanceStep", jobRepository)
+                // Read-and-write one-by-one
+                .<RankedAverageScoredTeam, RankedTeamPerformances>chunk(1, transactionManager)
+                // Reading averages of all the ranks once
+                .reader(rankedAverageScoredTeamReader)
+                .processor(allRanksRatioPerformancesProcessor)
+                // Fan-out of average and both performances of every rank into the files of the rank
+                .writer(allRanksRatioPerformanceWriter)
+                .build();
+    }
+
+    @Bean
+    @StepScope
+    @Qualifier("rankedAverageScoredTeamReader")
+    public FlatFileItemReader<RankedAverageScoredTeam> rankedAverageScoredTeamReader(@Value("#{jobParameters['uuid']}") String uuid,
+                                                                                     @Value("#{jobExecutionContext['ranks.complete']}") int completeRanks) throws IOException {
+        return new FlatFileItemReaderBuilder<RankedAverageScoredTeam>()
+                .name("rankedAverageScoredTeamReader")
+                .resource(getOutputResource(uuid, "avg-ranks.txt"))
+                .lineTokenizer(new DelimitedLineTokenizer(","))
+                // Only averages of complete ranks are read, the rest are not numbers
+                .fieldSetMapper(fieldSet -> {
+                    double[] averageScores = new double[completeRanks];
+                    for (int rank = 0; rank < completeRanks; rank++) {
+                        averageScores[rank] = fieldSet.readDouble(rank + 1);
+                    }
+                    return new RankedAverageScoredTeam(fieldSet.readString(0), averageScores);
+                })
+                .build();
+    }
+
+    @Bean
+    @StepScope
+    @Qualifier("allRanksRatioPerformancesProcessor")
+    public ItemProcessor<RankedAverageScoredTeam, RankedTeamPerformances> allRanksRatioPerformancesProcessor(@Value("#{jobExecutionContext['ranks.max.scores']}") double[] maxScores,
+                                                                                                             @Value("#{jobExecutionContext['ranks.min.scores']}") double[] minScores) {
+        return item -> {
+            TeamRatioPerformances[] ratioPerformances = new TeamRatioPerformances[item.getAverageScores().length];
+            for (int rank = 0; rank < ratioPerformances.length; rank++) {
+                AverageScoredTeam team = new AverageScoredTeam(item.getName(), item.getAverageScores()[rank]);
+                ratioPerformances[rank] = new TeamRatioPerformances(process(team, maxScores[rank]), process(team, minScores[rank]));
+            }
+            return new RankedTeamPerformances(item.getName(), item.getAverageScores(), ratioPerformances);
+        };
+    }
+
+    /**
+     * Writer of average, max and min ratio performance files of every complete rank, in the same format as for the
+     * single rank job, into 'rank-N/' directory of the job. Ranks which are missing for some players are not written
+     */
+    @Bean
+    @StepScope
+    @Qualifier("allRanksRatioPerformanceWriter")
+    public CompositeItemWriter<RankedTeamPerformances> allRanksRatioPerformanceWriter(@Value("#{jobParameters['uuid']}") String uuid,
+                                                                                      @Value("#{jobParameters['rankCount']}") int rankCount,
+                                                                                      @Value("#{jobExecutionContext['ranks.complete']}") int completeRanks,
+                                                                                      @Value("#{jobExecutionContext['ranks.max.scores']}") double[] maxScores,
+                                                                                      @Value("#{jobExecutionContext['ranks.max.players']}") String[] maxPlayers,
+                                                                                      @Value("#{jobExecutionContext['ranks.min.scores']}") double[] minScores,
+                                                                                      @Value("#{jobExecutionContext['ranks.min.players']}") String[] minPlayers) throws IOException {
+        if (completeRanks < rankCount) {
+            LOGGER.warn("Only ranks below " + completeRanks + " are calculated, since some players have only "
+                    + completeRanks + " scores");
+        }
+        List<ItemWriter<? super RankedTeamPerformances>> writers = new ArrayList<>();
+        for (int rank = 0; rank < completeRanks; rank++) {
+            int writerRank = rank;
+            String rankDirectory = "rank-" + rank + "/";
+            writers.add(new FlatFileItemWriterBuilder<RankedTeamPerformances>()
+                    .name("rank" + rank + "AverageTeamScoreWriter")
+                    .resource(getOutputResource(uuid, rankDirectory + "avg.txt"))
+                    .delimited()
+                    .delimiter(",")
+                    .fieldExtractor(team -> new Object[] {team.getName(), team.getAverageScores()[writerRank]})
+                    .build());
+            writers.add(new FlatFileItemWriterBuilder<RankedTeamPerformances>()
+                    .name("rank" + rank + "MaxRatioPerformanceWriter")
+                    .resource(getOutputResource(uuid, rankDirectory + "max.txt"))
+                    .delimited()
+                    .delimiter(",")
+                    .fieldExtractor(team -> new Object[] {team.getName(),
+                            team.getRatioPerformances()[writerRank].getMaxRatioPerformance().getPerformance()})
+                    .headerCallback(writer -> writeHeader(writer, maxPlayers[writerRank], maxScores[writerRank]))
+                    .build());
+            writers.add(new FlatFileItemWriterBuilder<RankedTeamPerformances>()
+                    .name("rank" + rank + "MinRatioPerformanceWriter")
+                    .resource(getOutputResource(uuid, rankDirectory + "min.txt"))
+                    .delimited()
+                    .delimiter(",")
+                    .fieldExtractor(team -> new Object[] {team.getName(),
+                            team.getRatioPerformances()[writerRank].getMinRatioPerformance().getPerformance()})
+                    .headerCallback(writer -> writeHeader(writer, minPlayers[writerRank], minScores[writerRank]))
+                    .build());
+        }
+        return new CompositeItemWriterBuilder<RankedTeamPerformances>()
+                .delegates(writers)
+                .build();
+    }
+
+    /* ***************** Watch team performance job (incremental, for the newly arrived division files) ***************** */
+
+    @Bean
+    @Qualifier("teamPerformanceWatchJob")
+    public Job teamPerformanceWatchJob(JobRepository jobRepository,
+                                       @Qualifier("averageTeamScoreStep") Step averageTeamScoreStep,
+                                       @Qualifier("watchBaselineMergeStep") Step watchBaselineMergeStep,
+                                       @Qualifier("watchRatioPerformanceStep") Step watchRatioPerformanceStep,
+                                       @Qualifier("watchCommitStep") Step watchCommitStep,
+                                       @Qualifier("shellScriptStep") Step shellScriptStep,
+                                       @Qualifier("successLoggerStep") Step successLoggerStep) {
+        return new JobBuilder("teamPerformanceWatchJob", jobRepository)
+                // 1. (Start) Average team score of the division files of the batch only
+                .start(averageTeamScoreStep)
+                // 2. Merge best and worst players of the batch into the global baseline
+                .next(watchBaselineMergeStep)
+                // No players at all so far, so there is nothing to calculate performances against
+                .on(ExitStatus.NOOP.getExitCode()).to(watchCommitStep)
+                // 3. Performances of the teams of the batch, or of all the teams if the baseline is changed
+                .from(watchBaselineMergeStep).on(ExitStatus.COMPLETED.getExitCode()).to(watchRatioPerformanceStep)
+                // 4. Merge averages, performances and baseline into the global ones
+                .next(watchCommitStep)
+                // 5. Execute shell script, as the other jobs do
+                .next(shellScriptStep)
+                // 6. Last step is to execute logging the success step
+                .next(successLoggerStep)
+                // Fail the job if the baseline could not be merged
+                .from(watchBaselineMergeStep).on("*").fail()
+                .end()
+                .build();
+    }
+
+    @Bean
+    @Qualifier("watchBaselineMergeStep")
+    public Step watchBaselineMergeStep(PlatformTransactionManager transactionManager,
+                                       JobRepository jobRepository,
+                                       @Qualifier("watchBaselineMergeTasklet") Tasklet watchBaselineMergeTasklet,
+                                       @Qualifier("watchContextPromotionListener") ExecutionContextPromotionListener watchContextPromotionListener) {
+        return new StepBuilder("watchBaselineMergeStep", jobRepository)
+                .tasklet(watchBaselineMergeTasklet, transactionManager)
+                // Listener to promote merged baseline to job execution context, replacing the one of the batch
+                .listener(watchContextPromotionListener)
+                .build();
+    }
+
+    /**
+     * Tasklet merging best and worst players of the batch into the persisted global baseline (players of the earlier
+     * batches keep the place on equal scores). Merged baseline is published along with the flag whether it's changed,
+     * so that performances of all the teams are calculated again only if they are, otherwise only of the batch teams
+     */
+    @Bean
+    @StepScope
+    @Qualifier("watchBaselineMergeTasklet")
+    public Tasklet watchBaselineMergeTasklet(@Value("#{jobParameters['scoreRank']}") int scoreRank) {
+        return (contribution, chunkContext) -> {
+            // Commit of the earlier batch, if interrupted, is recovered first, so that global results are read whole
+            new StagedFileCommit(getWatchStateFile(scoreRank, "")).recover();
+            TeamPerformanceBaseline globalBaseline = TeamPerformanceBaseline.load(getWatchStateFile(scoreRank, "baseline.properties"));
+            TeamPerformanceBaseline batchBaseline = TeamPerformanceBaseline.fromContext(
+                    contribution.getStepExecution().getJobExecution().getExecutionContext());
+            TeamPerformanceBaseline mergedBaseline = globalBaseline == null ? batchBaseline : globalBaseline.merge(batchBaseline);
+            if (mergedBaseline == null) {
+                contribution.setExitStatus(ExitStatus.NOOP);
+                return RepeatStatus.FINISHED;
+            }
+            ExecutionContext stepContext = contribution.getStepExecution().getExecutionContext();
+            mergedBaseline.toContext(stepContext);
+            stepContext.put(WATCH_BASELINE_CHANGED, !mergedBaseline.equals(globalBaseline));
+            return RepeatStatus.FINISHED;
+        };
+    }
+
+    @Bean
+    @Qualifier("watchContextPromotionListener")
+    public ExecutionContextPromotionListener watchContextPromotionListener() {
+        ExecutionContextPromotionListener listener = new ExecutionContextPromotionListener();
+        listener.setKeys(new String[]
+                {TeamAverageProcessor.MAX_SCORE, TeamAverageProcessor.MAX_PLAYER,
+                 TeamAverageProcessor.MIN_SCORE, TeamAverageProcessor.MIN_PLAYER, WATCH_BASELINE_CHANGED});
+        return listener;
+    }
+
+    @Bean
+    @Qualifier("watchRatioPerformanceStep")
+    public Step watchRatioPerformanceStep(JobRepository jobRepository, PlatformTransactionManager transactionManager,
+                                          @Qualifier("watchAverageScoredTeamReader") MultiResourceItemReader<AverageScoredTeam> watchAverageScoredTeamReader,
+                                          @Qualifier("ratioPerformancesProcessor") ItemProcessor<AverageScoredTeam, TeamRatioPerformances> ratioPerformancesProcessor,
+                                          @Qualifier("watchRatioPerformanceWriter") CompositeItemWriter<TeamRatioPerformances> watchRatioPerformanceWriter) {
+        return new StepBuilder("watchRatioPerformanceStep", jobRepository)
+                // Read-and-write one-by-one
+                .<AverageScoredTeam, TeamRatioPerformances>chunk(1, transactionManager)
+                .reader(watchAverageScoredTeamReader)
+                // Performances against the merged baseline
+                .processor(ratioPerformancesProcessor)
+                .writer(watchRatioPerformanceWriter)
+                .build();
+    }
+
+    // Reader of the averages of the batch, preceded by the global averages if the baseline is changed
+    @Bean
+    @StepScope
+    @Qualifier("watchAverageScoredTeamReader")
+    public MultiResourceItemReader<AverageScoredTeam> watchAverageScoredTeamReader(@Value("#{jobParameters['uuid']}") String uuid,
+                                                                                   @Value("#{jobParameters['scoreRank']}") int scoreRank,
+                                                                                   @Value("#{jobExecutionContext['watch.baseline.changed']}") boolean baselineChanged) throws IOException {
+        List<Resource> resources = new ArrayList<>();
+        File globalAverages = getWatchStateFile(scoreRank, "avg.txt");
+        if (baselineChanged && globalAverages.exists()) {
+            resources.add(new FileSystemResource(globalAverages));
+        }
+        resources.add(getOutputResource(uuid, "avg.txt"));
+        return new MultiResourceItemReaderBuilder<AverageScoredTeam>()
+                .name("watchAverageScoredTeamReader")
+                .delegate(new FlatFileItemReaderBuilder<AverageScoredTeam>()
+                        .name("averageScoredTeamReader")
+                        .lineTokenizer(new DelimitedLineTokenizer(","))
+                        .fieldSetMapper(fieldSet ->
+                                new AverageScoredTeam(fieldSet.readString(0), fieldSet.readDouble(1)))
+                        .build())
+                .resources(resources.toArray(new Resource[0]))
+                // Keep global averages first, rather than ordering by file name
+                .comparator((resource, otherResource) -> 0)
+                .build();
+    }
+
+    // Writer of performances into the files of the job; headers are only written if the baseline is changed, since
+    // otherwise performances are appended to the global files
+    @Bean
+    @StepScope
+    @Qualifier("watchRatioPerformanceWriter")
+    public CompositeItemWriter<TeamRatioPerformances> watchRatioPerformanceWriter(@Value("#{jobParameters['uuid']}") String uuid,
+                                                                                  @Value("#{jobExecutionContext['watch.baseline.changed']}") boolean baselineChanged,
+                                                                                  @Qualifier("maxHeaderWriter") FlatFileHeaderCallback maxHeaderWriter,
+                                                                                  @Qualifier("minHeaderWriter") FlatFileHeaderCallback minHeaderWriter) throws IOException {
+        return baselineChanged
+                ? createRatioPerformanceWriter(uuid, maxHeaderWriter, minHeaderWriter)
+                : createRatioPerformanceWriter(uuid, null, null);
+    }
+
+    @Bean
+    @Qualifier("watchCommitStep")
+    public Step watchCommitStep(PlatformTransactionManager transactionManager,
+                                JobRepository jobRepository,
+                                @Qualifier("watchCommitTasklet") Tasklet watchCommitTasklet) {
+        return new StepBuilder("watchCommitStep", jobRepository)
+                .tasklet(watchCommitTasklet, transactionManager)
+                .build();
+    }
+
+    /**
+     * Tasklet merging results of the batch into the global ones in 'calculated/watch/rank-N/': averages of the batch
+     * are appended, performances either replace the global ones (baseline is changed) or are appended to them, and
+     * changed baseline is persisted. New global files are staged and replace the former ones together, so that failed
+     * commit leaves them as they were, and the failed job could be restarted
+     */
+    @Bean
+    @StepScope
+    @Qualifier("watchCommitTasklet")
+    public Tasklet watchCommitTasklet(@Value("#{jobParameters['uuid']}") String uuid,
+                                      @Value("#{jobParameters['scoreRank']}") int scoreRank) {
+        return (contribution, chunkContext) -> {
+            ExecutionContext jobContext = contribution.getStepExecution().getJobExecution().getExecutionContext();
+            Files.createDirectories(getWatchStateFile(scoreRank, "").toPath());
+            StagedFileCommit commit = new StagedFileCommit(getWatchStateFile(scoreRank, ""));
+            // Restarted job, whose commit was marked before it failed, is committed once rolled forward
+            if (uuid.equals(commit.recover())) {
+                return RepeatStatus.FINISHED;
+            }
+            joinFiles(List.of(getWatchStateFile(scoreRank, "avg.txt"), getOutputResource(uuid, "avg.txt").getFile()),
+                    commit.stage("avg.txt"));
+            boolean baselineChanged = false;
+            if (jobContext.containsKey(WATCH_BASELINE_CHANGED)) {
+                baselineChanged = (Boolean) jobContext.get(WATCH_BASELINE_CHANGED);
+                for (String fileName : new String[] {"max.txt", "min.txt"}) {
+                    File batchFile = getOutputResource(uuid, fileName).getFile();
+                    joinFiles(baselineChanged ? List.of(batchFile) : List.of(getWatchStateFile(scoreRank, fileName), batchFile),
+                            commit.stage(fileName));
+                }
+                if (baselineChanged) {
+                    TeamPerformanceBaseline.fromContext(jobContext).save(commit.stage("baseline.properties"));
+                }
+            }
+            commit.commit(uuid);
+            if (baselineChanged) {
+                LOGGER.info("Baseline is changed by the batch of job with uuid = " + uuid
+                        + ", performances of all the teams are calculated again");
+            }
+            return RepeatStatus.FINISHED;
+        };
+    }
+
+    @Bean
+    @Qualifier("divisionDirectoryWatcher")
+    public DivisionDirectoryWatcher divisionDirectoryWatcher(@Value("${watch.enabled}") boolean enabled,
+                                                             @Value("${watch.directory}") String directory,
+                                                             @Value("${watch.batch.interval.ms}") long batchIntervalMillis,
+                                                             @Value("${watch.batch.max.attempts}") int batchMaxAttempts,
+                                                             @Value("${watch.score.rank}") int scoreRank,
+                                                             @Qualifier("jobLauncher") JobLauncher jobLauncher,
+                                                             @Qualifier("teamPerformanceWatchJob") Job teamPerformanceWatchJob) throws IOException {
+        return new DivisionDirectoryWatcher(enabled, Path.of(directory), calculatedDirectoryResource.getFile(),
+                batchIntervalMillis, batchMaxAttempts, (batchId, inputDirectory) -> {
+            // Batches are processed one at a time, so the job is launched synchronously. Failed batch is handed over
+            // again with the same id, so the failed job is restarted from the failed step
+            JobExecution execution = jobLauncher.run(teamPerformanceWatchJob, new JobParametersBuilder()
+                    .addLong(SCORE_RANK_PARAM, (long) scoreRank)
+                    .addString(UUID_PARAM, batchId)
+                    .addString(INPUT_DIRECTORY_PARAM, inputDirectory.getAbsolutePath())
+                    .toJobParameters());
+            if (execution.getStatus() != BatchStatus.COMPLETED) {
+                throw new IllegalStateException("Job with uuid = " + batchId + " is " + execution.getStatus());
+            }
+        });
+    }
+
+    // File of the global results of the watch job for the score rank
+    private File getWatchStateFile(int scoreRank, String fileName) throws IOException {
+        return new File(new File(calculatedDirectoryResource.getFile(), "watch/rank-" + scoreRank), fileName);
+    }
+
+    // Write contents of the files, one after another, into the other file; missing files are skipped
+    private static void joinFiles(List<File> files, File otherFile) throws IOException {
+        try (OutputStream out = Files.newOutputStream(otherFile.toPath())) {
+            for (File file : files) {
+                if (file.exists()) {
+                    Files.copy(file.toPath(), out);
+                }
+            }
+        }
+    }
+
+    // Output file of the job with the specified uuid: every job writes into its own 'calculated/<uuid>/' directory,
+    // so that jobs running at once don't overwrite each other's files
+    private WritableResource getOutputResource(String uuid, String fileName) throws IOException {
+        return new FileSystemResource(new File(getOutputDirectory(uuid), fileName));
+    }
+
+    private File getOutputDirectory(String uuid) throws IOException {
+        return new File(calculatedDirectoryResource.getFile(), uuid);
+    }
+
     /* ******************************** Spring Batch Utilities are defined below ********************************** */
 
     /**
-     * Since we would like to launch jobs asynchronously, we would like to create async job launcher,
-     * since out-of-the-box Spring Batch job launcher is synchronous
+     * Since we would like to launch jobs asynchronously, jobs are launched by out-of-the-box synchronous job launcher
+     * within this bounded pool: at most the configured number of jobs run at once, and at most the configured number
+     * of submitted jobs wait for a free thread. Submitting beyond that is rejected, rather than spawning a new thread
      */
     @Bean
-    @Qualifier("asyncJobLauncher")
-    public JobLauncher asyncJobLauncher(JobRepository jobRepository) {
-        TaskExecutorJobLauncher jobLauncher = new TaskExecutorJobLauncher();
-        jobLauncher.setJobRepository(jobRepository);
-        jobLauncher.setTaskExecutor(new SimpleAsyncTaskExecutor());
-        return jobLauncher;
+    @Qualifier("jobLaunchTaskExecutor")
+    public ThreadPoolTaskExecutor jobLaunchTaskExecutor(@Value("${launch.threads}") int threads,
+                                                        @Value("${launch.queue.capacity}") int queueCapacity) {
+        ThreadPoolTaskExecutor threadPool = new ThreadPoolTaskExecutor();
+        threadPool.setCorePoolSize(threads);
+        threadPool.setMaxPoolSize(threads);
+        threadPool.setQueueCapacity(queueCapacity);
+        threadPool.setThreadNamePrefix("job-launch-");
+        return threadPool;
     }
 
     /**
@@ -0,0 +1,218 @@
+package org.example;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.Resource;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * Cache of team performance job results (average, max and min ratio performance files, and dead-letter file of the
+ * quarantined records if there is one), addressed by the hash of the
+ * division files contents and the score rank. Every entry is a directory named by its key, holding copies of the
+ * result files. Once total size of the entries exceeds the configured limit, least recently used entries are evicted.
+ * Hits, misses and evictions are counted for monitoring. Thread-safe
+ */
+public class TeamPerformanceResultCache {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TeamPerformanceResultCache.class);
+    // Result files of the job, which are cached
+    public static final List<String> FILE_NAMES = List.of("avg.txt", "max.txt", "min.txt");
+    // Result files of the job, which are cached if present
+    public static final List<String> OPTIONAL_FILE_NAMES = List.of("dead-letter.txt");
+    // Suffix of the entry directories being stored, which are not in the cache yet
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private final File directory;
+    private final long maxBytes;
+
+    // Sizes of the entries by key, in access order (least recently used first), guarded by this cache
+    private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * Create the cache in the specified directory, picking up the entries stored there before (the most recently
+     * modified ones are considered the most recently used)
+     *
+     * @param directory directory of the entries, created if missing
+     * @param maxBytes max total size of the result files of all the entries
+     * @throws IOException if the directory could not be read or created
+     */
+    public TeamPerformanceResultCache(File directory, long maxBytes) throws IOException {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+        Files.createDirectories(directory.toPath());
+        File[] entryDirectories = directory.listFiles(File::isDirectory);
+        Arrays.sort(entryDirectories, Comparator.comparingLong(File::lastModified));
+        for (File entryDirectory : entryDirectories) {
+            if (entryDirectory.getName().contains(TEMP_SUFFIX)) {
+                // Left by the job which didn't finish storing its results
+                FileSystemUtils.deleteRecursively(entryDirectory);
+            } else {
+                long size = size(entryDirectory);
+                entries.put(entryDirectory.getName(), size);
+                totalBytes += size;
+            }
+        }
+        evict();
+    }
+
+    /**
+     * Key of the results of the specified division files and score rank: SHA-256 hash of the names and contents of
+     * the files, in the order of the names, and of the rank
+     *
+     * @param divisionResources division files
+     * @param scoreRank zero-based score rank
+     * @return hexadecimal hash
+     * @throws IOException if any of the files could not be read
+     */
+    public static String key(Resource[] divisionResources, int scoreRank) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // Re-throw as unchecked, since every Java platform supports SHA-256
+            throw new IllegalStateException(e);
+        }
+        Resource[] sortedResources = divisionResources.clone();
+        Arrays.sort(sortedResources, Comparator.comparing(Resource::getFilename));
+        for (Resource resource : sortedResources) {
+            // Name is terminated by zero byte and content is preceded by its length, so that files can't be confused
+            digest.update(resource.getFilename().getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(Long.toString(resource.contentLength()).getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            try (InputStream in = new DigestInputStream(resource.getInputStream(), digest)) {
+                in.transferTo(OutputStream.nullOutputStream());
+            }
+        }
+        digest.update(("scoreRank=" + scoreRank).getBytes(StandardCharsets.UTF_8));
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * Copy the result files of the entry with the specified key into the output directory, if the entry is cached
+     *
+     * @param key key of the results
+     * @param outputDirectory directory to copy result files into, created if missing
+     * @return whether the entry is cached, i.e. the files are copied
+     * @throws IOException if the files could not be copied
+     */
+    public synchronized boolean materialize(String key, File outputDirectory) throws IOException {
+        if (entries.get(key) == null) {
+            misses++;
+            return false;
+        }
+        hits++;
+        File entryDirectory = new File(directory, key);
+        Files.createDirectories(outputDirectory.toPath());
+        copyFiles(entryDirectory.toPath(), outputDirectory.toPath());
+        // Kept for picking up the access order on application restart
+        entryDirectory.setLastModified(System.currentTimeMillis());
+        return true;
+    }
+
+    /**
+     * Put the result files of the output directory into the cache under the specified key, evicting least recently
+     * used entries if the cache gets too big. Files are copied outside the lock, so that jobs storing their results
+     * at once don't wait for each other; if the key is already cached by then, the copy is dropped
+     *
+     * @param key key of the results
+     * @param outputDirectory directory with the result files
+     * @throws IOException if the files could not be copied
+     */
+    public void store(String key, File outputDirectory) throws IOException {
+        Path tempDirectory = Files.createTempDirectory(directory.toPath(), key + TEMP_SUFFIX);
+        copyFiles(outputDirectory.toPath(), tempDirectory);
+        long size = size(tempDirectory.toFile());
+        synchronized (this) {
+            if (entries.containsKey(key)) {
+                FileSystemUtils.deleteRecursively(tempDirectory);
+                return;
+            }
+            Files.move(tempDirectory, new File(directory, key).toPath(), StandardCopyOption.ATOMIC_MOVE);
+            entries.put(key, size);
+            totalBytes += size;
+            evict();
+        }
+    }
+
+    // Copy the result files from one directory into another, skipping the optional ones which are missing
+    private static void copyFiles(Path from, Path to) throws IOException {
+        for (String fileName : FILE_NAMES) {
+            Files.copy(from.resolve(fileName), to.resolve(fileName), StandardCopyOption.REPLACE_EXISTING);
+        }
+        for (String fileName : OPTIONAL_FILE_NAMES) {
+            if (Files.exists(from.resolve(fileName))) {
+                Files.copy(from.resolve(fileName), to.resolve(fileName), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+    }
+
+    // Remove least recently used entries until the total size is within the limit
+    private synchronized void evict() throws IOException {
+        Iterator<Map.Entry<String, Long>> iterator = entries.entrySet().iterator();
+        while (totalBytes > maxBytes && iterator.hasNext()) {
+            Map.Entry<String, Long> entry = iterator.next();
+            iterator.remove();
+            totalBytes -= entry.getValue();
+            evictions++;
+            FileSystemUtils.deleteRecursively(new File(directory, entry.getKey()).toPath());
+            LOGGER.info("Result cache entry " + entry.getKey() + " is evicted");
+        }
+    }
+
+    // Total size of the result files of the entry directory
+    private static long size(File entryDirectory) {
+        long size = 0;
+        for (String fileName : FILE_NAMES) {
+            size += new File(entryDirectory, fileName).length();
+        }
+        for (String fileName : OPTIONAL_FILE_NAMES) {
+            size += new File(entryDirectory, fileName).length(); // Zero if missing
+        }
+        return size;
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    public synchronized int getEntryCount() {
+        return entries.size();
+    }
+
+    public synchronized long getTotalBytes() {
+        return totalBytes;
+    }
+}
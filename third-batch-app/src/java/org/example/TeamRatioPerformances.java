@@ -0,0 +1,22 @@
+package org.example;
+
+
+// Entity holding team's performances against both max and min baselines, calculated from a single read of the team
+public class TeamRatioPerformances {
+
+    private final TeamPerformance maxRatioPerformance;
+    private final TeamPerformance minRatioPerformance;
+
+    public TeamRatioPerformances(TeamPerformance maxRatioPerformance, TeamPerformance minRatioPerformance) {
+        this.maxRatioPerformance = maxRatioPerformance;
+        this.minRatioPerformance = minRatioPerformance;
+    }
+
+    public TeamPerformance getMaxRatioPerformance() {
+        return maxRatioPerformance;
+    }
+
+    public TeamPerformance getMinRatioPerformance() {
+        return minRatioPerformance;
+    }
+}
@@ -0,0 +1,63 @@
+package org.example;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.item.ExecutionContext;
+
+import java.util.List;
+
+
+// Unit test for all-ranks team average processor, which should give the same results as single rank one for every rank
+public class AllRanksTeamAverageProcessorTest {
+
+    private static final List<Team> TEAMS = List.of(
+            team("Buzzards", "Aaron:9.80,7.40,6.70,6.10", "Bjorn:9.40,8.80,8.70", "Camila:8.50,8.30,7.10,4.30"),
+            team("Hurricanes", "Boris:9.90,9.50,4.00,3.80,2.60", "Yuri:9.30,8.60,7.80,7.10"));
+
+    @Test
+    public void testAllRanksMatchSingleRankProcessor() throws Exception {
+        AllRanksTeamAverageProcessor allRanksProcessor = new AllRanksTeamAverageProcessor(5);
+        allRanksProcessor.open(new ExecutionContext());
+        List<RankedAverageScoredTeam> rankedAverages = List.of(
+                allRanksProcessor.process(TEAMS.get(0)), allRanksProcessor.process(TEAMS.get(1)));
+        ExecutionContext allRanksContext = new ExecutionContext();
+        allRanksProcessor.update(allRanksContext);
+
+        // Bjorn has only 3 scores
+        Assertions.assertEquals(3, allRanksContext.getInt(AllRanksTeamAverageProcessor.COMPLETE_RANKS));
+        Assertions.assertTrue(Double.isNaN(rankedAverages.get(0).getAverageScores()[3]));
+        // Hurricanes have 4 scores, but rank 3 is still incomplete across the division
+        Assertions.assertEquals(5.45, rankedAverages.get(1).getAverageScores()[3], 1e-9);
+
+        double[] maxScores = (double[]) allRanksContext.get(AllRanksTeamAverageProcessor.MAX_SCORES);
+        String[] maxPlayers = (String[]) allRanksContext.get(AllRanksTeamAverageProcessor.MAX_PLAYERS);
+        double[] minScores = (double[]) allRanksContext.get(AllRanksTeamAverageProcessor.MIN_SCORES);
+        String[] minPlayers = (String[]) allRanksContext.get(AllRanksTeamAverageProcessor.MIN_PLAYERS);
+        for (int rank = 0; rank < 3; rank++) {
+            TeamAverageProcessor processor = new TeamAverageProcessor(rank);
+            processor.open(new ExecutionContext());
+            for (int i = 0; i < TEAMS.size(); i++) {
+                AverageScoredTeam average = processor.process(TEAMS.get(i));
+                Assertions.assertEquals(average.getName(), rankedAverages.get(i).getName());
+                Assertions.assertEquals(average.getAverageScore(), rankedAverages.get(i).getAverageScores()[rank]);
+            }
+            ExecutionContext context = new ExecutionContext();
+            processor.update(context);
+            Assertions.assertEquals(context.getDouble(TeamAverageProcessor.MAX_SCORE), maxScores[rank]);
+            Assertions.assertEquals(context.getString(TeamAverageProcessor.MAX_PLAYER), maxPlayers[rank]);
+            Assertions.assertEquals(context.getDouble(TeamAverageProcessor.MIN_SCORE), minScores[rank]);
+            Assertions.assertEquals(context.getString(TeamAverageProcessor.MIN_PLAYER), minPlayers[rank]);
+        }
+    }
+
+    // Team with players given as division file lines
+    private static Team team(String name, String... playerLines) {
+        Team team = new Team(name);
+        for (String line : playerLines) {
+            int colonIndex = line.indexOf(':');
+            team.getScoredPlayers().add(new Team.ScoredPlayer(line.substring(0, colonIndex), line, colonIndex + 1,
+                    line.length()));
+        }
+        return team;
+    }
+}
@@ -0,0 +1,99 @@
+package org.example;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.core.Job;
+import org.springframework.batch.core.JobParameters;
+import org.springframework.batch.core.launch.JobLauncher;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.*;
+
+
+// Unit test for application controller, which should reject jobs once the launch pool and its queue are full,
+// and reject negative score rank and rank counts out of bounds
+public class ApplicationControllerTest {
+
+    @Test
+    public void testJobsBeyondLaunchQueueAreRejected() throws Exception {
+        // Single launch thread with a single place in the queue
+        ThreadPoolTaskExecutor jobLaunchTaskExecutor = new TeamPerformanceJobConfiguration().jobLaunchTaskExecutor(1, 1);
+        jobLaunchTaskExecutor.initialize();
+
+        // Launched jobs are running until released
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch released = new CountDownLatch(1);
+        JobLauncher jobLauncher = mock(JobLauncher.class);
+        when(jobLauncher.run(any(Job.class), any(JobParameters.class))).thenAnswer(invocation -> {
+            started.countDown();
+            released.await();
+            return null;
+        });
+
+        ApplicationController controller = new ApplicationController();
+        ReflectionTestUtils.setField(controller, "jobLauncher", jobLauncher);
+        ReflectionTestUtils.setField(controller, "jobLaunchTaskExecutor", jobLaunchTaskExecutor);
+        ReflectionTestUtils.setField(controller, "teamPerformanceJob", mock(Job.class));
+        ReflectionTestUtils.setField(controller, "teamPerformanceAllRanksJob", mock(Job.class));
+        ReflectionTestUtils.setField(controller, "maxRankCount", 10);
+
+        try {
+            // First job is running, second is waiting in the queue, third one doesn't fit
+            controller.start(0);
+            Assertions.assertTrue(started.await(10, TimeUnit.SECONDS));
+            controller.startAllRanks(3);
+            ResponseStatusException e = Assertions.assertThrows(ResponseStatusException.class, () -> controller.start(1));
+            Assertions.assertEquals(HttpStatus.TOO_MANY_REQUESTS, e.getStatusCode());
+
+            // Both accepted jobs are launched once the first one is done
+            released.countDown();
+            verify(jobLauncher, timeout(10000).times(2)).run(any(Job.class), any(JobParameters.class));
+        } finally {
+            released.countDown();
+            jobLaunchTaskExecutor.shutdown();
+        }
+    }
+
+    @Test
+    public void testNegativeScoreRankIsRejected() {
+        ApplicationController controller = new ApplicationController();
+        ThreadPoolTaskExecutor jobLaunchTaskExecutor = mock(ThreadPoolTaskExecutor.class);
+        ReflectionTestUtils.setField(controller, "jobLauncher", mock(JobLauncher.class));
+        ReflectionTestUtils.setField(controller, "jobLaunchTaskExecutor", jobLaunchTaskExecutor);
+        ReflectionTestUtils.setField(controller, "teamPerformanceJob", mock(Job.class));
+
+        ResponseStatusException e = Assertions.assertThrows(ResponseStatusException.class, () -> controller.start(-1));
+        Assertions.assertEquals(HttpStatus.BAD_REQUEST, e.getStatusCode());
+        verifyNoInteractions(jobLaunchTaskExecutor);
+
+        controller.start(0);
+        verify(jobLaunchTaskExecutor).execute(any(Runnable.class));
+    }
+
+    @Test
+    public void testRankCountOutOfBoundsIsRejected() {
+        ApplicationController controller = new ApplicationController();
+        ThreadPoolTaskExecutor jobLaunchTaskExecutor = mock(ThreadPoolTaskExecutor.class);
+        ReflectionTestUtils.setField(controller, "jobLauncher", mock(JobLauncher.class));
+        ReflectionTestUtils.setField(controller, "jobLaunchTaskExecutor", jobLaunchTaskExecutor);
+        ReflectionTestUtils.setField(controller, "teamPerformanceAllRanksJob", mock(Job.class));
+        ReflectionTestUtils.setField(controller, "maxRankCount", 10);
+
+        for (int rankCount : new int[] {0, 11, Integer.MAX_VALUE}) {
+            ResponseStatusException e = Assertions.assertThrows(ResponseStatusException.class,
+                    () -> controller.startAllRanks(rankCount));
+            Assertions.assertEquals(HttpStatus.BAD_REQUEST, e.getStatusCode());
+        }
+        verifyNoInteractions(jobLaunchTaskExecutor);
+
+        // Max rank count itself is accepted
+        controller.startAllRanks(10);
+        verify(jobLaunchTaskExecutor).execute(any(Runnable.class));
+    }
+}
@@ -0,0 +1,118 @@
+package org.example;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.Job;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobParameters;
+import org.springframework.batch.core.JobParametersBuilder;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.test.JobLauncherTestUtils;
+import org.springframework.batch.test.context.SpringBatchTest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+
+// Job test for team performance job with partitioned average team score step, verifying that averages of the
+// partitions are concatenated by a step of its own, and that failure to concatenate them fails the job
+@SpringBatchTest
+@SpringJUnitConfig({TeamPerformanceJobConfiguration.class, TestConfiguration.class})
+@TestPropertySource(properties = {"average.partitioned=true", "result.cache.enabled=false"})
+public class AverageTeamScorePartitionedJobTest {
+
+    private static final String[] DIVISION_FILES = {"div1.txt", "div2.txt", "div3.txt", "div4.txt", "div5.txt"};
+
+    @Autowired
+    private JobLauncherTestUtils jobLauncherTestUtils;
+
+    @Autowired
+    @Qualifier("teamPerformanceJob")
+    private Job teamPerformanceJob;
+
+    private final String uuid = UUID.randomUUID().toString();
+
+    @BeforeEach
+    public void setJob() {
+        jobLauncherTestUtils.setJob(teamPerformanceJob);
+    }
+
+    @AfterEach
+    public void removeOutput() throws Exception {
+        FileSystemUtils.deleteRecursively(Path.of("calculated", uuid));
+        Files.deleteIfExists(Path.of("calculated", uuid + ".resulted"));
+    }
+
+    @Test
+    public void testAveragesOfPartitionsAreConcatenatedInDivisionOrder() throws Exception {
+        JobExecution jobExecution = jobLauncherTestUtils.launchJob(getJobParameters());
+        Assertions.assertEquals(BatchStatus.COMPLETED, jobExecution.getStatus());
+        Assertions.assertEquals(BatchStatus.COMPLETED, getStepStatus(jobExecution, "averageConcatenationStep"));
+
+        // Teams of all the divisions, in the order of division file names, and no fragments are left behind
+        List<String> averagedTeams = new ArrayList<>();
+        for (String line : Files.readAllLines(Path.of("calculated", uuid, "avg.txt"))) {
+            averagedTeams.add(line.substring(0, line.indexOf(',')));
+        }
+        Assertions.assertEquals(getDivisionTeams(), averagedTeams);
+        String[] fileNames = new File("calculated", uuid).list();
+        Assertions.assertNotNull(fileNames);
+        for (String fileName : fileNames) {
+            Assertions.assertFalse(fileName.startsWith("avg-"), fileName);
+        }
+    }
+
+    @Test
+    public void testFailureToConcatenateFailsTheJob() throws Exception {
+        // Directory in place of the averages file makes the concatenation fail
+        Files.createDirectories(Path.of("calculated", uuid, "avg.txt"));
+
+        JobExecution jobExecution = jobLauncherTestUtils.launchJob(getJobParameters());
+        Assertions.assertEquals(BatchStatus.FAILED, jobExecution.getStatus());
+        Assertions.assertEquals(BatchStatus.COMPLETED, getStepStatus(jobExecution, "averageTeamScorePartitionedStep"));
+        Assertions.assertEquals(BatchStatus.FAILED, getStepStatus(jobExecution, "averageConcatenationStep"));
+    }
+
+    private JobParameters getJobParameters() {
+        return new JobParametersBuilder()
+                .addLong(TeamPerformanceJobConfiguration.SCORE_RANK_PARAM, 0L)
+                .addString(TeamPerformanceJobConfiguration.UUID_PARAM, uuid)
+                .toJobParameters();
+    }
+
+    // Status of the step of the job execution (step execution isn't returned, since it would be taken for the one
+    // of step scope by Spring Batch test listener)
+    private static BatchStatus getStepStatus(JobExecution jobExecution, String stepName) {
+        return jobExecution.getStepExecutions().stream()
+                .filter(stepExecution -> stepExecution.getStepName().equals(stepName))
+                .map(StepExecution::getStatus)
+                .findFirst()
+                .orElseThrow(() -> new AssertionError("Step " + stepName + " is not executed"));
+    }
+
+    // Team names of the bundled division files, which are lines other than empty ones and player lines
+    private static List<String> getDivisionTeams() throws Exception {
+        List<String> teams = new ArrayList<>();
+        for (String divisionFile : DIVISION_FILES) {
+            for (String line : Files.readAllLines(Path.of("src/res/input", divisionFile))) {
+                line = line.trim();
+                if (!line.isEmpty() && line.indexOf(':') < 0) {
+                    teams.add(line);
+                }
+            }
+        }
+        return teams;
+    }
+}
@@ -0,0 +1,182 @@
+package org.example;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.file.builder.FlatFileItemReaderBuilder;
+import org.springframework.batch.support.transaction.ResourcelessTransactionManager;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+
+// Unit test for quarantine of bad division records, classified by the reader and the processors, and counted as skips
+// along with their dead letters only once the chunk transaction is committed
+public class DeadLetterQuarantineTest {
+
+    private static final String DIVISION = "Stray:9.10,9.20\n" +
+            "\n" +
+            "Buzzards\n" +
+            "Aaron:9.80,7.40\n" +
+            "\n" +
+            "Hurricanes\n" +
+            "Boris:9.90,9.50\n" +
+            ":8.10,8.20\n" +
+            "\n" +
+            "Eagles\n" +
+            "\n" +
+            "Falcons\n" +
+            "Yuri:9.30\n" +
+            "\n" +
+            "Ravens\n" +
+            "Camila:4.30,bad\n" +
+            "\n" +
+            "Owls\n" +
+            "Ivan:8.60,8.70\n";
+
+    @TempDir
+    private Path tempDirectory;
+
+    @Test
+    public void testBadRecordsAreQuarantinedWithTheirPosition() throws Exception {
+        File deadLetterFile = tempDirectory.resolve("dead-letter.txt").toFile();
+        DeadLetterQuarantine quarantine = new DeadLetterQuarantine(new FileSystemResource(deadLetterFile));
+        quarantine.open(new ExecutionContext());
+
+        DivisionFileReader reader = new DivisionFileReader(new FlatFileItemReaderBuilder<String>()
+                .name("divisionLineReader")
+                .lineMapper((line, lineNumber) -> line)
+                .build(), quarantine);
+        reader.setResource(new ByteArrayResource(DIVISION.getBytes(StandardCharsets.UTF_8)) {
+            @Override
+            public String getFilename() {
+                return "division.txt";
+            }
+        });
+        reader.open(new ExecutionContext());
+        TeamAverageProcessor processor = new TeamAverageProcessor(1, quarantine);
+        processor.open(new ExecutionContext());
+
+        // Good teams only are read and processed
+        List<String> averagedTeams = new ArrayList<>();
+        Team team;
+        while ((team = reader.read()) != null) {
+            AverageScoredTeam average = processor.process(team);
+            if (average != null) {
+                averagedTeams.add(average.getName());
+            }
+        }
+        reader.close();
+        quarantine.close();
+        Assertions.assertEquals(List.of("Buzzards", "Owls"), averagedTeams);
+
+        Assertions.assertEquals(List.of(
+                "division.txt:1: Player without team: Stray:9.10,9.20",
+                "division.txt:6: Malformed player line 8 ':8.10,8.20': Hurricanes",
+                "division.txt:10: Team without players: Eagles",
+                "division.txt:12: Score rank 1 is out of bounds for player Yuri with 1 scores: Falcons",
+                "division.txt:15: Malformed score of player Camila, For input string: \"bad\": Ravens"),
+                Files.readAllLines(deadLetterFile.toPath()));
+
+        // Quarantined records are reported as skipped rather than filtered
+        StepExecution stepExecution = new StepExecution("averageTeamScoreStep", null);
+        stepExecution.setFilterCount(2);
+        quarantine.afterStep(stepExecution);
+        Assertions.assertEquals(3, stepExecution.getReadSkipCount());
+        Assertions.assertEquals(2, stepExecution.getProcessSkipCount());
+        Assertions.assertEquals(0, stepExecution.getFilterCount());
+    }
+
+    @Test
+    public void testMalformedScoresAreQuarantinedByAllRanksProcessor() throws Exception {
+        File deadLetterFile = tempDirectory.resolve("dead-letter.txt").toFile();
+        DeadLetterQuarantine quarantine = new DeadLetterQuarantine(new FileSystemResource(deadLetterFile));
+        quarantine.open(new ExecutionContext());
+        AllRanksTeamAverageProcessor processor = new AllRanksTeamAverageProcessor(2, quarantine);
+        processor.open(new ExecutionContext());
+
+        Assertions.assertNull(processor.process(team("Ravens", 15, "Ivan:8.60,8.70", "Camila:9.10,abc")));
+        Assertions.assertNotNull(processor.process(team("Owls", 18, "Ivan:8.60,8.70")));
+        quarantine.close();
+
+        // Players of the quarantined team are not accumulated
+        Assertions.assertEquals(
+                List.of("division.txt:15: Malformed score of player Camila, For input string: \"abc\": Ravens"),
+                Files.readAllLines(deadLetterFile.toPath()));
+        ExecutionContext context = new ExecutionContext();
+        processor.update(context);
+        Assertions.assertArrayEquals(new double[]{8.60, 8.70},
+                (double[]) context.get(AllRanksTeamAverageProcessor.MIN_SCORES));
+        StepExecution stepExecution = new StepExecution("allRanksAverageTeamScoreStep", null);
+        stepExecution.setFilterCount(1);
+        quarantine.afterStep(stepExecution);
+        Assertions.assertEquals(1, stepExecution.getProcessSkipCount());
+        Assertions.assertEquals(0, stepExecution.getFilterCount());
+    }
+
+    @Test
+    public void testRecordsOfRolledBackChunkAreNeitherWrittenNorCounted() throws Exception {
+        File deadLetterFile = tempDirectory.resolve("dead-letter.txt").toFile();
+        DeadLetterQuarantine quarantine = new DeadLetterQuarantine(new FileSystemResource(deadLetterFile));
+        quarantine.open(new ExecutionContext());
+        TransactionTemplate transactionTemplate = new TransactionTemplate(new ResourcelessTransactionManager());
+
+        // Chunk rolled back, e.g. failed to write the output, then the committed one
+        Assertions.assertThrows(IllegalStateException.class, () -> transactionTemplate.executeWithoutResult(status -> {
+            quarantineBothWays(quarantine, "Eagles");
+            throw new IllegalStateException("Chunk is failed");
+        }));
+        transactionTemplate.executeWithoutResult(status -> quarantineBothWays(quarantine, "Falcons"));
+        quarantine.close();
+
+        Assertions.assertEquals(List.of(
+                "division.txt:1: Team without players: Falcons",
+                "division.txt:1: Score rank 1 is out of bounds: Falcons"),
+                Files.readAllLines(deadLetterFile.toPath()));
+        StepExecution stepExecution = new StepExecution("averageTeamScoreStep", null);
+        stepExecution.setFilterCount(1);
+        quarantine.afterStep(stepExecution);
+        Assertions.assertEquals(1, stepExecution.getReadSkipCount());
+        Assertions.assertEquals(1, stepExecution.getProcessSkipCount());
+        Assertions.assertEquals(0, stepExecution.getFilterCount());
+    }
+
+    private static void quarantineBothWays(DeadLetterQuarantine quarantine, String team) {
+        try {
+            quarantine.quarantineRead("division.txt", 1, "Team without players", team);
+            quarantine.quarantineProcess("division.txt", 1, "Score rank 1 is out of bounds", team);
+        } catch (Exception e) {
+            // Re-throw as unchecked
+            throw new RuntimeException(e);
+        }
+    }
+
+    // Team of the division file at the specified line, with players given as division file lines
+    private static Team team(String name, int lineNumber, String... playerLines) {
+        Team team = new Team(name, "division.txt", lineNumber);
+        for (String line : playerLines) {
+            int colonIndex = line.indexOf(':');
+            team.getScoredPlayers().add(new Team.ScoredPlayer(line.substring(0, colonIndex), line, colonIndex + 1,
+                    line.length()));
+        }
+        return team;
+    }
+
+    @Test
+    public void testDeadLetterFileIsRemovedIfEmpty() throws Exception {
+        File deadLetterFile = tempDirectory.resolve("dead-letter.txt").toFile();
+        DeadLetterQuarantine quarantine = new DeadLetterQuarantine(new FileSystemResource(deadLetterFile));
+        quarantine.open(new ExecutionContext());
+        quarantine.close();
+        Assertions.assertFalse(deadLetterFile.exists());
+    }
+}
@@ -0,0 +1,106 @@
+package org.example;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+
+// Unit test for division directory watcher, handing over arriving division files in micro-batches, and failed ones again
+public class DivisionDirectoryWatcherTest {
+
+    @TempDir
+    private Path tempDirectory;
+
+    @Test
+    public void testArrivingFilesAreHandedOverInBatches() throws Exception {
+        Path directory = tempDirectory.resolve("incoming");
+        File batchesDirectory = tempDirectory.resolve("batches").toFile();
+        Files.createDirectories(directory);
+        // Arrived before start
+        Files.writeString(directory.resolve("div1.txt"), "Buzzards");
+
+        BlockingQueue<List<String>> batches = new LinkedBlockingQueue<>();
+        DivisionDirectoryWatcher watcher = new DivisionDirectoryWatcher(true, directory, batchesDirectory, 500, 1,
+                (batchId, inputDirectory) -> {
+                    String[] fileNames = inputDirectory.list();
+                    Arrays.sort(fileNames);
+                    batches.add(List.of(fileNames));
+                });
+        watcher.start();
+        try {
+            Assertions.assertEquals(List.of("div1.txt"), batches.poll(10, TimeUnit.SECONDS));
+
+            // Both arrive within the batch interval; the other files are ignored
+            Files.writeString(directory.resolve("div2.txt"), "Hurricanes");
+            Files.writeString(directory.resolve("div3.txt"), "Eagles");
+            Files.writeString(directory.resolve("notes.md"), "Not a division");
+            Assertions.assertEquals(List.of("div2.txt", "div3.txt"), batches.poll(10, TimeUnit.SECONDS));
+            try (Stream<Path> files = Files.list(directory)) {
+                Assertions.assertEquals(List.of(directory.resolve("notes.md")), files.toList());
+            }
+        } finally {
+            watcher.stop();
+        }
+        Assertions.assertFalse(watcher.isRunning());
+        Assertions.assertTrue(batches.isEmpty());
+    }
+
+    @Test
+    public void testFailedBatchIsHandedOverAgainUntilMaxAttempts() throws Exception {
+        Path directory = tempDirectory.resolve("incoming");
+        File batchesDirectory = tempDirectory.resolve("batches").toFile();
+        Files.createDirectories(directory);
+        Files.writeString(directory.resolve("div1.txt"), "Buzzards");
+
+        // First batch fails once, second one fails every time
+        BlockingQueue<String> attempts = new LinkedBlockingQueue<>();
+        AtomicInteger attemptCount = new AtomicInteger();
+        DivisionDirectoryWatcher watcher = new DivisionDirectoryWatcher(true, directory, batchesDirectory, 200, 3,
+                (batchId, inputDirectory) -> {
+                    String[] fileNames = inputDirectory.list();
+                    Arrays.sort(fileNames);
+                    attempts.add(batchId + ":" + String.join(",", fileNames));
+                    if (attemptCount.incrementAndGet() == 1 || fileNames[0].equals("div2.txt")) {
+                        throw new IllegalStateException("Batch " + batchId + " is failed");
+                    }
+                });
+        watcher.start();
+        try {
+            // Failed batch is handed over again with the same id and files
+            String firstAttempt = attempts.poll(10, TimeUnit.SECONDS);
+            Assertions.assertNotNull(firstAttempt);
+            Assertions.assertTrue(firstAttempt.endsWith(":div1.txt"));
+            Assertions.assertEquals(firstAttempt, attempts.poll(10, TimeUnit.SECONDS));
+
+            Files.writeString(directory.resolve("div2.txt"), "Hurricanes");
+            String secondBatch = attempts.poll(10, TimeUnit.SECONDS);
+            Assertions.assertNotNull(secondBatch);
+            Assertions.assertTrue(secondBatch.endsWith(":div2.txt"));
+            Assertions.assertEquals(secondBatch, attempts.poll(10, TimeUnit.SECONDS));
+            Assertions.assertEquals(secondBatch, attempts.poll(10, TimeUnit.SECONDS));
+            // Files of the batch given up are kept in its input directory
+            String secondBatchId = secondBatch.substring(0, secondBatch.indexOf(':'));
+            Assertions.assertTrue(new File(batchesDirectory, secondBatchId + "/input/div2.txt").exists());
+
+            // The next batch is handed over once the failed one is given up
+            Files.writeString(directory.resolve("div3.txt"), "Eagles");
+            String thirdBatch = attempts.poll(10, TimeUnit.SECONDS);
+            Assertions.assertNotNull(thirdBatch);
+            Assertions.assertTrue(thirdBatch.endsWith(":div3.txt"));
+        } finally {
+            watcher.stop();
+        }
+        Assertions.assertTrue(attempts.isEmpty());
+    }
+}
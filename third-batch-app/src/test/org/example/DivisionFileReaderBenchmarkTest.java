@@ -0,0 +1,173 @@
+package org.example;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.file.FlatFileItemReader;
+import org.springframework.core.io.FileSystemResource;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * JMH benchmark of reading a large division file and summing the scores of the specified rank (as team average
+ * processor does), comparing array-backed teams with lazily parsed scores against the former model with every score
+ * parsed into linked lists. Number of teams could be changed with 'performance.teams' system property
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class DivisionFileReaderBenchmarkTest {
+
+    @Param({"0", "4"})
+    public int scoreRank;
+
+    @Param("100000")
+    public int teams;
+
+    private Path divisionFile;
+
+    @Setup(Level.Trial)
+    public void generateDivisionFile() throws IOException {
+        divisionFile = Files.createTempFile("division", ".txt");
+        writeDivisionFile(divisionFile, teams);
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteDivisionFile() throws IOException {
+        Files.deleteIfExists(divisionFile);
+    }
+
+    @Benchmark
+    public double arrayBackedLazyScores() throws Exception {
+        DivisionFileReader reader = new DivisionFileReader(lineReader());
+        reader.setResource(new FileSystemResource(divisionFile));
+        reader.open(new ExecutionContext());
+        double sum = 0;
+        Team team;
+        while ((team = reader.read()) != null) {
+            for (Team.ScoredPlayer scoredPlayer : team.getScoredPlayers()) {
+                sum += scoredPlayer.getScore(scoreRank);
+            }
+        }
+        reader.close();
+        return sum;
+    }
+
+    @Benchmark
+    public double linkedListEagerScores() throws Exception {
+        FlatFileItemReader<String> lineReader = lineReader();
+        lineReader.setResource(new FileSystemResource(divisionFile));
+        lineReader.open(new ExecutionContext());
+        double sum = 0;
+        List<LinkedList<Double>> team;
+        while ((team = readLinkedListTeam(lineReader)) != null) {
+            for (List<Double> scores : team) {
+                sum += scores.get(scoreRank);
+            }
+        }
+        lineReader.close();
+        return sum;
+    }
+
+    @Test
+    @Tag("performance")
+    public void compareTeamModels() throws Exception {
+        // Both models should give the same result before their speed is compared
+        DivisionFileReaderBenchmarkTest check = new DivisionFileReaderBenchmarkTest();
+        check.teams = 1000;
+        check.scoreRank = 4;
+        check.generateDivisionFile();
+        Assertions.assertEquals(check.linkedListEagerScores(), check.arrayBackedLazyScores());
+        check.deleteDivisionFile();
+
+        Options options = new OptionsBuilder()
+                .include(DivisionFileReaderBenchmarkTest.class.getName() + "\\.")
+                .param("teams", Integer.getInteger("performance.teams", 100_000).toString())
+                .forks(1)
+                .warmupIterations(3)
+                .warmupTime(TimeValue.seconds(2))
+                .measurementIterations(5)
+                .measurementTime(TimeValue.seconds(2))
+                .build();
+        // Results table is printed by the runner
+        Collection<RunResult> results = new Runner(options).run();
+        Assertions.assertEquals(4, results.size());
+    }
+
+    // Plain line reader, as configured for the job (created without builder, which logs missing resource)
+    private static FlatFileItemReader<String> lineReader() {
+        FlatFileItemReader<String> lineReader = new FlatFileItemReader<>();
+        lineReader.setName("divisionLineReader");
+        lineReader.setLineMapper((line, lineNumber) -> line);
+        return lineReader;
+    }
+
+    // Former reading of the team record, parsing every score of every player into linked list
+    private static List<LinkedList<Double>> readLinkedListTeam(FlatFileItemReader<String> lineReader) throws Exception {
+        List<LinkedList<Double>> team = null;
+        String line;
+        while ((line = lineReader.read()) != null) {
+            line = line.trim();
+            if (line.isEmpty()) {
+                return team;
+            } else if (!line.contains(":")) {
+                team = new LinkedList<>();
+            } else if (team != null) {
+                LinkedList<Double> scores = new LinkedList<>();
+                for (String score : line.split(":")[1].split(",")) {
+                    scores.add(Double.parseDouble(score));
+                }
+                team.add(scores);
+            }
+        }
+        return team;
+    }
+
+    // Division file of the input format, with 4-6 players per team, each having 5-10 descending scores
+    private static void writeDivisionFile(Path file, int teamNum) throws IOException {
+        Random random = new Random(42);
+        try (BufferedWriter writer = Files.newBufferedWriter(file)) {
+            for (int i = 0; i < teamNum; i++) {
+                writer.write("Team" + i + "\n");
+                int playerNum = 4 + random.nextInt(3);
+                for (int j = 0; j < playerNum; j++) {
+                    writer.write("Player" + j + ":");
+                    int scoreNum = 5 + random.nextInt(6);
+                    double score = 10;
+                    for (int k = 0; k < scoreNum; k++) {
+                        score = Math.floor(random.nextDouble() * score * 10) / 10;
+                        writer.write((k == 0 ? "" : ",") + String.format(Locale.ROOT, "%.2f", score));
+                    }
+                    writer.write("\n");
+                }
+                writer.write("\n");
+            }
+        }
+    }
+}
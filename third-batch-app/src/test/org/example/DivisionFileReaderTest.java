@@ -0,0 +1,53 @@
+package org.example;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.file.builder.FlatFileItemReaderBuilder;
+import org.springframework.core.io.ByteArrayResource;
+
+import java.nio.charset.StandardCharsets;
+
+
+// Unit test for multi-line division file reader and lazily parsed scores of team players
+public class DivisionFileReaderTest {
+
+    private static final String DIVISION = "Buzzards\n" +
+            "Aaron:9.80,7.40,6.70\n" +
+            "  Bjorn:9.40,bad,8.70  \n" +
+            "\n" +
+            "Hurricanes\n" +
+            "Boris:9.90\n";
+
+    @Test
+    public void testTeamsAreReadWithScoresParsedOnDemand() throws Exception {
+        DivisionFileReader reader = new DivisionFileReader(new FlatFileItemReaderBuilder<String>()
+                .name("divisionLineReader")
+                .lineMapper((line, lineNumber) -> line)
+                .build());
+        reader.setResource(new ByteArrayResource(DIVISION.getBytes(StandardCharsets.UTF_8)));
+        reader.open(new ExecutionContext());
+
+        Team buzzards = reader.read();
+        Assertions.assertEquals("Buzzards", buzzards.getName());
+        Assertions.assertEquals(2, buzzards.getScoredPlayers().size());
+        Team.ScoredPlayer aaron = buzzards.getScoredPlayers().get(0);
+        Assertions.assertEquals("Aaron", aaron.getName());
+        Assertions.assertEquals(3, aaron.getScoreCount());
+        Assertions.assertEquals(9.8, aaron.getScore(0));
+        Assertions.assertEquals(6.7, aaron.getScore(2));
+        Assertions.assertThrows(IndexOutOfBoundsException.class, () -> aaron.getScore(3));
+        // Malformed score fails only when its rank is requested
+        Team.ScoredPlayer bjorn = buzzards.getScoredPlayers().get(1);
+        Assertions.assertEquals("Bjorn", bjorn.getName());
+        Assertions.assertEquals(8.7, bjorn.getScore(2));
+        Assertions.assertThrows(NumberFormatException.class, () -> bjorn.getScore(1));
+
+        // Last team is not followed by empty line
+        Team hurricanes = reader.read();
+        Assertions.assertEquals("Hurricanes", hurricanes.getName());
+        Assertions.assertEquals(9.9, hurricanes.getScoredPlayers().get(0).getScore(0));
+        Assertions.assertNull(reader.read());
+        reader.close();
+    }
+}
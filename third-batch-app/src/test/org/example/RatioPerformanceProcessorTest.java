@@ -37,6 +37,10 @@ public class RatioPerformanceProcessorTest {
     @Qualifier("minRatioPerformanceProcessor")
     private ItemProcessor<AverageScoredTeam, TeamPerformance> minRatioPerformanceProcessor;
 
+    @Autowired
+    @Qualifier("ratioPerformancesProcessor")
+    private ItemProcessor<AverageScoredTeam, TeamRatioPerformances> ratioPerformancesProcessor;
+
     @Test
     public void testProcessorsUsingSharedStepExecution() throws Exception {
         AverageScoredTeam team = new AverageScoredTeam(TEAM_NAME, TEAM_SCORE);
@@ -51,6 +55,17 @@ public class RatioPerformanceProcessorTest {
         Assertions.assertEquals(maxPerformance.getPerformance(), EXPECTED_MAX_PERFORMANCE);
     }
 
+    @Test
+    public void testBothPerformancesFromSingleProcessor() throws Exception {
+        AverageScoredTeam team = new AverageScoredTeam(TEAM_NAME, TEAM_SCORE);
+        TeamRatioPerformances performances = ratioPerformancesProcessor.process(team);
+        Assertions.assertNotNull(performances);
+        Assertions.assertEquals(performances.getMaxRatioPerformance().getName(), TEAM_NAME);
+        Assertions.assertEquals(performances.getMaxRatioPerformance().getPerformance(), EXPECTED_MAX_PERFORMANCE);
+        Assertions.assertEquals(performances.getMinRatioPerformance().getName(), TEAM_NAME);
+        Assertions.assertEquals(performances.getMinRatioPerformance().getPerformance(), EXPECTED_MIN_PERFORMANCE);
+    }
+
     // Custom step execution is provided for common use across all tests
     public StepExecution getStepExecution() {
         // Mocking job execution context parameters
@@ -0,0 +1,75 @@
+package org.example;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+
+// Unit test for staged file commit, replacing files together, and rolling interrupted commit back or forward
+public class StagedFileCommitTest {
+
+    @TempDir
+    private Path tempDirectory;
+
+    @Test
+    public void testStagedFilesReplaceFilesOnCommitOnly() throws Exception {
+        Files.writeString(tempDirectory.resolve("avg.txt"), "Buzzards,8.00\n");
+        StagedFileCommit commit = new StagedFileCommit(tempDirectory.toFile());
+        Assertions.assertNull(commit.recover());
+
+        Files.writeString(commit.stage("avg.txt").toPath(), "Buzzards,8.00\nHurricanes,7.00\n");
+        Files.writeString(commit.stage("max.txt").toPath(), "Hurricanes,90.00%\n");
+        Assertions.assertEquals("Buzzards,8.00\n", Files.readString(tempDirectory.resolve("avg.txt")));
+        Assertions.assertFalse(Files.exists(tempDirectory.resolve("max.txt")));
+
+        commit.commit("batch-1");
+        Assertions.assertEquals("Buzzards,8.00\nHurricanes,7.00\n", Files.readString(tempDirectory.resolve("avg.txt")));
+        Assertions.assertEquals("Hurricanes,90.00%\n", Files.readString(tempDirectory.resolve("max.txt")));
+        try (Stream<Path> files = Files.list(tempDirectory)) {
+            Assertions.assertEquals(2, files.count());
+        }
+    }
+
+    @Test
+    public void testCommitNotMarkedIsRolledBack() throws Exception {
+        Files.writeString(tempDirectory.resolve("avg.txt"), "Buzzards,8.00\n");
+        StagedFileCommit commit = new StagedFileCommit(tempDirectory.toFile());
+        Files.writeString(commit.stage("avg.txt").toPath(), "Buzzards,8.00\nHurricanes,7.00\n");
+
+        // Interrupted before it's marked, e.g. failed to stage the rest of the files
+        Assertions.assertNull(new StagedFileCommit(tempDirectory.toFile()).recover());
+        Assertions.assertEquals("Buzzards,8.00\n", Files.readString(tempDirectory.resolve("avg.txt")));
+        Assertions.assertFalse(Files.exists(tempDirectory.resolve(".staging")));
+    }
+
+    @Test
+    public void testMarkedCommitIsRolledForward() throws Exception {
+        Files.writeString(tempDirectory.resolve("avg.txt"), "Buzzards,8.00\n");
+        Files.writeString(tempDirectory.resolve("max.txt"), "Buzzards,100.00%\n");
+        StagedFileCommit commit = new StagedFileCommit(tempDirectory.toFile());
+        File stagedAverages = commit.stage("avg.txt");
+        Files.writeString(stagedAverages.toPath(), "Buzzards,8.00\nHurricanes,7.00\n");
+        Files.writeString(commit.stage("max.txt").toPath(), "Hurricanes,100.00%\n");
+
+        // Interrupted once marked, having moved some of the staged files: staged averages are made a directory,
+        // so that they could not be moved over the file
+        File stagedAveragesContents = tempDirectory.resolve("avg.tmp").toFile();
+        Files.move(stagedAverages.toPath(), stagedAveragesContents.toPath());
+        Files.createDirectory(stagedAverages.toPath());
+        Assertions.assertThrows(Exception.class, () -> commit.commit("batch-2"));
+        Assertions.assertEquals("Buzzards,8.00\n", Files.readString(tempDirectory.resolve("avg.txt")));
+
+        Files.delete(stagedAverages.toPath());
+        Files.move(stagedAveragesContents.toPath(), stagedAverages.toPath());
+        Assertions.assertEquals("batch-2", new StagedFileCommit(tempDirectory.toFile()).recover());
+        Assertions.assertEquals("Buzzards,8.00\nHurricanes,7.00\n", Files.readString(tempDirectory.resolve("avg.txt")));
+        Assertions.assertEquals("Hurricanes,100.00%\n", Files.readString(tempDirectory.resolve("max.txt")));
+        Assertions.assertFalse(Files.exists(tempDirectory.resolve(".staging")));
+        Assertions.assertNull(new StagedFileCommit(tempDirectory.toFile()).recover());
+    }
+}
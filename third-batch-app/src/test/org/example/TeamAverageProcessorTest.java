@@ -0,0 +1,88 @@
+package org.example;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.core.io.FileSystemResource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+
+// Unit test for team average processor, publishing best and worst players to the context only when it's saved,
+// and rejecting negative score rank rather than quarantining every team
+public class TeamAverageProcessorTest {
+
+    @Test
+    public void testBestAndWorstPlayersArePublishedOnUpdate() throws Exception {
+        TeamAverageProcessor processor = new TeamAverageProcessor(1);
+        ExecutionContext context = new ExecutionContext();
+        processor.open(context);
+
+        AverageScoredTeam average = processor.process(team("Buzzards", "Aaron:9.80,7.40", "Bjorn:9.40,8.80"));
+        Assertions.assertEquals("Buzzards", average.getName());
+        Assertions.assertEquals(8.1, average.getAverageScore(), 1e-9);
+        Assertions.assertTrue(context.isEmpty());
+
+        processor.update(context);
+        Assertions.assertEquals(8.8, context.getDouble(TeamAverageProcessor.MAX_SCORE));
+        Assertions.assertEquals("Bjorn", context.getString(TeamAverageProcessor.MAX_PLAYER));
+        Assertions.assertEquals(7.4, context.getDouble(TeamAverageProcessor.MIN_SCORE));
+        Assertions.assertEquals("Aaron", context.getString(TeamAverageProcessor.MIN_PLAYER));
+
+        // Restarted processor continues with the published players
+        TeamAverageProcessor restarted = new TeamAverageProcessor(1);
+        restarted.open(context);
+        restarted.process(team("Hurricanes", "Boris:9.90,9.50", "Yuri:9.30,8.60"));
+        ExecutionContext restartedContext = new ExecutionContext();
+        restarted.update(restartedContext);
+        Assertions.assertEquals("Boris", restartedContext.getString(TeamAverageProcessor.MAX_PLAYER));
+        Assertions.assertEquals("Aaron", restartedContext.getString(TeamAverageProcessor.MIN_PLAYER));
+    }
+
+    @Test
+    public void testConcurrentlyProcessedTeams() throws Exception {
+        TeamAverageProcessor processor = new TeamAverageProcessor(0);
+        processor.open(new ExecutionContext());
+        int teamNum = 10_000;
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<AverageScoredTeam>> averages = new ArrayList<>();
+        for (int i = 0; i < teamNum; i++) {
+            // Scores from 0.01 to 100.00, so that the best and worst players are unique
+            Team team = team("Team" + i, "Player" + i + ":" + (i + 1) / 100.0);
+            averages.add(executor.submit(() -> processor.process(team)));
+        }
+        for (Future<AverageScoredTeam> average : averages) {
+            average.get();
+        }
+        executor.shutdown();
+
+        ExecutionContext context = new ExecutionContext();
+        processor.update(context);
+        Assertions.assertEquals(100.0, context.getDouble(TeamAverageProcessor.MAX_SCORE));
+        Assertions.assertEquals("Player" + (teamNum - 1), context.getString(TeamAverageProcessor.MAX_PLAYER));
+        Assertions.assertEquals(0.01, context.getDouble(TeamAverageProcessor.MIN_SCORE));
+        Assertions.assertEquals("Player0", context.getString(TeamAverageProcessor.MIN_PLAYER));
+    }
+
+    @Test
+    public void testNegativeScoreRankIsRejected() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new TeamAverageProcessor(-1));
+        DeadLetterQuarantine quarantine = new DeadLetterQuarantine(new FileSystemResource("dead-letter.txt"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new TeamAverageProcessor(-1, quarantine));
+    }
+
+    // Team with players given as division file lines
+    private static Team team(String name, String... playerLines) {
+        Team team = new Team(name);
+        for (String line : playerLines) {
+            int colonIndex = line.indexOf(':');
+            team.getScoredPlayers().add(new Team.ScoredPlayer(line.substring(0, colonIndex), line, colonIndex + 1,
+                    line.length()));
+        }
+        return team;
+    }
+}
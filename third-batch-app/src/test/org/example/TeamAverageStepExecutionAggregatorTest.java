@@ -0,0 +1,51 @@
+package org.example;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.item.ExecutionContext;
+
+import java.util.List;
+
+
+// Unit test for merging best and worst players of division partitions
+public class TeamAverageStepExecutionAggregatorTest {
+
+    @Test
+    public void testBestAndWorstPlayersAreMergedInFileOrder() {
+        JobExecution jobExecution = new JobExecution(1L);
+        StepExecution result = new StepExecution("averageTeamScorePartitionedStep", jobExecution);
+        // Partitions are given out of file order; 'div1' and 'div3' have the same best score
+        StepExecution div3 = partition(jobExecution, "div3.txt", 9.9, "Boris", 0.5, "Yuri");
+        StepExecution div1 = partition(jobExecution, "div1.txt", 9.9, "Jose", 1.0, "Aaron");
+        StepExecution div2 = partition(jobExecution, "div2.txt", 9.0, "Sophie", 0.2, "Stella");
+        StepExecution empty = new StepExecution("averageTeamScoreWorkerStep:partition3", jobExecution);
+        empty.getExecutionContext().putString(TeamAverageStepExecutionAggregator.FILE_NAME, "file:/input/div4.txt");
+        empty.setStatus(BatchStatus.COMPLETED);
+
+        new TeamAverageStepExecutionAggregator().aggregate(result, List.of(div3, empty, div2, div1));
+
+        ExecutionContext context = result.getExecutionContext();
+        Assertions.assertEquals(9.9, context.getDouble(TeamAverageProcessor.MAX_SCORE));
+        Assertions.assertEquals("Jose", context.getString(TeamAverageProcessor.MAX_PLAYER));
+        Assertions.assertEquals(0.2, context.getDouble(TeamAverageProcessor.MIN_SCORE));
+        Assertions.assertEquals("Stella", context.getString(TeamAverageProcessor.MIN_PLAYER));
+        Assertions.assertEquals(3, result.getReadCount());
+    }
+
+    private static StepExecution partition(JobExecution jobExecution, String fileName, double maxScore, String maxPlayer,
+                                           double minScore, String minPlayer) {
+        StepExecution execution = new StepExecution("averageTeamScoreWorkerStep:" + fileName, jobExecution);
+        execution.setStatus(BatchStatus.COMPLETED);
+        execution.setReadCount(1);
+        ExecutionContext context = execution.getExecutionContext();
+        context.putString(TeamAverageStepExecutionAggregator.FILE_NAME, "file:/input/" + fileName);
+        context.putDouble(TeamAverageProcessor.MAX_SCORE, maxScore);
+        context.putString(TeamAverageProcessor.MAX_PLAYER, maxPlayer);
+        context.putDouble(TeamAverageProcessor.MIN_SCORE, minScore);
+        context.putString(TeamAverageProcessor.MIN_PLAYER, minPlayer);
+        return execution;
+    }
+}
@@ -0,0 +1,45 @@
+package org.example;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.batch.item.ExecutionContext;
+
+import java.io.File;
+import java.nio.file.Path;
+
+
+// Unit test for team performance baseline, merged with the baselines of the later players and persisted
+public class TeamPerformanceBaselineTest {
+
+    @TempDir
+    private Path tempDirectory;
+
+    @Test
+    public void testEarlierPlayersKeepThePlaceOnEqualScores() {
+        TeamPerformanceBaseline baseline = new TeamPerformanceBaseline(9.8, "Aaron", 4.3, "Camila");
+
+        Assertions.assertSame(baseline, baseline.merge(null));
+        Assertions.assertEquals(baseline, baseline.merge(new TeamPerformanceBaseline(9.8, "Boris", 4.3, "Yuri")));
+        Assertions.assertEquals(new TeamPerformanceBaseline(9.9, "Boris", 4.3, "Camila"),
+                baseline.merge(new TeamPerformanceBaseline(9.9, "Boris", 7.1, "Yuri")));
+        Assertions.assertEquals(new TeamPerformanceBaseline(9.8, "Aaron", 2.6, "Yuri"),
+                baseline.merge(new TeamPerformanceBaseline(9.3, "Boris", 2.6, "Yuri")));
+    }
+
+    @Test
+    public void testBaselineIsPersistedAndPublished() throws Exception {
+        File file = tempDirectory.resolve("baseline.properties").toFile();
+        Assertions.assertNull(TeamPerformanceBaseline.load(file));
+
+        TeamPerformanceBaseline baseline = new TeamPerformanceBaseline(9.8, "Aaron", 4.3, "Camila");
+        baseline.save(file);
+        Assertions.assertEquals(baseline, TeamPerformanceBaseline.load(file));
+
+        ExecutionContext context = new ExecutionContext();
+        Assertions.assertNull(TeamPerformanceBaseline.fromContext(context));
+        baseline.toContext(context);
+        Assertions.assertEquals("Aaron", context.getString(TeamAverageProcessor.MAX_PLAYER));
+        Assertions.assertEquals(baseline, TeamPerformanceBaseline.fromContext(context));
+    }
+}
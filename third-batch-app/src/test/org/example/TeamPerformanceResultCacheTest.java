@@ -0,0 +1,69 @@
+package org.example;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+
+// Unit test for team performance result cache, keyed by division files contents and score rank
+public class TeamPerformanceResultCacheTest {
+
+    @TempDir
+    private Path tempDirectory;
+
+    @Test
+    public void testKeyDependsOnContentsAndScoreRank() throws Exception {
+        Path division = Files.writeString(tempDirectory.resolve("division.txt"), "Buzzards\nAaron:9.80,7.40\n");
+        Resource[] divisionResources = {new FileSystemResource(division)};
+        String key = TeamPerformanceResultCache.key(divisionResources, 0);
+
+        Assertions.assertEquals(key, TeamPerformanceResultCache.key(divisionResources, 0));
+        Assertions.assertNotEquals(key, TeamPerformanceResultCache.key(divisionResources, 1));
+        Files.writeString(division, "Buzzards\nAaron:9.80,7.50\n");
+        Assertions.assertNotEquals(key, TeamPerformanceResultCache.key(divisionResources, 0));
+    }
+
+    @Test
+    public void testLeastRecentlyUsedResultsAreEvicted() throws Exception {
+        File cacheDirectory = tempDirectory.resolve("cache").toFile();
+        // Each of the results takes 3 bytes, so only 2 of them fit
+        TeamPerformanceResultCache cache = new TeamPerformanceResultCache(cacheDirectory, 6);
+
+        File out = tempDirectory.resolve("out").toFile();
+        Assertions.assertFalse(cache.materialize("a", out));
+        cache.store("a", results("a"));
+        cache.store("b", results("b"));
+        Assertions.assertTrue(cache.materialize("a", out));
+        Assertions.assertEquals("a", Files.readString(new File(out, "max.txt").toPath()));
+
+        // Results 'b' are used less recently than 'a'
+        cache.store("c", results("c"));
+        Assertions.assertFalse(cache.materialize("b", out));
+        Assertions.assertTrue(cache.materialize("c", out));
+        Assertions.assertEquals(2, cache.getHits());
+        Assertions.assertEquals(2, cache.getMisses());
+        Assertions.assertEquals(1, cache.getEvictions());
+        Assertions.assertEquals(6, cache.getTotalBytes());
+
+        // Cached results are picked up by the new instance
+        TeamPerformanceResultCache reopened = new TeamPerformanceResultCache(cacheDirectory, 6);
+        Assertions.assertEquals(2, reopened.getEntryCount());
+        Assertions.assertTrue(reopened.materialize("a", out));
+        Assertions.assertEquals("a", Files.readString(new File(out, "avg.txt").toPath()));
+    }
+
+    // Directory with result files, each holding the specified one-byte content
+    private File results(String content) throws Exception {
+        Path directory = Files.createDirectories(tempDirectory.resolve("results-" + content));
+        for (String fileName : TeamPerformanceResultCache.FILE_NAMES) {
+            Files.writeString(directory.resolve(fileName), content);
+        }
+        return directory.toFile();
+    }
+}
@@ -0,0 +1,170 @@
+package org.example;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.Job;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobParameters;
+import org.springframework.batch.core.JobParametersBuilder;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.test.JobLauncherTestUtils;
+import org.springframework.batch.test.context.SpringBatchTest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+
+// Job test for watch team performance job, verifying that division files processed in several batches give the same
+// results as processed at once, whether the batch changes the baseline or not, and that failed commit leaves the global
+// results as they were until the job is restarted
+@SpringBatchTest
+@SpringJUnitConfig({TeamPerformanceJobConfiguration.class, TestConfiguration.class})
+@TestPropertySource(properties = "result.cache.enabled=false")
+public class TeamPerformanceWatchJobTest {
+
+    // Best and worst players of rank 1 are spread across the divisions, so that the baseline is changed by some batches
+    private static final long SCORE_RANK = 1;
+
+    @TempDir
+    private Path tempDirectory;
+
+    @Autowired
+    private JobLauncherTestUtils jobLauncherTestUtils;
+
+    @Autowired
+    @Qualifier("teamPerformanceJob")
+    private Job teamPerformanceJob;
+
+    @Autowired
+    @Qualifier("teamPerformanceWatchJob")
+    private Job teamPerformanceWatchJob;
+
+    @Autowired
+    private TeamPerformanceJobConfiguration configuration;
+
+    private Object calculatedDirectoryResource;
+
+    @BeforeEach
+    public void setCalculatedDirectory() {
+        // Files of the jobs, and the global results, are kept in the temporary directory rather than in 'calculated/'
+        calculatedDirectoryResource = ReflectionTestUtils.getField(configuration, "calculatedDirectoryResource");
+        ReflectionTestUtils.setField(configuration, "calculatedDirectoryResource",
+                new FileSystemResource(tempDirectory.toFile().getAbsolutePath() + "/"));
+    }
+
+    @AfterEach
+    public void resetCalculatedDirectory() {
+        ReflectionTestUtils.setField(configuration, "calculatedDirectoryResource", calculatedDirectoryResource);
+    }
+
+    @Test
+    public void testBatchesGiveTheSameResultsAsFullRun() throws Exception {
+        String fullRunId = UUID.randomUUID().toString();
+        jobLauncherTestUtils.setJob(teamPerformanceJob);
+        Assertions.assertEquals(BatchStatus.COMPLETED, jobLauncherTestUtils.launchJob(new JobParametersBuilder()
+                .addLong(TeamPerformanceJobConfiguration.SCORE_RANK_PARAM, SCORE_RANK)
+                .addString(TeamPerformanceJobConfiguration.UUID_PARAM, fullRunId)
+                .toJobParameters()).getStatus());
+
+        // The first two batches change the baseline, so performances of all the teams are calculated again,
+        // while the performances of the last one are appended
+        jobLauncherTestUtils.setJob(teamPerformanceWatchJob);
+        Assertions.assertTrue(runBatch("div1.txt", "div2.txt"));
+        Assertions.assertTrue(runBatch("div3.txt", "div5.txt"));
+        Assertions.assertFalse(runBatch("div4.txt"));
+
+        // Teams are in the order of the batches, so files are compared by header and sorted lines
+        for (String fileName : new String[] {"avg.txt", "max.txt", "min.txt"}) {
+            List<String> expectedLines = Files.readAllLines(tempDirectory.resolve(fullRunId).resolve(fileName));
+            List<String> lines = Files.readAllLines(getWatchStateFile(fileName).toPath());
+            Assertions.assertEquals(expectedLines.get(0), lines.get(0), fileName);
+            Assertions.assertEquals(expectedLines.stream().sorted().toList(), lines.stream().sorted().toList(), fileName);
+        }
+    }
+
+    @Test
+    public void testFailedCommitLeavesGlobalResultsUntilRestart() throws Exception {
+        jobLauncherTestUtils.setJob(teamPerformanceWatchJob);
+        Assertions.assertTrue(runBatch("div1.txt", "div2.txt", "div3.txt", "div5.txt"));
+        String averages = Files.readString(getWatchStateFile("avg.txt").toPath());
+        String maxPerformances = Files.readString(getWatchStateFile("max.txt").toPath());
+        String baseline = Files.readString(getWatchStateFile("baseline.properties").toPath());
+
+        // Global min.txt is replaced by a directory, so that performances of the batch could not be appended to it
+        Path minPerformances = getWatchStateFile("min.txt").toPath();
+        Path minPerformancesContents = tempDirectory.resolve("min.txt");
+        Files.move(minPerformances, minPerformancesContents);
+        Files.createDirectory(minPerformances);
+        String batchId = UUID.randomUUID().toString();
+        JobParameters jobParameters = getBatchJobParameters(batchId, "div4.txt");
+        JobExecution failedExecution = jobLauncherTestUtils.launchJob(jobParameters);
+        Assertions.assertEquals(BatchStatus.FAILED, failedExecution.getStatus());
+        Assertions.assertEquals(List.of("averageTeamScoreStep", "watchBaselineMergeStep", "watchRatioPerformanceStep",
+                "watchCommitStep"), getStepNames(failedExecution));
+
+        // Neither averages nor max performances of the batch are merged
+        Assertions.assertEquals(averages, Files.readString(getWatchStateFile("avg.txt").toPath()));
+        Assertions.assertEquals(maxPerformances, Files.readString(getWatchStateFile("max.txt").toPath()));
+        Assertions.assertEquals(baseline, Files.readString(getWatchStateFile("baseline.properties").toPath()));
+
+        // Restarted job merges the batch once, starting from the failed step
+        Files.delete(minPerformances);
+        Files.move(minPerformancesContents, minPerformances);
+        JobExecution restartedExecution = jobLauncherTestUtils.launchJob(jobParameters);
+        Assertions.assertEquals(BatchStatus.COMPLETED, restartedExecution.getStatus());
+        Assertions.assertEquals(List.of("watchCommitStep", "shellScriptStep", "successLoggerStep"),
+                getStepNames(restartedExecution));
+        Assertions.assertEquals(averages + Files.readString(tempDirectory.resolve(batchId).resolve("avg.txt")),
+                Files.readString(getWatchStateFile("avg.txt").toPath()));
+        Assertions.assertEquals(maxPerformances + Files.readString(tempDirectory.resolve(batchId).resolve("max.txt")),
+                Files.readString(getWatchStateFile("max.txt").toPath()));
+    }
+
+    // Run the watch job for the batch of the bundled division files, laid out as the watcher does, and tell whether
+    // the batch changes the baseline (job execution isn't returned, since it would be taken for the one of job scope
+    // by Spring Batch test listener)
+    private boolean runBatch(String... divisionFiles) throws Exception {
+        JobExecution jobExecution = jobLauncherTestUtils.launchJob(
+                getBatchJobParameters(UUID.randomUUID().toString(), divisionFiles));
+        Assertions.assertEquals(BatchStatus.COMPLETED, jobExecution.getStatus());
+        return (Boolean) jobExecution.getExecutionContext().get(TeamPerformanceJobConfiguration.WATCH_BASELINE_CHANGED);
+    }
+
+    private JobParameters getBatchJobParameters(String batchId, String... divisionFiles) throws Exception {
+        Path inputDirectory = Files.createDirectories(tempDirectory.resolve(batchId).resolve("input"));
+        for (String divisionFile : divisionFiles) {
+            Files.copy(Path.of("src/res/input", divisionFile), inputDirectory.resolve(divisionFile));
+        }
+        return new JobParametersBuilder()
+                .addLong(TeamPerformanceJobConfiguration.SCORE_RANK_PARAM, SCORE_RANK)
+                .addString(TeamPerformanceJobConfiguration.UUID_PARAM, batchId)
+                .addString(TeamPerformanceJobConfiguration.INPUT_DIRECTORY_PARAM, inputDirectory.toString())
+                .toJobParameters();
+    }
+
+    private static List<String> getStepNames(JobExecution jobExecution) {
+        List<String> stepNames = new ArrayList<>();
+        for (StepExecution stepExecution : jobExecution.getStepExecutions()) {
+            stepNames.add(stepExecution.getStepName());
+        }
+        return stepNames;
+    }
+
+    private File getWatchStateFile(String fileName) {
+        return tempDirectory.resolve("watch/rank-" + SCORE_RANK).resolve(fileName).toFile();
+    }
+}